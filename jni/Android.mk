@@ -4,8 +4,8 @@ include $(CLEAR_VARS)
  
 # Here we give our module name and source file(s)
 LOCAL_MODULE    := EGNOSSWReceiver
-LOCAL_SRC_FILES := CoordinatesMain.c Egnos.c Ephemeris.c Fast_correction.c Ionosphere.c Long_correction.c Matrix.c Positioning.c Satellite.c   Troposphere.c Utils.c   
-LOCAL_C_INCLUDES := CoordinatesMain.h Constants.h Egnos.h Ephemeris.h Fast_correction.h Ionosphere.h Long-correction.h Matrix.h Positioning.h Satellite.h Troposphere.h Utils.h 
+LOCAL_SRC_FILES := Batch.c CoordinatesMain.c Egnos.c Engine.c Ephemeris.c Fast_correction.c Fde.c Ionosphere.c Kalman.c Long_correction.c Matrix.c Positioning.c Satellite.c   Troposphere.c Utils.c   
+LOCAL_C_INCLUDES := Batch.h CoordinatesMain.h Constants.h Egnos.h Engine.h Ephemeris.h Fast_correction.h Fde.h Ionosphere.h Kalman.h Long-correction.h Matrix.h Positioning.h Satellite.h Troposphere.h Utils.h 
  
 LOCAL_LDLIBS := -llog 
 
@@ -0,0 +1,169 @@
+/**
+ * @file Batch.c
+ *
+ * @brief Batch module source file containing the batched corrections
+ * functions.
+ * @details The module computes the look angles, the Ionospheric Pierce Points
+ * and the tropospheric corrections of all the satellites of an iteration in
+ * one pass over contiguous tables, instead of one Satellite structure at a
+ * time. The terms depending only on the receiver position are computed once
+ * per batch. The results are the same as the ones of the per satellite
+ * functions.
+ *
+ * Rev: 3.0.0
+ *
+ * Author: DKE Aerospace Germany GmbH
+ *
+ * Copyright 2012 European Commission
+ *
+ * Licensed under the EUPL, Version 1.1 only (the "Licence");
+ * You may not use this work except in compliance with the
+ * Licence.
+ * You may obtain a copy of the Licence at:
+ * http://ec.europa.eu/idabc/eupl.html
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the Licence is
+ * distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied.
+ * See the Licence for the specific language governing
+ * permissions and limitations under the Licence.
+ *
+ */
+
+#include "Batch.h"
+#include "Positioning.h"
+
+/**
+ * batch_init function
+ * The function empties a batch.
+ * @param batch  The batch
+ */
+void batch_init(Sat_batch * batch)
+{
+	(*batch).n = 0;
+}
+
+/**
+ * batch_add function
+ * The function adds the position and time of a satellite to a batch.
+ * @param batch  The batch
+ * @param *Sat   The pointer of the Satellite
+ * @param idx    The position of the satellite in its Satellite table
+ * @return       The position of the satellite in the batch, -1 if the batch is full
+ */
+int batch_add(Sat_batch * batch, Satellite * Sat, int idx)
+{
+	int k = (*batch).n;
+
+	if(k >= BATCH_MAX)
+		return -1;
+
+	(*batch).idx[k] = idx;
+	(*batch).x[k] = (*Sat).pos_x;
+	(*batch).y[k] = (*Sat).pos_y;
+	(*batch).z[k] = (*Sat).pos_z;
+	(*batch).tow[k] = (*Sat).tow2;
+	(*batch).weeknb[k] = (*Sat).weeknb;
+	(*batch).n++;
+
+	return k;
+}
+
+/**
+ * batch_lookAngles function
+ * The function computes the elevation and azimuth of all the satellites of the batch. The receiver
+ * geodetic coordinates and the ENU rotation are computed once (see cconv_to_ENU).
+ * @param batch  The batch
+ * @param X_est  The receiver position in ECEF coordinates (m)
+ * @param geo    The destination table containing the receiver latitude (deg), longitude (deg) and height (m)
+ */
+void batch_lookAngles(Sat_batch * batch, double X_est[3], double geo[3])
+{
+	int k;
+	double slat, clat, slon, clon, dx, dy, dz, E, N, U, az;
+
+	geo[0] = X_est[0];
+	geo[1] = X_est[1];
+	geo[2] = X_est[2];
+	cconv_to_geo(geo);
+
+	slat = sin(geo[0]*PI/180);
+	clat = cos(geo[0]*PI/180);
+	slon = sin(geo[1]*PI/180);
+	clon = cos(geo[1]*PI/180);
+
+	for(k = 0; k < (*batch).n; k++)
+	{
+		dx = (*batch).x[k] - X_est[0];
+		dy = (*batch).y[k] - X_est[1];
+		dz = (*batch).z[k] - X_est[2];
+
+		E = -slon*dx + clon*dy;
+		N = -slat*clon*dx - slat*slon*dy + clat*dz;
+		U = clat*clon*dx + clat*slon*dy + slat*dz;
+
+		(*batch).el[k] = atan2(U, sqrt(E*E + N*N))*180/PI;
+		az = atan2(E, N)*180/PI;
+		(*batch).az[k] = az < 0 ? az + 360 : az;
+	}
+}
+
+/**
+ * batch_IPPlocation function
+ * The function computes the Ionospheric Pierce Point of all the satellites of the batch (see IPPlocation).
+ * @param batch  The batch, with the look angles computed
+ * @param geo    The receiver latitude (deg), longitude (deg) and height (m)
+ */
+void batch_IPPlocation(Sat_batch * batch, double geo[3])
+{
+	int k;
+
+	for(k = 0; k < (*batch).n; k++)
+		IPPlocation((*batch).ipp[k], geo[0], geo[1], (*batch).el[k], (*batch).az[k]);
+}
+
+/**
+ * batch_tropoCorrection function
+ * The function computes the tropospheric correction and model variance of all the satellites of the batch
+ * (see get_tropoCorrection). The zenith delays are only computed again when the day of the year changes
+ * from one satellite to the next.
+ * @param batch  The batch, with the look angles computed
+ * @param geo    The receiver latitude (deg), longitude (deg) and height (m)
+ */
+void batch_tropoCorrection(Sat_batch * batch, double geo[3])
+{
+	int k, D;
+	int D_zenith = -1;
+	double zenith[2] = {0, 0};
+	double m;
+
+	for(k = 0; k < (*batch).n; k++)
+	{
+		D = get_tropoDay((*batch).weeknb[k], (*batch).tow[k]);
+		if(k == 0 || D != D_zenith)
+		{
+			get_tropoZenith(zenith, geo[0], geo[2], D);
+			D_zenith = D;
+		}
+
+		m = get_tropoMapping((*batch).el[k]);
+		(*batch).tropo_delay[k] = -(zenith[0] + zenith[1])*m;
+		(*batch).sigma_tropo2[k] = (0.12*m)*(0.12*m);
+	}
+}
+
+/**
+ * batch_corrections function
+ * The function computes the look angles, Ionospheric Pierce Points and tropospheric corrections
+ * of all the satellites of the batch.
+ * @param batch  The batch
+ * @param X_est  The receiver position in ECEF coordinates (m)
+ * @param geo    The destination table containing the receiver latitude (deg), longitude (deg) and height (m)
+ */
+void batch_corrections(Sat_batch * batch, double X_est[3], double geo[3])
+{
+	batch_lookAngles(batch, X_est, geo);
+	batch_IPPlocation(batch, geo);
+	batch_tropoCorrection(batch, geo);
+}
@@ -0,0 +1,77 @@
+/**
+ * @file Batch.h
+ *
+ * @brief Batch module header file defining the structure-of-arrays satellite
+ * batch and the batched corrections functions.
+ * @details The module computes the look angles, the Ionospheric Pierce Points
+ * and the tropospheric corrections of all the satellites of an iteration in
+ * one pass over contiguous tables, instead of one Satellite structure at a
+ * time. The terms depending only on the receiver position are computed once
+ * per batch.
+ *
+ * Rev: 3.0.0
+ *
+ * Author: DKE Aerospace Germany GmbH
+ *
+ * Copyright 2012 European Commission
+ *
+ * Licensed under the EUPL, Version 1.1 only (the "Licence");
+ * You may not use this work except in compliance with the
+ * Licence.
+ * You may obtain a copy of the Licence at:
+ * http://ec.europa.eu/idabc/eupl.html
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the Licence is
+ * distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied.
+ * See the Licence for the specific language governing
+ * permissions and limitations under the Licence.
+ *
+ */
+
+#ifndef BATCH_H_
+#define BATCH_H_
+
+#include <math.h>
+#include "Constants.h"
+#include "Satellite.h"
+
+/* Maximum number of satellites of a batch */
+#define BATCH_MAX 32
+
+/**
+ * @typedef Sat_batch Sat_batch
+ */
+typedef struct Sat_batch Sat_batch;
+
+/**
+ * @struct Sat_batch Batch.h "Batch.h"
+ * @brief The structure holds the satellites of a batch as a structure of arrays.
+ * @details Each table holds one parameter of all the satellites of the batch,
+ * so that the batched functions loop over contiguous values.
+ */
+struct Sat_batch
+{
+  int n;                             /*!< Number of satellites in the batch */
+  int idx[BATCH_MAX];                /*!< Position of each satellite in the Satellite table */
+  double x[BATCH_MAX];               /*!< X position of the SV in ECEF coordinates             (m) */
+  double y[BATCH_MAX];               /*!< Y position of the SV in ECEF coordinates             (m) */
+  double z[BATCH_MAX];               /*!< Z position of the SV in ECEF coordinates             (m) */
+  double tow[BATCH_MAX];             /*!< Corrected time of week                               (s) */
+  unsigned short weeknb[BATCH_MAX];  /*!< Transmission week number                             (week) */
+  double el[BATCH_MAX];              /*!< Elevation                                            (deg) */
+  double az[BATCH_MAX];              /*!< Azimuth                                              (deg) */
+  double ipp[BATCH_MAX][2];          /*!< Ionospheric Pierce Point latitude and longitude      (deg) */
+  double tropo_delay[BATCH_MAX];     /*!< Tropospheric delay                                   (m) */
+  double sigma_tropo2[BATCH_MAX];    /*!< Degradation of Tropospheric correction               (m^2) */
+};
+
+void batch_init(Sat_batch * batch);
+int batch_add(Sat_batch * batch, Satellite * Sat, int idx);
+void batch_lookAngles(Sat_batch * batch, double X_est[3], double geo[3]);
+void batch_IPPlocation(Sat_batch * batch, double geo[3]);
+void batch_tropoCorrection(Sat_batch * batch, double geo[3]);
+void batch_corrections(Sat_batch * batch, double X_est[3], double geo[3]);
+
+#endif /* BATCH_H_ */
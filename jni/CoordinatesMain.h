@@ -5,8 +5,8 @@
  * computation functions.
  * @details The module integrates EGNOS Demo App and EGNOS-SW Receiver modules
  * i.e. integrate java and c using android ndk tool. This module is the
- * entrance to core of the software, it contains the two functions that
- * request the GPS and EGNOS positioning processes.
+ * entrance to core of the software, it contains the functions that feed
+ * the positioning engine and request the GPS and EGNOS positioning processes.
  *
  *
  * Rev: 3.0.0
@@ -34,22 +34,29 @@
 
 #include <android/log.h>
 #define APPNAME "Coordinates"
-#include "Positioning.h"
-#include "Fast_correction.h"
-#include "Long_correction.h"
-#include "Utils.h"
-#include "Egnos.h"
+#include "Engine.h"
 #include <string.h>
 #include <jni.h>
 
-JNIEXPORT jdoubleArray Java_com_ec_egnossdk_uBlox_getLongitudeLatitudeEGNOS
-(JNIEnv * env,jobject obj,jobjectArray ephemDataArray,jobjectArray sat_dataArray,jstring jmsg1,
-		jstring jmsg10,jstring jmsg12,jstring jmsg7,jstring jmsg6,jobjectArray jm18_t,
-		jobjectArray jm26_t,jobjectArray jmsg2_5,jobjectArray jmsg24_t,jobjectArray jmsg25_t,
-		jstring jmsg9,jstring jmsg17, jdoubleArray jinit_pos, jdoubleArray jutc_array,
-		jdoubleArray jklob_array, jintArray RnDoptions,jdoubleArray sat_data_notUsedArray);
-JNIEXPORT jdoubleArray Java_com_ec_egnossdk_uBlox_getLongitudeLatitudeGPS
-(JNIEnv * env,jobject obj,jobjectArray ephemDataArray,jobjectArray sat_dataArray,
-		jdoubleArray jinit_pos, jdoubleArray jutc_array,jdoubleArray sat_data_notUsedArray);
+JNIEXPORT jlong Java_com_ec_egnossdk_SWReceiver_createEngine
+(JNIEnv * env,jclass cls);
+JNIEXPORT void Java_com_ec_egnossdk_SWReceiver_destroyEngine
+(JNIEnv * env,jclass cls,jlong jengine);
+JNIEXPORT void Java_com_ec_egnossdk_SWReceiver_setTolerance
+(JNIEnv * env,jclass cls,jlong jengine,jdouble tolerance);
+JNIEXPORT void Java_com_ec_egnossdk_SWReceiver_updateEphemeris
+(JNIEnv * env,jclass cls,jlong jengine,jobjectArray ephemDataArray);
+JNIEXPORT void Java_com_ec_egnossdk_SWReceiver_updateSbasMessages
+(JNIEnv * env,jclass cls,jlong jengine,jstring jmsg1,jstring jmsg10,jstring jmsg12,
+		jstring jmsg7,jstring jmsg6,jobjectArray jm18_t,jobjectArray jm26_t,
+		jobjectArray jmsg2_5,jobjectArray jmsg24_t,jobjectArray jmsg25_t,jstring jmsg9,
+		jstring jmsg17);
+JNIEXPORT void Java_com_ec_egnossdk_SWReceiver_getLongitudeLatitudeEGNOS
+(JNIEnv * env,jclass cls,jlong jengine,jobjectArray sat_dataArray,jdoubleArray jinit_pos,
+		jdoubleArray jutc_array,jdoubleArray jklob_array,jintArray RnDoptions,
+		jobjectArray sat_data_notUsedArray,jdoubleArray coordinates);
+JNIEXPORT void Java_com_ec_egnossdk_SWReceiver_getLongitudeLatitudeGPS
+(JNIEnv * env,jclass cls,jlong jengine,jobjectArray sat_dataArray,jdoubleArray jinit_pos,
+		jdoubleArray jutc_array,jobjectArray sat_data_notUsedArray,jdoubleArray coordinates);
 
 #endif /* COORDINATESMAIN_H_ */
@@ -169,7 +169,7 @@ int decode_msg1(Egnos_msg * msg)
 	int r = 0;
 	char type[7];
 	char tmp[139];
-	char bin[1];
+	char bin[2];
 
 	// Message type check
 	extract((*msg).bin_msg,8,13,type);
@@ -218,7 +218,7 @@ int decode_msg2_5(Egnos_msg * msg)
 {
 	int i,int_tmp;
 	int r = 0;
-	char type[6];
+	char type[7];
 	char tmp[100];
 
 	// Message type check
@@ -265,9 +265,9 @@ int decode_msg24(Egnos_msg * msg, int fast)
 {
 	int int_tmp,i;
 	int r = 0;
-	char type[6];
+	char type[7];
 	char tmp[100];
-	char bin[1];
+	char bin[2];
 
 	// Message type check
 	extract((*msg).bin_msg,8,13,type);
@@ -446,9 +446,9 @@ int decode_msg25(Egnos_msg * msg)
 {
 	int i,j,int_tmp;
 	int r = 0;
-	char type[6];
+	char type[7];
 	char tmp[100];
-	char bin[1];
+	char bin[2];
 
 	// Message type check
 	extract((*msg).bin_msg,8,13,type);
@@ -613,7 +613,7 @@ int decode_msg18(Egnos_msg * msg)
 {
 	int i,j;
 	int r = 0;
-	char type[6];
+	char type[7];
 	char tmp[800];
 	char tmp2[300];
 
@@ -1729,7 +1729,7 @@ int decode_msg26(Egnos_msg * msg)
 {
 	int i;
 	int r = 0;
-	char type[6];
+	char type[7];
 	char tmp[10];
 	//printf("BIN: %s\n",(*msg).bin_msg);
 
@@ -1790,8 +1790,8 @@ int decode_msg7(Egnos_msg * msg)
 {
 	int i,j;
 	int r = 0;
-	char type[6];
-	char char_tmp[4];
+	char type[7];
+	char char_tmp[5];
 	//printf("BIN: %s\n",(*msg).bin_msg);
 
 	// Message type check
@@ -1830,8 +1830,8 @@ int decode_msg7(Egnos_msg * msg)
 int decode_msg10(Egnos_msg * msg)
 {
 	int r = 0;
-	char type[6];
-	char char_tmp[10];
+	char type[7];
+	char char_tmp[11];
 	//printf("BIN: %s\n",(*msg).bin_msg);
 
 	// Message type check
@@ -1906,7 +1906,7 @@ int decode_msg10(Egnos_msg * msg)
 int decode_msg12(Egnos_msg * msg)
 {
 	int r = 0;
-	char type[6];
+	char type[7];
 	char char_tmp[33];
 #ifdef Linux_H_
 	long long int_tmp;
@@ -1994,7 +1994,7 @@ int decode_msg12(Egnos_msg * msg)
 int decode_msg9(Egnos_msg * msg)
 {
 	int r = 0;
-	char type[6];
+	char type[7];
 	char char_tmp[32];
 #ifdef Linux_H_
 	long long int_tmp;
@@ -0,0 +1,859 @@
+/**
+ * @file Engine.c
+ *
+ * @brief Engine module source file containing the persistent positioning
+ * engine functions.
+ * @details The module keeps the decoded GPS ephemerides and EGNOS messages
+ * between two position computations. The inputs are fed incrementally and
+ * compared with the previously received ones, so that the decoding of the
+ * ephemerides and of the EGNOS corrections is only performed when an input
+ * has changed. The position is then computed at each epoch from the decoded
+ * state and the new measurements.
+ *
+ * Rev: 3.0.0
+ *
+ * Author: DKE Aerospace Germany GmbH
+ *
+ * Copyright 2012 European Commission
+ *
+ * Licensed under the EUPL, Version 1.1 only (the "Licence");
+ * You may not use this work except in compliance with the
+ * Licence.
+ * You may obtain a copy of the Licence at:
+ * http://ec.europa.eu/idabc/eupl.html
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the Licence is
+ * distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied.
+ * See the Licence for the specific language governing
+ * permissions and limitations under the Licence.
+ *
+ */
+
+#include "Engine.h"
+#include <stdlib.h>
+
+/**
+ * engine_decode_message function
+ * The function decodes a single EGNOS message (types 1, 6, 7, 9, 10, 12 and 17)
+ * into an Egnos_msg structure.
+ * @param msg      The destination message
+ * @param type     The message type
+ * @param msg_char The message plus TOW in string format (0-12:TOW, 12-262:Payload)
+ */
+static void engine_decode_message(Egnos_msg * msg, int type, char msg_char[263])
+{
+	char tow_char[13] = "";
+	char egnos_char[251] = "";
+
+	init_msg(msg, type);
+	if(msg_char[0] == '\0')
+		return;
+
+	strncpy(tow_char, msg_char, 12);
+	tow_char[12] = '\0';
+
+	if(atof(tow_char) != 0)
+		(*msg).tow = atof(tow_char);
+
+	// The TOW of the degradation factors messages is not used
+	if(type == 7 || type == 10)
+		(*msg).tow = -1;
+
+	strncpy(egnos_char, msg_char + 12, 250);
+	egnos_char[250] = '\0';
+	(*msg).bin_msg = egnos_char;
+
+	switch(type)
+	{
+	case 1:  decode_msg1(msg);  break;
+	case 6:  decode_msg6(msg);  break;
+	case 7:  decode_msg7(msg);  break;
+	case 9:  decode_msg9(msg);  break;
+	case 10: decode_msg10(msg); break;
+	case 12: decode_msg12(msg); break;
+	case 17: decode_msg17(msg); break;
+	}
+	(*msg).bin_msg = "";
+}
+
+/**
+ * engine_find_ephemeris function
+ * The function searches the ephemeris slot of a GPS satellite.
+ * @param engine The engine context
+ * @param prn    The PRN of the satellite
+ * @return       The slot of the decoded ephemerides, -1 if not available
+ */
+static int engine_find_ephemeris(Engine * engine, double prn)
+{
+	int i;
+
+	if(prn <= 0.0 || prn > 32)
+		return -1;
+
+	for(i = 0; i < 32; i++)
+		if((*engine).eph_prn[i] == prn && (*engine).eph_sets[i] > 0)
+			return i;
+
+	return -1;
+}
+
+/**
+ * engine_set_measurements function
+ * The function creates the channels tables from the receiver measurements:
+ * the GPS satellites are saved first in the sat_data table, the SBAS
+ * satellites (if sbas is set to 1) are added after them, and the satellites
+ * not used are packed at the beginning of the sat_data_notUsed table.
+ * The ephemeris tables are filled in the same order from the decoded
+ * ephemerides, with the most recent ephemeris set.
+ * @param engine              The engine context
+ * @param sat_data_in         The table of 19 satellites channels: PRN, TOW, Pseudorange, C/N0
+ * @param sat_data_notUsed_in The table of 19 channels of the satellites not used
+ * @param sbas                1 to keep the SBAS satellites, 0 otherwise
+ * @param sat_data            The destination table of the satellites channels
+ * @param sat_data_notUsed    The destination table of the satellites not used
+ * @param eph_t               The destination table of the ephemerides of sat_data
+ * @param eph_nu              The destination table of the ephemerides of sat_data_notUsed
+ * @return                    The number of satellites not used
+ */
+static int engine_set_measurements(Engine * engine, double sat_data_in[19][4],
+		double sat_data_notUsed_in[19][4], int sbas, double sat_data[19][4],
+		double sat_data_notUsed[19][4], Satellite eph_t[19], Satellite eph_nu[19])
+{
+	double sbas_data[19][4];
+	int count_satdata = 0;
+	int count_sbasdata = 0;
+	int count_satdata_nu = 0;
+	int i, j, slot;
+	double prn;
+
+	for(i = 0; i < 19; i++){
+		prn = sat_data_in[i][0];
+		if (prn < 38.0 && prn > 0.0){
+			for(j = 0; j < 4; j++)
+				sat_data[count_satdata][j] = sat_data_in[i][j];
+			count_satdata++;
+		}
+		else if(sbas == 1 && prn > 119 && prn < 139){
+			for(j = 0; j < 4; j++)
+				sbas_data[count_sbasdata][j] = sat_data_in[i][j];
+			count_sbasdata++;
+		}
+	}
+
+	for(i = 0; i < count_sbasdata; i++)
+		for(j = 0; j < 4; j++)
+			sat_data[count_satdata+i][j] = sbas_data[i][j];
+
+	for(i = count_satdata+count_sbasdata; i < 19; i++)
+		for(j = 0; j < 4; j++)
+			sat_data[i][j] = 0;
+
+	for(i = 0; i < 19; i++){
+		if (sat_data_notUsed_in[i][0] > 0){
+			for(j = 0; j < 4; j++)
+				sat_data_notUsed[count_satdata_nu][j] = sat_data_notUsed_in[i][j];
+			count_satdata_nu++;
+		}
+	}
+
+	for(i = count_satdata_nu; i < 19; i++)
+		for(j = 0; j < 4; j++)
+			sat_data_notUsed[i][j] = 0;
+
+	for(i = 0; i < 19; i++){
+		slot = engine_find_ephemeris(engine, sat_data[i][0]);
+		if(slot != -1)
+			eph_t[i] = (*engine).eph[slot][0];
+		else
+			init_satellite(&eph_t[i]);
+
+		slot = engine_find_ephemeris(engine, sat_data_notUsed[i][0]);
+		if(slot != -1)
+			eph_nu[i] = (*engine).eph[slot][0];
+		else
+			init_satellite(&eph_nu[i]);
+	}
+
+	return count_satdata_nu;
+}
+
+/**
+ * engine_select_ephemeris function
+ * The function selects, for each satellite corrected by a long term
+ * correction, the ephemeris set with the IODE of the correction.
+ * @param engine   The engine context
+ * @param msg_t    The table of messages type 24 or 25
+ * @param msg_nb   The number of messages of the table
+ * @param prn_nb   The number of PRNs of each message (2 for type 24, 4 for type 25)
+ * @param sat_data The table of the satellites channels
+ * @param eph_t    The ephemerides table of sat_data, updated
+ */
+static void engine_select_ephemeris(Engine * engine, Egnos_msg msg_t[], int msg_nb, int prn_nb,
+		double sat_data[19][4], Satellite eph_t[19])
+{
+	int i, j, p, kk, slot;
+	double prn_long;
+
+	for (i = 0; i < msg_nb; i++){
+		for (p = 0; p < prn_nb; p++){
+			if(msg_t[i].prn_long[p][0] < 1 || msg_t[i].prn_long[p][0] > 51)
+				continue;
+			prn_long = (*engine).msg1.prn[(int)msg_t[i].prn_long[p][0]-1];	// check PRN
+
+			for(j = 0; j < 19; j++){
+				if(sat_data[j][0] != prn_long)
+					continue;
+				slot = engine_find_ephemeris(engine, sat_data[j][0]);
+				if(slot == -1)
+					continue;
+				for (kk = 0; kk < (*engine).eph_sets[slot]; kk++){
+					if(msg_t[i].prn_long[p][1] == (*engine).eph[slot][kk].iode_s2){	// check IODE
+						eph_t[j] = (*engine).eph[slot][kk];
+						break;
+					}
+				}
+			}
+		}
+	}
+}
+
+/**
+ * engine_seed function
+ * The function gives the initial estimation of the position. An estimation
+ * given by the caller is used as is; otherwise the last valid solution of the
+ * mode is used if it is not older than ENGINE_SEED_AGE, so that the position
+ * iterations are warm started. The Bancroft method is used if none is available.
+ * @param engine   The engine context
+ * @param mode     The positioning mode (0: GPS, 1: EGNOS)
+ * @param sat_data The table of the satellites channels
+ * @param init_pos The initial estimation of the position, updated
+ */
+static void engine_seed(Engine * engine, int mode, double sat_data[19][4], double init_pos[4])
+{
+	int i;
+
+	if(init_pos[0] != 0 || init_pos[1] != 0 || init_pos[2] != 0 || init_pos[3] != 0)
+		return;
+	if((*engine).seed_tow[mode] < 0)
+		return;
+	for(i = 0; i < 19; i++)
+		if(sat_data[i][0] != 0)
+			break;
+	if(i == 19 || fabs(sat_data[i][1] - (*engine).seed_tow[mode]) > ENGINE_SEED_AGE)
+		return;
+
+	for(i = 0; i < 4; i++)
+		init_pos[i] = (*engine).seed[mode][i];
+}
+
+/**
+ * engine_keep_seed function
+ * The function keeps the solution of the epoch as initial estimation of the
+ * next one, if it is valid.
+ * @param engine    The engine context
+ * @param mode      The positioning mode (0: GPS, 1: EGNOS)
+ * @param sat_data  The table of the satellites channels
+ * @param sat_count The number of satellites used to compute the position
+ * @param X_est     The solution of the epoch
+ */
+static void engine_keep_seed(Engine * engine, int mode, double sat_data[19][4], int sat_count,
+		double X_est[4])
+{
+	int i;
+
+	if(sat_count < 4 || is_nan(X_est[0]) || is_nan(X_est[1]) || is_nan(X_est[2]) || is_nan(X_est[3]))
+		return;
+	for(i = 0; i < 19; i++)
+		if(sat_data[i][0] != 0)
+			break;
+	if(i == 19)
+		return;
+
+	(*engine).seed_tow[mode] = sat_data[i][1];
+	for(i = 0; i < 4; i++)
+		(*engine).seed[mode][i] = X_est[i];
+}
+
+/**
+ * engine_create function
+ * The function allocates an engine context with no ephemeris and no EGNOS
+ * message received.
+ * @return The engine context, NULL if it can not be allocated
+ */
+Engine * engine_create(void)
+{
+	int i;
+	Engine * engine = (Engine *) calloc(1, sizeof(Engine));
+
+	if(engine == NULL)
+		return NULL;
+
+	init_msg(&(*engine).msg1, 1);
+	init_msg(&(*engine).msg6, 6);
+	init_msg(&(*engine).msg7, 7);
+	init_msg(&(*engine).msg9, 9);
+	init_msg(&(*engine).msg10, 10);
+	init_msg(&(*engine).msg12, 12);
+	init_msg(&(*engine).msg17, 17);
+	set_fastCorrectionsSis((*engine).msg2_5, (*engine).msg2_5_char);
+	set_LongCorrections_MT24((*engine).msg24_t, (*engine).msg24_char);
+	set_LongCorrections_MT25((*engine).msg25_t, (*engine).msg25_char);
+	for(i = 0; i < 11; i++)
+		init_msg(&(*engine).m18_t[i], 18);
+	for(i = 0; i < 25; i++)
+		init_msg(&(*engine).m26_t[i], 26);
+	(*engine).grid_changed = 1;
+	init_ionoIndex(&(*engine).iono_index);
+	init_corrCache(&(*engine).corr_cache);
+	init_orbitCache(&(*engine).orbit_cache);
+	init_fdeSelection(&(*engine).selection);
+	init_kalman(&(*engine).kalman);
+	(*engine).seed_tow[0] = -1;
+	(*engine).seed_tow[1] = -1;
+	(*engine).tolerance = WLS_TOLERANCE;
+
+	return engine;
+}
+
+/**
+ * engine_destroy function
+ * The function releases an engine context.
+ * @param engine The engine context
+ */
+void engine_destroy(Engine * engine)
+{
+	free(engine);
+}
+
+/**
+ * engine_set_ephemeris function
+ * The function updates an ephemeris slot. The ephemeris sets are decoded
+ * only if the slot has changed since the previous update.
+ * @param engine   The engine context
+ * @param slot     The ephemeris slot (0-31)
+ * @param eph_char The ephemeris data (the 3 subframes) plus the prn number in a
+ *                 string format and the number of ephemeris sets available
+ *                 (0: no. of ephemeris sets; 1-2:PRN, 3-902:3 subframes set 1,
+ *                 903-4502: ephemeris sets 2-5), NULL or empty if not available
+ * @return         1 if the slot has been decoded, 0 if unchanged, -1 if the slot is invalid
+ */
+int engine_set_ephemeris(Engine * engine, int slot, const char * eph_char)
+{
+	char char_prn[3] = "";
+	int k, no_sets;
+
+	if(slot < 0 || slot >= 32)
+		return -1;
+	if(eph_char == NULL)
+		eph_char = "";
+
+	if(strncmp((*engine).eph_char[slot], eph_char, 4503) == 0)
+		return 0;
+
+	strncpy((*engine).eph_char[slot], eph_char, 4503);
+	(*engine).eph_char[slot][4503] = '\0';
+	(*engine).eph_prn[slot] = 0;
+	(*engine).eph_sets[slot] = 0;
+
+	if(eph_char[0] == '\0')
+		return 1;
+
+	strncpy(char_prn, (*engine).eph_char[slot] + 1, 2);
+	char_prn[2] = '\0';
+	(*engine).eph_prn[slot] = atof(char_prn);
+
+	no_sets = ((int)eph_char[0]) - 48;
+	if(no_sets > ENGINE_EPH_SETS)
+		no_sets = ENGINE_EPH_SETS;
+	// Only the complete sets are decoded
+	while(no_sets > 0 && strlen((*engine).eph_char[slot]) < 3 + no_sets*900)
+		no_sets--;
+
+	for(k = 0; k < no_sets; k++)
+		decode_ephemeris(&(*engine).eph[slot][k], (*engine).eph_char[slot] + 3 + k*900);
+	(*engine).eph_sets[slot] = no_sets;
+
+	return 1;
+}
+
+/**
+ * engine_set_message function
+ * The function updates an EGNOS message. The message is decoded only if it
+ * has changed since the previous update. The ionospheric grid is decoded
+ * again at the next position computation if a message type 18 or 26 has
+ * changed.
+ * @param engine   The engine context
+ * @param type     The message type: 1, 6, 7, 9, 10, 12, 17, 2 (for the table of
+ *                 messages 2-5), 18, 24, 25 or 26
+ * @param slot     The position of the message in its table: 0-7 for the messages
+ *                 2-5 (0-3:current TOW, 4-7:previous TOW), 0-4 for the messages 18,
+ *                 0-24 for the messages 24 and 26, 0-14 for the messages 25,
+ *                 0 for the other types
+ * @param msg_char The message plus TOW in string format (0-12:TOW, 12-262:Payload),
+ *                 NULL or empty if not available
+ * @return         1 if the message has been decoded, 0 if unchanged, -1 if the type or slot is invalid
+ */
+int engine_set_message(Engine * engine, int type, int slot, const char * msg_char)
+{
+	char * stored;
+
+	switch(type)
+	{
+	case 1:  stored = (*engine).msg1_char;  break;
+	case 6:  stored = (*engine).msg6_char;  break;
+	case 7:  stored = (*engine).msg7_char;  break;
+	case 9:  stored = (*engine).msg9_char;  break;
+	case 10: stored = (*engine).msg10_char; break;
+	case 12: stored = (*engine).msg12_char; break;
+	case 17: stored = (*engine).msg17_char; break;
+	case 2:
+		if(slot < 0 || slot >= 8)
+			return -1;
+		stored = (*engine).msg2_5_char[slot];
+		break;
+	case 18:
+		if(slot < 0 || slot >= 5)
+			return -1;
+		stored = (*engine).m18_char[slot];
+		break;
+	case 24:
+		if(slot < 0 || slot >= 25)
+			return -1;
+		stored = (*engine).msg24_char[slot];
+		break;
+	case 25:
+		if(slot < 0 || slot >= 15)
+			return -1;
+		stored = (*engine).msg25_char[slot];
+		break;
+	case 26:
+		if(slot < 0 || slot >= 25)
+			return -1;
+		stored = (*engine).m26_char[slot];
+		break;
+	default:
+		return -1;
+	}
+
+	if(msg_char == NULL)
+		msg_char = "";
+
+	if(strncmp(stored, msg_char, 262) == 0)
+		return 0;
+
+	memset(stored, 0, 263);
+	strncpy(stored, msg_char, 262);
+
+	switch(type)
+	{
+	case 1:
+		engine_decode_message(&(*engine).msg1, 1, stored);
+		// The PRN mask positions and long term corrections searches are outdated
+		(*engine).corr_cache.mask_version++;
+		(*engine).corr_cache.long_version++;
+		break;
+	case 6:  engine_decode_message(&(*engine).msg6, 6, stored);   break;
+	case 7:  engine_decode_message(&(*engine).msg7, 7, stored);   break;
+	case 9:  engine_decode_message(&(*engine).msg9, 9, stored);   break;
+	case 10: engine_decode_message(&(*engine).msg10, 10, stored); break;
+	case 12: engine_decode_message(&(*engine).msg12, 12, stored); break;
+	case 17: engine_decode_message(&(*engine).msg17, 17, stored); break;
+	case 2:
+		set_fastCorrectionSis(&(*engine).msg2_5[slot%4][slot/4], slot, stored);
+		break;
+	case 24:
+		set_LongCorrection_MT24(&(*engine).msg24_t[slot], stored);
+		(*engine).corr_cache.long_version++;
+		break;
+	case 25:
+		set_LongCorrection_MT25(&(*engine).msg25_t[slot], stored);
+		(*engine).corr_cache.long_version++;
+		break;
+	case 18:
+	case 26:
+		(*engine).grid_changed = 1;
+		break;
+	}
+
+	return 1;
+}
+
+/**
+ * engine_set_tolerance function
+ * The function sets the convergence threshold of the position iterations:
+ * the iterations stop when the norm of the position update is below it.
+ * @param engine    The engine context
+ * @param tolerance The threshold (m), WLS_TOLERANCE if not positive
+ */
+void engine_set_tolerance(Engine * engine, double tolerance)
+{
+	(*engine).tolerance = (tolerance > 0) ? tolerance : WLS_TOLERANCE;
+}
+
+/**
+ * engine_position_egnos function
+ * The function computes the EGNOS position of the epoch from the decoded
+ * ephemerides and EGNOS messages of the engine and fills the solution table.
+ * @param engine           The engine context
+ * @param sat_data_in      The table of 19 satellites channels: PRN, TOW, Pseudorange, C/N0
+ * @param sat_data_notUsed_in The table of 19 channels of the satellites not used
+ * @param init_pos         The initial estimation of the position solution (init_pos[0]:X ECEF in meters,
+ *                         init_pos[1]:Y ECEF in meters, init_pos[2]:Z ECEF in meters, init_pos[3]:speed
+ *                         of light multiply by receiver clock bias (c.dt) in meters), updated
+ * @param utc_data         The table of UTC parameters
+ * @param klob_data        The table of Klobuchar coefficients for ionospheric corrections
+ * @param rnd_options      The table of R&D options
+ * @param solution         The table of EGNOS_SOLUTION_SIZE elements filled with the results
+ *                         (see PositionSolution.java for the layout)
+ * @return                 The number of satellites used to compute the position
+ */
+int engine_position_egnos(Engine * engine, double sat_data_in[19][4], double sat_data_notUsed_in[19][4],
+		double init_pos[4], double utc_data[9], double klob_data[9], int rnd_options[8],
+		double solution[EGNOS_SOLUTION_SIZE])
+{
+	double vect[3] = {0, 0, 0};
+	double DOP[4] = {0, 0, 0, 0};
+	double PL[2] = {0, 0};
+	double sat_data[19][4];
+	double sat_data_notUsed[19][4];
+	double sat_array[15] = {-1, -1, -1, -1, -1, -1, -1, 0, 0, 0, 0, 0, 0, -1, -1};
+	Satellite eph_t[19];
+	Satellite eph_nu[19];
+	Satellite S_t[19];
+	Satellite S_t_notUsed[19];
+	int iono_flag = 0;
+	int count_fast = 1;
+	int count_long = 1;
+	int egnos_position;
+	int sat_count, count_satdata_nu, count_use, k;
+	unsigned long orbit_hits = 0, orbit_misses = 0, orbit_iterations = 0;
+
+	if(is_nan(init_pos[0]) || is_nan(init_pos[1]) || is_nan(init_pos[2]) || is_nan(init_pos[3]))
+	{
+		init_pos[0] = 0;
+		init_pos[1] = 0;
+		init_pos[2] = 0;
+		init_pos[3] = 0;
+	}
+	engine_seed(engine, 1, sat_data_in, init_pos);
+
+	// The filter starts again from a least squares position when the option is set again
+	if(rnd_options[6] != 1)
+		init_kalman(&(*engine).kalman);
+
+	count_satdata_nu = engine_set_measurements(engine, sat_data_in, sat_data_notUsed_in, 1,
+			sat_data, sat_data_notUsed, eph_t, eph_nu);
+
+	// Set the ephemeris data set corresponding to the Long Correction IODE from MT24 and MT25
+	engine_select_ephemeris(engine, (*engine).msg24_t, 25, 2, sat_data, eph_t);
+	engine_select_ephemeris(engine, (*engine).msg25_t, 15, 4, sat_data, eph_t);
+
+	// The ionospheric grid is only decoded when a message 18 or 26 has changed
+	if((*engine).grid_changed == 1)
+	{
+		set_ionoGridSis((*engine).m18_t, (*engine).m26_t, (*engine).m18_char, (*engine).m26_char);
+		// The mask index is only rebuilt for the bands whose IODI has changed
+		set_ionoIndex(&(*engine).iono_index, (*engine).m18_t, (*engine).m26_t);
+		(*engine).grid_changed = 0;
+	}
+
+	android_syslog(ANDROID_LOG_INFO, "Acquiring EGNOS position from Signal in Space.");
+
+	sat_count = positioning(vect, init_pos, DOP, PL, eph_t, sat_data, &(*engine).msg1,
+			(*engine).msg2_5, &(*engine).msg6, &(*engine).msg7, &(*engine).msg10,
+			&(*engine).msg12, &(*engine).msg9, &(*engine).msg17, (*engine).m18_t,
+			(*engine).msg24_t, (*engine).msg25_t, (*engine).m26_t, &(*engine).iono_index,
+			&(*engine).corr_cache, &(*engine).orbit_cache, &(*engine).selection,
+			rnd_options[6] == 1 ? &(*engine).kalman : NULL, (*engine).tolerance, 1,
+			&iono_flag, sat_array, S_t, utc_data, klob_data, rnd_options, sat_data_notUsed,
+			eph_nu, S_t_notUsed);
+	engine_keep_seed(engine, 1, sat_data_in, sat_count, init_pos);
+
+	for(k = 0; k < sat_count; k++)
+		if (S_t[k].use == 2 && S_t[k].fast_set == 0)
+			count_fast = 0;
+
+	for(k = 0; k < sat_count; k++)
+		if (S_t[k].use == 2 && S_t[k].long_set == -1)
+			count_long = 0;
+
+	if((*engine).msg1_char[0] != '\0' && (*engine).msg7_char[0] != '\0'
+			&& (*engine).msg10_char[0] != '\0' && (*engine).msg12_char[0] != '\0'
+			&& count_fast == 1 && count_long == 1)
+		egnos_position = 1;
+	else
+		egnos_position = 0;
+
+	android_syslog(ANDROID_LOG_INFO, "Engine | Iono Flag: %i", iono_flag);
+	android_syslog(ANDROID_LOG_DEBUG, "Engine | Iono cell cache: %lu hits, %lu misses",
+			(*engine).iono_index.cell_hits, (*engine).iono_index.cell_misses);
+	android_syslog(ANDROID_LOG_DEBUG, "Engine | Corrections cache: %lu hits, %lu misses",
+			(*engine).corr_cache.hits, (*engine).corr_cache.misses);
+	for(k = 0; k < 32; k++) {
+		orbit_hits += (*engine).orbit_cache.sat[k].hits;
+		orbit_misses += (*engine).orbit_cache.sat[k].misses;
+		orbit_iterations += (*engine).orbit_cache.sat[k].iterations;
+	}
+	android_syslog(ANDROID_LOG_DEBUG, "Engine | Orbit cache: %lu hits, %lu misses, %lu Kepler iterations",
+			orbit_hits, orbit_misses, orbit_iterations);
+	android_syslog(ANDROID_LOG_DEBUG, "Engine | Satellite selection: %lu reused, %lu evaluated",
+			(*engine).selection.hits, (*engine).selection.misses);
+	android_syslog(ANDROID_LOG_DEBUG, "Engine | EGNOS position iterations: %d", (int)sat_array[3]);
+	android_syslog(ANDROID_LOG_INFO, "Engine | HPL Value: %f", PL[0]*6.18);
+	android_syslog(ANDROID_LOG_INFO, "Engine | Egnos_Position: %i", egnos_position);
+
+	memset(solution, 0, EGNOS_SOLUTION_SIZE*sizeof(double));
+	solution[0] = get_latitude(vect);
+	solution[1] = get_longitude(vect);
+	solution[2] = get_height(vect);
+	solution[3] = PL[0];
+	solution[4] = init_pos[0];
+	solution[5] = init_pos[1];
+	solution[6] = init_pos[2];
+	solution[7] = init_pos[3];
+	solution[8] = DOP[0];
+	solution[9] = iono_flag;
+	solution[10] = egnos_position;
+
+	solution[11] = sat_array[0];   // total no of sats
+	solution[12] = sat_array[1];   // low elev
+	solution[13] = sat_array[2];   // not in mask
+	solution[14] = sat_count;      // sats used
+	solution[15] = sat_array[3];   // iterations
+	solution[16] = sat_array[4];   // 1 if jump
+	solution[17] = sat_array[5];   // jump on x
+	solution[18] = sat_array[6];   // jump on y
+	solution[19] = PL[1];
+
+	for(k = 0; k < sat_array[0]; k++)
+	{
+		solution[20 + k*26]      = S_t[k].prn;
+		solution[20 + k*26 + 1]  = S_t[k].use;
+		solution[20 + k*26 + 2]  = S_t[k].rnd;
+		solution[20 + k*26 + 3]  = S_t[k].prn_mask;
+		solution[20 + k*26 + 4]  = S_t[k].low_elv;
+		solution[20 + k*26 + 5]  = S_t[k].tow2;
+		solution[20 + k*26 + 6]  = S_t[k].el;
+		solution[20 + k*26 + 7]  = S_t[k].iono_delay;
+		solution[20 + k*26 + 8]  = S_t[k].iono_model;
+		solution[20 + k*26 + 9]  = S_t[k].tropo_delay;
+		solution[20 + k*26 + 10] = S_t[k].fast_delay;
+		solution[20 + k*26 + 11] = S_t[k].rrc;
+		solution[20 + k*26 + 12] = S_t[k].udrei;
+		solution[20 + k*26 + 13] = S_t[k].long_set;
+		solution[20 + k*26 + 14] = S_t[k].daf0;
+		solution[20 + k*26 + 15] = S_t[k].dx;
+		solution[20 + k*26 + 16] = S_t[k].dy;
+		solution[20 + k*26 + 17] = S_t[k].dz;
+		solution[20 + k*26 + 18] = S_t[k].sigma2;
+		solution[20 + k*26 + 19] = S_t[k].sigma_flt2;
+		solution[20 + k*26 + 20] = S_t[k].sigma_tropo2;
+		solution[20 + k*26 + 21] = S_t[k].sigma_uire2;
+		solution[20 + k*26 + 22] = S_t[k].eps_fc;
+		solution[20 + k*26 + 23] = S_t[k].eps_rrc;
+		solution[20 + k*26 + 24] = S_t[k].eps_ltc;
+		solution[20 + k*26 + 25] = S_t[k].eps_er;
+	}
+
+	// The fixed fields follow the 19 records of the tracked satellites (20-513)
+	for(k = 0; k < 8; k++)
+		solution[514 + k] = sat_array[7 + k];
+
+	// NMEA
+	solution[522] = DOP[1];
+	solution[523] = DOP[2];
+	solution[524] = DOP[3];
+
+	for(k = 0; k < sat_array[0]; k++)
+	{
+		solution[525 + k*4] = S_t[k].weeknb;
+		solution[526 + k*4] = S_t[k].toe;
+		solution[527 + k*4] = S_t[k].az;
+		solution[528 + k*4] = S_t[k].cn0;
+	}
+
+	solution[601] = count_satdata_nu;
+	for(k = 0; k < count_satdata_nu; k++)
+	{
+		solution[602 + k*4] = S_t_notUsed[k].prn;
+		solution[603 + k*4] = S_t_notUsed[k].az;
+		solution[604 + k*4] = S_t_notUsed[k].el;
+		solution[605 + k*4] = S_t_notUsed[k].cn0;
+	}
+
+	// RTCM
+	solution[678] = sat_count;   // Number of Satellite Used
+	solution[679] = S_t[0].tow2;
+
+	// RTCM Message 1
+	count_use = 0;
+	for(k = 0; k < sat_array[0]; k++)
+	{
+		if(S_t[k].use != 0)
+		{
+			solution[680 + count_use*8] = S_t[k].prn;
+			solution[681 + count_use*8] = S_t[k].pr_c-S_t[k].pr;
+			solution[682 + count_use*8] = S_t[k].rrc;
+			solution[683 + count_use*8] = S_t[k].iodc;
+
+			solution[684 + count_use*8] = S_t[k].pr;
+			solution[685 + count_use*8] = S_t[k].pos_x;
+			solution[686 + count_use*8] = S_t[k].pos_y;
+			solution[687 + count_use*8] = S_t[k].pos_z;
+
+			count_use++;
+		}
+	}
+
+	// Filtered mode: 1 if the position is the filter update, and velocity in ECEF coordinates
+	if(rnd_options[6] == 1 && (*engine).kalman.initialised == 1)
+	{
+		solution[832] = (*engine).kalman.filtered;
+		solution[833] = (*engine).kalman.x[3];
+		solution[834] = (*engine).kalman.x[4];
+		solution[835] = (*engine).kalman.x[5];
+	}
+
+	return sat_count;
+}
+
+/**
+ * engine_position_gps function
+ * The function computes the GPS position of the epoch from the decoded
+ * ephemerides of the engine and fills the solution table.
+ * @param engine           The engine context
+ * @param sat_data_in      The table of 19 satellites channels: PRN, TOW, Pseudorange, C/N0
+ * @param sat_data_notUsed_in The table of 19 channels of the satellites not used
+ * @param init_pos         The initial estimation of the position solution (init_pos[0]:X ECEF in meters,
+ *                         init_pos[1]:Y ECEF in meters, init_pos[2]:Z ECEF in meters, init_pos[3]:speed
+ *                         of light multiply by receiver clock bias (c.dt) in meters), updated
+ * @param utc_data         The table of UTC parameters
+ * @param solution         The table of GPS_SOLUTION_SIZE elements filled with the results
+ *                         (see PositionSolution.java for the layout)
+ * @return                 The number of satellites used to compute the position
+ */
+int engine_position_gps(Engine * engine, double sat_data_in[19][4], double sat_data_notUsed_in[19][4],
+		double init_pos[4], double utc_data[9], double solution[GPS_SOLUTION_SIZE])
+{
+	double vect[3] = {0, 0, 0};
+	double DOP[4] = {0, 0, 0, 0};
+	double PL[2] = {0, 0};
+	double klob_data[9] = {0, 0, 0, 0, 0, 0, 0, 0, 0};
+	int rnd_options[8] = {0, 0, 0, 0, 0, 0, 0, 0};
+	double sat_data[19][4];
+	double sat_data_notUsed[19][4];
+	double sat_array[15] = {-1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1};
+	Satellite eph_t[19];
+	Satellite eph_nu[19];
+	Satellite S_t[19];
+	Satellite S_t_notUsed[19];
+	int iono_flag = 0;
+	int sat_count, count_satdata_nu, count_use, k;
+
+	if(is_nan(init_pos[0]) || is_nan(init_pos[1]) || is_nan(init_pos[2]) || is_nan(init_pos[3]))
+	{
+		init_pos[0] = 0.0;
+		init_pos[1] = 0.0;
+		init_pos[2] = 0.0;
+		init_pos[3] = 0.0;
+	}
+	engine_seed(engine, 0, sat_data_in, init_pos);
+
+	// Ranging is available only for the EGNOS mode, so only GPS satellites are stored in the table
+	count_satdata_nu = engine_set_measurements(engine, sat_data_in, sat_data_notUsed_in, 0,
+			sat_data, sat_data_notUsed, eph_t, eph_nu);
+
+	// GPS position
+	sat_count = positioning(vect, init_pos, DOP, PL, eph_t, sat_data, &(*engine).msg1,
+			(*engine).msg2_5, &(*engine).msg6, &(*engine).msg7, &(*engine).msg10,
+			&(*engine).msg12, &(*engine).msg9, &(*engine).msg17, (*engine).m18_t,
+			(*engine).msg24_t, (*engine).msg25_t, (*engine).m26_t, &(*engine).iono_index,
+			&(*engine).corr_cache, &(*engine).orbit_cache, &(*engine).selection, NULL,
+			(*engine).tolerance, 0,
+			&iono_flag, sat_array, S_t, utc_data, klob_data, rnd_options, sat_data_notUsed,
+			eph_nu, S_t_notUsed);
+	engine_keep_seed(engine, 0, sat_data_in, sat_count, init_pos);
+	android_syslog(ANDROID_LOG_DEBUG, "Engine | GPS position iterations: %d", (int)sat_array[3]);
+
+	memset(solution, 0, GPS_SOLUTION_SIZE*sizeof(double));
+	solution[0] = get_latitude(vect);
+	solution[1] = get_longitude(vect);
+	solution[2] = get_height(vect);
+	solution[3] = init_pos[0];
+	solution[4] = init_pos[1];
+	solution[5] = init_pos[2];
+	solution[6] = init_pos[3];
+	solution[7] = DOP[0];
+
+	android_syslog(ANDROID_LOG_INFO, "GPS position: %.20f %.20f %.20f %f\n", solution[0],
+			solution[1], solution[2], solution[7]);
+
+	solution[8]  = sat_array[0]; // total no. of sats.
+	solution[9]  = sat_array[1]; // low elev. sats.
+	solution[10] = sat_count;    // sats used
+	solution[11] = sat_array[3]; // no. of iterations
+	solution[12] = sat_array[4]; // set to 1 if jump in position occured
+	solution[13] = sat_array[5]; // jump distance on x
+	solution[14] = sat_array[6]; // jump distance on y
+	solution[15] = S_t[0].tow;
+	solution[16] = (double)S_t[0].weeknb;
+
+	for(k = 0; k < sat_array[0]; k++)
+	{
+		solution[17 + k*2]     = S_t[k].prn;
+		solution[17 + k*2 + 1] = S_t[k].use;
+	}
+
+	// NMEA
+	solution[55] = DOP[1];
+	solution[56] = DOP[2];
+	solution[57] = DOP[3];
+
+	for(k = 0; k < sat_array[0]; k++)
+	{
+		solution[58 + k*6] = S_t[k].weeknb;
+		solution[59 + k*6] = S_t[k].toe;
+		solution[60 + k*6] = S_t[k].az;
+		solution[61 + k*6] = S_t[k].cn0;
+		solution[62 + k*6] = S_t[k].el;
+		solution[63 + k*6] = S_t[k].tow;
+	}
+
+	// RTCM
+	solution[185] = sat_count;
+	solution[186] = S_t[0].tow2;
+
+	// RTCM Message 1
+	count_use = 0;
+	for(k = 0; k < sat_array[0]; k++)
+	{
+		if(S_t[k].use != 0)
+		{
+			solution[187 + count_use*4] = S_t[k].prn;
+			solution[188 + count_use*4] = S_t[k].pr_c-S_t[k].pr;
+			solution[189 + count_use*4] = S_t[k].rrc;
+			solution[190 + count_use*4] = S_t[k].iodc;
+
+			solution[317 + count_use*4] = S_t[k].pr;
+			solution[318 + count_use*4] = S_t[k].pos_x;
+			solution[319 + count_use*4] = S_t[k].pos_y;
+			solution[320 + count_use*4] = S_t[k].pos_z;
+
+			count_use++;
+		}
+	}
+
+	// Satellites not used, stored after the used satellites block (317-392)
+	solution[393] = count_satdata_nu;
+	for(k = 0; k < count_satdata_nu; k++)
+	{
+		solution[394 + k*4] = S_t_notUsed[k].prn;
+		solution[395 + k*4] = S_t_notUsed[k].az;
+		solution[396 + k*4] = S_t_notUsed[k].el;
+		solution[397 + k*4] = S_t_notUsed[k].cn0;
+	}
+
+	return sat_count;
+}
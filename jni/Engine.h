@@ -0,0 +1,128 @@
+/**
+ * @file Engine.h
+ *
+ * @brief Engine module header file defining the persistent positioning
+ * engine context.
+ * @details The module keeps the decoded GPS ephemerides and EGNOS messages
+ * between two position computations. The inputs are fed incrementally and
+ * compared with the previously received ones, so that the decoding of the
+ * ephemerides and of the EGNOS corrections is only performed when an input
+ * has changed. The position is then computed at each epoch from the decoded
+ * state and the new measurements.
+ * The engine is reentrant: all the state of a computation is held by the
+ * caller-owned Engine context and the matrix routines receive their
+ * dimensions as parameters, so that no mutable state is shared between two
+ * contexts. Several engines can be run in parallel, one thread per engine;
+ * a single engine must not be used by two threads at the same time.
+ *
+ * Rev: 3.0.0
+ *
+ * Author: DKE Aerospace Germany GmbH
+ *
+ * Copyright 2012 European Commission
+ *
+ * Licensed under the EUPL, Version 1.1 only (the "Licence");
+ * You may not use this work except in compliance with the
+ * Licence.
+ * You may obtain a copy of the Licence at:
+ * http://ec.europa.eu/idabc/eupl.html
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the Licence is
+ * distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied.
+ * See the Licence for the specific language governing
+ * permissions and limitations under the Licence.
+ *
+ */
+
+#ifndef ENGINE_H_
+#define ENGINE_H_
+
+#include <android/log.h>
+#include "Positioning.h"
+#include "Fast_correction.h"
+#include "Long_correction.h"
+#include "Ionosphere.h"
+#include "Utils.h"
+#include "Egnos.h"
+
+/* Sizes of the caller-owned solution buffers (see PositionSolution.java) */
+#define EGNOS_SOLUTION_SIZE 836
+#define GPS_SOLUTION_SIZE   470
+
+/* Maximum number of ephemeris sets stored per PRN */
+#define ENGINE_EPH_SETS 5
+
+/* Largest age of the last valid solution used as initial estimation of the position (s) */
+#define ENGINE_SEED_AGE 30
+
+/**
+ * @typedef Engine Engine
+ */
+typedef struct Engine Engine;
+
+/**
+ * @struct Engine Engine.h "Engine.h"
+ * @brief The structure defines the positioning engine context.
+ * @details The Engine structure holds the last received inputs in their
+ * string format, used to detect the changes, and the corresponding decoded
+ * ephemerides and EGNOS messages, reused from one epoch to the next.
+ */
+struct Engine
+{
+  char eph_char[32][4504];             /*!< Last received ephemeris strings (0: no. of sets, 1-2: PRN, 3-4502: sets) */
+  double eph_prn[32];                  /*!< PRN of each ephemeris slot, 0 if empty */
+  int eph_sets[32];                    /*!< Number of decoded ephemeris sets of each slot */
+  Satellite eph[32][ENGINE_EPH_SETS];  /*!< Decoded ephemeris sets of each slot, the most recent first */
+
+  char msg1_char[263];                 /*!< Last received message type 1 */
+  char msg6_char[263];                 /*!< Last received message type 6 */
+  char msg7_char[263];                 /*!< Last received message type 7 */
+  char msg9_char[263];                 /*!< Last received message type 9 */
+  char msg10_char[263];                /*!< Last received message type 10 */
+  char msg12_char[263];                /*!< Last received message type 12 */
+  char msg17_char[263];                /*!< Last received message type 17 */
+  char msg2_5_char[8][263];            /*!< Last received messages type 2-5 (0-3: current, 4-7: previous) */
+  char msg24_char[25][263];            /*!< Last received messages type 24 */
+  char msg25_char[15][263];            /*!< Last received messages type 25 */
+  char m18_char[5][263];               /*!< Last received messages type 18 */
+  char m26_char[25][263];              /*!< Last received messages type 26 */
+
+  Egnos_msg msg1;                      /*!< Decoded message type 1 (PRN mask) */
+  Egnos_msg msg6;                      /*!< Decoded message type 6 (integrity information) */
+  Egnos_msg msg7;                      /*!< Decoded message type 7 (fast correction degradation factors) */
+  Egnos_msg msg9;                      /*!< Decoded message type 9 (GEO navigation message) */
+  Egnos_msg msg10;                     /*!< Decoded message type 10 (degradation parameters) */
+  Egnos_msg msg12;                     /*!< Decoded message type 12 (EGNOS time) */
+  Egnos_msg msg17;                     /*!< Decoded message type 17 (GEO almanacs) */
+  Egnos_msg msg2_5[4][2];              /*!< Decoded messages type 2-5 */
+  Egnos_msg msg24_t[25];               /*!< Decoded messages type 24 */
+  Egnos_msg msg25_t[15];               /*!< Decoded messages type 25 */
+  Egnos_msg m18_t[11];                 /*!< Decoded ionospheric grid mask (messages type 18) */
+  Egnos_msg m26_t[25];                 /*!< Decoded ionospheric delays (messages type 26) */
+  int grid_changed;                    /*!< Set to 1 when the ionospheric grid has to be decoded again */
+  Iono_index iono_index;               /*!< IGP index and cell cache of the decoded ionospheric grid */
+  Corr_cache corr_cache;               /*!< Fast and long term corrections searches of each satellite */
+  Orbit_cache orbit_cache;             /*!< Orbit evaluation state of each GPS satellite */
+  Fde_selection selection;             /*!< Satellite selection of the best constellation option */
+  Kalman kalman;                       /*!< Extended Kalman filter of the filtered positioning mode */
+
+  double seed[2][4];                   /*!< Last valid solution of each mode (0: GPS, 1: EGNOS): X, Y, Z ECEF and c.dt (m) */
+  double seed_tow[2];                  /*!< Time of week of the last valid solution of each mode, -1 if none */
+  double tolerance;                    /*!< Convergence threshold of the position iterations (m) */
+};
+
+Engine * engine_create(void);
+void engine_destroy(Engine * engine);
+int engine_set_ephemeris(Engine * engine, int slot, const char * eph_char);
+int engine_set_message(Engine * engine, int type, int slot, const char * msg_char);
+void engine_set_tolerance(Engine * engine, double tolerance);
+int engine_position_egnos(Engine * engine, double sat_data[19][4], double sat_data_notUsed[19][4],
+		double init_pos[4], double utc_data[9], double klob_data[9], int rnd_options[8],
+		double solution[EGNOS_SOLUTION_SIZE]);
+int engine_position_gps(Engine * engine, double sat_data[19][4], double sat_data_notUsed[19][4],
+		double init_pos[4], double utc_data[9], double solution[GPS_SOLUTION_SIZE]);
+void android_syslog(int level, const char *format, ...);
+
+#endif /* ENGINE_H_ */
@@ -54,6 +54,35 @@ void decode_msg(Satellite * Sat)
 	ReadSubfr3(Sat,subfr3);//android_syslog(ANDROID_LOG_INFO,"C: subfr3: %s\n", (*Sat).subfr3);
 }
 
+/**
+ * decode_ephemeris function.
+ * The function initializes the Satellite structure, identified by its
+ * pointer, and decodes in it the ephemerides and the clock corrections
+ * parameters of one ephemeris set.
+ * @param Sat      The Satellite object
+ * @param eph_data The ephemeris set of 900 bits (300 bits for each subframe)
+ */
+void decode_ephemeris(Satellite * Sat, const char * eph_data)
+{
+	char sfr1[301] = "";
+	char sfr2[301] = "";
+	char sfr3[301] = "";
+
+	init_satellite(Sat);
+	extract(eph_data, 0, 299, sfr1);
+	(*Sat).subfr1 = sfr1;
+	extract(eph_data, 300, 599, sfr2);
+	(*Sat).subfr2 = sfr2;
+	extract(eph_data, 600, 899, sfr3);
+	(*Sat).subfr3 = sfr3;
+	decode_msg(Sat);
+
+	// The subframes are only needed while decoding
+	(*Sat).subfr1 = NULL;
+	(*Sat).subfr2 = NULL;
+	(*Sat).subfr3 = NULL;
+}
+
 /**
  * ReadSubfr1 function.
  * The function decodes the 1st subframe of the GPS navigation data
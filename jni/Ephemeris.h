@@ -38,6 +38,7 @@
 #include "Satellite.h"
 
 void decode_msg(Satellite * Sat);
+void decode_ephemeris(Satellite * Sat, const char * eph_data);
 void ReadSubfr1(Satellite * Sat,char * data);
 void ReadSubfr2(Satellite * Sat,char * data);
 void ReadSubfr3(Satellite * Sat,char * data);
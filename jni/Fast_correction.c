@@ -31,6 +31,7 @@
 
 #include "Fast_correction.h"
 #include "Positioning.h"
+#include "Engine.h"
 #include "stdlib.h"
 /**
  * set_fastCorrectionsSis function.
@@ -45,40 +46,60 @@
  */
 int set_fastCorrectionsSis(Egnos_msg msg2_5[4][2], char msg2_5_char[8][263])
 {
-	char tow[13]="";
-	char egnos[251]="";
 	int i;
 	int r = 1;
-	Egnos_msg msg_fc;
-	
+
 	for(i = 0; i < 8; i++){
-		if(msg2_5_char[i][0] != '\0'){
-			init_msg(&msg_fc,(i%4)+2);
-			
-			strncpy(tow,msg2_5_char[i],12);		// current messages (0-3)
-			tow[12] = '\0';
-			
-			msg_fc.tow = atof(tow);
-			android_syslog(ANDROID_LOG_INFO,"C: msg_fc.tow: %f",msg_fc.tow );
-			
-			strncpy(egnos,msg2_5_char[i]+12, 250);
-			egnos[250] = '\0';
-			msg_fc.bin_msg = egnos;//printf("egnos %s\n",msg_occ1.bin_msg);
-	
-			if(decode_msg2_5(&msg_fc)==0)
+		if(i < 4){
+			if(set_fastCorrectionSis(&msg2_5[i%4][0], i, msg2_5_char[i]) == 0)
 				r = 0;
-	
 		}else{
-			msg_fc.tow 		= -1;
-			msg_fc.bin_msg 	= "";
-			msg_fc.use		= 0;
+			if(set_fastCorrectionSis(&msg2_5[i%4][1], i, msg2_5_char[i]) == 0)
+				r = 0;
 		}
-		
-		if(i < 4)
-			msg2_5[i%4][0] = msg_fc;
-		else
-			msg2_5[i%4][1] = msg_fc;
-		
+	}
+
+	return r;
+}
+
+/**
+ * set_fastCorrectionSis function.
+ * The function decodes one fast correction message into an Egnos_msg
+ * structure. An empty input sets the structure as not available.
+ * @param msg         The fast correction destination message
+ * @param i           The position of the message in the input table
+ *                    (positions 0-3:current TOW, positions 4-7:previous TOW)
+ * @param msg_char    The input characters of the message. The first 12
+ *                    characters are the TOW in decimal. The next 250
+ *                    characters are the EGNOS payload.
+ * @return            1 if successful, 0 if not
+ */
+int set_fastCorrectionSis(Egnos_msg * msg, int i, char msg_char[263])
+{
+	char tow[13]="";
+	char egnos[251]="";
+	int r = 1;
+
+	init_msg(msg,(i%4)+2);
+
+	if(msg_char[0] != '\0'){
+		strncpy(tow,msg_char,12);
+		tow[12] = '\0';
+
+		(*msg).tow = atof(tow);
+		android_syslog(ANDROID_LOG_INFO,"C: msg_fc.tow: %f",(*msg).tow );
+
+		strncpy(egnos,msg_char+12, 250);
+		egnos[250] = '\0';
+		(*msg).bin_msg = egnos;
+
+		if(decode_msg2_5(msg)==0)
+			r = 0;
+		(*msg).bin_msg = "";
+	}else{
+		(*msg).tow 		= -1;
+		(*msg).bin_msg 	= "";
+		(*msg).use		= 0;
 	}
 
 	return r;
@@ -104,11 +125,12 @@ int set_fastCorrectionsSis(Egnos_msg msg2_5[4][2], char msg2_5_char[8][263])
  * @param *msg7     	The pointer of the message type 7
  * @param eps_ltc_m 	The previously computed degradation parameter for long term correction  (m)
  * @param rnd_options 	Determines whether or not UDRE 14 satellites are being used (for R&D)
+ * @param corr_cache 	The corrections cache, NULL to search the PRN mask
  * @return          	1 if the computations is successfully performed, 0 if not
  */
 int get_fastCorrection(Satellite * Sat, Egnos_msg * msg1, Egnos_msg msg2_5[4][2], Egnos_msg msg24_t[15], Egnos_msg * msg6,
 		Egnos_msg * msg10, Egnos_msg * msg7, double eps_ltc_m,
-		int rnd_options[8])
+		int rnd_options[8], Corr_cache * corr_cache)
 {
 	int i,prn_pos,r,iodf0,iodf1,pos24;		// iodf0 = IODF current; iodf1 = IODF previous
 	int check_prn = 0;
@@ -135,13 +157,11 @@ int get_fastCorrection(Satellite * Sat, Egnos_msg * msg1, Egnos_msg msg2_5[4][2]
 	t = (*Sat).tow2;
 
 	// Search in the prn table of message type 1
-	for(i=0;i<(*msg1).prn_nb;i++)
+	i = find_prnMask(msg1, (*Sat).prn, corr_cache);
+	if(i > 0)
 	{
-		if((*Sat).prn == (*msg1).prn[i])
-		{
-			check_prn = 1;
-			prn_pos = i+1;
-		}
+		check_prn = 1;
+		prn_pos = i;
 	}
 	
 	// Check if correction is available for the PRN defining the Satellite
@@ -449,6 +469,48 @@ int get_fastCorrection(Satellite * Sat, Egnos_msg * msg1, Egnos_msg msg2_5[4][2]
 	return r;
 }
 
+/**
+ * find_prnMask function.
+ * The function finds the position of a satellite in the PRN mask. The position is cached
+ * for the current version of the message type 1.
+ * @param *msg1      	The pointer of the message type 1 (PRN mask)
+ * @param prn        	The PRN of the satellite
+ * @param corr_cache 	The corrections cache, NULL to search the PRN mask
+ * @return           	The position of the satellite in the PRN mask (1-51), 0 if not in the mask
+ */
+int find_prnMask(Egnos_msg * msg1, double prn, Corr_cache * corr_cache)
+{
+	int i, slot;
+	int prn_pos = 0;
+	Corr_entry * entry = NULL;
+
+	slot = get_satellite_slot(prn);
+	if(corr_cache != NULL && slot != -1)
+	{
+		entry = &(*corr_cache).sat[slot];
+		if((*entry).mask_version == (*corr_cache).mask_version)
+		{
+			(*corr_cache).hits++;
+			return (*entry).prn_pos;
+		}
+		(*corr_cache).misses++;
+	}
+
+	// The last occurrence of the PRN in the mask is kept
+	for(i=0;i<(*msg1).prn_nb;i++)
+	{
+		if(prn == (*msg1).prn[i])
+			prn_pos = i+1;
+	}
+
+	if(entry != NULL)
+	{
+		(*entry).mask_version = (*corr_cache).mask_version;
+		(*entry).prn_pos = prn_pos;
+	}
+	return prn_pos;
+}
+
 /**
  * get_epsilonFc function.
  * The function computes and returns the degradation parameter
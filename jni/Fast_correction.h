@@ -36,10 +36,12 @@
 #include "Egnos.h"
 
 int set_fastCorrectionsSis(Egnos_msg msg2_5[4][2], char msg2_5_char[8][263]);
+int set_fastCorrectionSis(Egnos_msg * msg, int i, char msg_char[263]);
 int set_fastCorrections(Egnos_msg msg2_5[4][2]);
 int get_fastCorrection(Satellite * Sat, Egnos_msg * msg1, Egnos_msg msg2_5[4][2],
 		Egnos_msg msg24_t[15], Egnos_msg * msg6, Egnos_msg * msg10, Egnos_msg * msg7,
-		double eps_ltc_m, int rnd_options[8]);
+		double eps_ltc_m, int rnd_options[8], Corr_cache * corr_cache);
+int find_prnMask(Egnos_msg * msg1, double prn, Corr_cache * corr_cache);
 double get_UDREaccuracy(int udrei);
 double get_epsilonFc(double a, double t, double tu, double tlat);
 double get_epsilonRrc(double a, double t, double ifc, double brrc, unsigned short iodf0, unsigned short iodf1, double t0, double t1);
@@ -0,0 +1,310 @@
+/**
+ * @file Fde.c
+ *
+ * @brief Fde module source file containing the fault detection and exclusion
+ * functions.
+ * @details The module supports the Receiver Autonomous Integrity Monitoring
+ * (RAIM). The weighted least squares problem of an epoch is solved once,
+ * then the exclusion of each single measurement is evaluated by rank-one
+ * downdates of the covariance inv(trans(H).W.H), of the solution and of the
+ * weighted sum of squared residuals, instead of solving the problem again
+ * for each subset of satellites. The candidate exclusions are evaluated
+ * in the positioning thread: a few vector products each, much less than
+ * the start of a thread.
+ * With unit weights, the same downdates give the DOP of the geometry without
+ * each satellite (Sherman-Morrison formula), used to select the satellite
+ * whose exclusion gives the best constellation.
+ *
+ * Rev: 3.0.0
+ *
+ * Author: DKE Aerospace Germany GmbH
+ *
+ * Copyright 2012 European Commission
+ *
+ * Licensed under the EUPL, Version 1.1 only (the "Licence");
+ * You may not use this work except in compliance with the
+ * Licence.
+ * You may obtain a copy of the Licence at:
+ * http://ec.europa.eu/idabc/eupl.html
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the Licence is
+ * distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied.
+ * See the Licence for the specific language governing
+ * permissions and limitations under the Licence.
+ *
+ */
+
+#include <math.h>
+#include <stddef.h>
+#include "Fde.h"
+
+/**
+ * fde_residuals function
+ * The function computes the residuals of the current solution and their weighted sum of squares.
+ * @param fde  The fault detection and exclusion state
+ */
+static void fde_residuals(Fde * fde)
+{
+	int i;
+
+	(*fde).sse = 0;
+	for(i = 0; i < (*fde).n; i++)
+	{
+		(*fde).r[i] = (*fde).y[i] - ((*fde).H[i][0]*(*fde).x[0] + (*fde).H[i][1]*(*fde).x[1]
+				+ (*fde).H[i][2]*(*fde).x[2] + (*fde).H[i][3]*(*fde).x[3]);
+		(*fde).sse += (*fde).w[i]*(*fde).r[i]*(*fde).r[i];
+	}
+}
+
+/**
+ * fde_gain function
+ * The function computes the product P.trans(H_k) of the covariance and the row of a measurement,
+ * and returns the redundancy 1 - w_k.H_k.P.trans(H_k) of the measurement (1 - leverage).
+ * @param fde  The fault detection and exclusion state
+ * @param k    The measurement
+ * @param u    The destination vector P.trans(H_k)
+ * @return     The redundancy of the measurement
+ */
+static double fde_gain(Fde * fde, int k, double u[4])
+{
+	int i;
+	double h = 0;
+
+	for(i = 0; i < 4; i++)
+	{
+		u[i] = (*fde).P[i][0]*(*fde).H[k][0] + (*fde).P[i][1]*(*fde).H[k][1]
+				+ (*fde).P[i][2]*(*fde).H[k][2] + (*fde).P[i][3]*(*fde).H[k][3];
+		h += (*fde).H[k][i]*u[i];
+	}
+
+	return 1 - (*fde).w[k]*h;
+}
+
+/**
+ * fde_init function
+ * The function solves the weighted least squares problem H.x = y once (see wls_solve) and
+ * initialises the state of the fault detection and exclusion.
+ * @param fde  The fault detection and exclusion state
+ * @param n    The number of measurements, not greater than FDE_MAX
+ * @param H    The geometry matrix
+ * @param w    The weights of the measurements (diagonal of W), 0 if not used
+ * @param y    The pseudorange residuals
+ * @return     1 if the problem has been solved, 0 if not (too many measurements or singular geometry)
+ */
+int fde_init(Fde * fde, int n, double H[n][4], double w[n], double y[n])
+{
+	int i, j;
+
+	if(n > FDE_MAX)
+		return 0;
+
+	(*fde).n = n;
+	(*fde).used = 0;
+	for(i = 0; i < n; i++)
+	{
+		for(j = 0; j < 4; j++)
+			(*fde).H[i][j] = H[i][j];
+		(*fde).w[i] = w[i];
+		(*fde).y[i] = y[i];
+		(*fde).sse_ex[i] = -1;
+		if(w[i] != 0)
+			(*fde).used++;
+	}
+
+	if((*fde).used < 4 || wls_solve(n, 4, (*fde).H, (*fde).w, (*fde).y, (*fde).x, (*fde).P) == 0)
+		return 0;
+
+	fde_residuals(fde);
+
+	return 1;
+}
+
+/**
+ * fde_candidates function
+ * The function evaluates the exclusion of the measurements of a range. The weighted sum of squared
+ * residuals without the measurement k is downdated from the full solution:
+ * sse_k = sse - w_k.r_k^2 / (1 - w_k.H_k.P.trans(H_k)). The state is only read, apart from the
+ * entries of sse_ex of the range.
+ * @param fde    The fault detection and exclusion state
+ * @param first  The first measurement evaluated
+ * @param last   The last measurement evaluated, excluded
+ */
+void fde_candidates(Fde * fde, int first, int last)
+{
+	int k;
+	double u[4], red;
+
+	for(k = first; k < last; k++)
+	{
+		(*fde).sse_ex[k] = -1;
+		if((*fde).w[k] == 0)
+			continue;
+
+		red = fde_gain(fde, k, u);
+		if(red < FDE_MIN_REDUNDANCY)
+			continue;
+
+		(*fde).sse_ex[k] = (*fde).sse - (*fde).w[k]*(*fde).r[k]*(*fde).r[k]/red;
+		if((*fde).sse_ex[k] < 0)
+			(*fde).sse_ex[k] = 0;
+	}
+}
+
+/**
+ * fde_evaluate function
+ * The function evaluates the exclusion of each measurement (see fde_candidates) and selects the
+ * one leaving the smallest weighted sum of squared residuals, i.e. the measurement of largest
+ * normalised residual.
+ * @param fde  The fault detection and exclusion state
+ * @return     The measurement to exclude, -1 if no exclusion keeps the geometry solvable
+ */
+int fde_evaluate(Fde * fde)
+{
+	int k;
+	int best = -1;
+
+	fde_candidates(fde, 0, (*fde).n);
+
+	for(k = 0; k < (*fde).n; k++)
+		if((*fde).sse_ex[k] >= 0 && (best == -1 || (*fde).sse_ex[k] < (*fde).sse_ex[best]))
+			best = k;
+
+	return best;
+}
+
+/**
+ * fde_exclude function
+ * The function excludes a measurement by rank-one downdates of the covariance and of the solution:
+ * P_k = P + w_k.u.trans(u) / (1 - w_k.H_k.u) and x_k = x - w_k.r_k.u / (1 - w_k.H_k.u),
+ * with u = P.trans(H_k). The residuals and their weighted sum of squares are then updated.
+ * @param fde  The fault detection and exclusion state
+ * @param k    The measurement to exclude, a candidate returned by fde_evaluate
+ */
+void fde_exclude(Fde * fde, int k)
+{
+	int i, j;
+	double u[4], red, f;
+
+	red = fde_gain(fde, k, u);
+	f = (*fde).w[k]/red;
+
+	for(i = 0; i < 4; i++)
+	{
+		(*fde).x[i] -= f*(*fde).r[k]*u[i];
+		for(j = 0; j < 4; j++)
+			(*fde).P[i][j] += f*u[i]*u[j];
+	}
+
+	(*fde).w[k] = 0;
+	(*fde).used--;
+	fde_residuals(fde);
+}
+
+/**
+ * fde_pdop_ex function
+ * The function computes the PDOP of the geometry without a measurement, by the Sherman-Morrison
+ * downdate of the covariance: trace(P_k) = trace(P) + trans(u).u / (1 - H_k.u) over the position
+ * terms, with u = P.trans(H_k). The state must have been initialised with unit weights.
+ * @param fde  The fault detection and exclusion state
+ * @param k    The measurement
+ * @return     The PDOP without the measurement, -1 if not used or if the geometry is not solvable
+ */
+double fde_pdop_ex(Fde * fde, int k)
+{
+	double u[4], red;
+
+	if((*fde).w[k] == 0)
+		return -1;
+
+	red = fde_gain(fde, k, u);
+	if(red < FDE_MIN_REDUNDANCY)
+		return -1;
+
+	return sqrt((*fde).P[0][0] + (*fde).P[1][1] + (*fde).P[2][2]
+			+ (u[0]*u[0] + u[1]*u[1] + u[2]*u[2])/red);
+}
+
+/**
+ * init_fdeSelection function
+ * The function empties a satellite selection.
+ * @param selection  The satellite selection
+ */
+void init_fdeSelection(Fde_selection * selection)
+{
+	(*selection).count = 0;
+	(*selection).excluded = 0;
+	(*selection).tow = 0;
+	(*selection).hits = 0;
+	(*selection).misses = 0;
+}
+
+/**
+ * fde_select function
+ * The function selects the measurement whose exclusion gives the smallest PDOP (see fde_pdop_ex),
+ * in one pass over the measurements. The previous selection is reused if the set of used
+ * measurements is unchanged and if it is not older than FDE_SELECTION_AGE.
+ * @param selection  The previous selection, updated, NULL to evaluate the selection
+ * @param fde        The state initialised with unit weights, 0 for the measurements not used
+ * @param prn        The PRN of the measurements
+ * @param tow        The time of week of the epoch (s)
+ * @return           The measurement to exclude, -1 if no exclusion keeps the geometry solvable
+ */
+int fde_select(Fde_selection * selection, Fde * fde, double prn[], double tow)
+{
+	int i, k;
+	int best = -1;
+	int found = 0;
+	double pdop, min = 0;
+
+	if(selection != NULL && (*selection).count == (*fde).used
+			&& fabs(tow - (*selection).tow) <= FDE_SELECTION_AGE)
+	{
+		for(k = 0; k < (*fde).n; k++)
+		{
+			if((*fde).w[k] == 0)
+				continue;
+			for(i = 0; i < (*selection).count; i++)
+				if((*selection).prn[i] == prn[k])
+					break;
+			if(i == (*selection).count)
+				break;
+			found++;
+			if(prn[k] == (*selection).excluded)
+				best = k;
+		}
+		if(found == (*selection).count && best != -1)
+		{
+			(*selection).hits++;
+			return best;
+		}
+		best = -1;
+	}
+
+	for(k = 0; k < (*fde).n; k++)
+	{
+		pdop = fde_pdop_ex(fde, k);
+		if(pdop >= 0 && (best == -1 || pdop < min))
+		{
+			min = pdop;
+			best = k;
+		}
+	}
+
+	if(selection != NULL)
+	{
+		(*selection).count = 0;
+		if(best != -1)
+		{
+			for(k = 0; k < (*fde).n; k++)
+				if((*fde).w[k] != 0)
+					(*selection).prn[(*selection).count++] = prn[k];
+			(*selection).excluded = prn[best];
+			(*selection).tow = tow;
+		}
+		(*selection).misses++;
+	}
+
+	return best;
+}
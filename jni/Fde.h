@@ -0,0 +1,105 @@
+/**
+ * @file Fde.h
+ *
+ * @brief Fde module header file defining the fault detection and exclusion
+ * state and functions.
+ * @details The module supports the Receiver Autonomous Integrity Monitoring
+ * (RAIM). The weighted least squares problem of an epoch is solved once,
+ * then the exclusion of each single measurement is evaluated by rank-one
+ * downdates of the covariance inv(trans(H).W.H), of the solution and of the
+ * weighted sum of squared residuals, instead of solving the problem again
+ * for each subset of satellites. The candidate exclusions are evaluated
+ * in the positioning thread: a few vector products each, much less than
+ * the start of a thread.
+ * With unit weights, the same downdates give the DOP of the geometry without
+ * each satellite (Sherman-Morrison formula), used to select the satellite
+ * whose exclusion gives the best constellation.
+ *
+ * Rev: 3.0.0
+ *
+ * Author: DKE Aerospace Germany GmbH
+ *
+ * Copyright 2012 European Commission
+ *
+ * Licensed under the EUPL, Version 1.1 only (the "Licence");
+ * You may not use this work except in compliance with the
+ * Licence.
+ * You may obtain a copy of the Licence at:
+ * http://ec.europa.eu/idabc/eupl.html
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the Licence is
+ * distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied.
+ * See the Licence for the specific language governing
+ * permissions and limitations under the Licence.
+ *
+ */
+
+#ifndef FDE_H_
+#define FDE_H_
+
+#include "Matrix.h"
+
+/* Maximum number of measurements */
+#define FDE_MAX 19
+/* Smallest value of 1 - leverage of a measurement for its exclusion to keep the geometry solvable */
+#define FDE_MIN_REDUNDANCY 1e-9
+/* Largest age of a satellite selection reused while the set of satellites is unchanged (s) */
+#define FDE_SELECTION_AGE 60
+
+/**
+ * @typedef Fde Fde
+ */
+typedef struct Fde Fde;
+
+/**
+ * @struct Fde Fde.h "Fde.h"
+ * @brief The structure holds the least squares state of the fault detection and exclusion.
+ * @details The state is initialised by one least squares solution and then
+ * downdated by each exclusion.
+ */
+struct Fde
+{
+  int n;                   /*!< Number of measurements */
+  int used;                /*!< Number of measurements of non null weight */
+  double H[FDE_MAX][4];    /*!< Geometry matrix */
+  double w[FDE_MAX];       /*!< Weights of the measurements, 0 if not used or excluded */
+  double y[FDE_MAX];       /*!< Pseudorange residuals                                            (m) */
+  double P[4][4];          /*!< Covariance of the solution inv(trans(H).W.H) */
+  double x[4];             /*!< Least squares solution                                           (m) */
+  double r[FDE_MAX];       /*!< Residuals of the solution y - H.x                                (m) */
+  double sse;              /*!< Weighted sum of squared residuals */
+  double sse_ex[FDE_MAX];  /*!< Weighted sum of squared residuals after the exclusion of each measurement, -1 if not possible */
+};
+
+/**
+ * @typedef Fde_selection Fde_selection
+ */
+typedef struct Fde_selection Fde_selection;
+
+/**
+ * @struct Fde_selection Fde.h "Fde.h"
+ * @brief The structure holds the last satellite selection of the best constellation.
+ * @details The selection is reused from one epoch to the next while the set
+ * of satellites is unchanged, for at most FDE_SELECTION_AGE seconds.
+ */
+struct Fde_selection
+{
+  int count;               /*!< Number of satellites of the selection set, 0 if no selection */
+  double prn[FDE_MAX];     /*!< PRN of the satellites of the selection set */
+  double excluded;         /*!< PRN of the satellite excluded by the selection */
+  double tow;              /*!< Time of week of the selection                                  (s) */
+  unsigned long hits;      /*!< Number of selections reused */
+  unsigned long misses;    /*!< Number of selections evaluated */
+};
+
+int fde_init(Fde * fde, int n, double H[n][4], double w[n], double y[n]);
+void fde_candidates(Fde * fde, int first, int last);
+int fde_evaluate(Fde * fde);
+void fde_exclude(Fde * fde, int k);
+double fde_pdop_ex(Fde * fde, int k);
+void init_fdeSelection(Fde_selection * selection);
+int fde_select(Fde_selection * selection, Fde * fde, double prn[], double tow);
+
+#endif /* FDE_H_ */
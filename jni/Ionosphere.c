@@ -40,6 +40,8 @@
  * @param m26_t    Message 26 destination table
  * @param m18_char The input binaries table for message type 18
  * @param m26_char The input binaries table for message type 26
+ *                 (m18_char and m26_char set to NULL when the grid has
+ *                 already been decoded in m18_t and m26_t)
  * @return         1 if succesful, 0 if not
  */
 int set_ionoGridSis(Egnos_msg m18_t[11], Egnos_msg m26_t[25],
@@ -49,6 +51,10 @@ int set_ionoGridSis(Egnos_msg m18_t[11], Egnos_msg m26_t[25],
 	int i, j, r, iodi;
 	int total_block = 0; // The total number of IGP blocks
 
+	// The grid is kept decoded by the caller
+	if (m18_char == NULL || m26_char == NULL)
+		return 1;
+
 	for(i = 0; i< 11; i++){
 		Egnos_msg msg18;
 		init_msg(&msg18, 18);
@@ -74,6 +80,7 @@ int set_ionoGridSis(Egnos_msg m18_t[11], Egnos_msg m26_t[25],
 
 				int band_ID;
 				band_ID = decode_msg18(&msg18);
+				msg18.bin_msg = "";
 				if ( band_ID != -1) {
 					iodi = msg18.iodi;
 					m18_t[band_ID] = msg18;
@@ -95,8 +102,9 @@ j = 0;
 while (j < 25) {
 	Egnos_msg msg26;
 	init_msg(&msg26, 26);
+	m26_t[j] = msg26;
 	
-	if (m26_char[i][0] != '\0'){
+	if (m26_char[j][0] != '\0'){
 
 		strncpy(tow, m26_char[j], 12);
 		tow[12] = '\0';
@@ -107,7 +115,9 @@ while (j < 25) {
 			egnos[250] = '\0';
 			msg26.bin_msg = egnos; //printf("egnos %s\n",msg26.bin_msg);
 
-			if (decode_msg26(&msg26) == 1) {
+			int decoded = decode_msg26(&msg26);
+			msg26.bin_msg = "";
+			if (decoded == 1) {
 				// IODI check
 				if (msg26.iodi == iodi)
 					r = 1;
@@ -141,13 +151,35 @@ return r;
  * @param user_long The estimated user longitude  (deg)
  * @param m18_t     The messages 18 table
  * @param m26_t     The messages 26 table
+ * @param iono_index The index of the ionospheric grid and cell cache, NULL to search the messages tables
  * @param *msg10    The pointer of the message 10
  * @param flag		If 1 sigma_iono doesn't include the degradation factor
  * @return          The number of IGPs (-1: PRN not monitored or one IGP is don't use status)
  */
 void get_ionoCorrection(Satellite * Sat, double user_lat, double user_long,Egnos_msg m18_t[11],
-		Egnos_msg m26_t[25], Egnos_msg * msg10, int flag) {
-	double ipp[2], interp[2];
+		Egnos_msg m26_t[25], Iono_index * iono_index, Egnos_msg * msg10, int flag) {
+	double ipp[2];
+
+	// Compute the IPP lat. and long. (ipp table)
+	IPPlocation(ipp, user_lat, user_long, (*Sat).el, (*Sat).az);
+	get_ionoCorrectionIPP(Sat, ipp, m18_t, m26_t, iono_index, msg10, flag);
+}
+
+/**
+ * get_ionoCorrectionIPP function
+ * The function computes the ionospheric correction in (m) and the model variance in (m^2) of the given satellite
+ * from its already computed Ionospheric Pierce Point, and updates its iono_delay and sigma_uire2 parameters.
+ * @param *Sat      The pointer of the Satellite
+ * @param ipp       The table containing the ipp lat. and long. of the satellite (see IPPlocation)
+ * @param m18_t     The messages 18 table
+ * @param m26_t     The messages 26 table
+ * @param iono_index The index of the ionospheric grid and cell cache, NULL to search the messages tables
+ * @param *msg10    The pointer of the message 10
+ * @param flag		If 1 sigma_iono doesn't include the degradation factor
+ */
+void get_ionoCorrectionIPP(Satellite * Sat, double ipp[2], Egnos_msg m18_t[11],
+		Egnos_msg m26_t[25], Iono_index * iono_index, Egnos_msg * msg10, int flag) {
+	double interp[2];
 	int i;
 	double igps_sel[4][6];
 	igps_sel[0][2] = 0;
@@ -159,10 +191,15 @@ void get_ionoCorrection(Satellite * Sat, double user_lat, double user_long,Egnos
 
 	egnos_time = (*Sat).tow2;
 
-	// Compute the IPP lat. and long. (ipp table)
-	IPPlocation(ipp, user_lat, user_long, (*Sat).el, (*Sat).az);
-	// Selection of the IGPs
-	nb_igps = IGPsSelect(igps_sel, ipp, m18_t, m26_t);
+	// Selection of the IGPs, reused from the previous selection of the satellite
+	// while the IPP stays inside the same cell of an unchanged grid
+	if (get_ionoCell(iono_index, (*Sat).prn, ipp, igps_sel) == 1)
+		nb_igps = 4;
+	else
+	{
+		nb_igps = IGPsSelect(igps_sel, ipp, m18_t, m26_t, iono_index);
+		set_ionoCell(iono_index, (*Sat).prn, ipp, m18_t, igps_sel, nb_igps);
+	}
 	// if GIVD >= 63.875 correction is not available
 	for(i = 0; i < 4; i++)
 	{
@@ -243,9 +280,11 @@ void IPPlocation(double ipp[2], double user_lat, double user_long, double E,
  * @param ipp      The table containing the ipp lat. and long.
  * @param m18_t    The messages 18 table
  * @param m26_t    The messages 26 table
+ * @param iono_index The index of the ionospheric grid, NULL to search the messages tables
  * @return         The number of selected IGPs
  */
-int IGPsSelect(double igps[4][6], double ipp[2], Egnos_msg m18_t[11],Egnos_msg m26_t[25]) {
+int IGPsSelect(double igps[4][6], double ipp[2], Egnos_msg m18_t[11],Egnos_msg m26_t[25],
+		const Iono_index * iono_index) {
 	int block_info[4][3]; // block info contains the block ID, position (0-14) and band_id for 4 points
 	int igps_18 = 0; // check IGPs nb for msg 18
 	int igps_26 = 0; // check IGPs nb for msg 26
@@ -279,11 +318,11 @@ int IGPsSelect(double igps[4][6], double ipp[2], Egnos_msg m18_t[11],Egnos_msg m
 		lat_spacing = 5;
 		lon_spacing = 5;
 
-		igps_18 = get_defined_IGPs(igps, m18_t, block_info, lat_spacing, lon_spacing, par_lat, par_lon, ipp);
+		igps_18 = get_defined_IGPs(igps, m18_t, iono_index, block_info, lat_spacing, lon_spacing, par_lat, par_lon, ipp);
 
 		if (igps_18 == 4)
 		{
-			igps_26 = get_monitored_IGPs(m26_t, block_info,igps);
+			igps_26 = get_monitored_IGPs(m26_t, iono_index, block_info, igps);
 			if(igps_26 == 4)
 				return igps_26;
 			if(igps_26 == 3)
@@ -292,7 +331,7 @@ int IGPsSelect(double igps[4][6], double ipp[2], Egnos_msg m18_t[11],Egnos_msg m
 				check = check_Triangle(igps, ipp, 5, 5);
 				if(check == 1)
 				{
-					igps_26 = get_monitored_IGPs(m26_t, block_info,igps);
+					igps_26 = get_monitored_IGPs(m26_t, iono_index, block_info, igps);
 					return igps_26;
 				}
 
@@ -308,7 +347,7 @@ int IGPsSelect(double igps[4][6], double ipp[2], Egnos_msg m18_t[11],Egnos_msg m
 			check = check_Triangle(igps, ipp, 5, 5);
 			if(check == 1)
 			{
-				igps_26 = get_monitored_IGPs(m26_t, block_info,igps);
+				igps_26 = get_monitored_IGPs(m26_t, iono_index, block_info, igps);
 				if(igps_26 == 3)
 					return igps_26;
 				else
@@ -321,7 +360,7 @@ int IGPsSelect(double igps[4][6], double ipp[2], Egnos_msg m18_t[11],Egnos_msg m
 		if (igps_18 < 3 || check_10x10 == 1) {
 			lat_spacing = 10;
 			lon_spacing = 10;
-			igps_26 = calculateIGPs(ipp, igps, block_info, m18_t, m26_t, lat_spacing, lon_spacing);
+			igps_26 = calculateIGPs(ipp, igps, block_info, m18_t, m26_t, iono_index, lat_spacing, lon_spacing);
 			return igps_26;
 		}
 	}
@@ -329,33 +368,33 @@ int IGPsSelect(double igps[4][6], double ipp[2], Egnos_msg m18_t[11],Egnos_msg m
 	{
 		lat_spacing = 10;
 		lon_spacing = 10;
-		igps_26 = calculateIGPs(ipp, igps, block_info, m18_t, m26_t, lat_spacing, lon_spacing);
+		igps_26 = calculateIGPs(ipp, igps, block_info, m18_t, m26_t, iono_index, lat_spacing, lon_spacing);
 	}
 	if (ipp[0] > 60 && ipp[0] <= 75 && m18_t[9].band_id == 9)
 	{
 		lat_spacing =  5;
 		lon_spacing = 10;
-		igps_26 = calculateIGPs(ipp, igps, block_info, m18_t, m26_t, lat_spacing, lon_spacing);
+		igps_26 = calculateIGPs(ipp, igps, block_info, m18_t, m26_t, iono_index, lat_spacing, lon_spacing);
 		if (igps_26 < 3)
 		{
 			lat_spacing = 10;
 			lon_spacing = 10;
-			igps_26 = calculateIGPs(ipp, igps, block_info, m18_t, m26_t, lat_spacing, lon_spacing);
+			igps_26 = calculateIGPs(ipp, igps, block_info, m18_t, m26_t, iono_index, lat_spacing, lon_spacing);
 		}
 	}
 	if (ipp[0] > 60 && ipp[0] <= 75 && m18_t[9].band_id != 9)
 	{
 		lat_spacing = 10;
 		lon_spacing = 10;
-		igps_26 = calculateIGPs(ipp, igps, block_info, m18_t, m26_t, lat_spacing, lon_spacing);
+		igps_26 = calculateIGPs(ipp, igps, block_info, m18_t, m26_t, iono_index, lat_spacing, lon_spacing);
 	}
 	if (ipp[0] > 75 && ipp[0] <= 85 && m18_t[9].band_id == 9)
 	{
-		igps_26 = calculateIGPs_above75(ipp, igps, block_info, m18_t, m26_t);
+		igps_26 = calculateIGPs_above75(ipp, igps, block_info, m18_t, m26_t, iono_index);
 	}
 	if (ipp[0] > 75 && ipp[0] <= 85 && m18_t[9].band_id != 9)
 	{
-		igps_26 = calculateIGPs_above75(ipp, igps, block_info, m18_t, m26_t);
+		igps_26 = calculateIGPs_above75(ipp, igps, block_info, m18_t, m26_t, iono_index);
 	}
 	if (ipp[0] > 85)
 	{
@@ -398,11 +437,11 @@ int IGPsSelect(double igps[4][6], double ipp[2], Egnos_msg m18_t[11],Egnos_msg m
 		if (m18_t[9].band_id == 9)
 		{
 			int band_id = m18_t[9].band_id;
-			igps_18 = get_IGPs(band_id, block_info, igps, m18_t);
+			igps_18 = get_IGPs(band_id, block_info, igps, m18_t, iono_index);
 		}
 		if (igps_18 == 4)
 		{
-			igps_26 = get_monitored_IGPs(m26_t, block_info,igps);
+			igps_26 = get_monitored_IGPs(m26_t, iono_index, block_info, igps);
 			if(igps_26 == 4)
 				return igps_26;
 			else
@@ -423,11 +462,13 @@ int IGPsSelect(double igps[4][6], double ipp[2], Egnos_msg m18_t[11],Egnos_msg m
  * @param ipp         The table containing the ipp lat. and long.
  * @param m18_t       The messages 18 table
  * @param m26_t       The messages 26 table
+ * @param iono_index  The index of the ionospheric grid, NULL to search the messages tables
  * @return            The number of selected IGPs
  */
-int calculateIGPs_above75(double ipp[2], double igps[4][6], int block_info[4][3], Egnos_msg m18_t[11], Egnos_msg m26_t[25])
+int calculateIGPs_above75(double ipp[2], double igps[4][6], int block_info[4][3], Egnos_msg m18_t[11], Egnos_msg m26_t[25],
+		const Iono_index * iono_index)
 {
-	int i, k, j, block_id, band_pos, max;
+	int k, j, band_pos;
 	int long_min = 0;
 	int long_max = 0;
 	int long3 = 0;
@@ -470,38 +511,17 @@ int calculateIGPs_above75(double ipp[2], double igps[4][6], int block_info[4][3]
 		else
 			band_pos = 9;
 
-		j = 0; // First value of the block line number
-		block_id = m18_t[band_pos].igp_blocks[0][0]; // First value of the block ID
-		max = m18_t[band_pos].block_nb * 15;
-
-		for (i = 0; i < max; i++) // Stop condition: the block number stored in the egnos msg * 15 (15 lines per blocks) is reached
-		{
-			// Reset the value of the block line
-			if (block_id != m18_t[band_pos].igp_blocks[i][0])
-				j = 0;
-
-			// Update block_id
-			block_id = m18_t[band_pos].igp_blocks[i][0];
-
-			if ((m18_t[band_pos].igp_blocks[i][0] != -1)
-					&& (igps[k][0] == m18_t[band_pos].igp_blocks[i][1])
-					&& (igps[k][1] == m18_t[band_pos].igp_blocks[i][2])) {
-				// save the block_id and the line number of the IGPs in the block
-				block_info[k][0] = block_id;
-				block_info[k][1] = j;
-				block_info[k][2] = m18_t[band_pos].band_id;
+		// save the block_id and the line number of the IGPs in the block
+		if (find_IGP(iono_index, m18_t, band_pos, igps[k][0], igps[k][1], block_info[k]) == 1) {
+			// Update the status of the IGP to 1 (defined)
+			igps[k][4] = 1;
 
-				// Update the status of the IGP to 1 (defined)
-				igps[k][4] = 1;
-
-				// Increment the number of IGPs
-				igps_18++;
-			}
-			j++;
+			// Increment the number of IGPs
+			igps_18++;
 		}
 	}
 
-	no_igps = get_monitored_IGPs(m26_t,block_info,igps);
+	no_igps = get_monitored_IGPs(m26_t, iono_index, block_info, igps);
 	igps_26 += no_igps;
 
 	for(k = 2; k < 4; k++)
@@ -528,40 +548,11 @@ int calculateIGPs_above75(double ipp[2], double igps[4][6], int block_info[4][3]
 			else
 				band_pos = 9;
 
-			// Check message type 18 : are the 4 IGPs defined in the igp_blocks table for the given band_id (=! 9)
-			j = 0; // First value of the block line number
-			int block_id = m18_t[band_pos].igp_blocks[0][0]; // First value of the block ID
-			int max = m18_t[band_pos].block_nb * 15;
-			// Check for the 4 IGPs
-			for (i = 0; i < max; i++) // Stop condition: the block number stored in the egnos msg * 15 (15 lines per blocks) is reached
-			{
-				// Reset the value of the block line
-				if (block_id != m18_t[band_pos].igp_blocks[i][0])
-					j = 0;
-
-				// Update block_id
-				block_id = m18_t[band_pos].igp_blocks[i][0];
-
-				if ((m18_t[band_pos].igp_blocks[i][0] != -1)
-						&& (m18_t[band_pos].igp_blocks[i][1] == 85)
-						&& (m18_t[band_pos].igp_blocks[i][2] == long_min)) {
-					// save the block_id and the line number of the IGPs in the block
-					block_info_min[0] = block_id;
-					block_info_min[1] = j;
-					block_info_min[2] = m18_t[band_pos].band_id;
-					igps_18++;
-				}
-				if ((m18_t[band_pos].igp_blocks[i][0] != -1)
-						&& (m18_t[band_pos].igp_blocks[i][1] == 85)
-						&& (m18_t[band_pos].igp_blocks[i][2] == long_max)) {
-					// save the block_id and the line number of the IGPs in the block
-					block_info_max[0] = block_id;
-					block_info_max[1] = j;
-					block_info_max[2] = m18_t[band_pos].band_id;
-					igps_18++;
-				}
-				j++;
-			}
+			// Check message type 18 : are the 2 IGPs defined in the igp_blocks table for the given band_id (=! 9)
+			if (find_IGP(iono_index, m18_t, band_pos, 85, long_min, block_info_min) == 1)
+				igps_18++;
+			if (find_IGP(iono_index, m18_t, band_pos, 85, long_max, block_info_max) == 1)
+				igps_18++;
 
 			// Search for the position in the m26_t table where the band_id and block_id are the same in msg 18 and 26
 			for (j = 0; j < 25; j++) {
@@ -607,36 +598,11 @@ int calculateIGPs_above75(double ipp[2], double igps[4][6], int block_info[4][3]
 			else
 				band_pos = 9;
 
-			int j = 0; // First value of the block line number
-			int block_id = m18_t[band_pos].igp_blocks[0][0]; // First value of the block ID
-			int max = m18_t[band_pos].block_nb * 15;
-			// Check for the 4 IGPs
-			for (i = 0; i < max; i++) // Stop condition: the block number stored in the egnos msg * 15 (15 lines per blocks) is reached
-			{
-				// Reset the value of the block line
-				if (block_id != m18_t[band_pos].igp_blocks[i][0])
-					j = 0;
-
-				// Update block_id
-				block_id = m18_t[band_pos].igp_blocks[i][0];
-
-				if ((m18_t[band_pos].igp_blocks[i][0] != -1)
-						&& (m18_t[band_pos].igp_blocks[i][1] == 85)
-						&& (m18_t[band_pos].igp_blocks[i][2] == igps[k][1])) {
-					// save the block_id and the line number of the IGPs in the block
-					block[0] = block_id;
-					block[1] = j;
-					block[2] = m18_t[band_pos].band_id;
-				}
-				j++;
-			}
-			for (j = 0; j < 25; j++) {
-				if ((m26_t[j].band_id == block[2])
-						&& (m26_t[j].block_id == block[0]))
-					break;
-			}
+			// save the block_id and the line number of the IGP in the block
+			find_IGP(iono_index, m18_t, band_pos, 85, igps[k][1], block);
+			j = find_m26(iono_index, m26_t, block[2], block[0]);
 
-			if(j<25)
+			if(j<25 && block[1] >= 0)
 			{
 				// Check the IGPs with status == 1
 				if (m26_t[j].grid_point[block[1]][0] == 1) {
@@ -668,11 +634,13 @@ int calculateIGPs_above75(double ipp[2], double igps[4][6], int block_info[4][3]
  * @param ipp           The table containing the ipp lat. and long.
  * @param m18_t         The messages 18 table
  * @param m26_t         The messages 26 table
+ * @param iono_index    The index of the ionospheric grid, NULL to search the messages tables
  * @param  lat_spacing  The latitude spacing of the cell surrounding the IPP
  * @param  lon_spacing  The longitude spacing of the cell surrounding the IPP
  * @return            The number of selected IGPs
  */
-int calculateIGPs(double ipp[2], double igps[4][6], int block_info[4][3], Egnos_msg m18_t[5], Egnos_msg m26_t[25], int lat_spacing, int lon_spacing)
+int calculateIGPs(double ipp[2], double igps[4][6], int block_info[4][3], Egnos_msg m18_t[5], Egnos_msg m26_t[25],
+		const Iono_index * iono_index, int lat_spacing, int lon_spacing)
 {
 	int par_lat, par_lon;
 	int igps_18 = 0;
@@ -682,10 +650,10 @@ int calculateIGPs(double ipp[2], double igps[4][6], int block_info[4][3], Egnos_
 	par_lat = 1;
 	par_lon = 0;
 
-	igps_18 = get_defined_IGPs(igps, m18_t, block_info, lat_spacing, lon_spacing, par_lat, par_lon, ipp);
+	igps_18 = get_defined_IGPs(igps, m18_t, iono_index, block_info, lat_spacing, lon_spacing, par_lat, par_lon, ipp);
 	if (igps_18 == 4)
 	{
-		igps_26 = get_monitored_IGPs(m26_t, block_info,igps);
+		igps_26 = get_monitored_IGPs(m26_t, iono_index, block_info, igps);
 		if(igps_26 == 4)
 			return igps_26;
 		if(igps_26 == 3)
@@ -693,7 +661,7 @@ int calculateIGPs(double ipp[2], double igps[4][6], int block_info[4][3], Egnos_
 			check = 0;
 			check = check_Triangle(igps, ipp, lat_spacing, lon_spacing);
 			if(check == 1)
-				igps_26 = get_monitored_IGPs(m26_t, block_info,igps);
+				igps_26 = get_monitored_IGPs(m26_t, iono_index, block_info, igps);
 			else
 				return 0;
 		}
@@ -706,11 +674,11 @@ int calculateIGPs(double ipp[2], double igps[4][6], int block_info[4][3], Egnos_
 		par_lat = 0;
 		par_lon = 0;
 
-		igps_18 = get_defined_IGPs(igps, m18_t, block_info, lat_spacing, lon_spacing, par_lat, par_lon, ipp);
+		igps_18 = get_defined_IGPs(igps, m18_t, iono_index, block_info, lat_spacing, lon_spacing, par_lat, par_lon, ipp);
 
 		if(igps_18 == 4)
 		{
-			igps_26 = get_monitored_IGPs(m26_t, block_info,igps);
+			igps_26 = get_monitored_IGPs(m26_t, iono_index, block_info, igps);
 			if(igps_26 == 4)
 				return igps_26;
 			if(igps_26 == 3)
@@ -732,11 +700,11 @@ int calculateIGPs(double ipp[2], double igps[4][6], int block_info[4][3], Egnos_
 			par_lat = 1;
 			par_lon = 1;
 
-			igps_18 = get_defined_IGPs(igps, m18_t, block_info, lat_spacing, lon_spacing, par_lat, par_lon, ipp);
+			igps_18 = get_defined_IGPs(igps, m18_t, iono_index, block_info, lat_spacing, lon_spacing, par_lat, par_lon, ipp);
 
 			if(igps_18 == 4)
 			{
-				igps_26 = get_monitored_IGPs(m26_t, block_info,igps);
+				igps_26 = get_monitored_IGPs(m26_t, iono_index, block_info, igps);
 				if(igps_26 == 4)
 					return igps_26;
 				if(igps_26 == 3)
@@ -758,11 +726,11 @@ int calculateIGPs(double ipp[2], double igps[4][6], int block_info[4][3], Egnos_
 				par_lat = 0;
 				par_lon = 1;
 
-				igps_18 = get_defined_IGPs(igps, m18_t, block_info, lat_spacing, lon_spacing, par_lat, par_lon, ipp);
+				igps_18 = get_defined_IGPs(igps, m18_t, iono_index, block_info, lat_spacing, lon_spacing, par_lat, par_lon, ipp);
 
 				if(igps_18 == 4)
 				{
-					igps_26 = get_monitored_IGPs(m26_t, block_info,igps);
+					igps_26 = get_monitored_IGPs(m26_t, iono_index, block_info, igps);
 					if(igps_26 == 4)
 						return igps_26;
 					if(igps_26 == 3)
@@ -784,7 +752,7 @@ int calculateIGPs(double ipp[2], double igps[4][6], int block_info[4][3], Egnos_
 					par_lat = 1;
 					par_lon = 0;
 
-					igps_18 = get_defined_IGPs(igps, m18_t, block_info, lat_spacing, lon_spacing, par_lat, par_lon, ipp);
+					igps_18 = get_defined_IGPs(igps, m18_t, iono_index, block_info, lat_spacing, lon_spacing, par_lat, par_lon, ipp);
 
 
 					if(igps_18 == 3)
@@ -793,7 +761,7 @@ int calculateIGPs(double ipp[2], double igps[4][6], int block_info[4][3], Egnos_
 						check = check_Triangle(igps, ipp, lat_spacing, lon_spacing);
 						if(check == 1)
 						{
-							igps_26 = get_monitored_IGPs(m26_t, block_info,igps);
+							igps_26 = get_monitored_IGPs(m26_t, iono_index, block_info, igps);
 						}
 					}
 					else
@@ -802,14 +770,14 @@ int calculateIGPs(double ipp[2], double igps[4][6], int block_info[4][3], Egnos_
 						par_lat = 0;
 						par_lon = 0;
 
-						igps_18 = get_defined_IGPs(igps, m18_t, block_info, lat_spacing, lon_spacing, par_lat, par_lon, ipp);
+						igps_18 = get_defined_IGPs(igps, m18_t, iono_index, block_info, lat_spacing, lon_spacing, par_lat, par_lon, ipp);
 
 						if(igps_18 == 3)
 						{
 							check = 0;
 							check = check_Triangle(igps, ipp, lat_spacing, lon_spacing);
 							if(check == 1)
-								igps_26 = get_monitored_IGPs(m26_t, block_info,igps);
+								igps_26 = get_monitored_IGPs(m26_t, iono_index, block_info, igps);
 						}
 						else
 						{
@@ -817,14 +785,14 @@ int calculateIGPs(double ipp[2], double igps[4][6], int block_info[4][3], Egnos_
 							par_lat = 1;
 							par_lon = 1;
 
-							igps_18 = get_defined_IGPs(igps, m18_t, block_info, lat_spacing, lon_spacing, par_lat, par_lon, ipp);
+							igps_18 = get_defined_IGPs(igps, m18_t, iono_index, block_info, lat_spacing, lon_spacing, par_lat, par_lon, ipp);
 
 							if(igps_18 == 3)
 							{
 								check = 0;
 								check = check_Triangle(igps, ipp, lat_spacing, lon_spacing);
 								if(check == 1)
-									igps_26 = get_monitored_IGPs(m26_t, block_info,igps);
+									igps_26 = get_monitored_IGPs(m26_t, iono_index, block_info, igps);
 							}
 							else
 							{
@@ -832,14 +800,14 @@ int calculateIGPs(double ipp[2], double igps[4][6], int block_info[4][3], Egnos_
 								par_lat = 0;
 								par_lon = 1;
 
-								igps_18 = get_defined_IGPs(igps, m18_t, block_info, lat_spacing, lon_spacing, par_lat, par_lon, ipp);
+								igps_18 = get_defined_IGPs(igps, m18_t, iono_index, block_info, lat_spacing, lon_spacing, par_lat, par_lon, ipp);
 
 								if(igps_18 == 3)
 								{
 									check = 0;
 									check = check_Triangle(igps, ipp, lat_spacing, lon_spacing);
 									if(check == 1)
-										igps_26 = get_monitored_IGPs(m26_t, block_info,igps);
+										igps_26 = get_monitored_IGPs(m26_t, iono_index, block_info, igps);
 								}
 								else
 									return 0;
@@ -860,6 +828,7 @@ int calculateIGPs(double ipp[2], double igps[4][6], int block_info[4][3], Egnos_
  * they are defined in the ionospheric mask, MT18
  * @param  igps          The destination table containing the IGPs lat.,long.,IGPVD and GIVEI
  * @param  m18_t         The messages 18 table
+ * @param  iono_index    The index of the ionospheric grid, NULL to search the messages tables
  * @param  block_info    The position of the GIVD values in MT26 corresponding to the IGPs found
  * @param  lat_spacing	 The latitude spacing of the cell surrounding the IPP
  * @param  lon_spacing	 The longitude spacing of the cell surrounding the IPP
@@ -868,7 +837,7 @@ int calculateIGPs(double ipp[2], double igps[4][6], int block_info[4][3], Egnos_
  * @param  ipp           The table containing the ipp lat. and long.
  * @return            The number of selected IGPs
  */
-int get_defined_IGPs(double igps[4][6], Egnos_msg m18_t[11], int block_info[4][3], int lat_spacing, int lon_spacing, int par_lat, int par_lon, double ipp[2])
+int get_defined_IGPs(double igps[4][6], Egnos_msg m18_t[11], const Iono_index * iono_index, int block_info[4][3], int lat_spacing, int lon_spacing, int par_lat, int par_lon, double ipp[2])
 {
 	int igps_18 = 0;
 	int no_igps = 0;
@@ -890,16 +859,16 @@ int get_defined_IGPs(double igps[4][6], Egnos_msg m18_t[11], int block_info[4][3
 	band_id1 = get_BandSelect(igps[0][1]);
 	band_id2 = get_BandSelect(igps[1][1]);
 
-	no_igps = get_IGPs(band_id1, block_info, igps, m18_t);
+	no_igps = get_IGPs(band_id1, block_info, igps, m18_t, iono_index);
 	igps_18 += no_igps;
 	if(band_id1 != band_id2)
 	{
-		igps_18 = get_IGPs(band_id2, block_info, igps, m18_t);
+		igps_18 = get_IGPs(band_id2, block_info, igps, m18_t, iono_index);
 		igps_18 += no_igps;
 	}
 	if(igps[3][0] > 55 && m18_t[9].band_id==9)
 	{
-		no_igps = get_IGPs(9, block_info, igps, m18_t);
+		no_igps = get_IGPs(9, block_info, igps, m18_t, iono_index);
 		igps_18 += no_igps;
 	}
 
@@ -913,45 +882,23 @@ int get_defined_IGPs(double igps[4][6], Egnos_msg m18_t[11], int block_info[4][3
  * @param   block_info      The position of the GIVD values in MT26 corresponding to the IGPs found
  * @param   igps            The destination table containing the IGPs lat.,long.,IGPVD and GIVEI
  * @param   m18_t           The messages 18 table
+ * @param   iono_index      The index of the ionospheric grid, NULL to search the messages tables
  * @return  igps_18         The number of selected IGPs
  */
-int get_IGPs(int band_pos, int block_info[4][3], double igps[4][6], Egnos_msg m18_t[11]){
+int get_IGPs(int band_pos, int block_info[4][3], double igps[4][6], Egnos_msg m18_t[11],
+		const Iono_index * iono_index){
 
-	int i,k;
+	int k;
 	int igps_18 = 0;
-	// Check message type 18 : are the 4 IGPs defined in the igp_blocks table for the given band_id (=! 9)
-	int j = 0; // First value of the block line number
-	int block_id = m18_t[band_pos].igp_blocks[0][0]; // First value of the block ID
-	int max = m18_t[band_pos].block_nb * 15;
-	// Check for the 4 IGPs
+	// Check message type 18 : are the 4 IGPs defined in the igp_blocks table for the given band_id
 	for (k = 0; k < 4; k++){
-		for (i = 0; i < max; i++) // Stop condition: the block number stored in the egnos msg * 15 (15 lines per blocks) is reached
-		{
-			// Reset the value of the block line
-			if (block_id != m18_t[band_pos].igp_blocks[i][0])
-				j = 0;
-
-			// Update block_id
-			block_id = m18_t[band_pos].igp_blocks[i][0];
+		// save the block_id and the line number of the IGPs in the block
+		if (find_IGP(iono_index, m18_t, band_pos, igps[k][0], igps[k][1], block_info[k]) == 1) {
+			// Update the status of the IGP to 1 (defined)
+			igps[k][4] = 1;
 
-
-			if ((m18_t[band_pos].igp_blocks[i][0] != -1)
-					&& (igps[k][0] == m18_t[band_pos].igp_blocks[i][1])
-					&& (igps[k][1] == m18_t[band_pos].igp_blocks[i][2])) {
-				// save the block_id and the line number of the IGPs in the block
-				block_info[k][0] = block_id;
-				block_info[k][1] = j;
-				block_info[k][2] = m18_t[band_pos].band_id;
-
-				// Update the status of the IGP to 1 (defined)
-				igps[k][4] = 1;
-
-				// Increment the number of IGPs
-				igps_18++;
-
-			}
-
-			j++;
+			// Increment the number of IGPs
+			igps_18++;
 		}
 	}
 
@@ -963,23 +910,21 @@ int get_IGPs(int band_pos, int block_info[4][3], double igps[4][6], Egnos_msg m1
  * The function determines if selected IGPs are monitored or not
  * @param block_info      The position of the GIVD values in MT26 corresponding to the IGPs found
  * @param m26_t           The messages 18 table
+ * @param iono_index      The index of the ionospheric grid, NULL to search the messages tables
  * @param igps            The destination table containing the IGPs lat.,long.,IGPVD and GIVEI
  * @return                The number of selected IGPs
  */
-int get_monitored_IGPs(Egnos_msg m26_t[25], int block_info[4][3], double igps[4][6])
+int get_monitored_IGPs(Egnos_msg m26_t[25], const Iono_index * iono_index, int block_info[4][3], double igps[4][6])
 {
 	int igps_26 = 0;
 	int i,j;
 	// Check for the 4 IGPs
 	for (i = 0; i < 4; i++) {
 		// Search fo the position in the m26_t table where the band_id and block_id are the same in msg 18 and 26
-		for (j = 0; j < 25; j++) {
-			if ((m26_t[j].band_id == block_info[i][2])
-					&& (m26_t[j].block_id == block_info[i][0]))
-				break;
-		}
+		j = find_m26(iono_index, m26_t, block_info[i][2], block_info[i][0]);
 
-		if(j<25)
+		// The IGPs not defined in the mask (line -1) are skipped
+		if(j<25 && block_info[i][1] >= 0)
 		{
 			// Check the IGPs with status == 1
 			if (m26_t[j].grid_point[block_info[i][1]][0] == 1) {
@@ -1030,6 +975,269 @@ int get_monitored_IGPs(Egnos_msg m26_t[25], int block_info[4][3], double igps[4]
 	return igps_26;
 
 }
+/**
+ * init_ionoIndex function
+ * The function initializes an empty index of the ionospheric grid, built at the next call of set_ionoIndex.
+ * @param iono_index  The index of the ionospheric grid
+ */
+void init_ionoIndex(Iono_index * iono_index)
+{
+	int b, i, j;
+
+	for (b = 0; b < 11; b++) {
+		(*iono_index).mask_key[b][0] = -2;
+		(*iono_index).mask_key[b][1] = -2;
+		(*iono_index).mask_key[b][2] = -2;
+		for (i = 0; i < IONO_INDEX_LAT; i++)
+			for (j = 0; j < IONO_INDEX_LON; j++)
+				(*iono_index).igp[b][i][j] = -1;
+		for (j = 0; j < 16; j++)
+			(*iono_index).m26[b][j] = -1;
+	}
+	(*iono_index).version = 0;
+	for (i = 0; i < SATELLITE_SLOTS; i++)
+		(*iono_index).cell[i].version = -1;
+	(*iono_index).cell_hits = 0;
+	(*iono_index).cell_misses = 0;
+}
+
+/**
+ * set_ionoIndex function
+ * The function updates the index of the ionospheric grid after the decoding of the messages 18 and 26.
+ * The mask of a band is only indexed again if its band ID, IODI or number of blocks has changed.
+ * The version of the grid is incremented, so that the cells cached before the update are not reused.
+ * @param iono_index  The index of the ionospheric grid
+ * @param m18_t       The messages 18 table
+ * @param m26_t       The messages 26 table
+ * @return            1 if the mask has been indexed again, 0 if not
+ */
+int set_ionoIndex(Iono_index * iono_index, Egnos_msg m18_t[11], Egnos_msg m26_t[25])
+{
+	int b, i, j, block_id, max, lat, lon;
+	int rebuilt = 0;
+
+	// Messages type 18 part
+	for (b = 0; b < 11; b++) {
+		if ((*iono_index).mask_key[b][0] == m18_t[b].band_id
+				&& (*iono_index).mask_key[b][1] == m18_t[b].iodi
+				&& (*iono_index).mask_key[b][2] == m18_t[b].block_nb)
+			continue;
+
+		(*iono_index).mask_key[b][0] = m18_t[b].band_id;
+		(*iono_index).mask_key[b][1] = m18_t[b].iodi;
+		(*iono_index).mask_key[b][2] = m18_t[b].block_nb;
+		for (i = 0; i < IONO_INDEX_LAT; i++)
+			for (j = 0; j < IONO_INDEX_LON; j++)
+				(*iono_index).igp[b][i][j] = -1;
+
+		// Same walk of the mask as the search in find_IGP
+		j = 0; // First value of the block line number
+		block_id = m18_t[b].igp_blocks[0][0]; // First value of the block ID
+		max = m18_t[b].block_nb * 15;
+		for (i = 0; i < max && i < 210; i++)
+		{
+			// Reset the value of the block line
+			if (block_id != m18_t[b].igp_blocks[i][0])
+				j = 0;
+
+			// Update block_id
+			block_id = m18_t[b].igp_blocks[i][0];
+
+			lat = m18_t[b].igp_blocks[i][1];
+			lon = m18_t[b].igp_blocks[i][2];
+			if (block_id != -1 && lat >= -90 && lat <= 90 && lon >= -180 && lon <= 180
+					&& (lat + 90) % 5 == 0 && (lon + 180) % 5 == 0)
+				(*iono_index).igp[b][(lat + 90) / 5][(lon + 180) / 5] = block_id * 256 + j;
+			j++;
+		}
+		rebuilt = 1;
+	}
+
+	// Messages type 26 part: first message of each band and block
+	for (b = 0; b < 11; b++)
+		for (j = 0; j < 16; j++)
+			(*iono_index).m26[b][j] = -1;
+	for (j = 0; j < 25; j++) {
+		b = m26_t[j].band_id;
+		block_id = m26_t[j].block_id;
+		if (b >= 0 && b < 11 && block_id >= 0 && block_id < 16
+				&& (*iono_index).m26[b][block_id] == -1)
+			(*iono_index).m26[b][block_id] = j;
+	}
+
+	// The IGPVD and GIVEI of the cached cells are outdated
+	(*iono_index).version++;
+
+	return rebuilt;
+}
+
+/**
+ * find_IGP function
+ * The function finds an IGP in the mask of a band (message type 18).
+ * @param iono_index  The index of the ionospheric grid, NULL to search the messages tables
+ * @param m18_t       The messages 18 table
+ * @param band_pos    The band where the IGP is located
+ * @param lat         The latitude of the IGP (deg)
+ * @param lon         The longitude of the IGP (deg)
+ * @param block       The destination table containing the block ID, the line in the block and the band ID
+ *                    of the IGP, unchanged if the IGP is not defined
+ * @return            1 if the IGP is defined, 0 if not
+ */
+int find_IGP(const Iono_index * iono_index, Egnos_msg m18_t[11], int band_pos, double lat, double lon,
+		int block[3])
+{
+	int i, j, block_id, max, pos;
+	int found = 0;
+
+	if (band_pos < 0 || band_pos > 10)
+		return 0;
+
+	if (iono_index != NULL) {
+		// The IGPs are defined on a 5 degrees grid
+		if (!(lat >= -90 && lat <= 90 && lon >= -180 && lon <= 180))
+			return 0;
+		i = (int)floor((lat + 90) / 5);
+		j = (int)floor((lon + 180) / 5);
+		if (i * 5 - 90 != lat || j * 5 - 180 != lon)
+			return 0;
+		pos = (*iono_index).igp[band_pos][i][j];
+		if (pos == -1)
+			return 0;
+		block[0] = pos / 256;
+		block[1] = pos % 256;
+		block[2] = m18_t[band_pos].band_id;
+		return 1;
+	}
+
+	j = 0; // First value of the block line number
+	block_id = m18_t[band_pos].igp_blocks[0][0]; // First value of the block ID
+	max = m18_t[band_pos].block_nb * 15;
+	for (i = 0; i < max; i++) // Stop condition: the block number stored in the egnos msg * 15 (15 lines per blocks) is reached
+	{
+		// Reset the value of the block line
+		if (block_id != m18_t[band_pos].igp_blocks[i][0])
+			j = 0;
+
+		// Update block_id
+		block_id = m18_t[band_pos].igp_blocks[i][0];
+
+		if ((m18_t[band_pos].igp_blocks[i][0] != -1)
+				&& (lat == m18_t[band_pos].igp_blocks[i][1])
+				&& (lon == m18_t[band_pos].igp_blocks[i][2])) {
+			// save the block_id and the line number of the IGP in the block
+			block[0] = block_id;
+			block[1] = j;
+			block[2] = m18_t[band_pos].band_id;
+			found = 1;
+		}
+		j++;
+	}
+
+	return found;
+}
+
+/**
+ * find_m26 function
+ * The function finds the message type 26 of a band block.
+ * @param iono_index  The index of the ionospheric grid, NULL to search the messages tables
+ * @param m26_t       The messages 26 table
+ * @param band_id     The band ID
+ * @param block_id    The block ID
+ * @return            The position of the message in the m26_t table, 25 if not received
+ */
+int find_m26(const Iono_index * iono_index, Egnos_msg m26_t[25], int band_id, int block_id)
+{
+	int j;
+
+	if (band_id < 0 || band_id > 10 || block_id < 0 || block_id > 15)
+		return 25;
+
+	if (iono_index != NULL) {
+		j = (*iono_index).m26[band_id][block_id];
+		return j == -1 ? 25 : j;
+	}
+
+	for (j = 0; j < 25; j++) {
+		if ((m26_t[j].band_id == band_id)
+				&& (m26_t[j].block_id == block_id))
+			break;
+	}
+	return j;
+}
+
+/**
+ * get_ionoCell function
+ * The function gets the IGPs cached for a satellite if its IPP is still strictly inside the cached cell
+ * and the grid has not been updated since the selection.
+ * @param iono_index  The index of the ionospheric grid, NULL if no cache is used
+ * @param prn         The PRN of the satellite
+ * @param ipp         The table containing the ipp lat. and long.
+ * @param igps        The destination table containing the IGPs lat.,long.,IGPVD and GIVEI
+ * @return            1 if the 4 IGPs have been taken from the cache, 0 if not
+ */
+int get_ionoCell(Iono_index * iono_index, double prn, double ipp[2], double igps[4][6])
+{
+	int i, j, slot;
+	Iono_cell * cell;
+
+	if (iono_index == NULL)
+		return 0;
+
+	slot = get_satellite_slot(prn);
+	if (slot != -1) {
+		cell = &(*iono_index).cell[slot];
+		// igps[0]: S-W corner, igps[3]: N-E corner
+		if ((*cell).version == (*iono_index).version
+				&& ipp[0] > (*cell).igps[0][0] && ipp[0] < (*cell).igps[3][0]
+				&& ipp[1] > (*cell).igps[0][1] && ipp[1] < (*cell).igps[3][1]) {
+			for (i = 0; i < 4; i++)
+				for (j = 0; j < 6; j++)
+					igps[i][j] = (*cell).igps[i][j];
+			(*iono_index).cell_hits++;
+			return 1;
+		}
+	}
+	(*iono_index).cell_misses++;
+	return 0;
+}
+
+/**
+ * set_ionoCell function
+ * The function caches the IGPs selected for a satellite. Only the 4 monitored IGPs of a 5x5 degrees cell
+ * selected below 55 degrees (60 degrees with the band 9) are cached: this selection only depends on the
+ * cell of the IPP, while the other cases also depend on the IPP position inside the cell.
+ * @param iono_index  The index of the ionospheric grid, NULL if no cache is used
+ * @param prn         The PRN of the satellite
+ * @param ipp         The table containing the ipp lat. and long.
+ * @param m18_t       The messages 18 table
+ * @param igps        The table containing the selected IGPs lat.,long.,IGPVD and GIVEI
+ * @param nb_igps     The number of selected IGPs
+ */
+void set_ionoCell(Iono_index * iono_index, double prn, double ipp[2], Egnos_msg m18_t[11],
+		double igps[4][6], int nb_igps)
+{
+	int i, j, slot;
+	Iono_cell * cell;
+
+	if (iono_index == NULL)
+		return;
+
+	slot = get_satellite_slot(prn);
+	if (slot == -1)
+		return;
+
+	cell = &(*iono_index).cell[slot];
+	(*cell).version = -1;
+	if (nb_igps == 4
+			&& (ipp[0] <= 55 || (ipp[0] <= 60 && m18_t[9].band_id == 9))
+			&& igps[3][0] - igps[0][0] == 5 && igps[3][1] - igps[0][1] == 5) {
+		for (i = 0; i < 4; i++)
+			for (j = 0; j < 6; j++)
+				(*cell).igps[i][j] = igps[i][j];
+		(*cell).version = (*iono_index).version;
+	}
+}
+
 /**
  * IPPInterpolation4 function
  * The function computes the interpolated IPP Vertical Delay and Model Variance with 4 IGPs - DO-229D A.4.4.10.3
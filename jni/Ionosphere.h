@@ -36,26 +36,88 @@
 #include "Satellite.h"
 #include "Egnos.h"
 
+/* Dimensions of the IGP grid index: latitudes -90 to 90 and longitudes
+ * -180 to 180 with a 5 degrees step */
+#define IONO_INDEX_LAT 37
+#define IONO_INDEX_LON 73
+
+/**
+ * @typedef Iono_cell Iono_cell
+ */
+typedef struct Iono_cell Iono_cell;
+
+/**
+ * @struct Iono_cell Ionosphere.h "Ionosphere.h"
+ * @brief The structure holds the last IGPs selected for the pierce point of a satellite.
+ */
+struct Iono_cell
+{
+  int version;                 /*!< Version of the grid the IGPs have been selected from, -1 if empty */
+  double igps[4][6];           /*!< Selected IGPs lat.,long.,IGPVD,GIVEI,status and TOW */
+};
+
+/**
+ * @typedef Iono_index Iono_index
+ */
+typedef struct Iono_index Iono_index;
+
+/**
+ * @struct Iono_index Ionosphere.h "Ionosphere.h"
+ * @brief The structure indexes the decoded ionospheric grid.
+ * @details The index gives directly the position of an IGP in the mask of a
+ * band (messages type 18) and the position of a band block in the messages
+ * type 26 table, instead of searching the decoded messages for each IGP.
+ * The mask part is only rebuilt when the mask changes (new IODI, band or
+ * number of blocks).
+ * The index also caches, for each satellite, the 4 IGPs of the 5x5 degrees
+ * cell selected for its last pierce point. As a satellite moves by a fraction
+ * of a degree between two epochs, the selection is reused as long as the
+ * pierce point stays inside the same cell and the grid is unchanged.
+ */
+struct Iono_index
+{
+  short mask_key[11][3];                               /*!< Band ID, IODI and number of blocks of each indexed band */
+  short igp[11][IONO_INDEX_LAT][IONO_INDEX_LON];       /*!< Block ID * 256 + line in the block of each IGP of each band, -1 if not defined */
+  signed char m26[11][16];                             /*!< Position in the messages type 26 table of each band and block, -1 if not received */
+  int version;                                         /*!< Version of the grid, incremented at each update */
+  Iono_cell cell[SATELLITE_SLOTS];                     /*!< Last selected cell of each satellite */
+  unsigned long cell_hits;                             /*!< Number of IGP selections reused from the cell cache */
+  unsigned long cell_misses;                           /*!< Number of IGP selections computed */
+};
+
 void IPPlocation(double ipp[2], double user_lat, double user_long,double E, double A);
 void SelectCells(double igps[4][6], double ipp[2], int inc_lat, int inc_long, int par_lat, int par_lon);
 void IPPInterpolation4(double results[2], double igps[4][6],double ipp[2], double t, Egnos_msg * msg10, int flag);
 void IPPInterpolation3(double results[2], double igps[4][6],double ipp[2], double t, Egnos_msg * msg10, int flag);
 int set_ionoGridSis(Egnos_msg m18_t[11], Egnos_msg m26_t[25], char m18_char[5][263], char m26_char[25][263]);
 int get_BandSelect(double user_long);
-int IGPsSelect(double igps[4][6], double ipp[2], Egnos_msg m18_t[11], Egnos_msg m26_t[25]);
+int IGPsSelect(double igps[4][6], double ipp[2], Egnos_msg m18_t[11], Egnos_msg m26_t[25],
+const Iono_index * iono_index);
 int check_Triangle(double igps[4][6], double ipp[2], int inc_lat, int inc_long);
 void get_ionoCorrection(Satellite * Sat, double user_lat, double user_long, Egnos_msg m18_t[11], 
-Egnos_msg m26_t[25],Egnos_msg * msg10, int flag);
+Egnos_msg m26_t[25], Iono_index * iono_index, Egnos_msg * msg10, int flag);
+void get_ionoCorrectionIPP(Satellite * Sat, double ipp[2], Egnos_msg m18_t[11],
+Egnos_msg m26_t[25], Iono_index * iono_index, Egnos_msg * msg10, int flag);
 double get_GIVEaccuracy(int givei);
 double get_fpp(double el);
 double get_sigmaIono2(double sigma_give2, double t, double t_iono, Egnos_msg * msg10, int flag);
-int get_defined_IGPs(double igps[4][6], Egnos_msg m18_t[11], int block_info[4][3], int lat_spacing, int lon_spacing, int par_lat, int par_lon, double ipp[2]);
-int get_monitored_IGPs(Egnos_msg m26_t[25], int block_info[4][3], double igps[4][6]);
-int calculateIGPs(double ipp[2], double igps[4][6], int block_info[4][3], Egnos_msg m18_t[11], Egnos_msg m26_t[25], int lat_spacing, int lon_spacing);
+int get_defined_IGPs(double igps[4][6], Egnos_msg m18_t[11], const Iono_index * iono_index, int block_info[4][3], int lat_spacing, int lon_spacing, int par_lat, int par_lon, double ipp[2]);
+int get_monitored_IGPs(Egnos_msg m26_t[25], const Iono_index * iono_index, int block_info[4][3], double igps[4][6]);
+int calculateIGPs(double ipp[2], double igps[4][6], int block_info[4][3], Egnos_msg m18_t[11], Egnos_msg m26_t[25],
+const Iono_index * iono_index, int lat_spacing, int lon_spacing);
 void IPPInterpolation4_above85(double results[2], double igps[4][6],double ipp[2], double t, 
 Egnos_msg * msg10, int flag);
 int calculateIGPs_above75(double ipp[2], double igps[4][6], int block_info[4][3], Egnos_msg m18_t[11], 
-Egnos_msg m26_t[25]);
-int get_IGPs(int band_id, int block_info[4][3], double igps[4][6], Egnos_msg m18_t[11]);
+Egnos_msg m26_t[25], const Iono_index * iono_index);
+int get_IGPs(int band_id, int block_info[4][3], double igps[4][6], Egnos_msg m18_t[11],
+const Iono_index * iono_index);
+void init_ionoIndex(Iono_index * iono_index);
+int set_ionoIndex(Iono_index * iono_index, Egnos_msg m18_t[11], Egnos_msg m26_t[25]);
+int find_IGP(const Iono_index * iono_index, Egnos_msg m18_t[11], int band_pos, double lat, double lon,
+int block[3]);
+int find_m26(const Iono_index * iono_index, Egnos_msg m26_t[25], int band_id, int block_id);
+int get_ionoCell(Iono_index * iono_index, double prn, double ipp[2], double igps[4][6]);
+void set_ionoCell(Iono_index * iono_index, double prn, double ipp[2], Egnos_msg m18_t[11],
+double igps[4][6], int nb_igps);
 
 #endif /* IONOSPHERE_H_ */
@@ -0,0 +1,263 @@
+/**
+ * @file Kalman.c
+ *
+ * @brief Kalman module source file containing the extended Kalman filter
+ * functions.
+ * @details The module is the filtered positioning mode of the software
+ * (R&D option "apply Kalman filtering"). The state holds the receiver
+ * position, velocity, clock bias and clock drift. It is propagated from one
+ * epoch to the next with a constant velocity model, then updated with the
+ * corrected pseudoranges of the epoch weighted by their EGNOS variances, one
+ * measurement at a time in Joseph form. The symmetric covariance is stored
+ * packed, and the state, covariance and work vectors are held by the
+ * caller-owned structure, so that no memory is allocated per epoch.
+ *
+ * Rev: 3.0.0
+ *
+ * Author: DKE Aerospace Germany GmbH
+ *
+ * Copyright 2012 European Commission
+ *
+ * Licensed under the EUPL, Version 1.1 only (the "Licence");
+ * You may not use this work except in compliance with the
+ * Licence.
+ * You may obtain a copy of the Licence at:
+ * http://ec.europa.eu/idabc/eupl.html
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the Licence is
+ * distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied.
+ * See the Licence for the specific language governing
+ * permissions and limitations under the Licence.
+ *
+ */
+
+#include <math.h>
+#include "Kalman.h"
+
+/* Position of the clock bias in the state */
+#define KALMAN_CLOCK 6
+
+/**
+ * kalman_idx function
+ * Index of an element of the symmetric covariance in the packed storage.
+ * @param i  The row
+ * @param j  The column
+ * @return   The index in the packed storage
+ */
+static int kalman_idx(int i, int j)
+{
+	return (i <= j) ? j*(j + 1)/2 + i : i*(i + 1)/2 + j;
+}
+
+/**
+ * init_kalman function
+ * The function empties the filter, the next position is computed by least squares.
+ * @param kalman  The filter
+ */
+void init_kalman(Kalman * kalman)
+{
+	(*kalman).initialised = 0;
+	(*kalman).filtered = 0;
+	(*kalman).tow = -1;
+	(*kalman).update_tow = -1;
+}
+
+/**
+ * kalman_init function
+ * The function initialises the state of the filter from a least squares position. The velocity and
+ * the clock drift are set to 0 with the variances KALMAN_INIT_VELOCITY_VAR and KALMAN_INIT_DRIFT_VAR.
+ * @param kalman  The filter
+ * @param tow     The time of week of the position (s)
+ * @param X_est   The position in ECEF coordinates and the clock bias (m)
+ * @param Q       The covariance of the position and clock bias inv(trans(H).W.H)
+ */
+void kalman_init(Kalman * kalman, double tow, double X_est[4], double Q[4][4])
+{
+	static const int state[4] = {0, 1, 2, KALMAN_CLOCK};
+	int i, j;
+
+	for(i = 0; i < KALMAN_STATES; i++)
+		(*kalman).x[i] = 0;
+	for(i = 0; i < KALMAN_PACKED; i++)
+		(*kalman).P[i] = 0;
+
+	for(i = 0; i < 4; i++)
+	{
+		(*kalman).x[state[i]] = X_est[i];
+		for(j = i; j < 4; j++)
+			(*kalman).P[kalman_idx(state[i], state[j])] = Q[i][j];
+	}
+	for(i = 3; i < 6; i++)
+		(*kalman).P[kalman_idx(i, i)] = KALMAN_INIT_VELOCITY_VAR;
+	(*kalman).P[kalman_idx(KALMAN_CLOCK + 1, KALMAN_CLOCK + 1)] = KALMAN_INIT_DRIFT_VAR;
+
+	(*kalman).initialised = 1;
+	(*kalman).filtered = 0;
+	(*kalman).tow = tow;
+	(*kalman).update_tow = tow;
+}
+
+/**
+ * kalman_predict function
+ * The function propagates the state of the filter to the time of an epoch. The position and the clock
+ * bias are integrated from the velocity and the clock drift, and the process noise of the constant
+ * velocity model is added to the covariance. The filter is not used (and will be initialised again)
+ * if it has not been updated for KALMAN_MAX_GAP seconds or if the time goes backwards.
+ * @param kalman  The filter
+ * @param tow     The time of week of the epoch (s)
+ * @param X_est   The destination table of the predicted position and clock bias
+ * @return        1 if the state has been propagated, 0 if the position has to be computed by least squares
+ */
+int kalman_predict(Kalman * kalman, double tow, double X_est[4])
+{
+	int i, j;
+	double dt = tow - (*kalman).tow;
+	double dt2, dt3;
+
+	(*kalman).filtered = 0;
+	if((*kalman).initialised == 0 || dt < 0 || tow - (*kalman).update_tow > KALMAN_MAX_GAP)
+	{
+		(*kalman).initialised = 0;
+		return 0;
+	}
+
+	// F.P.trans(F), F adds dt times the velocity and the drift to the position and the bias
+	for(i = 0; i < KALMAN_STATES; i++)
+		for(j = 0; j < KALMAN_STATES; j++)
+			(*kalman).F[i][j] = (*kalman).P[kalman_idx(i, j)];
+	for(j = 0; j < KALMAN_STATES; j++)
+	{
+		for(i = 0; i < 3; i++)
+			(*kalman).F[i][j] += dt*(*kalman).F[i + 3][j];
+		(*kalman).F[KALMAN_CLOCK][j] += dt*(*kalman).F[KALMAN_CLOCK + 1][j];
+	}
+	for(i = 0; i < KALMAN_STATES; i++)
+	{
+		for(j = 0; j < 3; j++)
+			(*kalman).F[i][j] += dt*(*kalman).F[i][j + 3];
+		(*kalman).F[i][KALMAN_CLOCK] += dt*(*kalman).F[i][KALMAN_CLOCK + 1];
+	}
+	for(j = 0; j < KALMAN_STATES; j++)
+		for(i = 0; i <= j; i++)
+			(*kalman).P[kalman_idx(i, j)] = (*kalman).F[i][j];
+
+	// Process noise of the constant velocity model and of the clock
+	dt2 = dt*dt;
+	dt3 = dt2*dt;
+	for(i = 0; i < 3; i++)
+	{
+		(*kalman).P[kalman_idx(i, i)] += KALMAN_ACCEL_PSD*dt3/3;
+		(*kalman).P[kalman_idx(i, i + 3)] += KALMAN_ACCEL_PSD*dt2/2;
+		(*kalman).P[kalman_idx(i + 3, i + 3)] += KALMAN_ACCEL_PSD*dt;
+	}
+	(*kalman).P[kalman_idx(KALMAN_CLOCK, KALMAN_CLOCK)] += KALMAN_CLOCK_PSD*dt + KALMAN_DRIFT_PSD*dt3/3;
+	(*kalman).P[kalman_idx(KALMAN_CLOCK, KALMAN_CLOCK + 1)] += KALMAN_DRIFT_PSD*dt2/2;
+	(*kalman).P[kalman_idx(KALMAN_CLOCK + 1, KALMAN_CLOCK + 1)] += KALMAN_DRIFT_PSD*dt;
+
+	for(i = 0; i < 3; i++)
+		(*kalman).x[i] += dt*(*kalman).x[i + 3];
+	(*kalman).x[KALMAN_CLOCK] += dt*(*kalman).x[KALMAN_CLOCK + 1];
+	(*kalman).tow = tow;
+
+	X_est[0] = (*kalman).x[0];
+	X_est[1] = (*kalman).x[1];
+	X_est[2] = (*kalman).x[2];
+	X_est[3] = (*kalman).x[KALMAN_CLOCK];
+
+	return 1;
+}
+
+/**
+ * kalman_gain function
+ * The function computes a = P.trans(h) for the observation row h of a pseudorange, whose only non
+ * null terms are the line of sight on the position and 1 on the clock bias, and returns h.P.trans(h).
+ * @param kalman  The filter
+ * @param H       The row of the geometry matrix of the pseudorange
+ * @return        The variance h.P.trans(h) of the predicted pseudorange
+ */
+static double kalman_gain(Kalman * kalman, double H[4])
+{
+	int i;
+
+	for(i = 0; i < KALMAN_STATES; i++)
+		(*kalman).a[i] = (*kalman).P[kalman_idx(i, 0)]*H[0] + (*kalman).P[kalman_idx(i, 1)]*H[1]
+				+ (*kalman).P[kalman_idx(i, 2)]*H[2] + (*kalman).P[kalman_idx(i, KALMAN_CLOCK)]*H[3];
+
+	return H[0]*(*kalman).a[0] + H[1]*(*kalman).a[1] + H[2]*(*kalman).a[2] + H[3]*(*kalman).a[KALMAN_CLOCK];
+}
+
+/**
+ * kalman_update function
+ * The function updates the predicted state with the pseudorange residuals of the epoch, computed at
+ * the predicted position. The pseudoranges are processed one at a time, with the variance 1/w of
+ * each, and the covariance is updated in Joseph form:
+ * P = (I - K.h).P.trans(I - K.h) + K.R.trans(K) = P - K.trans(a) - a.trans(K) + s.K.trans(K)
+ * with a = P.trans(h), s = h.a + R and K = a/s, which keeps it symmetric and positive.
+ * The update is refused if the mean normalised innovation of the predicted state exceeds KALMAN_GATE
+ * (clock jump, new position): the filter then has to be initialised again.
+ * @param sat_count  The number of satellites
+ * @param kalman     The filter, propagated to the epoch (see kalman_predict)
+ * @param H          The geometry matrix at the predicted position
+ * @param w          The weights of the pseudoranges (inverse of their variances), 0 if not used
+ * @param dPR        The pseudorange residuals at the predicted position
+ * @param dX         The destination table of the update of the position and of the clock bias
+ * @return           1 if the state has been updated, 0 if the update has been refused
+ */
+int kalman_update(int sat_count, Kalman * kalman, double H[sat_count][4], double w[sat_count],
+		double dPR[sat_count], double dX[4])
+{
+	int i, j, k;
+	int used = 0;
+	double s, v, test = 0;
+	double dx[KALMAN_STATES];
+
+	// Consistency of the innovations with the prediction
+	for(k = 0; k < sat_count; k++)
+		if(w[k] > 0)
+		{
+			s = kalman_gain(kalman, H[k]) + 1/w[k];
+			test += dPR[k]*dPR[k]/s;
+			used++;
+		}
+	if(used == 0 || test > used*KALMAN_GATE*KALMAN_GATE)
+	{
+		(*kalman).initialised = 0;
+		return 0;
+	}
+
+	for(i = 0; i < KALMAN_STATES; i++)
+		dx[i] = 0;
+
+	// Sequential updates, the innovation of each pseudorange is taken after the previous updates
+	for(k = 0; k < sat_count; k++)
+	{
+		if(w[k] <= 0)
+			continue;
+
+		s = kalman_gain(kalman, H[k]) + 1/w[k];
+		v = dPR[k] - (H[k][0]*dx[0] + H[k][1]*dx[1] + H[k][2]*dx[2] + H[k][3]*dx[KALMAN_CLOCK]);
+		for(i = 0; i < KALMAN_STATES; i++)
+		{
+			(*kalman).K[i] = (*kalman).a[i]/s;
+			dx[i] += (*kalman).K[i]*v;
+		}
+		for(j = 0; j < KALMAN_STATES; j++)
+			for(i = 0; i <= j; i++)
+				(*kalman).P[kalman_idx(i, j)] += - (*kalman).K[i]*(*kalman).a[j] - (*kalman).a[i]*(*kalman).K[j]
+						+ s*(*kalman).K[i]*(*kalman).K[j];
+	}
+
+	for(i = 0; i < KALMAN_STATES; i++)
+		(*kalman).x[i] += dx[i];
+	(*kalman).update_tow = (*kalman).tow;
+	(*kalman).filtered = 1;
+
+	dX[0] = dx[0];
+	dX[1] = dx[1];
+	dX[2] = dx[2];
+	dX[3] = dx[KALMAN_CLOCK];
+
+	return 1;
+}
@@ -0,0 +1,86 @@
+/**
+ * @file Kalman.h
+ *
+ * @brief Kalman module header file defining the extended Kalman filter
+ * state and functions.
+ * @details The module is the filtered positioning mode of the software
+ * (R&D option "apply Kalman filtering"). The state holds the receiver
+ * position, velocity, clock bias and clock drift. It is propagated from one
+ * epoch to the next with a constant velocity model, then updated with the
+ * corrected pseudoranges of the epoch weighted by their EGNOS variances, one
+ * measurement at a time in Joseph form. The symmetric covariance is stored
+ * packed, and the state, covariance and work vectors are held by the
+ * caller-owned structure, so that no memory is allocated per epoch.
+ *
+ * Rev: 3.0.0
+ *
+ * Author: DKE Aerospace Germany GmbH
+ *
+ * Copyright 2012 European Commission
+ *
+ * Licensed under the EUPL, Version 1.1 only (the "Licence");
+ * You may not use this work except in compliance with the
+ * Licence.
+ * You may obtain a copy of the Licence at:
+ * http://ec.europa.eu/idabc/eupl.html
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the Licence is
+ * distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied.
+ * See the Licence for the specific language governing
+ * permissions and limitations under the Licence.
+ *
+ */
+
+#ifndef KALMAN_H_
+#define KALMAN_H_
+
+/* Number of states: position X, Y, Z (m), velocity X, Y, Z (m/s), clock bias (m) and drift (m/s) */
+#define KALMAN_STATES 8
+/* Size of the packed covariance, KALMAN_STATES.(KALMAN_STATES + 1)/2 */
+#define KALMAN_PACKED 36
+/* Largest time without measurement update before the filter is initialised again (s) */
+#define KALMAN_MAX_GAP 10
+/* Power spectral density of the receiver acceleration on each axis (m^2/s^3) */
+#define KALMAN_ACCEL_PSD 1.0
+/* Power spectral densities of the clock bias and clock drift noises, TCXO (m^2/s, m^2/s^3) */
+#define KALMAN_CLOCK_PSD 0.009
+#define KALMAN_DRIFT_PSD 0.0355
+/* Initial variances of the velocity (m^2/s^2) and of the clock drift (m^2/s^2) */
+#define KALMAN_INIT_VELOCITY_VAR 100.0
+#define KALMAN_INIT_DRIFT_VAR 1.0E6
+/* Largest mean normalised innovation, in standard deviations, accepted before the filter is initialised again */
+#define KALMAN_GATE 5.0
+
+/**
+ * @typedef Kalman Kalman
+ */
+typedef struct Kalman Kalman;
+
+/**
+ * @struct Kalman Kalman.h "Kalman.h"
+ * @brief The structure holds the state of the extended Kalman filter.
+ * @details The covariance is the upper triangle of the symmetric matrix,
+ * stored column by column: P[i][j] with i <= j is P[j.(j + 1)/2 + i].
+ */
+struct Kalman
+{
+  int initialised;                             /*!< 1 if the state has been initialised by a position */
+  int filtered;                                /*!< 1 if the last position is the measurement update of the filter */
+  double tow;                                  /*!< Time of week of the state                       (s) */
+  double update_tow;                           /*!< Time of week of the last measurement update     (s) */
+  double x[KALMAN_STATES];                     /*!< State: position, velocity, clock bias and drift */
+  double P[KALMAN_PACKED];                     /*!< Packed covariance of the state */
+  double a[KALMAN_STATES];                     /*!< Work vector P.trans(h) */
+  double K[KALMAN_STATES];                     /*!< Work vector of the gain */
+  double F[KALMAN_STATES][KALMAN_STATES];      /*!< Work matrix of the propagated covariance */
+};
+
+void init_kalman(Kalman * kalman);
+void kalman_init(Kalman * kalman, double tow, double X_est[4], double Q[4][4]);
+int kalman_predict(Kalman * kalman, double tow, double X_est[4]);
+int kalman_update(int sat_count, Kalman * kalman, double H[sat_count][4], double w[sat_count],
+		double dPR[sat_count], double dX[4]);
+
+#endif /* KALMAN_H_ */
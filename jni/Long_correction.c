@@ -42,38 +42,53 @@
  */
 int set_LongCorrections_MT24(Egnos_msg msg_t[25],char msgltc_char[25][263])
 {
-	char tow[13]="";
-	char egnos[251]="";
 	int i;
 	int r = 1;
-	int fast = 1; // flag to decode also fast corrections
 
 	for(i = 0; i < 25; i++)
 	{
-		Egnos_msg msg;
-		init_msg(&msg,24);
+		if(set_LongCorrection_MT24(&msg_t[i], msgltc_char[i]) == 0)
+			r = 0;
+	}
+	return r;
+}
+
+/**
+ * set_LongCorrection_MT24 function.
+ * The function decodes one long term corrections message type 24 into an
+ * Egnos_msg structure.
+ * @param msg         The long corrections destination message
+ * @param msgltc_char The input characters of the message. The first 12
+ *                    characters are the TOW in decimal. The next 250
+ *                    characters are the EGNOS payload.
+ * @return            1 if successful, 0 if not
+ */
+int set_LongCorrection_MT24(Egnos_msg * msg, char msgltc_char[263])
+{
+	char tow[13]="";
+	char egnos[251]="";
+	int r = 1;
+	int fast = 1; // flag to decode also fast corrections
 
-		strncpy(tow,msgltc_char[i],12);
-		tow[12] = '\0';
-		msg.tow = atof(tow);
+	init_msg(msg,24);
 
-		if(msg.tow != 0)
-		{
-			strncpy(egnos, msgltc_char[i]+12, 250);
-			egnos[250] = '\0';
-			msg.bin_msg = egnos;
+	strncpy(tow,msgltc_char,12);
+	tow[12] = '\0';
+	(*msg).tow = atof(tow);
 
-			if(decode_msg24(&msg,fast)==0)
-				r = 0;
-		}
-		else
-		{
-			msg.bin_msg = "";
-			r = 0;
-		}
+	if((*msg).tow != 0)
+	{
+		strncpy(egnos, msgltc_char+12, 250);
+		egnos[250] = '\0';
+		(*msg).bin_msg = egnos;
 
-		msg_t[i] = msg;
+		if(decode_msg24(msg,fast)==0)
+			r = 0;
 	}
+	else
+		r = 0;
+
+	(*msg).bin_msg = "";
 	return r;
 }
 
@@ -89,37 +104,52 @@ int set_LongCorrections_MT24(Egnos_msg msg_t[25],char msgltc_char[25][263])
  */
 int set_LongCorrections_MT25(Egnos_msg msg_t[15],char msgltc_char[15][263])
 {
-	char tow[13]="";
-	char egnos[251]="";
 	int i;
 	int r = 1;
 
 	for(i = 0; i < 15; i++)
 	{
-		Egnos_msg msg;
-		init_msg(&msg,25);
+		if(set_LongCorrection_MT25(&msg_t[i], msgltc_char[i]) == 0)
+			r = 0;
+	}
+	return r;
+}
 
-		strncpy(tow,msgltc_char[i],12);
-		tow[12] = '\0';
-		msg.tow = atof(tow);
+/**
+ * set_LongCorrection_MT25 function.
+ * The function decodes one long term corrections message type 25 into an
+ * Egnos_msg structure.
+ * @param msg         The long corrections destination message
+ * @param msgltc_char The input characters of the message. The first 12
+ *                    characters are the TOW in decimal. The next 250
+ *                    characters are the EGNOS payload.
+ * @return            1 if successful, 0 if not
+ */
+int set_LongCorrection_MT25(Egnos_msg * msg, char msgltc_char[263])
+{
+	char tow[13]="";
+	char egnos[251]="";
+	int r = 1;
 
-		if(msg.tow != 0)
-		{
-			strncpy(egnos, msgltc_char[i]+12, 250);
-			egnos[250] = '\0';
-			msg.bin_msg = egnos;
+	init_msg(msg,25);
 
-			if(decode_msg25(&msg)==0)
-				r = 0;
-		}
-		else
-		{
-			msg.bin_msg = "";
-			r = 0;
-		}
+	strncpy(tow,msgltc_char,12);
+	tow[12] = '\0';
+	(*msg).tow = atof(tow);
 
-		msg_t[i] = msg;
+	if((*msg).tow != 0)
+	{
+		strncpy(egnos, msgltc_char+12, 250);
+		egnos[250] = '\0';
+		(*msg).bin_msg = egnos;
+
+		if(decode_msg25(msg)==0)
+			r = 0;
 	}
+	else
+		r = 0;
+
+	(*msg).bin_msg = "";
 	return r;
 }
 
@@ -135,122 +165,186 @@ int set_LongCorrections_MT25(Egnos_msg msg_t[15],char msgltc_char[15][263])
  * @param msg25_t	The table of the message 25
  * @param *msg10    The pointer of the message type 10
  * @param *msg1     The pointer of the message type 1
+ * @param corr_cache The corrections cache, NULL to search the messages tables
  * @return          The degradation parameter in meters
  */
-double set_LongCorrection(Satellite *Sat, Egnos_msg msg24_t[25],  Egnos_msg msg25_t[15], Egnos_msg *msg10, Egnos_msg *msg1)
+double set_LongCorrection(Satellite *Sat, Egnos_msg msg24_t[25],  Egnos_msg msg25_t[15], Egnos_msg *msg10, Egnos_msg *msg1,
+		Corr_cache * corr_cache)
 {
-	int i,j;
+	int j;
 	double t,max[3];
 	double eps_ltc = 0;
+	Egnos_msg * msg;
 
 	t = (*Sat).tow2;
 
-	for(i = 0; i < 25; i++)
+	// Search of the message holding the corrections for the IODE of the satellite
+	(*Sat).long_set = find_LongCorrection(Sat, msg24_t, msg25_t, msg1, corr_cache, &msg, &j);
+
+	if(msg != NULL)
 	{
-		if(((int)(*Sat).prn == (*msg1).prn[(int)msg24_t[i].prn_long[0][0]-1]) || ((int)(*Sat).prn == (*msg1).prn[(int)msg24_t[i].prn_long[1][0]-1]))
-		{
-			if(((int)(*Sat).prn == (*msg1).prn[(int)msg24_t[i].prn_long[0][0]-1]))
-				j = 0;
-			else
-				j = 1;
+		(*Sat).dx 	= (*msg).prn_long[j][2];
+		(*Sat).dy 	= (*msg).prn_long[j][3];
+		(*Sat).dz 	= (*msg).prn_long[j][4];
+		(*Sat).daf0 = (*msg).prn_long[j][5];
+		(*Sat).ddx 	= (*msg).prn_long[j][6];
+		(*Sat).ddy 	= (*msg).prn_long[j][7];
+		(*Sat).ddz 	= (*msg).prn_long[j][8];
+		(*Sat).daf1 = (*msg).prn_long[j][9];
+		(*Sat).t0 	= (*msg).prn_long[j][10];
 
-			if((*Sat).iode_s2 == msg24_t[i].prn_long[j][1])
+		// Computes the Long term correction degradation parameter
+		if((*msg).velocity == 0)
+		{
+			eps_ltc = (*msg10).cltc_v0*floor((t - (*msg).tow)/(*msg10).iltc_v0);
+		}
+		else
+		{
+			if((*msg).velocity == 1)
 			{
-				(*Sat).long_set = 1;
-				(*Sat).dx = msg24_t[i].prn_long[j][2];
-				(*Sat).dy = msg24_t[i].prn_long[j][3];
-				(*Sat).dz = msg24_t[i].prn_long[j][4];
-				(*Sat).daf0 = msg24_t[i].prn_long[j][5];
-				(*Sat).ddx = msg24_t[i].prn_long[j][6];
-				(*Sat).ddy = msg24_t[i].prn_long[j][7];
-				(*Sat).ddz = msg24_t[i].prn_long[j][8];
-				(*Sat).daf1 = msg24_t[i].prn_long[j][9];
-				(*Sat).t0 = msg24_t[i].prn_long[j][10];
-
-				// Computes the Long term correction degradation parameter
-				if(msg24_t[i].velocity == 0)
-				{
-					eps_ltc = (*msg10).cltc_v0*floor((t - msg24_t[i].tow)/(*msg10).iltc_v0);
-				}
+				if(((*Sat).t0 < t) && (t < ((*Sat).t0 + (*msg10).iltc_v1)))
+					eps_ltc = 0;
 				else
 				{
-					if(msg24_t[i].velocity == 1)
-					{
-						if(((*Sat).t0 < t) && (t < ((*Sat).t0 + (*msg10).iltc_v1)))
-							eps_ltc = 0;
-						else
-						{
-							max[0] = 0;
-							max[1] = (*Sat).t0 - t;
-							max[2] =  t - (*Sat).t0 - (*msg10).iltc_v1;
-							eps_ltc = (*msg10).cltc_lsb + (*msg10).cltc_v1*max_(max);
-						}
-					}
-					else
-						eps_ltc = 0;
-
+					max[0] = 0;
+					max[1] = (*Sat).t0 - t;
+					max[2] =  t - (*Sat).t0 - (*msg10).iltc_v1;
+					eps_ltc = (*msg10).cltc_lsb + (*msg10).cltc_v1*max_(max);
 				}
 			}
 			else
-				(*Sat).long_set = 0;
-			break;	// PRN found in the mask, exit of the loop
+				eps_ltc = 0;
+
 		}
-		if ((*Sat).long_set == 1)
-			break;
 	}
+	return eps_ltc;
+}
+
+/**
+ * get_maskPrn function.
+ * The function returns the PRN of a mask number of the message type 1.
+ * @param *msg1     The pointer of the message type 1
+ * @param mask_nb   The PRN mask number (1-51), 0 for an empty position of a message
+ * @return          The PRN, 0 for an empty position
+ */
+static int get_maskPrn(Egnos_msg *msg1, double mask_nb)
+{
+	if(mask_nb < 1 || mask_nb > 51)
+		return 0;
+	return (int)(*msg1).prn[(int)mask_nb-1];
+}
 
-	for(i = 0; i < 15; i++){
-		for (j = 0; j < 4; j++)
+/**
+ * find_LongCorrection function.
+ * The function searches the messages types 24 and 25 for the long term
+ * corrections of the satellite. The last message found with the IODE of the
+ * satellite is used. The result only depends on the messages and on the IODE,
+ * it is cached for the current version of the messages.
+ * @param *Sat      The Satellite pointer
+ * @param msg24_t   The table of the messages 24
+ * @param msg25_t	The table of the messages 25
+ * @param *msg1     The pointer of the message type 1
+ * @param corr_cache The corrections cache, NULL to search the messages tables
+ * @param msg       The destination pointer of the message holding the corrections, NULL if none
+ * @param pos       The destination position of the satellite in the message
+ * @return          The long_set value of the satellite after the search
+ */
+int find_LongCorrection(Satellite *Sat, Egnos_msg msg24_t[25],  Egnos_msg msg25_t[15], Egnos_msg *msg1,
+		Corr_cache * corr_cache, Egnos_msg ** msg, int * pos)
+{
+	int i, j, slot;
+	int long_set = (*Sat).long_set;
+	int iode = (*Sat).iode_s2;
+	int type = 0;
+	int msg_i = 0;
+	int msg_j = 0;
+	Corr_entry * entry = NULL;
+
+	slot = get_satellite_slot((*Sat).prn);
+	if(corr_cache != NULL && slot != -1)
+		entry = &(*corr_cache).sat[slot];
+
+	if(entry != NULL && (*entry).long_version == (*corr_cache).long_version
+			&& (*entry).iode == iode && (*entry).long_in == long_set)
+	{
+		(*corr_cache).hits++;
+		long_set = (*entry).long_set;
+		type = (*entry).long_type;
+		msg_i = (*entry).long_i;
+		msg_j = (*entry).long_j;
+	}
+	else
+	{
+		if(entry != NULL)
 		{
-			if(((int)(*Sat).prn == (*msg1).prn[(int)msg25_t[i].prn_long[j][0]-1]))
+			(*corr_cache).misses++;
+			(*entry).long_in = long_set;
+		}
+
+		for(i = 0; i < 25; i++)
+		{
+			if(((int)(*Sat).prn == get_maskPrn(msg1, msg24_t[i].prn_long[0][0])) || ((int)(*Sat).prn == get_maskPrn(msg1, msg24_t[i].prn_long[1][0])))
 			{
-				if((*Sat).iode_s2 == msg25_t[i].prn_long[j][1])
+				if(((int)(*Sat).prn == get_maskPrn(msg1, msg24_t[i].prn_long[0][0])))
+					j = 0;
+				else
+					j = 1;
+
+				if(iode == msg24_t[i].prn_long[j][1])
 				{
-					(*Sat).long_set = 1;
-					(*Sat).dx 	= msg25_t[i].prn_long[j][2];
-					(*Sat).dy 	= msg25_t[i].prn_long[j][3];
-					(*Sat).dz 	= msg25_t[i].prn_long[j][4];
-					(*Sat).daf0 = msg25_t[i].prn_long[j][5];
-					(*Sat).ddx 	= msg25_t[i].prn_long[j][6];
-					(*Sat).ddy 	= msg25_t[i].prn_long[j][7];
-					(*Sat).ddz 	= msg25_t[i].prn_long[j][8];
-					(*Sat).daf1 = msg25_t[i].prn_long[j][9];
-					(*Sat).t0 	= msg25_t[i].prn_long[j][10];
-
-					// Computes the Long term correction degradation parameter
-					if(msg25_t[i].velocity == 0)
+					long_set = 1;
+					type = 24;
+					msg_i = i;
+					msg_j = j;
+				}
+				else
+					long_set = 0;
+				break;	// PRN found in the mask, exit of the loop
+			}
+			if (long_set == 1)
+				break;
+		}
+
+		for(i = 0; i < 15; i++){
+			for (j = 0; j < 4; j++)
+			{
+				if(((int)(*Sat).prn == get_maskPrn(msg1, msg25_t[i].prn_long[j][0])))
+				{
+					if(iode == msg25_t[i].prn_long[j][1])
 					{
-						eps_ltc = (*msg10).cltc_v0*floor((t - msg25_t[i].tow)/(*msg10).iltc_v0);
+						long_set = 1;
+						type = 25;
+						msg_i = i;
+						msg_j = j;
 					}
 					else
-					{
-						if(msg25_t[i].velocity == 1)
-						{
-							if(((*Sat).t0 < t) && (t < ((*Sat).t0 + (*msg10).iltc_v1)))
-								eps_ltc = 0;
-							else
-							{
-								max[0] = 0;
-								max[1] = (*Sat).t0 - t;
-								max[2] =  t - (*Sat).t0 - (*msg10).iltc_v1;
-								eps_ltc = (*msg10).cltc_lsb + (*msg10).cltc_v1*max_(max);
-							}
-						}
-						else
-							eps_ltc = 0;
+						long_set = 0;
+					break;	// PRN found in the mask, exit of the loop
 
-					}
 				}
-				else
-					(*Sat).long_set = 0;
-				break;	// PRN found in the mask, exit of the loop
-
 			}
+			if (long_set == 1)
+				break;
+		}
+
+		if(entry != NULL)
+		{
+			(*entry).long_version = (*corr_cache).long_version;
+			(*entry).iode = iode;
+			(*entry).long_set = long_set;
+			(*entry).long_type = type;
+			(*entry).long_i = msg_i;
+			(*entry).long_j = msg_j;
 		}
-		if ((*Sat).long_set == 1)
-			break;
 	}
-	return eps_ltc;
+
+	*msg = NULL;
+	*pos = msg_j;
+	if(type == 24)
+		*msg = &msg24_t[msg_i];
+	if(type == 25)
+		*msg = &msg25_t[msg_i];
+	return long_set;
 }
 
 /**
@@ -33,6 +33,11 @@
 
 int set_LongCorrections_MT24(Egnos_msg msg_t[25],char msg24_char[25][263]);
 int set_LongCorrections_MT25(Egnos_msg msg_t[15],char msg24_char[15][263]);
-double set_LongCorrection(Satellite *Sat, Egnos_msg msg24_t[25],  Egnos_msg msg25_t[15], Egnos_msg *msg10, Egnos_msg *msg1);
+int set_LongCorrection_MT24(Egnos_msg * msg, char msgltc_char[263]);
+int set_LongCorrection_MT25(Egnos_msg * msg, char msgltc_char[263]);
+double set_LongCorrection(Satellite *Sat, Egnos_msg msg24_t[25],  Egnos_msg msg25_t[15], Egnos_msg *msg10, Egnos_msg *msg1,
+		Corr_cache * corr_cache);
+int find_LongCorrection(Satellite *Sat, Egnos_msg msg24_t[25],  Egnos_msg msg25_t[15], Egnos_msg *msg1,
+		Corr_cache * corr_cache, Egnos_msg ** msg, int * pos);
 double max_(double values[3]);
 
@@ -27,6 +27,8 @@
  *
  */
 #include "Matrix.h"
+#include <math.h>
+#include <stddef.h>
 
 /**
  * det_33 function
@@ -153,15 +155,17 @@ void inv_44(double matrix[4][4], double matrix_inv [4][4])
 /**
  * transpose function
  * Transpose calculation of a given matrix of dynamically allocated size.
+ * @param	rows		The number of rows of the input matrix
+ * @param	cols		The number of columns of the input matrix
  * @param  	matrix 		The input matrix
  * @param	matrix_t	The transpose matrix result
  */
-void transpose(double matrix[size_b_row1][size_b_col1], double matrix_t[size_b_col1][size_b_row1])
+void transpose(int rows, int cols, double matrix[rows][cols], double matrix_t[cols][rows])
 {
 	int i,j;
-	for(i=0;i<size_b_row1;i++)
+	for(i=0;i<rows;i++)
 	{
-		for(j=0; j<size_b_col1;j++)
+		for(j=0; j<cols;j++)
 			matrix_t[j][i] = matrix[i][j];
 	}
 }
@@ -169,13 +173,14 @@ void transpose(double matrix[size_b_row1][size_b_col1], double matrix_t[size_b_c
 /**
  * transpose_vec function
  * Transpose calculation of a given 1 column matrix of dynamically allocated size.
+ * @param	rows		The number of rows of the input matrix
  * @param  	matrix 		The input 1 column matrix
  * @param	matrix_t	The transpose matrix result
  */
-void transpose_vec(double matrix[size_b_row1], double matrix_t[1][size_b_row1])
+void transpose_vec(int rows, double matrix[rows], double matrix_t[1][rows])
 {
 	int i;
-	for(i=0;i<size_b_row1;i++)
+	for(i=0;i<rows;i++)
 	{
 			matrix_t[1][i] = matrix[i];
 	}
@@ -184,19 +189,22 @@ void transpose_vec(double matrix[size_b_row1], double matrix_t[1][size_b_row1])
 /**
  * multiply function
  * Multiplication of two matrices which have a size dynamically allocated.
+ * @param	rows1			The number of rows of the first matrix
+ * @param	cols1			The number of columns of the first matrix (rows of the second one)
+ * @param	cols2			The number of columns of the second matrix
  * @param  	matrix1 		The first matrix
  * @param	matrix2	        The second matrix
  * @param   result          The output matrix
  */
-void multiply(double matrix1[size_b_row1][size_b_col1], double matrix2[size_b_row2][size_b_col2], double result[size_b_row1][size_b_col2])
+void multiply(int rows1, int cols1, int cols2, double matrix1[rows1][cols1], double matrix2[cols1][cols2], double result[rows1][cols2])
 {
 	int i,j,k;
-	for(i=0;i<size_b_row1;i++)
+	for(i=0;i<rows1;i++)
 	{
-		for(j=0;j<size_b_col2;j++)
+		for(j=0;j<cols2;j++)
 		{
 			result[i][j]=0;
-			for(k=0;k<size_b_col1;k++)
+			for(k=0;k<cols1;k++)
 				result[i][j] += matrix1[i][k]*matrix2[k][j];
 		}
 	}
@@ -205,18 +213,20 @@ void multiply(double matrix1[size_b_row1][size_b_col1], double matrix2[size_b_ro
 /**
  * multiply_vecxmat function
  * Multiplication of column vector with a matrix
+ * @param	cols1			The size of the vector (rows of the matrix)
+ * @param	cols2			The number of columns of the matrix
  * @param  	matrix1 		The column vector
  * @param	matrix2	        The matrix
  * @param   result          The output matrix
  */
-void multiply_vecxmat(double matrix1[size_b_col1], double matrix2[size_b_row2][size_b_col2], double result[size_b_col2])
+void multiply_vecxmat(int cols1, int cols2, double matrix1[cols1], double matrix2[cols1][cols2], double result[cols2])
 {
 	int j,k;
 
-		for(j=0;j<size_b_col2;j++)
+		for(j=0;j<cols2;j++)
 		{
 			result[j]=0;
-			for(k=0;k<size_b_col1;k++)
+			for(k=0;k<cols1;k++)
 				result[j] += matrix1[k]*matrix2[k][j];
 		}
 }
@@ -224,17 +234,19 @@ void multiply_vecxmat(double matrix1[size_b_col1], double matrix2[size_b_row2][s
 /**
  * multiply_matxvec function
  * Multiplication of matrix with a row vector.
+ * @param	rows1			The number of rows of the matrix
+ * @param	cols1			The number of columns of the matrix (size of the vector)
  * @param  	matrix1 		The matrix
  * @param	matrix2	        The row vector
  * @param   result          The output matrix
  */
-void multiply_matxvec(double matrix1[size_b_row1][size_b_col1], double matrix2[size_b_row2], double result[size_b_row1])
+void multiply_matxvec(int rows1, int cols1, double matrix1[rows1][cols1], double matrix2[cols1], double result[rows1])
 {
 	int i,k;
-	for(i=0;i<size_b_row1;i++)
+	for(i=0;i<rows1;i++)
 	{
 			result[i]=0;
-			for(k=0;k<size_b_col1;k++)
+			for(k=0;k<cols1;k++)
 				result[i]+= matrix1[i][k]*matrix2[k];
 	}
 }
@@ -260,16 +272,18 @@ double lorentz_4_4(double matrix1[4], double matrix2[4])
 /**
  * subtract_mat function
  * Subtraction of matrix2 from matrix1
+ * @param	rows			The number of rows of the matrices
+ * @param	cols			The number of columns of the matrices
  * @param  	matrix1 		The matrix from where the subtraction is made
  * @param	matrix2	        The matrix that is subtracted
  * @param   result          The output matrix
  */
-void subtract_mat(double matrix1[size_b_row1][size_b_col1], double matrix2[size_b_row1][size_b_col1], double result[size_b_row1][size_b_col1])
+void subtract_mat(int rows, int cols, double matrix1[rows][cols], double matrix2[rows][cols], double result[rows][cols])
 {
 	int i,j;
 
-	for(i = 0; i < size_b_row1; i++)
-		for(j = 0; j < size_b_col1; j++)
+	for(i = 0; i < rows; i++)
+		for(j = 0; j < cols; j++)
 			result[i][j] = matrix1[i][j] - matrix2[i][j];
 
 }
@@ -277,15 +291,120 @@ void subtract_mat(double matrix1[size_b_row1][size_b_col1], double matrix2[size_
 /**
  * subtract_vec function
  * Subtraction of two single dimension matrices
+ * @param	rows			The size of the matrices
  * @param  	matrix1 		The matrix from where the subtraction is made
  * @param	matrix2	        The matrix that is subtracted
  * @param   result          The output matrix
  */
-void subtract_vec(double matrix1[size_b_row1], double matrix2[size_b_row1], double result[size_b_row1])
+void subtract_vec(int rows, double matrix1[rows], double matrix2[rows], double result[rows])
 {
 	int i;
 
-	for(i = 0; i < size_b_row1; i++)
+	for(i = 0; i < rows; i++)
 			result[i] = matrix1[i] - matrix2[i];
 
 }
+
+/**
+ * wls_solve function
+ * Weighted least squares solution of H.x = y with diagonal weights, by Householder QR
+ * factorization of the weighted design matrix sqrt(W).H = Q.R. The normal matrix trans(H).W.H is
+ * never formed: x is obtained from R.x = trans(Q).sqrt(W).y and its covariance
+ * inv(trans(H).W.H) = inv(R).trans(inv(R)). Rows of null weight do not contribute.
+ * @param	rows	The number of rows of H (measurements)
+ * @param	cols	The number of columns of H (unknowns), not greater than rows
+ * @param	H		The design matrix
+ * @param	w		The weights of the rows (diagonal of W)
+ * @param	y		The measurements, NULL to compute the covariance only
+ * @param	x		The solution, not used if y is NULL
+ * @param	Q		The covariance of the solution inv(trans(H).W.H), NULL if not needed
+ * @return 			1 if the solution has been computed, 0 if trans(H).W.H is singular
+ */
+int wls_solve(int rows, int cols, double H[rows][cols], double w[rows], double *y,
+		double *x, double (*Q)[cols])
+{
+	double A[rows][cols], b[rows], norm0[cols], R_[cols][cols];
+	double s, norm, alpha, v0, tau, dot;
+	int i, j, k;
+
+	if (rows < cols)
+		return 0;
+
+	// Weighted design matrix and measurements
+	for (i = 0; i < rows; i++) {
+		s = sqrt(w[i]);
+		for (j = 0; j < cols; j++)
+			A[i][j] = s * H[i][j];
+		b[i] = (y != NULL) ? s * y[i] : 0;
+	}
+	for (j = 0; j < cols; j++) {
+		norm0[j] = 0;
+		for (i = 0; i < rows; i++)
+			norm0[j] += A[i][j] * A[i][j];
+		norm0[j] = sqrt(norm0[j]);
+	}
+
+	// Householder reflections I - tau.v.trans(v), v = [v0, A[k+1..rows-1][k]]
+	for (k = 0; k < cols; k++) {
+		norm = 0;
+		for (i = k; i < rows; i++)
+			norm += A[i][k] * A[i][k];
+		norm = sqrt(norm);
+		if (norm <= 1e-12 * norm0[k])
+			return 0;
+
+		alpha = (A[k][k] > 0) ? -norm : norm;
+		v0 = A[k][k] - alpha;
+		tau = -1 / (alpha * v0);
+		A[k][k] = alpha;
+
+		for (j = k + 1; j < cols; j++) {
+			dot = v0 * A[k][j];
+			for (i = k + 1; i < rows; i++)
+				dot += A[i][k] * A[i][j];
+			dot *= tau;
+			A[k][j] -= dot * v0;
+			for (i = k + 1; i < rows; i++)
+				A[i][j] -= dot * A[i][k];
+		}
+		if (y != NULL) {
+			dot = v0 * b[k];
+			for (i = k + 1; i < rows; i++)
+				dot += A[i][k] * b[i];
+			dot *= tau;
+			b[k] -= dot * v0;
+			for (i = k + 1; i < rows; i++)
+				b[i] -= dot * A[i][k];
+		}
+	}
+
+	// Back substitution R.x = trans(Q).b
+	if (y != NULL)
+		for (i = cols - 1; i >= 0; i--) {
+			s = b[i];
+			for (j = i + 1; j < cols; j++)
+				s -= A[i][j] * x[j];
+			x[i] = s / A[i][i];
+		}
+
+	// Covariance inv(R).trans(inv(R)), inv(R) being upper triangular
+	if (Q != NULL) {
+		for (j = 0; j < cols; j++)
+			for (i = j; i >= 0; i--) {
+				s = (i == j) ? 1 : 0;
+				for (k = i + 1; k <= j; k++)
+					s -= A[i][k] * R_[k][j];
+				R_[i][j] = s / A[i][i];
+			}
+		for (i = 0; i < cols; i++)
+			for (j = i; j < cols; j++) {
+				s = 0;
+				for (k = j; k < cols; k++)
+					s += R_[i][k] * R_[j][k];
+				Q[i][j] = s;
+				Q[j][i] = s;
+			}
+	}
+
+	return 1;
+}
@@ -32,22 +32,19 @@
 //#include "Androidsisnet.h"
 #include <android/log.h>
 
-int size_b_row1;
-int size_b_col1;
-int size_b_row2;
-int size_b_col2;
-
 double det_33(double matrix[3][3]);
 void inv_33(double matrix[3][3], double matrix_inv [3][3]);
 void submat_44(double matrix[4][4],double submatrix[3][3], int r, int c);
 double det_44(double matrix[4][4]);
 void inv_44(double matrix[4][4], double matrix_inv [4][4]);
 double lorentz_4_4(double matrix1[4], double matrix2[4]);
-void transpose(double [size_b_row1][size_b_col1], double [size_b_col1][size_b_row1]);
-void multiply(double [size_b_row1][size_b_col1], double [size_b_row2][size_b_col2], double [size_b_row1][size_b_col2]);
-void multiply_matxvec(double [size_b_row1][size_b_col1], double [size_b_row2], double [size_b_row1]);
-void multiply_vecxmat(double [size_b_col1], double [size_b_row2][size_b_col2], double [size_b_col2]);
-void subtract_mat(double matrix1[size_b_row1][size_b_col1], double matrix2[size_b_row1][size_b_col1], double result[size_b_row1][size_b_col1]);
-void subtract_vec(double matrix1[size_b_row1], double matrix2[size_b_row1], double result[size_b_row1]);
-void transpose_vec(double matrix[size_b_row1], double matrix_t[1][size_b_row1]);
+void transpose(int rows, int cols, double matrix[rows][cols], double matrix_t[cols][rows]);
+void multiply(int rows1, int cols1, int cols2, double matrix1[rows1][cols1], double matrix2[cols1][cols2], double result[rows1][cols2]);
+void multiply_matxvec(int rows1, int cols1, double matrix1[rows1][cols1], double matrix2[cols1], double result[rows1]);
+void multiply_vecxmat(int cols1, int cols2, double matrix1[cols1], double matrix2[cols1][cols2], double result[cols2]);
+void subtract_mat(int rows, int cols, double matrix1[rows][cols], double matrix2[rows][cols], double result[rows][cols]);
+void subtract_vec(int rows, double matrix1[rows], double matrix2[rows], double result[rows]);
+void transpose_vec(int rows, double matrix[rows], double matrix_t[1][rows]);
+int wls_solve(int rows, int cols, double H[rows][cols], double w[rows], double *y,
+		double *x, double (*Q)[cols]);
 #endif /* MATRIX_H_ */
@@ -36,6 +36,8 @@
  */
 
 #include "Positioning.h"
+#include "Batch.h"
+#include "Engine.h"
 #include <math.h>
 
 /**
@@ -91,7 +93,7 @@ double get_dtr (double sqrta, double Ek, double e)
  * Written by Kai Borre
  * April 1, 1996
  */
-double check_t(t) {
+double check_t(double t) {
 	double half_week = 302400;
 	double tt = t;
 	if (t >  half_week)
@@ -102,19 +104,92 @@ double check_t(t) {
 }
 //INS - End
 
+/**
+ * set_orbitConstants function
+ * The function computes the constants of the orbit of a satellite, derived from its ephemeris.
+ * @param *orbit  Pointer of the orbit evaluation state
+ * @param *Sat    Pointer of the Satellite
+ */
+static void set_orbitConstants(Orbit_state * orbit, const Satellite * Sat)
+{
+	double e = (*Sat).e;
+	double a = ((*Sat).sqrta) * ((*Sat).sqrta);
+
+	(*orbit).iode = (*Sat).iode_s2;
+	(*orbit).toe = (*Sat).toe;
+	(*orbit).toc = (*Sat).toc;
+	(*orbit).a = a;
+	(*orbit).n = sqrt(MU_EARTH / (a * a * a)) + (*Sat).delta_n;
+	(*orbit).sqrt_e = sqrt(1 - e * e);
+
+	//INS
+	(*orbit).ins_n = sqrt(MU_EARTH/a*a*a) + (*Sat).delta_n;
+	(*orbit).ins_sqrta = sqrt(a);
+	(*orbit).ins_sqrt_e = sqrt(1-pow(e, 2));
+
+	(*orbit).kepler_set = 0;
+	(*orbit).pos_set = 0;
+}
+
 /**
  * SV_position_computation function
  * Calculation of the SV position and time corrections (IS-GPS-200E : 20.3.3.4.3 User Algorithm for Ephemeris Determination)
+ * When the satellite has an orbit evaluation state, the constants of its ephemeris are computed
+ * once per IODE, the Kepler equation is started from its last solution and the position is reused
+ * when the satellite is evaluated again with the same inputs.
  * @param *Sat   Pointer of the Satellite
  * @param egnos  The EGNOS flag (1:EGNOS enabled, 0:EGNOS disabled)
  */
 void SV_position_computation(Satellite * Sat, int egnos)
 {
 	double t,tk,a,n,Mk,Ek,Ei,nuk,phik,duk,dik,drk,uk,rk,ik,xkp,ykp,omegak,ddtsv;
+	double sin_Ek,cos_Ek,dMk,cos_2phik,sin_2phik,cos_ik,cos_omegak,sin_omegak;
 	double e = (*Sat).e;
 	double t_correction = 0;
+	double ltc[9];
+	Orbit_state local;
+	Orbit_state * orbit = (*Sat).orbit;
 	int i;
 
+	ltc[0] = (*Sat).daf0;
+	ltc[1] = (*Sat).daf1;
+	ltc[2] = (*Sat).t0;
+	ltc[3] = (*Sat).dx;
+	ltc[4] = (*Sat).dy;
+	ltc[5] = (*Sat).dz;
+	ltc[6] = (*Sat).ddx;
+	ltc[7] = (*Sat).ddy;
+	ltc[8] = (*Sat).ddz;
+
+	if (orbit == NULL) {
+		orbit = &local;
+		set_orbitConstants(orbit, Sat);
+		local.misses = 0;
+		local.iterations = 0;
+	} else if ((*orbit).iode != (*Sat).iode_s2 || (*orbit).toe != (*Sat).toe
+			|| (*orbit).toc != (*Sat).toc) {
+		set_orbitConstants(orbit, Sat);
+	} else if ((*orbit).pos_set == 1 && (*orbit).tow2 == (*Sat).tow2
+			&& (*orbit).egnos == egnos) {
+		// Same inputs as the last evaluation
+		for (i = 0; i < 9 && egnos == 1; i++)
+			if ((*orbit).ltc[i] != ltc[i])
+				break;
+		if (egnos != 1 || i == 9) {
+			(*Sat).pos_x = (*orbit).pos[0];
+			(*Sat).pos_y = (*orbit).pos[1];
+			(*Sat).pos_z = (*orbit).pos[2];
+			(*Sat).t_correction = (*orbit).t_correction;
+			(*Sat).sat_pos_x = (*orbit).sat_pos[0];
+			(*Sat).sat_pos_y = (*orbit).sat_pos[1];
+			(*Sat).sat_pos_z = (*orbit).sat_pos[2];
+			(*Sat).rel_corr = (*orbit).rel_corr;
+			(*orbit).hits++;
+			return;
+		}
+	}
+	(*orbit).misses++;
+
 	// ENT
 	t = (*Sat).tow2;
 
@@ -135,29 +210,41 @@ void SV_position_computation(Satellite * Sat, int egnos)
 
 	tk = get_corrected_time(t - (*Sat).toe); // Correction of tk (time from
 	// ephemeris epoch)
-	a = ((*Sat).sqrta) * ((*Sat).sqrta); // Semi-major axis
+	a = (*orbit).a; // Semi-major axis
 
-	n = sqrt(MU_EARTH / (a * a * a)) + (*Sat).delta_n; // Corrected mean motion
+	n = (*orbit).n; // Corrected mean motion
 	Mk = (*Sat).m0 + n * tk; // Mean anomaly
 
-	Ek = Mk;
-	Ei = 0;
+	// Newton step from the last solution when it is close enough, mean anomaly otherwise
+	if ((*orbit).kepler_set == 1 && fabs(Mk - (*orbit).Mk) < KEPLER_WARM_START)
+		Ek = (*orbit).Ek + (Mk - (*orbit).Mk) / (*orbit).dMk;
+	else
+		Ek = Mk;
 
-	for (i = 0; i < 10; i++) // Kepler's Equation for
+	for (i = 1; i <= 10; i++) // Kepler's Equation for
 	{ // Eccentric Anomaly    // Iterations
 		Ei = Ek;
 		Ek = Mk + e * sin(Ei);
+		if (fabs(Ek - Ei) < KEPLER_TOLERANCE)
+			break;
 	}
+	(*orbit).iterations += (i > 10) ? 10 : i;
 
-	nuk = atan2((sqrt(1 - e * e) * sin(Ek)), (cos(Ek) - e)); // True Anomaly
+	sin_Ek = sin(Ek);
+	cos_Ek = cos(Ek);
+	dMk = 1 - e * cos_Ek;
+
+	nuk = atan2(((*orbit).sqrt_e * sin_Ek), (cos_Ek - e)); // True Anomaly
 	phik = nuk + (*Sat).w; // Argument of Latitude
 
-	duk = (*Sat).cuc * cos(2 * phik) + (*Sat).cus * sin(2 * phik); // Argument of Latitude Correction
-	drk = (*Sat).crc * cos(2 * phik) + (*Sat).crs * sin(2 * phik); // Radius Correction
-	dik = (*Sat).cic * cos(2 * phik) + (*Sat).cis * sin(2 * phik); // Inclination Correction
+	cos_2phik = cos(2 * phik);
+	sin_2phik = sin(2 * phik);
+	duk = (*Sat).cuc * cos_2phik + (*Sat).cus * sin_2phik; // Argument of Latitude Correction
+	drk = (*Sat).crc * cos_2phik + (*Sat).crs * sin_2phik; // Radius Correction
+	dik = (*Sat).cic * cos_2phik + (*Sat).cis * sin_2phik; // Inclination Correction
 
 	uk = phik + duk; // Corrected Argument of Latitude
-	rk = a * (1 - e * cos(Ek)) + drk; // Corrected Radius
+	rk = a * dMk + drk; // Corrected Radius
 	ik = (*Sat).i0 + dik + ((*Sat).idot) * tk; // Corrected Inclination
 
 	xkp = rk * cos(uk); // Positions in orbital plane
@@ -166,20 +253,25 @@ void SV_position_computation(Satellite * Sat, int egnos)
 	// Corrected longitude of ascending node
 	omegak = (*Sat).omega0 + ((*Sat).omegadot - OMEGA_DOT_EARTH)*tk - OMEGA_DOT_EARTH*(*Sat).toe;
 
-	(*Sat).pos_x = xkp * cos(omegak) - ykp * cos(ik) * sin(omegak); // Earth-fixed coordinates
-	(*Sat).pos_y = xkp * sin(omegak) + ykp * cos(ik) * cos(omegak);
+	cos_ik = cos(ik);
+	cos_omegak = cos(omegak);
+	sin_omegak = sin(omegak);
+	(*Sat).pos_x = xkp * cos_omegak - ykp * cos_ik * sin_omegak; // Earth-fixed coordinates
+	(*Sat).pos_y = xkp * sin_omegak + ykp * cos_ik * cos_omegak;
 	(*Sat).pos_z = ykp * sin(ik);
 
 	t_correction = t_correction + get_dtr((*Sat).sqrta, Ek, e);
 	(*Sat).t_correction = t_correction;
 
+	(*orbit).Mk = Mk;
+	(*orbit).Ek = Ek;
+	(*orbit).dMk = dMk;
+	(*orbit).kepler_set = 1;
+
 	//INS - Start
-	double A = (*Sat).sqrta * (*Sat).sqrta;
-	double n0 = sqrt(MU_EARTH/A*A*A);
-	double nUpdated = n0+ (*Sat).delta_n;
-	double txRaw =(*Sat).tow - (*Sat).pr / SPEED_OF_LIGHT;
+	double A = a;
+	double nUpdated = (*orbit).ins_n;
 
-	double dt = check_t((txRaw-(*Sat).toc));
 	//double tIns = txRaw - ((*Sat).af2*dt+(*Sat).af1*dt+(*Sat).af0*(*Sat).tgd); //tx_GPS
 	//(*Sat).tCorr = tIns;
 	//double tk = check_t(tIns-(*Sat).toe);
@@ -199,15 +291,17 @@ void SV_position_computation(Satellite * Sat, int egnos)
 	}
 
 	//E = rem(E + 2*PI, 2*PI);
-	M = (M + 2*PI) - floor((M+2*PI)/2*PI);
 
-	double v = atan2(sqrt(1-pow((*Sat).e, 2)) * sin(E), cos(E)-(*Sat).e);
+	double sin_E = sin(E);
+	double v = atan2((*orbit).ins_sqrt_e * sin_E, cos(E)-(*Sat).e);
 	double phi = v+(*Sat).w;
 	//phi = rem(phi, 2*PI);
 	phi = phi - floor(phi/2*PI);
-	double u = phi + (*Sat).cuc * cos(2*phi) + (*Sat).cus*sin(2*phi);
-	double r = A*(1-(*Sat).e * cos(E)) + (*Sat).crc * cos(2*phi) + (*Sat).crs*sin(2*phi);
-	double j = (*Sat).i0 + (*Sat).idot * tk + (*Sat).cic * cos(2*phi) + (*Sat).cis * sin(2*phi); //i
+	double cos_2phi = cos(2*phi);
+	double sin_2phi = sin(2*phi);
+	double u = phi + (*Sat).cuc * cos_2phi + (*Sat).cus*sin_2phi;
+	double r = A*(1-(*Sat).e * cos(E)) + (*Sat).crc * cos_2phi + (*Sat).crs*sin_2phi;
+	double j = (*Sat).i0 + (*Sat).idot * tk + (*Sat).cic * cos_2phi + (*Sat).cis * sin_2phi; //i
 
 	double Omega = (*Sat).omega0 + ((*Sat).omegadot - OMEGA_DOT_EARTH) * tk - (*Sat).omegadot * (*Sat).toe;
 	//Omega = rem(Omega+2*PI, 2*PI);
@@ -215,11 +309,14 @@ void SV_position_computation(Satellite * Sat, int egnos)
 
 	double x1 = cos(u)*r;
 	double y1 = sin(u)*r;
+	double cos_j = cos(j);
+	double cos_Omega = cos(Omega);
+	double sin_Omega = sin(Omega);
 
-	(*Sat).sat_pos_x = x1 * cos(Omega) - y1 * cos(j) * sin(Omega);
-	(*Sat).sat_pos_y = x1 * sin(Omega) + y1 *cos(j) * cos(Omega);
+	(*Sat).sat_pos_x = x1 * cos_Omega - y1 * cos_j * sin_Omega;
+	(*Sat).sat_pos_y = x1 * sin_Omega + y1 *cos_j * cos_Omega;
 	(*Sat).sat_pos_z = y1*sin(j);
-	(*Sat).rel_corr = F_CONST * (*Sat).e * sqrt(A) *sin(E);
+	(*Sat).rel_corr = F_CONST * (*Sat).e * (*orbit).ins_sqrta *sin_E;
 
 	//INS - End
 
@@ -229,6 +326,20 @@ void SV_position_computation(Satellite * Sat, int egnos)
 		(*Sat).pos_y += (*Sat).dy + (*Sat).ddy * (t - (*Sat).t0);
 		(*Sat).pos_z += (*Sat).dz + (*Sat).ddz * (t - (*Sat).t0);
 	}
+
+	(*orbit).tow2 = (*Sat).tow2;
+	(*orbit).egnos = egnos;
+	for (i = 0; i < 9; i++)
+		(*orbit).ltc[i] = ltc[i];
+	(*orbit).pos[0] = (*Sat).pos_x;
+	(*orbit).pos[1] = (*Sat).pos_y;
+	(*orbit).pos[2] = (*Sat).pos_z;
+	(*orbit).t_correction = (*Sat).t_correction;
+	(*orbit).sat_pos[0] = (*Sat).sat_pos_x;
+	(*orbit).sat_pos[1] = (*Sat).sat_pos_y;
+	(*orbit).sat_pos[2] = (*Sat).sat_pos_z;
+	(*orbit).rel_corr = (*Sat).rel_corr;
+	(*orbit).pos_set = 1;
 }
 
 /**compute_EGNOSsat_position
@@ -285,7 +396,7 @@ void SV_position_correction(Satellite * Sat, double travel_time) {
  *                   	if there are no estimations yet
  * @param DOP        	The Dilution Of Precision destination table (DOP[0]:HDOP DOP[1]:VDOP DOP[2]:PDOP DOP[3]:TDOP)
  * @param PL         	The Protection Level destination table (PL[0]:HPL PL[1]:VPL)
- * @param eph_data   	The ephemeris data table (15 lines max of 900 bits:300 bits for each subframe)
+ * @param eph_t      	The decoded ephemeris table, in the same order as the sat_data table
  * @param sat_data   	The PRN,TOW,PR,SNR table (15 lines max)
  * @param *msg1      	The Egnos message type 1 pointer
  * @param msg2_5     	The Egnos messages type 2-5 table
@@ -299,8 +410,18 @@ void SV_position_correction(Satellite * Sat, double travel_time) {
  * @param msg24_t    	The Egnos messages type 24 table
  * @param msg25_t    	The Egnos messages type 25 table
  * @param m26_t      	The Egnos messages type 26 table
- * @param m18_char   	The table of 5(max) messages 18 in 256 characters (for SIS)
- * @param m26_char   	The table of 25(max) messages 26 in 256 characters (for SIS)
+ * @param iono_index 	The index of the ionospheric grid of m18_t and m26_t (see set_ionoIndex),
+ *                   	also caching the cell selected for each satellite, NULL to search the
+ *                   	messages tables
+ * @param corr_cache 	The corrections cache of the fast and long term corrections searches,
+ *                   	NULL to search the messages tables
+ * @param orbit_cache	The orbit evaluation state of each GPS satellite, NULL to compute the
+ *                   	orbits from the ephemerides only
+ * @param selection  	The satellite selection of the best constellation option of the previous
+ *                   	epoch, NULL to evaluate the selection at each epoch
+ * @param kalman     	The extended Kalman filter of the filtered positioning mode, NULL to compute
+ *                   	the position by least squares only (see user_position_computation_WLS)
+ * @param tolerance  	The convergence threshold of the position iterations (m), see WLS_TOLERANCE
  * @param egnos      	The EGNOS flag (1:EGNOS enabled, 0:EGNOS disabled)
  * @param *iono_flag 	The pointer of the flag to check if all needed messages for ionospheric correction are available
  * @param sat_array  	[0] = total no. of satellites in view
@@ -313,20 +434,21 @@ void SV_position_correction(Satellite * Sat, double travel_time) {
  * @param utc_data	  	The array of UTC parameters
  * @param klob_data	  	Array that holds the Klobuchar coefficients for ionopsheric corrections
  * @param rnd_options	Array that holds the R&D options
+ * @param sat_data_NotUsed The PRN,TOW,PR,SNR table of the satellites not used
+ * @param eph_nu     	The decoded ephemeris table, in the same order as the sat_data_NotUsed table
+ * @param S_t_NotUsed	Array of struct Satellite not used
  * @return          	The number of satellites used to compute the position
  */
 int positioning(double pos[3], double X_est[4], double DOP[4], double PL[2],
-		char eph_data[19][901], double sat_data[19][4], Egnos_msg * msg1,
+		Satellite eph_t[19], double sat_data[19][4], Egnos_msg * msg1,
 		Egnos_msg msg2_5[4][2], Egnos_msg * msg6, Egnos_msg * msg7,
 		Egnos_msg * msg10, Egnos_msg * msg12, Egnos_msg * msg9,
 		Egnos_msg * msg17, Egnos_msg m18_t[11], Egnos_msg msg24_t[25],
-		Egnos_msg msg25_t[15], Egnos_msg m26_t[25], char m18_char[5][263],
-		char m26_char[25][263], int egnos, int * iono_flag, double sat_array[15],
+		Egnos_msg msg25_t[15], Egnos_msg m26_t[25], Iono_index * iono_index,
+		Corr_cache * corr_cache, Orbit_cache * orbit_cache, Fde_selection * selection,
+		Kalman * kalman, double tolerance, int egnos, int * iono_flag, double sat_array[15],
 		Satellite S_t[19], double utc_data[9], double klob_data[9], int rnd_options[8],
-		double sat_data_NotUsed[19][4],char eph_data_nu[19][901],Satellite S_t_NotUsed[19]) {
-	char sfr1[301] = "";
-	char sfr2[301] = "";
-	char sfr3[301] = "";
+		double sat_data_NotUsed[19][4],Satellite eph_nu[19],Satellite S_t_NotUsed[19]) {
 	int i;
 
 	int sat_count_wls = 0;
@@ -369,14 +491,13 @@ int positioning(double pos[3], double X_est[4], double DOP[4], double PL[2],
 	for (i = 0; i < 19; i++) {
 		// test if PRN is different from 0 and if GPS satellite
 		if (sat_data[i][0] != 0 && get_satellite_type(sat_data[i][0]) == 0) {
-			// Declaration of a satellite
-			Satellite S;
-			// Initialization of the satellite
-			init_satellite(&S);
+			// Declaration of a satellite, initialized with its decoded ephemeris
+			Satellite S = eph_t[i];
 			//S is a GPS satellite
 			S.type_sat = 1;
 			// Getting ephemeris data from SIS
 			S.prn = sat_data[i][0];
+			S.orbit = get_orbitState(orbit_cache, S.prn);
 			if (egnos == 1)
 				S.use = 2;
 			else
@@ -386,13 +507,6 @@ int positioning(double pos[3], double X_est[4], double DOP[4], double PL[2],
 			S.pr = sat_data[i][2];
 			S.pr_c = S.pr;
 			S.cn0 = sat_data[i][3];
-			extract(eph_data[i], 0, 299, sfr1);
-			S.subfr1 = sfr1;
-			extract(eph_data[i], 300, 599, sfr2);
-			S.subfr2 = sfr2;
-			extract(eph_data[i], 600, 899, sfr3);
-			S.subfr3 = sfr3;
-			decode_msg(&S);
 
 			S_t[sat_count_wls] = S;
 			S_rnd[sat_count_rnd] = S;
@@ -441,11 +555,6 @@ int positioning(double pos[3], double X_est[4], double DOP[4], double PL[2],
 				sat_count_rnd++;
 			}
 		}
-
-
-		strcpy(sfr1, "");
-		strcpy(sfr2, "");
-		strcpy(sfr3, "");
 	}
 
 
@@ -453,36 +562,25 @@ int positioning(double pos[3], double X_est[4], double DOP[4], double PL[2],
 
 			int sat_type = get_satellite_type(sat_data_NotUsed[i][0]);
 			if (sat_data_NotUsed[i][0] != 0 && (sat_type == 0 || sat_type == 3)) {
-				// Declaration of a satellite that is not used
-				Satellite S_NotUsed;
-				// Initialization of the satellite
-				init_satellite(&S_NotUsed);
+				// Declaration of a satellite that is not used, initialized with its decoded ephemeris
+				Satellite S_NotUsed = eph_nu[i];
 				// Getting ephemeris data from SIS
 				if (egnos == 1)
 					S_NotUsed.use = 2;
 				else
 					S_NotUsed.use = 1;
 				S_NotUsed.prn = sat_data_NotUsed[i][0];
+				S_NotUsed.orbit = get_orbitState(orbit_cache, S_NotUsed.prn);
 				S_NotUsed.tow = sat_data_NotUsed[i][1];
 				S_NotUsed.tow2 = S_NotUsed.tow;
 				S_NotUsed.pr = sat_data_NotUsed[i][2];
 				S_NotUsed.pr_c = S_NotUsed.pr;
 				S_NotUsed.cn0 = sat_data_NotUsed[i][3];
 				S_NotUsed.type_sat = sat_type;
-				extract(eph_data_nu[i], 0, 299, sfr1);
-				S_NotUsed.subfr1 = sfr1;
-				extract(eph_data_nu[i], 300, 599, sfr2);
-				S_NotUsed.subfr2 = sfr2;
-				extract(eph_data_nu[i], 600, 899, sfr3);
-				S_NotUsed.subfr3 = sfr3;
-				decode_msg(&S_NotUsed);
 
 				S_t_NotUsed[sat_count_notUsed] = S_NotUsed;
 				sat_count_notUsed++;
 			}
-			strcpy(sfr1, "");
-		    strcpy(sfr2, "");
-		    strcpy(sfr3, "");
 		}
 //		if (sat_count_notUsed < 19)
 //			for (i = sat_count_notUsed; i < 19; i++) {
@@ -512,10 +610,11 @@ int positioning(double pos[3], double X_est[4], double DOP[4], double PL[2],
 		
 	// Computation of the position if at least 4 satellites are available
 	if (sat_count_wls > 3) {
-		int rnd_options[8];
+		// Standard solution, without the R&D options
+		int rnd_options[8] = {0, 0, 0, 0, 0, 0, 0, 0};
 		r = user_position_computation_WLS(S_t, X_est, DOP, PL, msg1, msg2_5,
 				msg6, msg7, msg10, msg12, msg9, msg17, m18_t, msg24_t, msg25_t,
-				m26_t, egnos, iono_flag, m18_char, m26_char, sat_count_wls,
+				m26_t, egnos, iono_flag, iono_index, corr_cache, kalman, tolerance, sat_count_wls,
 				sat_array, utc_data, rnd_options,S_t_NotUsed,sat_count_notUsed);
 		if (r > 3) {
 			// Geodetic conversion
@@ -545,7 +644,7 @@ int positioning(double pos[3], double X_est[4], double DOP[4], double PL[2],
 		// user_position_computation_RND -  the same as WLS
 		r = user_position_computation_RnD(S_rnd, X_est_rnd, msg1, msg2_5,
 				msg6, msg7, msg10, msg12, msg9, msg17, m18_t, msg24_t, msg25_t,
-				m26_t, m18_char, m26_char, sat_count_rnd, sat_array,
+				m26_t, iono_index, corr_cache, selection, sat_count_rnd, sat_array,
 				utc_data, klob_data, rnd_options);
 
 		if(r < 4){
@@ -565,7 +664,7 @@ int positioning(double pos[3], double X_est[4], double DOP[4], double PL[2],
 		//X_est[2] = 4692760.1307149306;		// GPS   Altitude
 		r = TwoDpos_computation(S_t, X_est3, msg1, msg2_5, msg6, msg7,
 				msg9, msg10, msg12, msg17, m18_t, msg24_t, msg25_t, m26_t,
-				egnos, iono_flag, m18_char, m26_char, sat_count_wls, sat_array,
+				egnos, iono_flag, iono_index, corr_cache, sat_count_wls, sat_array,
 				utc_data, klob_data, rnd_options);
 
 		if (r == 3) {
@@ -632,6 +731,13 @@ int positioning(double pos[3], double X_est[4], double DOP[4], double PL[2],
 /**
  * user_position_computation_WLS function
  * The function performs a Weighted Least Square method to compute the navigation solution.
+ * The iterations stop when the position update is below the tolerance. Started from a previous
+ * estimation, the elevation mask is applied from the first iteration and one or two iterations
+ * are usually enough; started from the Bancroft method, at least WLS_COLD_ITERATIONS are done.
+ * In the filtered mode, the position is predicted from the previous epoch by the Kalman filter and
+ * the residuals at the predicted position update the filter in a single iteration. The least
+ * squares solution initialises the filter at the first epoch, after a gap and when the
+ * innovations are inconsistent with the prediction.
  * @param S_t         	The table of Satellites
  * @param X_est       	The table of estimated position (The initial values are the estimations given by Bancroft method or
  * 				      	the previous estimations)
@@ -651,8 +757,10 @@ int positioning(double pos[3], double X_est[4], double DOP[4], double PL[2],
  * @param m26_t       	The table of the messages type 26
  * @param egnos       	The EGNOS flag (1:EGNOS enabled, 0:EGNOS disabled)
  * @param *iono_flag  	The pointer of the flag to check if all needed messages for ionospheric correction are available
- * @param m18_char    	The table of 5(max) messages 18 in 256 characters (for SIS)
- * @param m26_char    	The table of 25(max) messages 26 in 256 characters (for SIS)
+ * @param iono_index   The index of the ionospheric grid and cell cache, NULL to search the messages tables
+ * @param corr_cache  The corrections cache, NULL to search the messages tables
+ * @param kalman      	The extended Kalman filter (see Kalman.h), NULL for the least squares only
+ * @param tolerance   	The convergence threshold of the position iterations (m), see WLS_TOLERANCE
  * @param sat_count   	The number of satellites used to compute the position
  * @param sat_array  	[0] = total no. of satellites in view
  *                   	[1] = No. of Satellites eliminated for Low Elevation (under 10 deg.)
@@ -669,22 +777,36 @@ int user_position_computation_WLS(Satellite S_t[19], double X_est[4],
 		Egnos_msg * msg6, Egnos_msg * msg7, Egnos_msg * msg10,
 		Egnos_msg * msg12, Egnos_msg * msg9, Egnos_msg * msg17,
 		Egnos_msg m18_t[11], Egnos_msg msg24_t[25], Egnos_msg msg25_t[15],
-		Egnos_msg m26_t[25], int egnos, int * iono_flag, char m18_char[5][263],
-		char m26_char[25][263], int sat_count, double sat_array[15],
-		double utc_data[9], int rnd_options[8],Satellite S_t_NotUsed[19],
+		Egnos_msg m26_t[25], int egnos, int * iono_flag, Iono_index * iono_index,
+		Corr_cache * corr_cache, Kalman * kalman, double tolerance, int sat_count,
+		double sat_array[15], double utc_data[9], int rnd_options[8],Satellite S_t_NotUsed[19],
 		int sat_count_notUsed) {
 
 	double W[sat_count][sat_count];
 	double pos[3], r_pos[3], r_pos_geo[3], R, R_corrected, ENU[3], sigma2[sat_count];
 	double d_major, d_east2, d_north2, d_en2, dtutc, eps_ltc, H[sat_count][4],
-	H_t[sat_count][4], dPR[sat_count], dX[4];
+	H_t[sat_count][4], dPR[sat_count], dX[4], R_c[sat_count];
 	int it = 0; // Number of iterations
 	int nb_igps = 0;
 	int iono_count = 0;
-	int i,j;
+	int i,j,k;
+	int used[sat_count];
+	Sat_batch batch;
 
 	double bancroft_est[4] = {0,0,0,0};
 
+	// Started from a previous estimation (warm start) or from the Bancroft method
+	int warm = (X_est[0] != 0 || X_est[1] != 0 || X_est[2] != 0 || X_est[3] != 0);
+	int min_it = warm ? 1 : WLS_COLD_ITERATIONS;
+
+	// Filtered mode: position predicted from the previous epoch, updated in one iteration
+	int filtered = (kalman != NULL && sat_count > 0 && kalman_predict(kalman, S_t[0].tow, X_est) == 1);
+	double Q[4][4];
+	if (filtered) {
+		warm = 1;
+		min_it = 1;
+	}
+
 	double init_pos[2];
 	init_pos[0] = X_est[0];
 	init_pos[1] = X_est[1];
@@ -707,10 +829,6 @@ int user_position_computation_WLS(Satellite S_t[19], double X_est[4],
 	// Init flag to 0
 	*iono_flag = 0;
 
-	if (egnos == 1) {
-		// Set the ionospheric grid
-		set_ionoGridSis(m18_t, m26_t, m18_char, m26_char);
-	}
 
 
 
@@ -726,10 +844,10 @@ int user_position_computation_WLS(Satellite S_t[19], double X_est[4],
 				S_t[i].tow2 = S_t[i].tow - S_t[i].pr_c / SPEED_OF_LIGHT;
 				if (egnos == 1) {
 					// long term corr
-					eps_ltc = set_LongCorrection(&S_t[i], msg24_t, msg25_t, msg10, msg1);
+					eps_ltc = set_LongCorrection(&S_t[i], msg24_t, msg25_t, msg10, msg1, corr_cache);
 					// fast corrections
 					get_fastCorrection(&S_t[i], msg1, msg2_5, msg24_t, msg6,
-							msg10, msg7, eps_ltc, rnd_options);
+							msg10, msg7, eps_ltc, rnd_options, corr_cache);
 
 					//android_syslog(ANDROID_LOG_INFO, "prn: %f,use:: %d\n",S_t[i].prn,S_t[i].use);
 				}
@@ -832,13 +950,14 @@ int user_position_computation_WLS(Satellite S_t[19], double X_est[4],
 		}
 
 
-		// Satellites loop
+		// Satellites loop, first pass: satellite positions and ranges
 		sat_used = 0;
+		batch_init(&batch);
 		for (i = 0; i < sat_count; i++) {
 			//android_syslog(ANDROID_LOG_INFO, "// Satellites loop prn: %f,use:: %d\n",S_t[i].prn,S_t[i].use);
 
-			if((S_t[i].use != 0 && egnos == 0) || (S_t[i].use == 2 && egnos == 1)) {
-				sat_used++;
+			used[i] = (S_t[i].use != 0 && egnos == 0) || (S_t[i].use == 2 && egnos == 1);
+			if(used[i]) {
 				// GPST (Receiver time of reception - time of transmission)
 				S_t[i].tow2 = S_t[i].tow - S_t[i].pr_c / SPEED_OF_LIGHT;
 
@@ -883,24 +1002,26 @@ int user_position_computation_WLS(Satellite S_t[19], double X_est[4],
 						+ (S_t[i].pos_z - X_est[2])
 						* (S_t[i].pos_z - X_est[2]));
 
-				// Convertion to ENU preparation
-				r_pos_geo[0] = X_est[0];
-				r_pos_geo[1] = X_est[1];
-				r_pos_geo[2] = X_est[2];
-				r_pos[0] = X_est[0];
-				r_pos[1] = X_est[1];
-				r_pos[2] = X_est[2];
-				pos[0] = S_t[i].pos_x;
-				pos[1] = S_t[i].pos_y;
-				pos[2] = S_t[i].pos_z;
-				cconv_to_geo(r_pos_geo);
+				R_c[i] = R_corrected;
+				batch_add(&batch, &S_t[i], i);
+			}
+		}
 
-				// Calculate azimuth and elevation angles of the satellite
-				cconv_to_ENU(ENU, pos, r_pos, r_pos_geo);
-				S_t[i].az = get_azimuth(ENU);
-				S_t[i].el = get_elevation(ENU);
+		// Look angles, IPPs and tropospheric corrections of all the used satellites in one pass
+		batch_corrections(&batch, X_est, r_pos_geo);
 
-				if (it > 2) {
+		// Satellites loop, second pass: corrections, residuals and observation matrix
+		k = 0;
+		for (i = 0; i < sat_count; i++) {
+			if(used[i]) {
+				sat_used++;
+				R_corrected = R_c[i];
+
+				// Azimuth and elevation angles of the satellite
+				S_t[i].az = batch.az[k];
+				S_t[i].el = batch.el[k];
+
+				if (it > 2 || warm) {
 					if (S_t[i].el < 10) {
 						eliminated++;
 						S_t[i].use = 0;
@@ -914,12 +1035,13 @@ int user_position_computation_WLS(Satellite S_t[19], double X_est[4],
 					if(S_t[i].use == 2 && egnos ==1) {
 
 
-						get_ionoCorrection(&S_t[i],r_pos_geo[0],r_pos_geo[1],
-								m18_t,m26_t,msg10, 0);
+						get_ionoCorrectionIPP(&S_t[i], batch.ipp[k],
+								m18_t,m26_t,iono_index,msg10, 0);
 
 						if(S_t[i].sigma_uire2 > 1000)
 							S_t[i].use = 0;
-						get_tropoCorrection(&S_t[i],r_pos_geo[0],r_pos_geo[2]);
+						S_t[i].tropo_delay = batch.tropo_delay[k];
+						S_t[i].sigma_tropo2 = batch.sigma_tropo2[k];
 
 						if(S_t[i].sigma_tropo2 > 1000)
 							S_t[i].use = 0;
@@ -979,6 +1101,7 @@ int user_position_computation_WLS(Satellite S_t[19], double X_est[4],
 				H_t[i][2] = - sin(S_t[i].el * PI / 180);
 				H_t[i][3] = 1;
 
+				k++;
 			} else {//if no pseudoranges data for the satellite available => fill the matrixes with
 				//android_syslog(ANDROID_LOG_INFO, "no pseudoranges\n");
 				R = 0;
@@ -1024,33 +1147,23 @@ int user_position_computation_WLS(Satellite S_t[19], double X_est[4],
 		// Iterations increment
 		it++;
 
-		double HtW[4][sat_count], HtWH[4][4], HtWH_[4][4], HtWH_HtW[4][sat_count];
-		double HtH[4][4], HtH_[4][4], Ht[4][sat_count];
-
-		// Computation of inv(trans(H).H).trans(H)
-		size_b_row1=sat_count;
-		size_b_col1=4;
-		transpose(H,Ht);						//change
-		size_b_row1=4;
-		size_b_col1=sat_count;
-		size_b_row2=sat_count;
-		size_b_col2=4;
-		multiply(Ht,H,HtH);					//change
-		inv_44(HtH, HtH_);
-		size_b_col2=sat_count;
-		// Calculation with the weight matrix
-		multiply(Ht,W,HtW);
-		size_b_col2=4;
-		multiply(HtW,H,HtWH);					//change
-		inv_44(HtWH, HtWH_);
-		size_b_col1=4;
-		size_b_row2=4;
-		size_b_col2=sat_count;
-		multiply(HtWH_,HtW,HtWH_HtW);
-		size_b_col1=sat_count;
-		size_b_row2=sat_count;
-		size_b_col2=4;
-		multiply_matxvec(HtWH_HtW,dPR,dX);
+		double w[sat_count], w1[sat_count], HtH_[4][4];
+
+		// Weighted least squares solution, and inv(trans(H).H) for the DOP
+		for (j = 0; j < sat_count; j++) {
+			w[j] = W[j][j];
+			w1[j] = 1;
+		}
+		if (filtered && kalman_update(sat_count, kalman, H, w, dPR, dX) == 0) {
+			// Innovations inconsistent with the prediction: least squares from the predicted position
+			filtered = 0;
+			min_it = WLS_COLD_ITERATIONS;
+		}
+		if (wls_solve(sat_count, 4, H, w1, NULL, NULL, HtH_) == 0
+				|| (!filtered && wls_solve(sat_count, 4, H, w, dPR, dX, Q) == 0)) {
+			sat_used = 0;  // the function will return 0
+			break;
+		}
 		//android_syslog(ANDROID_LOG_INFO, "1) dX[0] : %f \n", dX[0]);
 		// update estimation
 		X_est[0] += dX[0];
@@ -1072,24 +1185,13 @@ int user_position_computation_WLS(Satellite S_t[19], double X_est[4],
 
 		if(egnos == 1) {
 
-			double HtW[4][sat_count], HtWH[4][4], HtWH_[4][4];
-			double HtH[4][4], HtH_[4][4], Ht[4][sat_count];
-
-			size_b_row1=sat_count;
-			size_b_col1=4;
-			transpose(H_t,Ht);
-			size_b_row1=4;
-			size_b_col1=sat_count;
-			size_b_row2=sat_count;
-			size_b_col2=4;
-			multiply(Ht,H_t,HtH);
-			inv_44(HtH, HtH_);
-			size_b_col2=sat_count;
-			// Computation with the weight matrix
-			multiply(Ht,W,HtW);
-			size_b_col2=4;
-			multiply(HtW,H_t,HtWH);
-			inv_44(HtWH, HtWH_);
+			double HtWH_[4][4];
+
+			// inv(trans(H).W.H) in local level coordinates
+			if (wls_solve(sat_count, 4, H_t, w, NULL, NULL, HtWH_) == 0) {
+				sat_used = 0;  // the function will return 0
+				break;
+			}
 
 			// computation of HPL from matrix inv(Ht.W.H)
 			d_east2 = HtWH_[0][0];
@@ -1109,10 +1211,14 @@ int user_position_computation_WLS(Satellite S_t[19], double X_est[4],
 		cconv_to_geo(pos);
 
 		double norm=sqrt(dX[0]*dX[0]+dX[1]*dX[1]+dX[2]*dX[2]);
-		if(norm < 1E-8 && it > 6)	  break;
+		if(filtered || (norm < tolerance && it >= min_it))	  break;
 
 	}
 
+	// The filter is initialised again from the least squares solution
+	if (kalman != NULL && !filtered && sat_used > 3)
+		kalman_init(kalman, S_t[0].tow, X_est, Q);
+
 	no_egnos=total_sats-sat_used-eliminated;
 	
 	// check for satellites without iono corrections
@@ -1173,8 +1279,10 @@ int user_position_computation_WLS(Satellite S_t[19], double X_est[4],
  * @param msg24_t     The table of the messagea type 24
  * @param msg25_t     The Egnos messages type 25 table
  * @param m26_t       The table of the messages type 26
- * @param m18_char    The table of 5(max) messages 18 in 256 characters (for SIS)
- * @param m26_char    The table of 25(max) messages 26 in 256 characters (for SIS)
+ * @param iono_index  The index of the ionospheric grid and cell cache, NULL to search the messages tables
+ * @param corr_cache The corrections cache, NULL to search the messages tables
+ * @param selection  The satellite selection of the previous epoch (see DOPpos_computation), NULL
+ *                   to evaluate the selection at each epoch
  * @param sat_count   The number of satellites used to compute the position
  * @param sat_array  [7] = Latitude of RnD position
  *                   [8] = Longitude of RnD position
@@ -1186,9 +1294,9 @@ int user_position_computation_RnD(Satellite S_t[19], double X_est[4],
 		Egnos_msg * msg6, Egnos_msg * msg7, Egnos_msg * msg10,
 		Egnos_msg * msg12, Egnos_msg * msg9, Egnos_msg * msg17,
 		Egnos_msg m18_t[11], Egnos_msg msg24_t[25], Egnos_msg msg25_t[15],
-		Egnos_msg m26_t[25], char m18_char[5][263],	char m26_char[25][263],
-		int sat_count, double sat_array[15],  double utc_data[9],
-		double klob_data[9], int rnd_options[8]) {
+		Egnos_msg m26_t[25], Iono_index * iono_index,
+		Corr_cache * corr_cache, Fde_selection * selection, int sat_count, double sat_array[15],
+		double utc_data[9], double klob_data[9], int rnd_options[8]) {
 
 	double W[sat_count][sat_count], DOP[4];
 	double pos[3], r_pos[3], r_pos_geo[3], R, R_corrected, ENU[3], sigma2[sat_count];
@@ -1212,24 +1320,21 @@ int user_position_computation_RnD(Satellite S_t[19], double X_est[4],
 
 	int egnos = 1;
 
-	double PL[2];
+	double PL[2] = {0, 0};
 
-	double pos_dop[3];
+	double pos_dop[3] = {0, 0, 0};
 
 	if (egnos == 1) {
-	// Set the ionospheric grid
-	set_ionoGridSis(m18_t, m26_t, m18_char, m26_char);
-
 	// Computing the EGNOS corrections and integrity
 	for (i = 0; i < sat_count; i++) {
 		// GPST (Receiver time of reception - time of transmission)
 		S_t[i].tow2 = S_t[i].tow - S_t[i].pr_c / SPEED_OF_LIGHT;
 
 		// long term corr
-		eps_ltc = set_LongCorrection(&S_t[i], msg24_t, msg25_t, msg10, msg1);
+		eps_ltc = set_LongCorrection(&S_t[i], msg24_t, msg25_t, msg10, msg1, corr_cache);
 		// fast corrections
 		get_fastCorrection(&S_t[i], msg1, msg2_5, msg24_t, msg6,
-				msg10, msg7, eps_ltc, rnd_options);
+				msg10, msg7, eps_ltc, rnd_options, corr_cache);
 
 		double UTCGPST = get_UTCoffset(&S_t[i], utc_data);
 
@@ -1298,7 +1403,7 @@ int user_position_computation_RnD(Satellite S_t[19], double X_est[4],
 			sat_used++;
 
 			get_ionoCorrection(&S_t[i],r_pos_geo[0],r_pos_geo[1],
-					m18_t,m26_t,msg10,3);
+					m18_t,m26_t,iono_index,msg10,3);
 
 			if(S_t[i].sigma_uire2 > 1000)
 				S_t[i].use = 0;
@@ -1343,19 +1448,19 @@ int user_position_computation_RnD(Satellite S_t[19], double X_est[4],
 	if(sat_used > 3)
   	rnd_user_position_computation(S_t, sat_count, H, W, dPR, X_est, pos,
 				DOP, dX, rnd_options, msg1, msg2_5, msg6, msg7, msg10, msg12,
-				msg9, msg17, m18_t, msg24_t, msg25_t, m26_t, m18_char,
-				m26_char, sat_array, utc_data, klob_data);
+				msg9, msg17, m18_t, msg24_t, msg25_t, m26_t, iono_index, corr_cache,
+				sat_array, utc_data, klob_data);
 	if (rnd_options[3] == 1 && sat_used > 4){
-		raim(S_t, sat_count, H, 2, W, dPR, X_est, dX, pos_dop,msg9);	//pos_raim*/
-	    if(sat_used > 3)
+		// The position is computed again only if satellites have been excluded
+		if (raim(S_t, sat_count, H, W, dPR, X_est, dX, pos_dop) > 0)
 	      	rnd_user_position_computation(S_t, sat_count, H, W, dPR, X_est, pos,
 	    				DOP, dX, rnd_options, msg1, msg2_5, msg6, msg7, msg10, msg12,
-	    				msg9, msg17, m18_t, msg24_t, msg25_t, m26_t, m18_char,
-	    				m26_char, sat_array, utc_data, klob_data);
+	    				msg9, msg17, m18_t, msg24_t, msg25_t, m26_t, iono_index, corr_cache,
+				sat_array, utc_data, klob_data);
 	}
 
 	if(sat_used > 4 && rnd_options[1] == 1)
-		DOPpos_computation(S_t, X_est, sat_count, pos_dop, H, W, msg9, dPR);
+		DOPpos_computation(S_t, X_est, sat_count, pos_dop, H, W, msg9, dPR, selection);
 
    if (pos_dop[0] == 0 && pos_dop[1] == 0 && pos_dop[2] == 0){
 		pos_dop[0] = pos[0];
@@ -1402,8 +1507,8 @@ int user_position_computation_RnD(Satellite S_t[19], double X_est[4],
  * @param msg24_t     The table of the messagea type 24
  * @param msg25_t     The Egnos messages type 25 table
  * @param m26_t       The table of the messages type 26
- * @param m18_char    The table of 5(max) messages 18 in 256 characters (for SIS)
- * @param m26_char    The table of 25(max) messages 26 in 256 characters (for SIS)
+ * @param iono_index  The index of the ionospheric grid and cell cache, NULL to search the messages tables
+ * @param corr_cache The corrections cache, NULL to search the messages tables
  * @param sat_count   The number of satellites used to compute the position
  * @param sat_array   [7] = Latitude of RnD position
  *                    [8] = Longitude of RnD position
@@ -1418,8 +1523,8 @@ int rnd_user_position_computation(Satellite S_t[19], int sat_count, double H[sat
 		Egnos_msg * msg6, Egnos_msg * msg7, Egnos_msg * msg10,
 		Egnos_msg * msg12, Egnos_msg * msg9, Egnos_msg * msg17,
 		Egnos_msg m18_t[11], Egnos_msg msg24_t[25], Egnos_msg msg25_t[15],
-		Egnos_msg m26_t[25], char m18_char[5][263],	char m26_char[25][263],
-		double sat_array[15],  double utc_data[9],
+		Egnos_msg m26_t[25], Iono_index * iono_index,
+		Corr_cache * corr_cache, double sat_array[15],  double utc_data[9],
 		double klob_data[9]){
 
 	double PL[2];
@@ -1452,10 +1557,10 @@ int rnd_user_position_computation(Satellite S_t[19], int sat_count, double H[sat
 				S_t[i].tow2 = S_t[i].tow - S_t[i].pr_c / SPEED_OF_LIGHT;
 				if (egnos == 1) {
 					// long term corr
-					eps_ltc = set_LongCorrection(&S_t[i], msg24_t, msg25_t, msg10, msg1);
+					eps_ltc = set_LongCorrection(&S_t[i], msg24_t, msg25_t, msg10, msg1, corr_cache);
 					// fast corrections
 					get_fastCorrection(&S_t[i], msg1, msg2_5, msg24_t, msg6,
-							msg10, msg7, eps_ltc, rnd_options);
+							msg10, msg7, eps_ltc, rnd_options, corr_cache);
 				}
 
 				// Computation of the GPS satellite position
@@ -1602,7 +1707,7 @@ int rnd_user_position_computation(Satellite S_t[19], int sat_count, double H[sat
 				if(S_t[i].use == 2 && egnos ==1){
 
 						get_ionoCorrection(&S_t[i],r_pos_geo[0],r_pos_geo[1],
-								m18_t,m26_t,msg10, rnd_options[0]);
+								m18_t,m26_t,iono_index,msg10, rnd_options[0]);
 
 						if(S_t[i].sigma_uire2 > 1000)
 							S_t[i].use = 0;
@@ -1697,33 +1802,18 @@ int rnd_user_position_computation(Satellite S_t[19], int sat_count, double H[sat
 		// Iterations increment
 		it++;
 
-		double HtW[4][sat_count], HtWH[4][4], HtWH_[4][4], HtWH_HtW[4][sat_count];
-		double HtH[4][4], HtH_[4][4], Ht[4][sat_count];
-
-		// Computation of inv(trans(H).H).trans(H)
-		size_b_row1=sat_count;
-		size_b_col1=4;
-		transpose(H,Ht);						//change
-		size_b_row1=4;
-		size_b_col1=sat_count;
-		size_b_row2=sat_count;
-		size_b_col2=4;
-		multiply(Ht,H,HtH);					//change
-		inv_44(HtH, HtH_);
-		size_b_col2=sat_count;
-		// Calculation with the weight matrix
-		multiply(Ht,W,HtW);
-		size_b_col2=4;
-		multiply(HtW,H,HtWH);					//change
-		inv_44(HtWH, HtWH_);
-		size_b_col1=4;
-		size_b_row2=4;
-		size_b_col2=sat_count;
-		multiply(HtWH_,HtW,HtWH_HtW);
-		size_b_col1=sat_count;
-		size_b_row2=sat_count;
-		size_b_col2=4;
-		multiply_matxvec(HtWH_HtW,dPR,dX);
+		double w[sat_count], w1[sat_count], HtH_[4][4];
+
+		// Weighted least squares solution, and inv(trans(H).H) for the DOP
+		for (j = 0; j < sat_count; j++) {
+			w[j] = W[j][j];
+			w1[j] = 1;
+		}
+		if (wls_solve(sat_count, 4, H, w1, NULL, NULL, HtH_) == 0
+				|| wls_solve(sat_count, 4, H, w, dPR, dX, NULL) == 0) {
+			sat_used = 0;  // the function will return 0
+			break;
+		}
 
 		// update estimation
 		X_est[0] += dX[0];
@@ -1745,24 +1835,13 @@ int rnd_user_position_computation(Satellite S_t[19], int sat_count, double H[sat
 
 		if(egnos == 1) {
 
-			double HtW[4][sat_count], HtWH[4][4], HtWH_[4][4];
-			double HtH[4][4], HtH_[4][4], Ht[4][sat_count];
-
-			size_b_row1=sat_count;
-			size_b_col1=4;
-			transpose(H_t,Ht);
-			size_b_row1=4;
-			size_b_col1=sat_count;
-			size_b_row2=sat_count;
-			size_b_col2=4;
-			multiply(Ht,H_t,HtH);
-			inv_44(HtH, HtH_);
-			size_b_col2=sat_count;
-			// Computation with the weight matrix
-			multiply(Ht,W,HtW);
-			size_b_col2=4;
-			multiply(HtW,H_t,HtWH);
-			inv_44(HtWH, HtWH_);
+			double HtWH_[4][4];
+
+			// inv(trans(H).W.H) in local level coordinates
+			if (wls_solve(sat_count, 4, H_t, w, NULL, NULL, HtWH_) == 0) {
+				sat_used = 0;  // the function will return 0
+				break;
+			}
 
 			// computation of HPL from matrix inv(Ht.W.H)
 			d_east2 = HtWH_[0][0];
@@ -1799,7 +1878,7 @@ int rnd_user_position_computation(Satellite S_t[19], int sat_count, double H[sat
 int user_position_computation_bancroft(Satellite S_t[19], double pos[4],int sat_count)
 {
 	double M[4] = {1,1,1,-1};
-	double Bt[4][sat_count], BtB[4][4],  BtB_[4][4], BtB_Bt[4][sat_count],BtB_BtE[4];
+	double BtB_BtE[4];
 	double BtB_BtAlpha[4],B[sat_count][4],rb[2][4],E[sat_count],Alpha[sat_count];
 	double a,b,c,delta,r1,r2;//2nd order equation parameters
 	int i,j;
@@ -1842,24 +1921,13 @@ int user_position_computation_bancroft(Satellite S_t[19], double pos[4],int sat_
 			Alpha[j] = 0.5 * lorentz_4_4(B[j], B[j]);
 		}
 
-		// calculation of B+ = inv(trans(B).B).trans(B)
-		size_b_row1 = sat_count;
-		size_b_col1 = 4;
-		transpose(B, Bt);
-		size_b_row1 = 4;
-		size_b_col1 = sat_count;
-		size_b_row2 = sat_count;
-		size_b_col2 = 4;
-		multiply(Bt, B, BtB);
-		inv_44(BtB, BtB_);
-		size_b_col1 = 4;
-		size_b_row2 = 4;
-		size_b_col2 = sat_count;
-		multiply(BtB_, Bt, BtB_Bt);
-		size_b_col1 = sat_count;
-		// calculation of the matrixes B+.E and B+.Alpha
-		multiply_matxvec(BtB_Bt, E, BtB_BtE);
-		multiply_matxvec(BtB_Bt, Alpha, BtB_BtAlpha);
+		// calculation of the matrixes B+.E and B+.Alpha, B+ = inv(trans(B).B).trans(B),
+		// as the least squares solutions of B.x = E and B.x = Alpha (unit weights E)
+		if (wls_solve(sat_count, 4, B, E, E, BtB_BtE, NULL) == 0
+				|| wls_solve(sat_count, 4, B, E, Alpha, BtB_BtAlpha, NULL) == 0) {
+			r = 0;
+			break;
+		}
 
 		// Solving the 2nd order equation
 		a = lorentz_4_4(BtB_BtE, BtB_BtE);
@@ -2177,7 +2245,10 @@ void ionospheric_model(double klob_data[9], Satellite S,double lat,double lon, d
 /**
  * DOPpos_computation function
  * R&D method for computing the user position after eliminating
- * from the satellite constellation the satellite that maximizes the PDOP
+ * from the satellite constellation the satellite whose exclusion gives the best PDOP.
+ * The PDOP without each satellite is obtained by a Sherman-Morrison downdate of inv(trans(H).H)
+ * (see fde_select), and the selection of the previous epoch is reused while the set of satellites
+ * is unchanged.
  * @param S_t			The Satellite structure for all satellites in view
  * @param X_est			Position result in ECEF coordinates
  * @param sat_count		The number of satellites in view
@@ -2186,65 +2257,32 @@ void ionospheric_model(double klob_data[9], Satellite S,double lat,double lon, d
  * @param W_all			The weight matrix
  * @param msg9			The Egnos message type 9 pointer
  * @param dPR			The pseudorange residual
+ * @param selection		The satellite selection of the previous epoch, NULL to evaluate the selection
  */
 void DOPpos_computation(Satellite S_t[19], double X_est[4], int sat_count, double pos[3],
 		double H_all[sat_count][4],double W_all[sat_count][sat_count],
-		Egnos_msg * msg9, double dPR[sat_count]){
+		Egnos_msg * msg9, double dPR[sat_count], Fde_selection * selection){
 
 	int i,j;
-	double hdop_vec[sat_count];
-	double gdop_vec[sat_count];
-	double pdop_vec[sat_count];
-
-	for(i=0; i<sat_count; i++){
-
-		if(S_t[i].use == 2){
-			int k = 0;
-			double h_small[sat_count-1][4];
-			double h_smallt[4][sat_count-1];
-			double h_smallth_small[4][4];
-			double h_smallth_small_[4][4];
-			int m;
-
-			if (i > 0)
-				while (k < i) {
-					for (j = 0; j < 4; j++)
-						h_small[k][j] = H_all[k][j];
-					k++;
-				}
-			for (m = i + 1; m < sat_count; m++) {
-				for (j = 0; j < 4; j++)
-					h_small[k][j] = H_all[m][j];
-				k++;
-			}
-
-			size_b_row1 = sat_count - 1;
-			size_b_col1 = 4;
-			transpose(h_small, h_smallt);
-			size_b_row1 = 4;
-			size_b_col1 = sat_count - 1;
-			size_b_row2 = sat_count - 1;
-			size_b_col2 = 4;
-			multiply(h_smallt, h_small, h_smallth_small);
-			inv_44(h_smallth_small, h_smallth_small_);
-
-			hdop_vec[i] = get_HDOP(h_smallth_small_);
-			gdop_vec[i] = get_GDOP(h_smallth_small_);
-			pdop_vec[i] = get_PDOP(h_smallth_small_);
+	int pos_min = -1;
+	double w1[sat_count], y1[sat_count], prn[sat_count];
+	Fde fde;
+
+	// Unit weights: geometry of the satellites used only
+	for(i = 0; i < sat_count; i++){
+		w1[i] = (S_t[i].use == 2) ? 1 : 0;
+		y1[i] = 0;
+		prn[i] = S_t[i].prn;
+	}
+	if(fde_init(&fde, sat_count, H_all, w1, y1) == 1)
+		pos_min = fde_select(selection, &fde, prn, S_t[0].tow);
 
-		} else {
-			hdop_vec[i] = 100;
-			gdop_vec[i] = 100;
-			pdop_vec[i] = 100;
-		}
+	if(pos_min == -1){
+		pos[0] = 0;
+		pos[1] = 0;
+		pos[2] = 0;
+		return;
 	}
-	double Min = pdop_vec[0];
-	int pos_min = 0;
-	for (i = 0; i < sat_count; i++)
-		if (pdop_vec[i] < Min) {
-			Min = pdop_vec[i];
-			pos_min = i;
-		}
 
 	S_t[pos_min].use = 0;
 
@@ -2292,8 +2330,8 @@ void DOPpos_computation(Satellite S_t[19], double X_est[4], int sat_count, doubl
  * @param m26_t       	The table of the messages type 26
  * @param egnos       	The EGNOS flag (1:EGNOS enabled, 0:EGNOS disabled)
  * @param *iono_flag  	The pointer of the flag to check if all needed messages for ionospheric correction are available
- * @param m18_char    	The table of 5(max) messages 18 in 256 characters (for SIS)
- * @param m26_char    	The table of 25(max) messages 26 in 256 characters (for SIS)
+ * @param iono_index   The index of the ionospheric grid and cell cache, NULL to search the messages tables
+ * @param corr_cache  The corrections cache, NULL to search the messages tables
  * @param sat_count   	The number of satellites used to compute the position
  * @param sat_array   	[0] = total no. of satellites in view
  *                    	[1] = No. of Satellites eliminated for Low Elevation (under 10 deg.)
@@ -2310,8 +2348,8 @@ int TwoDpos_computation(Satellite S_t[19], double X_est[4], Egnos_msg * msg1,
 		Egnos_msg msg2_5[4][2],	Egnos_msg * msg6, Egnos_msg * msg7,
 		Egnos_msg * msg9, Egnos_msg * msg10, Egnos_msg * msg12, Egnos_msg * msg17,
 		Egnos_msg m18_t[11], Egnos_msg msg24_t[25], Egnos_msg msg25_t[15],
-		Egnos_msg m26_t[25], int egnos, int * iono_flag, char m18_char[5][263],
-		char m26_char[25][263], int sat_count, double sat_array[15],
+		Egnos_msg m26_t[25], int egnos, int * iono_flag, Iono_index * iono_index,
+		Corr_cache * corr_cache, int sat_count, double sat_array[15],
 		double utc_data[9], double klob_data[9], int rnd_options[8]) {
 
 	double H3[sat_count][3], dX3[3], dPR[sat_count], sigma2[sat_count];
@@ -2345,11 +2383,11 @@ int TwoDpos_computation(Satellite S_t[19], double X_est[4], Egnos_msg * msg1,
 				S_t[i].tow2 = S_t[i].tow - S_t[i].pr_c / SPEED_OF_LIGHT;
 				if (egnos == 1) {
 					// long term corr
-					eps_ltc = set_LongCorrection(&S_t[i], msg24_t, msg25_t, msg10, msg1);
+					eps_ltc = set_LongCorrection(&S_t[i], msg24_t, msg25_t, msg10, msg1, corr_cache);
 					// fast corrections
 
 					get_fastCorrection(&S_t[i], msg1, msg2_5, msg24_t, msg6, msg10, msg7, 
-							eps_ltc, rnd_options);
+							eps_ltc, rnd_options, corr_cache);
 
 				}
 
@@ -2361,11 +2399,6 @@ int TwoDpos_computation(Satellite S_t[19], double X_est[4], Egnos_msg * msg1,
 				if (S_t[i].type_sat == 2)
 					compute_EGNOSsat_position(&S_t[i], msg9);
 			}
-
-			if (egnos == 1) {
-				// Set the ionospheric grid
-				set_ionoGridSis(m18_t, m26_t, m18_char, m26_char);
-			}
 		}
 
 		// Satellites loop
@@ -2458,7 +2491,7 @@ int TwoDpos_computation(Satellite S_t[19], double X_est[4], Egnos_msg * msg1,
 					// Compute ionospheric and tropospheric delay
 					if(it == 4 && S_t[i].use == 2) {
 						get_ionoCorrection(&S_t[i],r_pos_geo[0],r_pos_geo[1],
-								m18_t,m26_t,msg10,3);
+								m18_t,m26_t,iono_index,msg10,3);
 						if(nb_igps > 2)// || nb_igps == -1)
 							iono_count++;
 
@@ -2526,29 +2559,15 @@ int TwoDpos_computation(Satellite S_t[19], double X_est[4], Egnos_msg * msg1,
 
 		it++;
 
-		size_b_row1 = sat_count;
-		size_b_col1 = 3;
-		transpose(H3, H3t);
-		size_b_row1 = 3;
-		size_b_col1 = sat_count;
-		size_b_row2 = sat_count;
-		size_b_col2 = 3;
-		multiply(H3t, H3, H3tH3);
+		transpose(sat_count, 3, H3, H3t);
+		multiply(3, sat_count, 3, H3t, H3, H3tH3);
 		inv_33(H3tH3, H3tH3_);
-		size_b_col2 = sat_count;
 		// Calculation with the weight matrix
-		multiply(H3t, W, H3tW);
-		size_b_col2 = 3;
-		multiply(H3tW, H3, H3tWH3);
+		multiply(3, sat_count, sat_count, H3t, W, H3tW);
+		multiply(3, sat_count, 3, H3tW, H3, H3tWH3);
 		inv_33(H3tWH3, H3tWH3_);
-		size_b_col1 = 3;
-		size_b_row2 = 3;
-		size_b_col2 = sat_count;
-		multiply(H3tWH3_, H3tW, H3tWH3_H3tW);
-		size_b_col1 = sat_count;
-		size_b_row2 = sat_count;
-		size_b_col2 = 3;
-		multiply_matxvec(H3tWH3_H3tW, dPR, dX3);
+		multiply(3, 3, sat_count, H3tWH3_, H3tW, H3tWH3_H3tW);
+		multiply_matxvec(3, sat_count, H3tWH3_H3tW, dPR, dX3);
 
 		// update estimation
 		X_est[0] += dX3[0];
@@ -2589,177 +2608,61 @@ int TwoDpos_computation(Satellite S_t[19], double X_est[4], Egnos_msg * msg1,
 
 /**
  * raim function
- * Method that implements the Receiver Autonomous Integrity Monitoring
- * @param S_t			The Satellite structure for all satellites in view
+ * Method that implements the Receiver Autonomous Integrity Monitoring with fault detection and
+ * exclusion. The least squares problem of the last iteration is solved once; the global test
+ * compares the weighted sum of squared residuals with the chi square threshold and, while it
+ * fails, the satellite whose exclusion leaves the smallest sum is excluded. The exclusions are
+ * evaluated and applied by rank-one downdates (see Fde.h), without solving the problem again.
+ * @param S_t			The Satellite structure for all satellites in view, the use flag of the
+ *						excluded satellites is set to 0
  * @param sat_count		The number of satellites in view
  * @param H				The geometry matrix
  * @param W				The weight matrix
- * @param dPR			The pseudorange residual
+ * @param y				The pseudorange residual
  * @param X_est			Position result in ECEF coordinates
- * @param dX			The last update to the position
- * @param pos			Position result expressed in latitude, longitude and altitude
- * @param msg9			The Egnos message type 9 pointer
- * @return				1 if successfull, or 0 is error
+ * @param dx			The last update to the position
+ * @param pos			Position result after exclusion expressed in latitude, longitude and
+ *						altitude, unchanged if no satellite is excluded
+ * @return				The number of satellites excluded, or -1 if the global test fails and no
+ *						exclusion restores it
  */
-int raim(Satellite S_t[19], int sat_count, double H[sat_count][4], int mode,
+int raim(Satellite S_t[19], int sat_count, double H[sat_count][4],
 		double W[sat_count][sat_count], double y[sat_count], double X_est[4], double dx[4],
-		double pos[3], Egnos_msg * msg9) {
-
-	double pos_gps[3];
-	double ChiSq;
-	int ok = 0;
-	int i, j;
-	double residual[sat_count];
-	double nalfa0 = 1.61182512114663; //the inverse cumulative distribution of a normal distribution with probability 1-0.107
-
-	int sat_used = 0;
-	int sat_detected = 0;
-
-	if(sat_count > 4){
-		double residual_check[2];
-		check_residual(sat_count, H, W, y, residual_check, dx);
-
-		sat_used = residual_check[1];
-		int degfree = sat_used - 4;
-		ChiSq = calcchisquare(degfree);
-
-		double Hdx[sat_count];
-
-		size_b_row1 = sat_count;
-		size_b_col1 = 4;
-		size_b_row2 = 4;
-		size_b_col2 = 1;
-		multiply_matxvec(H, dx, Hdx);
-		size_b_row1 = sat_count;
-		size_b_col1 = 1;
-		subtract_vec(y, Hdx, residual);
-
-		double val = 0;
-		for (i = 0; i < sat_count; i++)
-			val += (residual[i] * residual[i]);
-
-		val = sqrt(val);
-
-		if (residual_check[0] > ChiSq)
-			ok = 0; // local test is required
-		else
-			ok = 1;
-	}
-
-	if(ok == 1)
-	{
-		android_syslog(ANDROID_LOG_INFO, "Global test Passed ! \n");
-	}
-	else if(ok == 0)
-	{
-		android_syslog(ANDROID_LOG_INFO, "Global test Failed ! \n");
-	}
-
+		double pos[3]) {
 
-	// var 1
-	/*	while( ok == 0){
-		int status;
-		double pos_vec[sat_count][3];
-		double test_val[sat_count];
-		double residual[2];
-		double min;
-		int pos_min;
-
-		if(sat_used > 4){
-			for(i = 0; i< sat_count; i++)
-				if (S_t[i].use == 2)
-				{
-					S_t[i].use = 0;
-					double H_gps[sat_count][4], y_gps[sat_count], DOP_gps[4], dx_gps[4];
-					GPSposition_computation(S_t, sat_count, H_gps, W, y_gps, X_est, pos_gps, DOP_gps, dx_gps);
-					pos_vec[i][0] = pos_gps[0];
-					pos_vec[i][1] = pos_gps[1];
-					pos_vec[i][2] = pos_gps[2];
-					status = check_residual(sat_count, H_gps, W, y_gps, residual, dx_gps);
-					test_val[i] = residual[0];
-					S_t[i].use = 2;
-				}else{
-					test_val[i] = 1E+7;
-				}
+	Fde fde;
+	double w[sat_count];
+	int i, k;
+	int excluded = 0;
 
-			min = test_val[0];
-			pos_min = 0;
-			for (i = 0; i < sat_count; i++)
-				if (test_val[i] < min) {
-					min = test_val[i];
-					pos_min = i;
-				}
-
-			S_t[pos_min].use = 0;
+	for (i = 0; i < sat_count; i++)
+		w[i] = W[i][i];
 
-			pos[0] = pos_vec[pos_min][0];
-			pos[1] = pos_vec[pos_min][1];
-			pos[2] = pos_vec[pos_min][2];
+	if (fde_init(&fde, sat_count, H, w, y) == 0 || fde.used < 5)
+		return 0;
 
-			if (test_val[pos_min] >  calcchisquare(sat_used-4-1)){
-				ok = 0;
-				sat_used = sat_used - 1;
-				if(sat_used < 5){
-					break;
-				}
-			}
-			else ok = 1;
-
-		}else{
-			pos[0] = 0;
-			pos[1] = 0;
-			pos[2] = 0;
+	// Exclusion while the global test fails, checked again with one satellite less
+	while (sqrt(fde.sse) > calcchisquare(fde.used - 4)) {
+		if (fde.used < 6 || (k = fde_evaluate(&fde)) == -1) {
+			android_syslog(ANDROID_LOG_INFO, "Global test Failed ! \n");
+			return -1;
 		}
-	}*/
-
-	//var 2
-	// compute (res-mean)/std_dev
-
-	while( ok == 0){
-		int status;
-		double pos_vec[sat_count][3];
-		double res_vec[sat_count];
-
-		if(sat_used > 4){
-			double H_gps[sat_count][4], y_gps[sat_count], DOP_gps[4], dx_gps[4];
-			GPSposition_computation(S_t, sat_count, H_gps, W, y_gps, X_est, pos_gps, DOP_gps, dx_gps, msg9);
-			pos_vec[i][0] = pos_gps[0];
-			pos_vec[i][1] = pos_gps[1];
-			pos_vec[i][2] = pos_gps[2];
-			check_residual1(sat_count, H_gps, W, y_gps, res_vec, dx_gps);
-
-			double max = res_vec[0];
-
-			int pos_max = 0;
-			for (i = 0; i < sat_count; i++)
-				if (res_vec[i] > max) {
-					max = res_vec[i];
-					pos_max = i;
-				}
-
-			S_t[pos_max].use = 0;
-
-			pos[0] = pos_vec[pos_max][0];
-			pos[1] = pos_vec[pos_max][1];
-			pos[2] = pos_vec[pos_max][2];
+		fde_exclude(&fde, k);
+		S_t[k].use = 0;
+		excluded++;
+		android_syslog(ANDROID_LOG_DEBUG, "RAIM: PRN %d excluded\n", S_t[k].prn);
+	}
 
-			if (res_vec[pos_max] >  calcchisquare(sat_used-4-1)){
-				ok = 0;
-				sat_used = sat_used - 1;
-				sat_detected++;
-				if(sat_used < 5){
-					break;
-				}
-			}
-			else ok = 1;
+	android_syslog(ANDROID_LOG_INFO, "Global test Passed ! \n");
 
-		}else{
-			pos[0] = 0;
-			pos[1] = 0;
-			pos[2] = 0;
-		}
+	// The problem is linearised at X_est - dx
+	if (excluded > 0) {
+		for (i = 0; i < 3; i++)
+			pos[i] = X_est[i] - dx[i] + fde.x[i];
+		cconv_to_geo(pos);
 	}
-	return ok;
+
+	return excluded;
 }
 
 /**
@@ -2797,8 +2700,8 @@ double calcchisquare(int degFree) {
 int check_residual(int sat_count, double H[sat_count][4], double W[sat_count][sat_count],
 		double y[sat_count], double result[2], double dx[4]){
 
-	double cov_v_hat[sat_count][sat_count], Ht[4][sat_count], HtW[4][sat_count],
-	HtWH[4][4], HtWH_[4][4];
+	double cov_v_hat[sat_count][sat_count], Ht[4][sat_count], HtWH_[4][4];
+	double sigma_w[sat_count];
 	double HHtWH_[sat_count][4], HHtWH_Ht[sat_count][sat_count];
 	//double v_hat_transp[1][sat_count], v_hat_transpW[1][sat_count];
 	double v_hat[sat_count];
@@ -2819,63 +2722,31 @@ int check_residual(int sat_count, double H[sat_count][4], double W[sat_count][sa
 			} else
 				Sigma_mat[i][j] = 0;
 
-	if (sat_used > 4) {
-
-		size_b_row1 = sat_count;
-		size_b_col1 = 4;
-		transpose(H, Ht);
-		size_b_row1 = 4;
-		size_b_col1 = sat_count;
-		size_b_row2 = sat_count;
-		size_b_col2 = sat_count;
-		multiply(Ht, Sigma_mat, HtW);
-		size_b_col2 = 4;
-		multiply(HtW, H, HtWH);
-		inv_44(HtWH, HtWH_);
-
-		size_b_row1 = sat_count;
-		size_b_col1 = 4;
-		size_b_row2 = 4;
-		size_b_col2 = 4;
-		multiply(H, HtWH_, HHtWH_);
-
-		size_b_row1 = sat_count;
-		size_b_col1 = 4;
-		size_b_row2 = 4;
-		size_b_col2 = sat_count;
-		multiply(HHtWH_, Ht, HHtWH_Ht);
-
-		size_b_row1 = sat_count;
-		size_b_col1 = sat_count;
-		subtract_mat(Sigma_mat, HHtWH_Ht, cov_v_hat); //covariance of estimates residuals
-
-		size_b_row1 = sat_count;
-		size_b_col1 = sat_count;
-		size_b_row2 = sat_count;
-		size_b_col2 = sat_count;
+	for (i = 0; i < sat_count; i++)
+		sigma_w[i] = Sigma_mat[i][i];
+
+	if (sat_used > 4 && wls_solve(sat_count, 4, H, sigma_w, NULL, NULL, HtWH_) != 0) {
+
+		transpose(sat_count, 4, H, Ht);
+		multiply(sat_count, 4, 4, H, HtWH_, HHtWH_);
+
+		multiply(sat_count, 4, sat_count, HHtWH_, Ht, HHtWH_Ht);
+
+		subtract_mat(sat_count, sat_count, Sigma_mat, HHtWH_Ht, cov_v_hat); //covariance of estimates residuals
+
 		double cov_v_hatW[sat_count][sat_count];
 
-		multiply(cov_v_hat, W, cov_v_hatW);
+		multiply(sat_count, sat_count, sat_count, cov_v_hat, W, cov_v_hatW);
 
-		size_b_row1 = sat_count;
-		size_b_col1 = sat_count;
-		size_b_row2 = sat_count;
-		size_b_col2 = 1;
-		multiply_matxvec(cov_v_hatW, y, v_hat);
+		multiply_matxvec(sat_count, sat_count, cov_v_hatW, y, v_hat);
 
 		for (i = 0; i < sat_count; i++)
 			test += v_hat[i] * v_hat[i];
 
 		double Hdx[sat_count];
 		double residual[sat_count];
-		size_b_row1 = sat_count;
-		size_b_col1 = 4;
-		size_b_row2 = 4;
-		size_b_col2 = 1;
-		multiply_matxvec(H, dx, Hdx);
-		size_b_row1 = sat_count;
-		size_b_col1 = 1;
-		subtract_vec(y, Hdx, residual);
+		multiply_matxvec(sat_count, 4, H, dx, Hdx);
+		subtract_vec(sat_count, y, Hdx, residual);
 
 
 		for (i = 0; i < sat_count; i++)
@@ -2915,7 +2786,7 @@ int GPSposition_computation(Satellite S_t[19], int sat_count, double H[sat_count
 		double DOP[4], double dX[4], Egnos_msg * msg9){
 
 	int it = 0;
-	int i;
+	int i, j;
 	int sat_used = sat_count;
 	double R_corrected, r_pos_geo[3], r_pos[3], ENU[3], R;
 
@@ -2984,34 +2855,19 @@ int GPSposition_computation(Satellite S_t[19], int sat_count, double H[sat_count
 		// Iterations increment
 		it++;
 
-		// Calculation of inv(trans(H).H).trans(H)
+		// Weighted least squares solution, and inv(trans(H).H) for the DOP
 		int sat_size = sat_count;
-		double HtW[4][sat_size], HtWH[4][4], HtWH_[4][4], HtWH_HtW[4][sat_size]; // with weight matrix
-		double HtH[4][4], HtH_[4][4], Ht[4][sat_size];
-
-		size_b_row1 = sat_size;
-		size_b_col1 = 4;
-		transpose(H, Ht); // H_temp
-		size_b_row1 = 4;
-		size_b_col1 = sat_size;
-		size_b_row2 = sat_size;
-		size_b_col2 = 4;
-		multiply(Ht, H, HtH);
-		inv_44(HtH, HtH_);
-		size_b_col2 = sat_size;
-		// Calculation with the weight matrix
-		multiply(Ht, W, HtW); // W_temp
-		size_b_col2 = 4;
-		multiply(HtW, H, HtWH);
-		inv_44(HtWH, HtWH_);
-		size_b_col1 = 4;
-		size_b_row2 = 4;
-		size_b_col2 = sat_size;
-		multiply(HtWH_, HtW, HtWH_HtW);
-		size_b_col1 = sat_size;
-		size_b_row2 = sat_size;
-		size_b_col2 = 4;
-		multiply_matxvec(HtWH_HtW, dPR, dX); //dPR_temp
+		double w[sat_size], w1[sat_size], HtH_[4][4];
+
+		for (j = 0; j < sat_size; j++) {
+			w[j] = W[j][j];
+			w1[j] = 1;
+		}
+		if (wls_solve(sat_size, 4, H, w1, NULL, NULL, HtH_) == 0
+				|| wls_solve(sat_size, 4, H, w, dPR, dX, NULL) == 0) {
+			sat_used = 0;  // the function will return 0
+			break;
+		}
 
 		// update estimation
 		X_est[0] += dX[0];
@@ -3085,14 +2941,8 @@ void check_residual1(int sat_count,double H[sat_count][4],double W[sat_count][sa
 	double pos_vec[sat_count][3];
 
 	double Hdx[sat_count];
-	size_b_row1 = sat_count;
-	size_b_col1 = 4;
-	size_b_row2 = 4;
-	size_b_col2 = 1;
-	multiply_matxvec(H, dx, Hdx);
-	size_b_row1 = sat_count;
-	size_b_col1 = 1;
-	subtract_vec(y, Hdx, residual);
+	multiply_matxvec(sat_count, 4, H, dx, Hdx);
+	subtract_vec(sat_count, y, Hdx, residual);
 
 	double std = 0;
 	std = std_dev(sat_count,residual);
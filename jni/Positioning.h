@@ -44,6 +44,18 @@
 #include "Troposphere.h"
 #include "Fast_correction.h"
 #include "Long_correction.h"
+#include "Fde.h"
+#include "Kalman.h"
+
+/* Convergence threshold of the iterations of the Kepler equation (rad) */
+#define KEPLER_TOLERANCE 1e-14
+/* Largest mean anomaly change from the last solution of the Kepler equation used as starting point (rad) */
+#define KEPLER_WARM_START 0.1
+/* Default convergence threshold of the position iterations, norm of the last position update (m) */
+#define WLS_TOLERANCE 1E-3
+/* Minimum number of position iterations without initial estimation, so that the elevation mask
+ * is applied from the Bancroft solution (iterations 3 and above) */
+#define WLS_COLD_ITERATIONS 4
 
 void init_positioning(void);
 double get_corrected_time(double t);
@@ -52,36 +64,37 @@ double get_dtr (double sqrta, double Ek, double e);
 void SV_position_computation(Satellite * Sat, int egnos);
 void SV_position_correction(Satellite * Sat, double travel_time);
 int positioning(double pos[3], double X_est[4],   double DOP[4], double PL[2],
-		char eph_data[19][901], double sat_data[19][4], Egnos_msg * msg1, Egnos_msg msg2_5[4][2],
+		Satellite eph_t[19], double sat_data[19][4], Egnos_msg * msg1, Egnos_msg msg2_5[4][2],
 		Egnos_msg * msg6, Egnos_msg * msg7, Egnos_msg * msg10, Egnos_msg * msg12,
 		Egnos_msg * msg9, Egnos_msg * msg17, Egnos_msg m18_t[11], Egnos_msg msg24_t[25],
-		Egnos_msg msg25_t[15], Egnos_msg m26_t[25], char m18_char[5][263],
-		char m26_char[25][263],	int egnos, int * iono_flag, double sat_array[15], Satellite S_t[19],
-		double utc_data[9], double klob_data[9], int rnd_options[8],
-		double sat_data_NotUsed[19][4],char eph_data_nu[19][901],Satellite S_t_NotUsed[19]);
+		Egnos_msg msg25_t[15], Egnos_msg m26_t[25], Iono_index * iono_index,
+		Corr_cache * corr_cache, Orbit_cache * orbit_cache, Fde_selection * selection,
+		Kalman * kalman, double tolerance, int egnos, int * iono_flag, double sat_array[15],
+		Satellite S_t[19], double utc_data[9], double klob_data[9], int rnd_options[8],
+		double sat_data_NotUsed[19][4],Satellite eph_nu[19],Satellite S_t_NotUsed[19]);
 int user_position_computation_WLS(Satellite S_t[19], double X_est[4],  double DOP[4],
 		double PL[2], Egnos_msg * msg1, Egnos_msg msg2_5[4][2], Egnos_msg * msg6,
 		Egnos_msg * msg7, Egnos_msg * msg10, Egnos_msg * msg12, Egnos_msg * msg9, 
 		Egnos_msg * msg17, Egnos_msg m18_t[11], Egnos_msg msg24_t[25], Egnos_msg msg25_t[15],
-		Egnos_msg m26_t[25], int egnos,	int * iono_flag,char m18_char[5][263], char m26_char[25][263],
-		int sat_count, double sat_array[15],double utc_data[9], int rnd_options[8],Satellite S_t_NotUsed[19],
+		Egnos_msg m26_t[25], int egnos,	int * iono_flag,Iono_index * iono_index,
+		Corr_cache * corr_cache, Kalman * kalman, double tolerance, int sat_count, double sat_array[15],double utc_data[9], int rnd_options[8],Satellite S_t_NotUsed[19],
 		int sat_count_notUsed);
-int user_position_computation_RND(Satellite S_t[19], double X_est[4],
+int user_position_computation_RnD(Satellite S_t[19], double X_est[4],
 		Egnos_msg * msg1, Egnos_msg msg2_5[4][2],
 		Egnos_msg * msg6, Egnos_msg * msg7, Egnos_msg * msg10,
 		Egnos_msg * msg12, Egnos_msg * msg9, Egnos_msg * msg17,
 		Egnos_msg m18_t[11], Egnos_msg msg24_t[25], Egnos_msg msg25_t[15],
-		Egnos_msg m26_t[25], char m18_char[5][263],	char m26_char[25][263],
-		int sat_count, double sat_array[15],  double utc_data[9],
-		double klob_data[9], int rnd_options[8]);
+		Egnos_msg m26_t[25], Iono_index * iono_index,
+		Corr_cache * corr_cache, Fde_selection * selection, int sat_count, double sat_array[15],
+		double utc_data[9], double klob_data[9], int rnd_options[8]);
 int rnd_user_position_computation(Satellite S_t[19], int sat_count, double H[sat_count][4],
 		double W[sat_count][sat_count],double dPR[sat_count], double X_est[4], double pos[3],
 		double DOP[4], double dX[4],int rnd_options[8],Egnos_msg *msg1, Egnos_msg msg2_5[4][2],
 		Egnos_msg *msg6, Egnos_msg *msg7, Egnos_msg *msg10,
 		Egnos_msg *msg12, Egnos_msg *msg9, Egnos_msg *msg17,
 		Egnos_msg m18_t[11], Egnos_msg msg24_t[25], Egnos_msg msg25_t[15],
-		Egnos_msg m26_t[25], char m18_char[5][263],	char m26_char[25][263],
-		double sat_array[15],  double utc_data[9],
+		Egnos_msg m26_t[25], Iono_index * iono_index,
+		Corr_cache * corr_cache, double sat_array[15],  double utc_data[9],
 		double klob_data[9]);
 int user_position_computation_bancroft(Satellite S_t[19], double pos[4], int sat_count);
 void cconv_to_cart(double * vect);
@@ -99,14 +112,17 @@ double get_sigma_noisedivg2(double elevation);
 void ionospheric_model(double klob_data[9], Satellite S, double lat, double lon,  double iono[2]);
 void DOPpos_computation (Satellite S_t[19], double X_est[4], int sat_count, double pos[3],
 		double H_all[sat_count][4],double W_all[sat_count][sat_count],
-		Egnos_msg * msg9, double dPR[sat_count]);
+		Egnos_msg * msg9, double dPR[sat_count], Fde_selection * selection);
 int TwoDpos_computation(Satellite S_t[19], double X_est[4],
 		Egnos_msg * msg1, Egnos_msg msg2_5[4][2], Egnos_msg * msg6, Egnos_msg * msg7,
 		Egnos_msg * msg9, Egnos_msg * msg10, Egnos_msg * msg12, Egnos_msg * msg17,
 		Egnos_msg m18_t[11], Egnos_msg msg24_t[25], Egnos_msg msg25_t[15],
-		Egnos_msg m26_t[25], int egnos, int * iono_flag, char m18_char[5][263],
-		char m26_char[25][263], int sat_count, double sat_array[15], double utc_data[9],
+		Egnos_msg m26_t[25], int egnos, int * iono_flag, Iono_index * iono_index,
+		Corr_cache * corr_cache, int sat_count, double sat_array[15], double utc_data[9],
 		double klob_data[9], int rnd_options[8]);
+int raim(Satellite S_t[19], int sat_count, double H[sat_count][4],
+		double W[sat_count][sat_count], double y[sat_count], double X_est[4], double dx[4],
+		double pos[3]);
 double calcchisquare(int degFree);
 int check_residual(int sat_count, double H[sat_count][4], double W[sat_count][sat_count],
 		double y[sat_count], double result[2], double dx[4]);
@@ -118,6 +118,7 @@ void init_satellite(Satellite * Sat)
 	(*Sat).rel_corr        = 0;
 	(*Sat).tCorr = 0;
 	//INs - end
+	(*Sat).orbit        = NULL;
 }
 
 /**
@@ -207,3 +208,74 @@ int is_GPS(double prn)
 		r=0;
 	return r;
 }
+
+/**
+ * get_satellite_slot function
+ * The function gives the position of a satellite in the per-satellite caches.
+ * @param prn  The PRN of the satellite
+ * @return     The position in the caches (0-31: GPS, 32-63: SBAS), -1 if the PRN is not cached
+ */
+int get_satellite_slot(double prn)
+{
+	int p = (int) prn;
+
+	if (p >= 1 && p <= 32)
+		return p - 1;
+	if (p >= 120 && p < 120 + SATELLITE_SLOTS - 32)
+		return p - 120 + 32;
+	return -1;
+}
+
+/**
+ * init_corrCache function
+ * The function initializes an empty corrections cache.
+ * @param corr_cache  The corrections cache
+ */
+void init_corrCache(Corr_cache * corr_cache)
+{
+	int i;
+
+	(*corr_cache).mask_version = 0;
+	(*corr_cache).long_version = 0;
+	for (i = 0; i < SATELLITE_SLOTS; i++) {
+		(*corr_cache).sat[i].mask_version = -1;
+		(*corr_cache).sat[i].long_version = -1;
+	}
+	(*corr_cache).hits = 0;
+	(*corr_cache).misses = 0;
+}
+
+/**
+ * init_orbitCache function
+ * The function initializes an empty orbit cache.
+ * @param orbit_cache  The orbit cache
+ */
+void init_orbitCache(Orbit_cache * orbit_cache)
+{
+	int i;
+
+	for (i = 0; i < 32; i++) {
+		(*orbit_cache).sat[i].iode = -1;
+		(*orbit_cache).sat[i].kepler_set = 0;
+		(*orbit_cache).sat[i].pos_set = 0;
+		(*orbit_cache).sat[i].hits = 0;
+		(*orbit_cache).sat[i].misses = 0;
+		(*orbit_cache).sat[i].iterations = 0;
+	}
+}
+
+/**
+ * get_orbitState function
+ * The function gives the orbit evaluation state of a GPS satellite.
+ * @param orbit_cache  The orbit cache, may be NULL
+ * @param prn          The PRN of the satellite
+ * @return             The orbit evaluation state, NULL if the cache is NULL or the PRN is not a GPS PRN
+ */
+Orbit_state * get_orbitState(Orbit_cache * orbit_cache, double prn)
+{
+	int slot = get_satellite_slot(prn);
+
+	if (orbit_cache == NULL || slot < 0 || slot >= 32)
+		return NULL;
+	return &(*orbit_cache).sat[slot];
+}
@@ -31,11 +31,19 @@
 #include <math.h>
 #include "Constants.h"
 
+/* Number of satellite slots of the per-satellite caches: GPS PRN 1-32 and SBAS PRN 120-151 */
+#define SATELLITE_SLOTS 64
+
 /**
  * @typedef Satellite Satellite
  */
 typedef struct Satellite Satellite;
 
+/**
+ * @typedef Orbit_state Orbit_state
+ */
+typedef struct Orbit_state Orbit_state;
+
 /**
  * @struct Satellite Satellite.h "Satellite.h"
  * @brief The structure defines a satellite vehicle and contains all related parameters.
@@ -134,13 +142,114 @@ struct Satellite
   double tCorr;
   //INS - end
 
+  Orbit_state *orbit;     /*!< Orbit evaluation state of the satellite, NULL if not cached                        */
+
+
+};
+/**
+ * @typedef Corr_entry Corr_entry
+ */
+typedef struct Corr_entry Corr_entry;
+
+/**
+ * @struct Corr_entry Satellite.h "Satellite.h"
+ * @brief The structure holds the EGNOS corrections search results of a satellite.
+ * @details The position of the satellite in the PRN mask and the message holding its long term
+ * corrections only change when the messages are updated. They are kept from one epoch to the next
+ * with the versions of the messages they have been found in.
+ */
+struct Corr_entry
+{
+  int mask_version;       /*!< Version of the PRN mask of prn_pos, -1 if empty */
+  int prn_pos;            /*!< Position of the satellite in the PRN mask (1-51), 0 if not in the mask */
+  int long_version;       /*!< Version of the long term corrections of the search, -1 if empty */
+  int iode;               /*!< IODE of the ephemeris the long term corrections have been searched for */
+  int long_in;            /*!< long_set of the satellite before the search */
+  int long_set;           /*!< long_set of the satellite after the search */
+  int long_type;          /*!< Type of the message holding the long term corrections (24 or 25), 0 if none */
+  int long_i;             /*!< Position of the message in its table */
+  int long_j;             /*!< Position of the satellite in the message */
+};
+
+/**
+ * @typedef Corr_cache Corr_cache
+ */
+typedef struct Corr_cache Corr_cache;
+
+/**
+ * @struct Corr_cache Satellite.h "Satellite.h"
+ * @brief The structure caches the EGNOS corrections search results of each satellite.
+ * @details The versions are incremented by the owner of the messages when they are decoded again:
+ * the mask version when the message type 1 changes, the long term version when the message type 1,
+ * 24 or 25 changes. Only the time dependent terms are then computed at each epoch.
+ */
+struct Corr_cache
+{
+  int mask_version;                  /*!< Version of the message type 1 */
+  int long_version;                  /*!< Version of the messages type 1, 24 and 25 */
+  Corr_entry sat[SATELLITE_SLOTS];   /*!< Search results of each satellite */
+  unsigned long hits;                /*!< Number of searches reused from the cache */
+  unsigned long misses;              /*!< Number of searches computed */
+};
 
+/**
+ * @struct Orbit_state Satellite.h "Satellite.h"
+ * @brief The structure holds the orbit evaluation state of a GPS satellite.
+ * @details The constants derived from the ephemeris are computed once per IODE. The last solution
+ * of the Kepler equation is used as the starting point of the next one, and the last evaluated
+ * position is returned as is when the satellite is evaluated again with the same inputs.
+ */
+struct Orbit_state
+{
+  int iode;               /*!< IODE of the ephemeris of the constants, -1 if empty */
+  int toe;                /*!< Reference time of the ephemeris of the constants */
+  double toc;             /*!< Reference time clock of the ephemeris of the constants */
+  double a;               /*!< Semi-major axis                                                              (m) */
+  double n;               /*!< Corrected mean motion                                                        (rad/s) */
+  double sqrt_e;          /*!< sqrt(1 - e^2) */
+  double ins_n;           /*!< Corrected mean motion of the INS orbit                                       (rad/s) */
+  double ins_sqrta;       /*!< Square root of the semi-major axis of the INS orbit                          (m^(1/2)) */
+  double ins_sqrt_e;      /*!< sqrt(1 - e^2) of the INS orbit */
+  int kepler_set;         /*!< Set to 1 when Mk and Ek hold a solution of the Kepler equation */
+  double Mk;              /*!< Mean anomaly of the last solution                                            (rad) */
+  double Ek;              /*!< Eccentric anomaly of the last solution                                       (rad) */
+  double dMk;             /*!< 1 - e cos(Ek), derivative of the mean anomaly of the last solution */
+  int pos_set;            /*!< Set to 1 when the position below is valid */
+  int egnos;              /*!< EGNOS flag of the position */
+  double tow2;            /*!< Corrected time of week of the position                                       (s) */
+  double ltc[9];          /*!< Long term corrections of the position (daf0, daf1, t0, dx, dy, dz, ddx, ddy, ddz) */
+  double pos[3];          /*!< Position of the SV in ECEF coordinates                                       (m) */
+  double t_correction;    /*!< Satellite clock bias                                                         (s) */
+  double sat_pos[3];      /*!< Position of the SV of the INS orbit                                          (m) */
+  double rel_corr;        /*!< Relativistic correction of the INS orbit */
+  unsigned long hits;     /*!< Number of positions reused */
+  unsigned long misses;   /*!< Number of positions computed */
+  unsigned long iterations; /*!< Number of iterations of the Kepler equation of the computed positions */
 };
+
+/**
+ * @typedef Orbit_cache Orbit_cache
+ */
+typedef struct Orbit_cache Orbit_cache;
+
+/**
+ * @struct Orbit_cache Satellite.h "Satellite.h"
+ * @brief The structure holds the orbit evaluation state of each GPS satellite.
+ */
+struct Orbit_cache
+{
+  Orbit_state sat[32];  /*!< Orbit evaluation state of each GPS satellite */
+};
+
 void init_satellite(Satellite * Sat);
 void cconv_to_ENU(double ENU[3], double sat[3], double X_est[3], double geod[3]);
 double get_elevation(double ENU[3]);
 double get_azimuth(double ENU[3]);
 int get_satellite_type(double prn);
 int is_GPS(double prn);
+int get_satellite_slot(double prn);
+void init_corrCache(Corr_cache * corr_cache);
+void init_orbitCache(Orbit_cache * orbit_cache);
+Orbit_state * get_orbitState(Orbit_cache * orbit_cache, double prn);
 
 #endif /* SATELLITE_C_ */
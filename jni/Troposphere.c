@@ -40,10 +40,49 @@
  */
 double get_tropoCorrection(Satellite * Sat, double latitude, double height)
 {
-	double P,dP,T,dT,E,dE,B,dB,L,dL,zhyd,zwet,dhyd,dwet,m,tmp,max,base,power;
+	double zenith[2], m;
+	int r;
+
+	// Zenith delays at the user position, common to all the satellites of the same day
+	get_tropoZenith(zenith, latitude, height, get_tropoDay((*Sat).weeknb, (*Sat).tow2));
+
+	// Computation of m(Elevation)
+	m = get_tropoMapping((*Sat).el);
+
+  // Compute the delay (m) and error accuracy (m^2) (err=err_TVE*m(elevation) where err_TVE=0.12m)
+    (*Sat).tropo_delay = -(zenith[0] + zenith[1])*m;
+    (*Sat).sigma_tropo2 = (0.12*m)*(0.12*m);
+
+	r = 1;
+
+	return r;
+}
+
+/**
+ * get_tropoDay function
+ * The function computes the day of the year number used by the seasonal variation of the meteorological parameters
+ * @param	weeknb		The transmission week number
+ * @param	tow			The time of week	(s)
+ * @return				The day of the year number
+ */
+int get_tropoDay(unsigned short weeknb, double tow)
+{
+	return floor(weeknb*7-((floor(weeknb*7/365.25))*365.25))+floor(tow/86400)+6;
+}
+
+/**
+ * get_tropoZenith function
+ * The function computes the hydrostatic and wet zenith delays at the user position - DO-229D A.4.2.4
+ * @param	zenith		The destination table containing the hydrostatic and wet zenith delays	(m)
+ * @param	latitude	User latitude
+ * @param	height		User height
+ * @param	D			The day of the year number
+ */
+void get_tropoZenith(double zenith[2], double latitude, double height, int D)
+{
+	double P,dP,T,dT,E,dE,B,dB,L,dL,zhyd,zwet,dhyd,dwet,tmp,base,power;
 	double lat[5] = {15,30,45,60,75};							// Deg.
-	double elevation = (*Sat).el;
-	int j,D,Dmin,r;
+	int j,Dmin;
 
 	// Meteorological parameters : average
 	double P0[5] = {1013.25,1017.25,1015.75,1011.75,1013.00}; 	// mbar
@@ -59,9 +98,6 @@ double get_tropoCorrection(Satellite * Sat, double latitude, double height)
 	double dB0[5] = {0.0,0.25e-3,0.32e-3,0.81e-3,0.62e-3};		// K/m
 	double dL0[5] = {0.0,0.33,0.46,0.74,0.30};					// dimensionless
 
-	// Get the day of the year number
-	D = floor((*Sat).weeknb*7-((floor((*Sat).weeknb*7/365.25))*365.25))+floor((*Sat).tow2/86400)+6;
-
 	if(latitude > 0)	// Northern latitudes
 		Dmin = 28;
 	else				// Southern latitudes
@@ -87,11 +123,11 @@ double get_tropoCorrection(Satellite * Sat, double latitude, double height)
 	}
 	else
 	{
-		// Take directly the values for lat<= 15 or lat >=75
-		if(latitude <= 15)
-			j = 0;
+		// Take directly the values for lat<= 15 or lat >=75 (lat<= 15 if not a number)
 		if(latitude >= 75)
 			j = 4;
+		else
+			j = 0;
 
 		P = P0[j];
 		T = T0[j];
@@ -133,7 +169,20 @@ double get_tropoCorrection(Satellite * Sat, double latitude, double height)
 		dwet = 0;
 	}
 
-	// Computation of m(Elevation)
+	zenith[0] = dhyd;
+	zenith[1] = dwet;
+}
+
+/**
+ * get_tropoMapping function
+ * The function computes the tropospheric mapping function m(Elevation) - DO-229D A.4.2.4
+ * @param	elevation	The satellite elevation	(deg)
+ * @return				The mapping function value
+ */
+double get_tropoMapping(double elevation)
+{
+	double m,max;
+
 	if(elevation >= 2)
 	{
 		if(elevation >= 4)
@@ -151,13 +200,7 @@ double get_tropoCorrection(Satellite * Sat, double latitude, double height)
 	else
 		m = 0;
 
-  // Compute the delay (m) and error accuracy (m^2) (err=err_TVE*m(elevation) where err_TVE=0.12m)
-    (*Sat).tropo_delay = -(dhyd + dwet)*m;
-    (*Sat).sigma_tropo2 = (0.12*m)*(0.12*m);
-
-	r = 1;
-
-	return r;
+	return m;
 }
 
 /**
@@ -38,6 +38,9 @@
 #include "Egnos.h"
 
 double get_tropoCorrection(Satellite * Sat, double latitude, double height);
+int get_tropoDay(unsigned short weeknb, double tow);
+void get_tropoZenith(double zenith[2], double latitude, double height, int D);
+double get_tropoMapping(double elevation);
 double interpolate(double latitude, double latitude_a, double latitude_b, double value_a, double value_b);
 
 #endif /* TROPOSPHERE_H_ */
@@ -0,0 +1,258 @@
+/**
+ * @file BenchLu.java
+ *
+ * Host benchmark of the Java dense linear algebra.
+ *
+ * The program compares, for 3, 4, 6, 8 and 12 dimensional symmetric positive
+ * definite matrices, the cofactor expansions of the former Matrix and
+ * Matrix_square classes (copied below) with the LuDecomposition class: time
+ * of the determinant, of the inverse and of a solution reusing the
+ * decomposition, and largest element of A.inv(A) - I.
+ * The adjugates of Matrix.matriceAggiunta are compared with the cofactor
+ * adjugates, for regular matrices and for singular matrices of rank n-1.
+ *
+ * Usage: make bench_lu
+ *
+ * Rev: 3.0.0
+ *
+ * Author: DKE Aerospace Germany GmbH
+ *
+ * Copyright 2012 European Commission
+ *
+ * Licensed under the EUPL, Version 1.1 only (the "Licence");
+ * You may not use this work except in compliance with the
+ * Licence.
+ * You may obtain a copy of the Licence at:
+ * http://ec.europa.eu/idabc/eupl.html
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the Licence is
+ * distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied.
+ * See the Licence for the specific language governing
+ * permissions and limitations under the Licence.
+ *
+ **/
+
+import com.ec.egnossdk.LuDecomposition;
+import com.ec.egnossdk.Matrix;
+
+import java.util.Random;
+
+public class BenchLu {
+
+	/** Measured operation */
+	private interface Operation {
+		void run();
+	}
+
+	private static double sink;
+
+	/** Mean time of an operation (us), repeated for at least 0.2 s */
+	private static double time(Operation op) {
+		long start = System.nanoTime(), end;
+		int count = 0;
+
+		do {
+			op.run();
+			count++;
+			end = System.nanoTime();
+		} while (end - start < 200000000L);
+		return (end - start) * 1e-3 / count;
+	}
+
+	/** Largest element of A.X - I */
+	private static double error(double[][] a, double[][] x) {
+		int n = a.length;
+		double max = 0, s;
+
+		for (int i = 0; i < n; i++)
+			for (int j = 0; j < n; j++) {
+				s = (i == j) ? -1 : 0;
+				for (int k = 0; k < n; k++)
+					s += a[i][k] * x[k][j];
+				max = Math.max(max, Math.abs(s));
+			}
+		return max;
+	}
+
+	/** Symmetric positive definite matrix B.trans(B) + I */
+	private static double[][] spd(Random random, int n) {
+		double[][] b = new double[n][n], a = new double[n][n];
+
+		for (int i = 0; i < n; i++)
+			for (int j = 0; j < n; j++)
+				b[i][j] = random.nextGaussian();
+		for (int i = 0; i < n; i++)
+			for (int j = 0; j < n; j++) {
+				a[i][j] = (i == j) ? 1 : 0;
+				for (int k = 0; k < n; k++)
+					a[i][j] += b[i][k] * b[j][k];
+			}
+		return a;
+	}
+
+	// Cofactor expansions of the former Matrix.determinante, matriceAggiunta,
+	// matriceInversa and eliminaRigaColonna
+
+	private static double cofactorDet(double[][] data) {
+		int nrows = data.length, i, j, k;
+		double det = 0;
+
+		if (nrows == 1)
+			return data[0][0];
+		if (nrows == 2)
+			return data[0][0] * data[1][1] - data[1][0] * data[0][1];
+
+		double[][] support = new double[nrows][nrows];
+		for (i = 0; i < nrows; i++)
+			System.arraycopy(data[i], 0, support[i], 0, nrows);
+		for (i = 0; i < nrows; i++) {
+			if (data[i][0] == 0)
+				continue;
+			for (j = 0; j < i; j++) {
+				double x = -support[j][0] / data[i][0];
+				for (k = 0; k < nrows; k++)
+					support[j][k] = support[j][k] + data[i][k] * x;
+			}
+			for (j = i + 1; j < nrows; j++) {
+				double x = -data[j][0] / data[i][0];
+				for (k = 0; k < nrows; k++)
+					support[j][k] = support[j][k] + data[i][k] * x;
+			}
+			break;
+		}
+		for (i = 0; i < nrows; i++)
+			if (support[i][0] != 0)
+				det += support[i][0] * Math.pow(-1, i + 2)
+						* cofactorDet(minor(support, i, 0));
+		return det;
+	}
+
+	private static double[][] minor(double[][] matr, int colonna, int riga) {
+		int nrows = matr.length;
+		double[][] matrice = new double[nrows - 1][nrows - 1];
+
+		for (int i = 0; i < nrows; i++)
+			for (int j = 0; j < nrows; j++) {
+				if (i == riga || j == colonna)
+					continue;
+				matrice[j < colonna ? j : j - 1][i < riga ? i : i - 1] = matr[j][i];
+			}
+		return matrice;
+	}
+
+	private static double[][] cofactorAdjugate(double[][] data) {
+		int nrows = data.length;
+		double[][] t = new double[nrows][nrows], aggiunta = new double[nrows][nrows];
+
+		for (int i = 0; i < nrows; i++)
+			for (int j = 0; j < nrows; j++)
+				t[i][j] = data[j][i];
+		for (int i = 0; i < nrows; i++)
+			for (int j = 0; j < nrows; j++)
+				aggiunta[j][i] = Math.pow(-1, i + j + 2) * cofactorDet(minor(t, j, i));
+		return aggiunta;
+	}
+
+	/** Largest element of X - Y, relative to the largest element of Y */
+	private static double difference(double[][] x, double[][] y) {
+		double max = 0, norm = 0;
+
+		for (int i = 0; i < y.length; i++)
+			for (int j = 0; j < y.length; j++) {
+				max = Math.max(max, Math.abs(x[i][j] - y[i][j]));
+				norm = Math.max(norm, Math.abs(y[i][j]));
+			}
+		return max / norm;
+	}
+
+	private static double[][] cofactorInverse(double[][] data) {
+		int nrows = data.length;
+		double d = cofactorDet(data);
+		double[][] inverse = new double[nrows][nrows];
+
+		// The adjugate was computed again for each element
+		for (int i = 0; i < nrows; i++)
+			for (int j = 0; j < nrows; j++)
+				inverse[i][j] = cofactorAdjugate(data)[i][j] / d;
+		return inverse;
+	}
+
+	public static void main(String[] args) {
+		int[] sizes = { 3, 4, 6, 8, 12 };
+		Random random = new Random(1);
+
+		System.out.println("size  cofactor det (us)  lu det (us)  cofactor inv (us)"
+				+ "  lu inv (us)  lu solve (us)  cofactor err  lu err");
+		for (final int n : sizes) {
+			final double[][] a = spd(random, n);
+			final double[][] x = new double[n][n];
+			final double[] b = new double[n], y = new double[n];
+			final LuDecomposition lu = new LuDecomposition(n);
+			double[][] cofactor = null;
+			double tCofDet = Double.NaN, tCofInv = Double.NaN, eCof = Double.NaN;
+
+			for (int i = 0; i < n; i++)
+				b[i] = random.nextGaussian();
+
+			if (n <= 8) {
+				// The cofactor inverse costs O(n^7) operations
+				tCofDet = time(new Operation() {
+					public void run() {
+						sink += cofactorDet(a);
+					}
+				});
+				tCofInv = time(new Operation() {
+					public void run() {
+						sink += cofactorInverse(a)[0][0];
+					}
+				});
+				cofactor = cofactorInverse(a);
+				eCof = error(a, cofactor);
+			}
+			double tLuDet = time(new Operation() {
+				public void run() {
+					lu.decompose(a);
+					sink += lu.determinant();
+				}
+			});
+			double tLuInv = time(new Operation() {
+				public void run() {
+					lu.decompose(a);
+					lu.inverse(x);
+				}
+			});
+			lu.decompose(a);
+			double tLuSolve = time(new Operation() {
+				public void run() {
+					lu.solve(b, y);
+				}
+			});
+
+			lu.decompose(a);
+			lu.inverse(x);
+			double eLu = error(a, x);
+
+			System.out.printf("%4d  %17.3f  %11.3f  %17.3f  %11.3f  %13.3f  %12.3g  %6.3g%n",
+					n, tCofDet, tLuDet, tCofInv, tLuInv, tLuSolve, eCof, eLu);
+		}
+
+		System.out.println();
+		System.out.println("size  adjugate err  adjugate err (rank n-1)");
+		for (int n : sizes) {
+			if (n > 8)
+				continue;
+			double[][] a = spd(random, n), s = spd(random, n);
+
+			// Last row of s replaced by the first one, exactly singular
+			for (int j = 0; j < n; j++)
+				s[n - 1][j] = s[0][j];
+			System.out.printf("%4d  %12.3g  %23.3g%n", n,
+					difference(new Matrix(a).matriceAggiunta().getData(), cofactorAdjugate(a)),
+					difference(new Matrix(s).matriceAggiunta().getData(), cofactorAdjugate(s)));
+		}
+		if (sink == 0.123)
+			System.out.println();
+	}
+}
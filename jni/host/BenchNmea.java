@@ -0,0 +1,159 @@
+/**
+ * @file BenchNmea.java
+ *
+ * Host benchmark of the NMEA sentence encoding.
+ *
+ * The program encodes the GGA, GLL, GSA, GSV, RMC and VTG sentences of an
+ * epoch with 12 satellites in view by the String creators of NMEACreator and
+ * by NMEAEncoder, and compares their time and allocated bytes per epoch. The
+ * sentences of both are printed and the checksums of the encoder verified.
+ *
+ * Usage: make bench_nmea
+ *
+ * Rev: 3.0.0
+ *
+ * Author: DKE Aerospace Germany GmbH
+ *
+ * Copyright 2012 European Commission
+ *
+ * Licensed under the EUPL, Version 1.1 only (the "Licence");
+ * You may not use this work except in compliance with the
+ * Licence.
+ * You may obtain a copy of the Licence at:
+ * http://ec.europa.eu/idabc/eupl.html
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the Licence is
+ * distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied.
+ * See the Licence for the specific language governing
+ * permissions and limitations under the Licence.
+ *
+ **/
+
+import com.ec.egnossdk.NMEACreator;
+import com.ec.egnossdk.NMEAEncoder;
+
+import java.lang.management.ManagementFactory;
+
+public class BenchNmea {
+
+	private static final int IN_VIEW = 12;
+	private static final int[] PRN = { 7, 9, 4, 2, 24, 26, 5, 8, 33, 12, 15, 29 };
+
+	private static long sink;
+
+	/** Sentences of the String creators, as the former NMEAMesaages */
+	private static String[] creators(NMEACreator c, double lat, double lon) {
+		NMEACreator.GPGGA gga = c.new GPGGA();
+		NMEACreator.GPGLL gll = c.new GPGLL();
+		NMEACreator.GPGSA gsa = c.new GPGSA();
+		NMEACreator.GPGSV gsv = c.new GPGSV();
+		NMEACreator.GPRMC rmc = c.new GPRMC();
+		NMEACreator.GPVTG vtg = c.new GPVTG();
+		Integer[] id = new Integer[20], el = new Integer[20], az = new Integer[20], snr = new Integer[20];
+		String[] out = new String[5 + 3];
+
+		for (int i = 0; i < IN_VIEW; i++) {
+			id[i] = PRN[i];
+			el[i] = 10 + 6 * i;
+			az[i] = 25 * i;
+			snr[i] = 30 + i;
+		}
+		gga.NMEAType = "GPGGA"; gga.Hour = 12; gga.Minute = 12; gga.Second = 52.0;
+		gga.Latitude = lat; gga.Longitude = lon; gga.GpsQualIndic = 2; gga.NumSatUse = 9;
+		gga.HDOP = 1.2; gga.Altitude = 45.9;
+		out[0] = c.CreatorGPGGA(gga);
+		gll.NMEAType = "GPGLL"; gll.Latitude = lat; gll.Longitude = lon; gll.Hour = 12;
+		gll.Minute = 12; gll.Second = 52.0; gll.Status = "A"; gll.ModeIndicator = "D";
+		out[1] = c.CreatorGPGLL(gll);
+		gsa.NMEAType = "GPGSA"; gsa.DimMode = "A"; gsa.FixMode = 3;
+		for (int i = 0; i < 9; i++)
+			gsa.SatIds[i] = id[i];
+		gsa.PDOP = 2.1; gsa.HDOP = 1.2; gsa.VDOP = 1.7;
+		out[2] = c.CreatorGPGSA(gsa);
+		gsv.NMEAType = "GPGSV"; gsv.TotalSenNum = 3; gsv.TotalSatInView = IN_VIEW;
+		gsv.SatId = id; gsv.Elevation = el; gsv.Azimuth = az; gsv.SNR = snr;
+		String[] sv = c.CreatorGPGSV(gsv);
+		System.arraycopy(sv, 0, out, 3, 3);
+		rmc.NMEAType = "GPRMC"; rmc.Hour = 12; rmc.Minute = 12; rmc.Second = 52.0;
+		rmc.Status = "A"; rmc.Latitude = lat; rmc.Longitude = lon; rmc.SpeedN = 0.4;
+		rmc.CourseT = 43.1; rmc.DD = 18; rmc.MM = 7; rmc.YY = 2012; rmc.MagVar = 2.1;
+		rmc.MagVarDir = "E"; rmc.ModeIndicator = "D";
+		out[6] = c.CreatorGPRMC(rmc);
+		vtg.NMEAType = "GPVTG"; vtg.CourseT = 43.1; vtg.CourseM = 41.0; vtg.SpeedN = 0.4;
+		vtg.SpeedK = 0.7; vtg.ModeIndicator = "D";
+		out[7] = c.CreatorGPVTG(vtg);
+		return out;
+	}
+
+	/** Sentences of the encoder, in its buffer */
+	private static int encoder(NMEAEncoder e, double lat, double lon) {
+		e.hour = 12; e.minute = 12; e.second = 52.0;
+		e.day = 18; e.month = 7; e.year = 2012;
+		e.latitude = lat; e.longitude = lon; e.altitude = 45.9;
+		e.gpsQualIndic = 2; e.status = 'A'; e.modeIndicator = 'D';
+		e.fixMode = 3; e.numSatUse = 9;
+		for (int i = 0; i < 12; i++)
+			e.satIds[i] = i < 9 ? PRN[i] : 0;
+		e.pdop = 2.1; e.hdop = 1.2; e.vdop = 1.7;
+		e.totalSatInView = IN_VIEW;
+		for (int i = 0; i < IN_VIEW; i++) {
+			e.satId[i] = PRN[i];
+			e.elevation[i] = 10 + 6 * i;
+			e.azimuth[i] = 25 * i;
+			e.snr[i] = 30 + i;
+		}
+		e.speedN = 0.4; e.speedK = 0.7; e.courseT = 43.1; e.courseM = 41.0; e.magVar = 2.1;
+		return e.encode();
+	}
+
+	private static long allocated() {
+		return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+				.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	public static void main(String[] args) {
+		NMEACreator creator = new NMEACreator();
+		NMEAEncoder encoder = new NMEAEncoder();
+		int epochs = 200000, i, k;
+		long t0, t1, a0, a1;
+		double lat = 39.62172, lon = 116.19341;
+
+		for (String s : creators(creator, lat, lon))
+			System.out.println("creators  " + s);
+		k = encoder(encoder, lat, lon);
+		for (i = 0; i < k; i++) {
+			String s = encoder.getSentence(i);
+			int sum = 0;
+			for (int j = 1; s.charAt(j) != '*'; j++)
+				sum ^= s.charAt(j);
+			System.out.println((Integer.parseInt(s.substring(s.length() - 2), 16) == sum ? "encoder   " : "BAD SUM   ") + s);
+		}
+
+		for (int pass = 0; pass < 2; pass++) {
+			// The first pass warms up the JIT compiler
+			a0 = allocated();
+			t0 = System.nanoTime();
+			for (i = 0; i < epochs; i++)
+				sink += creators(creator, lat + i * 1e-7, lon).length;
+			t1 = System.nanoTime();
+			a1 = allocated();
+			if (pass == 1)
+				System.out.printf("creators: %8.3f us/epoch  %8.1f bytes/epoch%n",
+						(t1 - t0) * 1e-3 / epochs, (a1 - a0) / (double) epochs);
+
+			a0 = allocated();
+			t0 = System.nanoTime();
+			for (i = 0; i < epochs; i++)
+				sink += encoder(encoder, lat + i * 1e-7, lon);
+			t1 = System.nanoTime();
+			a1 = allocated();
+			if (pass == 1)
+				System.out.printf("encoder:  %8.3f us/epoch  %8.1f bytes/epoch%n",
+						(t1 - t0) * 1e-3 / epochs, (a1 - a0) / (double) epochs);
+		}
+		if (sink == 0)
+			System.out.println();
+	}
+}
@@ -0,0 +1,115 @@
+/**
+ * @file BenchSdp4.java
+ *
+ * Host benchmark of the SDP4 propagation of the NORAD elements.
+ *
+ * The program propagates the TLE of a GPS satellite (12 hour resonance) and
+ * of a geostationary EGNOS satellite (synchronous resonance) to the 145 times
+ * of SatelliteData.Orientation (-12 h to +12 h every 10 minutes), 2 and 20
+ * days after the epoch of the TLE. The former RunSDP4, which initialised the
+ * model at each time (SetElements then Propagate), is compared with a
+ * propagator initialised once per TLE. The samples per second and the
+ * largest difference between the positions are printed.
+ *
+ * Usage: make bench_sdp4
+ *
+ * Rev: 3.0.0
+ *
+ * Author: DKE Aerospace Germany GmbH
+ *
+ * Copyright 2012 European Commission
+ *
+ * Licensed under the EUPL, Version 1.1 only (the "Licence");
+ * You may not use this work except in compliance with the
+ * Licence.
+ * You may obtain a copy of the Licence at:
+ * http://ec.europa.eu/idabc/eupl.html
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the Licence is
+ * distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied.
+ * See the Licence for the specific language governing
+ * permissions and limitations under the Licence.
+ *
+ **/
+
+import com.ec.sdp4model.SDP4Model;
+
+public class BenchSdp4 {
+
+	private static final int SAMPLES = 145;
+
+	/** NORAD data as SatelliteData.convertNORAD: PRN, n'/2, n''/6, BSTAR,
+	 *  inclination, RAAN, eccentricity (1E-7), argument of perigee, mean
+	 *  anomaly (deg), mean motion (rev/day), epoch (YYDDD.DDDDDDDD) */
+	private static final double[][] TLE = {
+		{ 13, -2.0E-7, 0, 0, 55.6124, 171.2346, 40213, 98.3162, 262.1125, 2.00561447, 13200.50000000 },
+		{ 120, -2.7E-7, 0, 0, 1.5122, 72.3410, 4511, 170.5130, 255.9876, 1.00271450, 13200.50000000 },
+	};
+	private static final String[] NAME = { "GPS PRN 13", "EGNOS PRN 120" };
+
+	private static double sink;
+
+	/** Sample times (JD - 2450000) around the epoch of the TLE plus days */
+	private static double[] times(double[] tle, double days) {
+		double[] jd = new double[SAMPLES];
+		double epoch = new SDP4Model(tle).itsEpochJD;
+
+		for (int i = 0; i < SAMPLES; i++)
+			jd[i] = epoch + days + (i * 10 - 720) / 1440.0;
+		return jd;
+	}
+
+	/** Former RunSDP4: the model initialised at each time */
+	private static void perSample(SDP4Model m, double[] tle, double[] jd, double[][] out) {
+		for (int i = 0; i < SAMPLES; i++) {
+			m.SetElements(tle);
+			double[] r = m.Propagate(jd[i]);
+			out[i][0] = r[0]; out[i][1] = r[1]; out[i][2] = r[2];
+		}
+	}
+
+	/** Propagator initialised once per TLE */
+	private static void initOnce(SDP4Model m, double[] jd, double[][] out) {
+		for (int i = 0; i < SAMPLES; i++) {
+			double[] r = m.Propagate(jd[i]);
+			out[i][0] = r[0]; out[i][1] = r[1]; out[i][2] = r[2];
+		}
+	}
+
+	public static void main(String[] args) {
+		double[][] before = new double[SAMPLES][3], after = new double[SAMPLES][3];
+		int runs = 400;
+
+		for (int s = 0; s < TLE.length; s++) {
+			for (double days : new double[] { 2, 20 }) {
+				double[] jd = times(TLE[s], days);
+				SDP4Model former = new SDP4Model(TLE[s]);
+				double diff = 0, rate0 = 0, rate1 = 0;
+
+				for (int pass = 0; pass < 2; pass++) {
+					// The first pass warms up the JIT compiler
+					long t0 = System.nanoTime();
+					for (int k = 0; k < runs; k++)
+						perSample(former, TLE[s], jd, before);
+					long t1 = System.nanoTime();
+					for (int k = 0; k < runs; k++)
+						initOnce(new SDP4Model(TLE[s]), jd, after);
+					long t2 = System.nanoTime();
+					rate0 = runs * SAMPLES / ((t1 - t0) * 1e-9);
+					rate1 = runs * SAMPLES / ((t2 - t1) * 1e-9);
+				}
+				for (int i = 0; i < SAMPLES; i++) {
+					double dx = before[i][0] - after[i][0], dy = before[i][1] - after[i][1], dz = before[i][2] - after[i][2];
+					diff = Math.max(diff, Math.sqrt(dx * dx + dy * dy + dz * dz) * 1E9);
+					sink += after[i][0];
+				}
+				System.out.printf("%-14s epoch+%2.0f d: per sample %9.0f samples/s, init once %9.0f samples/s (x%.1f), max diff %.3g m%n",
+						NAME[s], days, rate0, rate1, rate1 / rate0, diff);
+			}
+		}
+		if (sink == 0)
+			System.out.println();
+	}
+}
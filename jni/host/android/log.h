@@ -0,0 +1,96 @@
+/**
+ * @file android/log.h
+ *
+ * @brief Host replacement of the Android NDK logging header.
+ * @details The header is only used by the Linux host build (see Makefile),
+ * in place of the NDK one. The messages are written on the standard error
+ * output when their priority is at least HOST_LOG_LEVEL, so that the
+ * information messages written at each epoch do not slow down the
+ * processing on a server.
+ *
+ * Rev: 3.0.0
+ *
+ * Author: DKE Aerospace Germany GmbH
+ *
+ * Copyright 2012 European Commission
+ *
+ * Licensed under the EUPL, Version 1.1 only (the "Licence");
+ * You may not use this work except in compliance with the
+ * Licence.
+ * You may obtain a copy of the Licence at:
+ * http://ec.europa.eu/idabc/eupl.html
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the Licence is
+ * distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied.
+ * See the Licence for the specific language governing
+ * permissions and limitations under the Licence.
+ *
+ */
+
+#ifndef HOST_ANDROID_LOG_H_
+#define HOST_ANDROID_LOG_H_
+
+#include <stdio.h>
+#include <stdarg.h>
+
+typedef enum android_LogPriority
+{
+  ANDROID_LOG_UNKNOWN = 0,
+  ANDROID_LOG_DEFAULT,
+  ANDROID_LOG_VERBOSE,
+  ANDROID_LOG_DEBUG,
+  ANDROID_LOG_INFO,
+  ANDROID_LOG_WARN,
+  ANDROID_LOG_ERROR,
+  ANDROID_LOG_FATAL,
+  ANDROID_LOG_SILENT
+} android_LogPriority;
+
+/* Minimum priority of the written messages */
+#ifndef HOST_LOG_LEVEL
+#define HOST_LOG_LEVEL ANDROID_LOG_WARN
+#endif
+
+/**
+ * __android_log_vprint function
+ * Writes a message on the standard error output.
+ * @param prio     The priority of the message
+ * @param tag      The tag of the message
+ * @param fmt      The format of the message
+ * @param ap       The arguments of the message
+ * @return         The number of characters written, 0 if filtered out
+ */
+static inline int __android_log_vprint(int prio, const char *tag, const char *fmt, va_list ap)
+{
+  int n;
+
+  if(prio < HOST_LOG_LEVEL)
+    return 0;
+  n = fprintf(stderr, "%s: ", tag);
+  n += vfprintf(stderr, fmt, ap);
+  fputc('\n', stderr);
+  return n + 1;
+}
+
+/**
+ * __android_log_print function
+ * Writes a message on the standard error output.
+ * @param prio     The priority of the message
+ * @param tag      The tag of the message
+ * @param fmt      The format of the message
+ * @return         The number of characters written, 0 if filtered out
+ */
+static inline int __android_log_print(int prio, const char *tag, const char *fmt, ...)
+{
+  int n;
+  va_list ap;
+
+  va_start(ap, fmt);
+  n = __android_log_vprint(prio, tag, fmt, ap);
+  va_end(ap);
+  return n;
+}
+
+#endif /* HOST_ANDROID_LOG_H_ */
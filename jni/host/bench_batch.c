@@ -0,0 +1,132 @@
+/**
+ * @file bench_batch.c
+ *
+ * @brief Host benchmark of the batched satellite corrections.
+ * @details The program compares, for 8, 16 and 32 satellites, the time of
+ * the per satellite path (look angles, Ionospheric Pierce Point and
+ * tropospheric correction computed one Satellite structure at a time, as
+ * before the Batch module) with the time of batch_corrections, and checks
+ * that both paths give the same values.
+ *
+ * Usage: make bench && ./bench_batch [epochs]
+ *
+ * Rev: 3.0.0
+ *
+ * Author: DKE Aerospace Germany GmbH
+ *
+ * Copyright 2012 European Commission
+ *
+ * Licensed under the EUPL, Version 1.1 only (the "Licence");
+ * You may not use this work except in compliance with the
+ * Licence.
+ * You may obtain a copy of the Licence at:
+ * http://ec.europa.eu/idabc/eupl.html
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the Licence is
+ * distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied.
+ * See the Licence for the specific language governing
+ * permissions and limitations under the Licence.
+ *
+ */
+
+#include <stdio.h>
+#include <stdlib.h>
+#include <time.h>
+#include "Batch.h"
+#include "Positioning.h"
+
+static double now(void)
+{
+	struct timespec ts;
+	clock_gettime(CLOCK_MONOTONIC, &ts);
+	return ts.tv_sec + ts.tv_nsec*1e-9;
+}
+
+/* Per satellite path, as computed in the satellites loop before the Batch module */
+static void single_corrections(Satellite S_t[BATCH_MAX], int n, double X_est[3], double ipp[BATCH_MAX][2])
+{
+	int i;
+	double pos[3], r_pos[3], r_pos_geo[3], ENU[3];
+
+	for(i = 0; i < n; i++)
+	{
+		r_pos_geo[0] = X_est[0];
+		r_pos_geo[1] = X_est[1];
+		r_pos_geo[2] = X_est[2];
+		r_pos[0] = X_est[0];
+		r_pos[1] = X_est[1];
+		r_pos[2] = X_est[2];
+		pos[0] = S_t[i].pos_x;
+		pos[1] = S_t[i].pos_y;
+		pos[2] = S_t[i].pos_z;
+		cconv_to_geo(r_pos_geo);
+
+		cconv_to_ENU(ENU, pos, r_pos, r_pos_geo);
+		S_t[i].az = get_azimuth(ENU);
+		S_t[i].el = get_elevation(ENU);
+
+		IPPlocation(ipp[i], r_pos_geo[0], r_pos_geo[1], S_t[i].el, S_t[i].az);
+		get_tropoCorrection(&S_t[i], r_pos_geo[0], r_pos_geo[2]);
+	}
+}
+
+int main(int argc, char ** argv)
+{
+	static const int sizes[3] = {8, 16, 32};
+	int epochs = argc > 1 ? atoi(argv[1]) : 20000;
+	double X_est[3] = {4027894.0, 307045.0, 4919474.0};
+	double geo[3], ipp[BATCH_MAX][2], t, t_single, t_batch, diff;
+	Satellite S_t[BATCH_MAX];
+	Sat_batch batch;
+	int s, n, e, i;
+
+	srand(1);
+	for(i = 0; i < BATCH_MAX; i++)
+	{
+		init_satellite(&S_t[i]);
+		S_t[i].prn = i + 1;
+		S_t[i].pos_x = X_est[0] + (rand()%40000 - 20000)*1000.0;
+		S_t[i].pos_y = X_est[1] + (rand()%40000 - 20000)*1000.0;
+		S_t[i].pos_z = X_est[2] + (rand()%20000)*1000.0;
+		S_t[i].tow2 = 345600.0;
+		S_t[i].weeknb = 1700;
+	}
+
+	printf("sats  single (us/epoch)  batch (us/epoch)  max diff\n");
+	for(s = 0; s < 3; s++)
+	{
+		n = sizes[s];
+
+		t = now();
+		for(e = 0; e < epochs; e++)
+			single_corrections(S_t, n, X_est, ipp);
+		t_single = now() - t;
+
+		t = now();
+		for(e = 0; e < epochs; e++)
+		{
+			batch_init(&batch);
+			for(i = 0; i < n; i++)
+				batch_add(&batch, &S_t[i], i);
+			batch_corrections(&batch, X_est, geo);
+		}
+		t_batch = now() - t;
+
+		diff = 0;
+		for(i = 0; i < n; i++)
+		{
+			diff = fmax(diff, fabs(S_t[i].el - batch.el[i]));
+			diff = fmax(diff, fabs(S_t[i].az - batch.az[i]));
+			diff = fmax(diff, fabs(ipp[i][0] - batch.ipp[i][0]));
+			diff = fmax(diff, fabs(ipp[i][1] - batch.ipp[i][1]));
+			diff = fmax(diff, fabs(S_t[i].tropo_delay - batch.tropo_delay[i]));
+			diff = fmax(diff, fabs(S_t[i].sigma_tropo2 - batch.sigma_tropo2[i]));
+		}
+
+		printf("%4d  %17.2f  %16.2f  %g\n", n, t_single*1e6/epochs, t_batch*1e6/epochs, diff);
+	}
+
+	return 0;
+}
@@ -0,0 +1,221 @@
+/**
+ * @file bench_fde.c
+ *
+ * @brief Host benchmark of the RAIM fault detection and exclusion.
+ * @details The program compares, for 6, 9, 12 and 16 satellites with one
+ * pseudorange biased by 100 m, the selection of the satellite to exclude
+ * by a least squares solution of each subset (one wls_solve per candidate,
+ * as the RAIM did before the Fde module) with the rank-one downdates of
+ * fde_evaluate. The number of epochs where both select the same satellite
+ * and the largest difference of the weighted sums of squared residuals are
+ * reported.
+ * The selection of the best constellation (smallest PDOP without one
+ * satellite) is compared in the same way, by a covariance of each subset
+ * and by the Sherman-Morrison downdates of fde_select.
+ *
+ * Usage: make bench && ./bench_fde [epochs]
+ *
+ * Rev: 3.0.0
+ *
+ * Author: DKE Aerospace Germany GmbH
+ *
+ * Copyright 2012 European Commission
+ *
+ * Licensed under the EUPL, Version 1.1 only (the "Licence");
+ * You may not use this work except in compliance with the
+ * Licence.
+ * You may obtain a copy of the Licence at:
+ * http://ec.europa.eu/idabc/eupl.html
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the Licence is
+ * distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied.
+ * See the Licence for the specific language governing
+ * permissions and limitations under the Licence.
+ *
+ */
+
+#include <stdio.h>
+#include <stdlib.h>
+#include <time.h>
+#include "Positioning.h"
+
+static double now(void)
+{
+	struct timespec ts;
+	clock_gettime(CLOCK_MONOTONIC, &ts);
+	return ts.tv_sec + ts.tv_nsec*1e-9;
+}
+
+static double uniform(double a, double b)
+{
+	return a + (b - a)*rand()/(double)RAND_MAX;
+}
+
+/* Geometry matrix, weights and pseudorange residuals of a random sky, the measurement fault biased by 100 m */
+static void geometry(int n, int fault, double H[n][4], double w[n], double y[n])
+{
+	int i;
+	double az, el, sigma;
+
+	for(i = 0; i < n; i++)
+	{
+		az = uniform(0, 2*PI);
+		el = uniform(5, 90)*PI/180;
+		H[i][0] = -cos(el)*sin(az);
+		H[i][1] = -cos(el)*cos(az);
+		H[i][2] = -sin(el);
+		H[i][3] = 1;
+		sigma = 0.5 + 5*exp(-el/0.2);
+		w[i] = 1/(sigma*sigma);
+		y[i] = uniform(-20, 20) + uniform(-1, 1)*sigma + (i == fault ? 100 : 0);
+	}
+}
+
+/* Subsets path: the problem is solved without each measurement, returns the one leaving the smallest sum */
+static int subset_evaluate(int n, double H[n][4], double w[n], double y[n], double sse_ex[n])
+{
+	double w_k[n], x[4], r;
+	int i, k, best = -1;
+
+	for(k = 0; k < n; k++)
+	{
+		for(i = 0; i < n; i++)
+			w_k[i] = (i == k) ? 0 : w[i];
+		sse_ex[k] = -1;
+		if(wls_solve(n, 4, H, w_k, y, x, NULL) == 0)
+			continue;
+		sse_ex[k] = 0;
+		for(i = 0; i < n; i++)
+		{
+			r = y[i] - (H[i][0]*x[0] + H[i][1]*x[1] + H[i][2]*x[2] + H[i][3]*x[3]);
+			sse_ex[k] += w_k[i]*r*r;
+		}
+		if(best == -1 || sse_ex[k] < sse_ex[best])
+			best = k;
+	}
+
+	return best;
+}
+
+/* Subsets path of the best constellation: returns the measurement whose exclusion gives the smallest PDOP */
+static int subset_select(int n, double H[n][4], double w[n])
+{
+	double w_k[n], P[4][4], pdop, min = 0;
+	int i, k, best = -1;
+
+	for(k = 0; k < n; k++)
+	{
+		for(i = 0; i < n; i++)
+			w_k[i] = (i == k) ? 0 : w[i];
+		if(wls_solve(n, 4, H, w_k, NULL, NULL, P) == 0)
+			continue;
+		pdop = sqrt(P[0][0] + P[1][1] + P[2][2]);
+		if(best == -1 || pdop < min)
+		{
+			min = pdop;
+			best = k;
+		}
+	}
+
+	return best;
+}
+
+int main(int argc, char ** argv)
+{
+	static const int sizes[4] = {6, 9, 12, 16};
+	int epochs = argc > 1 ? atoi(argv[1]) : 20000;
+	double t, t_subset, t_fde, err;
+	int s, n, e, k, same;
+	Fde fde;
+
+	srand(1);
+	printf("sats  subsets (us)  fde (us)  same selection  sse diff\n");
+	for(s = 0; s < 4; s++)
+	{
+		n = sizes[s];
+		double (*H)[n][4] = malloc(epochs*sizeof(*H));
+		double (*w)[n] = malloc(epochs*sizeof(*w));
+		double (*y)[n] = malloc(epochs*sizeof(*y));
+		double (*sse_ex)[n] = malloc(epochs*sizeof(*sse_ex));
+		int * best = malloc(epochs*sizeof(int));
+
+		for(e = 0; e < epochs; e++)
+			geometry(n, e % n, H[e], w[e], y[e]);
+
+		t = now();
+		for(e = 0; e < epochs; e++)
+			best[e] = subset_evaluate(n, H[e], w[e], y[e], sse_ex[e]);
+		t_subset = now() - t;
+
+		t = now();
+		for(e = 0; e < epochs; e++)
+			if(fde_init(&fde, n, H[e], w[e], y[e]))
+				fde_evaluate(&fde);
+		t_fde = now() - t;
+
+		same = 0;
+		err = 0;
+		for(e = 0; e < epochs; e++)
+		{
+			if(fde_init(&fde, n, H[e], w[e], y[e]) == 0)
+				continue;
+			same += (fde_evaluate(&fde) == best[e]);
+			for(k = 0; k < n; k++)
+				if(sse_ex[e][k] >= 0 && fde.sse_ex[k] >= 0)
+					err = fmax(err, fabs(fde.sse_ex[k] - sse_ex[e][k])/(1 + sse_ex[e][k]));
+		}
+
+		printf("%4d  %12.3f  %8.3f  %14d  %8.3g\n", n, t_subset*1e6/epochs, t_fde*1e6/epochs,
+				same, err);
+		free(H);
+		free(w);
+		free(y);
+		free(sse_ex);
+		free(best);
+	}
+
+	printf("\nsats  subsets (us)  fde_select (us)  same selection\n");
+	for(s = 0; s < 4; s++)
+	{
+		n = sizes[s];
+		double (*H)[n][4] = malloc(epochs*sizeof(*H));
+		double (*w)[n] = malloc(epochs*sizeof(*w));
+		double (*y)[n] = malloc(epochs*sizeof(*y));
+		double prn[n];
+		int * best = malloc(epochs*sizeof(int));
+
+		for(e = 0; e < epochs; e++)
+		{
+			geometry(n, -1, H[e], w[e], y[e]);
+			for(k = 0; k < n; k++)
+			{
+				w[e][k] = 1;
+				y[e][k] = 0;
+			}
+		}
+		for(k = 0; k < n; k++)
+			prn[k] = k + 1;
+
+		t = now();
+		for(e = 0; e < epochs; e++)
+			best[e] = subset_select(n, H[e], w[e]);
+		t_subset = now() - t;
+
+		same = 0;
+		t = now();
+		for(e = 0; e < epochs; e++)
+			if(fde_init(&fde, n, H[e], w[e], y[e]))
+				same += (fde_select(NULL, &fde, prn, 0) == best[e]);
+		t_fde = now() - t;
+
+		printf("%4d  %12.3f  %15.3f  %14d\n", n, t_subset*1e6/epochs, t_fde*1e6/epochs, same);
+		free(H);
+		free(w);
+		free(y);
+		free(best);
+	}
+
+	return 0;
+}
@@ -0,0 +1,198 @@
+/**
+ * @file bench_wls.c
+ *
+ * @brief Host benchmark of the weighted least squares solver.
+ * @details The program compares, for 5, 8 and 12 satellites, the normal
+ * equations path (trans(H).W.H formed and inverted with inv_44, as before
+ * wls_solve) with the Householder QR path of wls_solve. The accuracy of
+ * both paths is measured against a long double solution of the normal
+ * equations, on random sky geometries and on clustered low elevation
+ * geometries of poor conditioning.
+ *
+ * Usage: make bench && ./bench_wls [epochs]
+ *
+ * Rev: 3.0.0
+ *
+ * Author: DKE Aerospace Germany GmbH
+ *
+ * Copyright 2012 European Commission
+ *
+ * Licensed under the EUPL, Version 1.1 only (the "Licence");
+ * You may not use this work except in compliance with the
+ * Licence.
+ * You may obtain a copy of the Licence at:
+ * http://ec.europa.eu/idabc/eupl.html
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the Licence is
+ * distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied.
+ * See the Licence for the specific language governing
+ * permissions and limitations under the Licence.
+ *
+ */
+
+#include <stdio.h>
+#include <stdlib.h>
+#include <time.h>
+#include "Positioning.h"
+
+static double now(void)
+{
+	struct timespec ts;
+	clock_gettime(CLOCK_MONOTONIC, &ts);
+	return ts.tv_sec + ts.tv_nsec*1e-9;
+}
+
+static double uniform(double a, double b)
+{
+	return a + (b - a)*rand()/(double)RAND_MAX;
+}
+
+/* Geometry matrix, weights and pseudorange residuals of a random sky, clustered in azimuth and elevation if wide is 0 */
+static void geometry(int n, int wide, double H[n][4], double w[n], double y[n])
+{
+	int i;
+	double az0 = uniform(0, 2*PI), az, el, sigma;
+
+	for(i = 0; i < n; i++)
+	{
+		az = wide ? uniform(0, 2*PI) : az0 + uniform(0, 0.5);
+		el = wide ? uniform(5, 90)*PI/180 : uniform(5, 15)*PI/180;
+		H[i][0] = -cos(el)*sin(az);
+		H[i][1] = -cos(el)*cos(az);
+		H[i][2] = -sin(el);
+		H[i][3] = 1;
+		sigma = 0.5 + 5*exp(-el/0.2);
+		w[i] = 1/(sigma*sigma);
+		y[i] = uniform(-20, 20) + uniform(-1, 1)*sigma;
+	}
+}
+
+/* Normal equations path, as computed in the positioning loops before wls_solve */
+static void normal_solve(int n, double H[n][4], double w[n], double y[n], double x[4], double Q[4][4])
+{
+	double Ht[4][n], W[n][n], HtW[4][n], HtWH[4][4], HtWH_HtW[4][n];
+	int i, j;
+
+	for(i = 0; i < n; i++)
+		for(j = 0; j < n; j++)
+			W[i][j] = (i == j) ? w[i] : 0;
+	transpose(n, 4, H, Ht);
+	multiply(4, n, n, Ht, W, HtW);
+	multiply(4, n, 4, HtW, H, HtWH);
+	inv_44(HtWH, Q);
+	multiply(4, 4, n, Q, HtW, HtWH_HtW);
+	multiply_matxvec(4, n, HtWH_HtW, y, x);
+}
+
+/* Reference solution: normal equations in long double, Gauss-Jordan elimination with partial pivoting */
+static void reference_solve(int n, double H[n][4], double w[n], double y[n], long double x[4], long double Q[4][4])
+{
+	long double N[4][9], p, f;
+	int i, j, k, m;
+
+	for(i = 0; i < 4; i++)
+	{
+		for(j = 0; j < 4; j++)
+		{
+			N[i][j] = 0;
+			for(k = 0; k < n; k++)
+				N[i][j] += (long double) H[k][i]*w[k]*H[k][j];
+			N[i][5 + j] = (i == j);
+		}
+		N[i][4] = 0;
+		for(k = 0; k < n; k++)
+			N[i][4] += (long double) H[k][i]*w[k]*y[k];
+	}
+	for(k = 0; k < 4; k++)
+	{
+		m = k;
+		for(i = k + 1; i < 4; i++)
+			if(fabsl(N[i][k]) > fabsl(N[m][k]))
+				m = i;
+		for(j = 0; j < 9; j++)
+		{
+			p = N[k][j];
+			N[k][j] = N[m][j];
+			N[m][j] = p;
+		}
+		p = N[k][k];
+		for(j = 0; j < 9; j++)
+			N[k][j] /= p;
+		for(i = 0; i < 4; i++)
+			if(i != k)
+			{
+				f = N[i][k];
+				for(j = 0; j < 9; j++)
+					N[i][j] -= f*N[k][j];
+			}
+	}
+	for(i = 0; i < 4; i++)
+	{
+		x[i] = N[i][4];
+		for(j = 0; j < 4; j++)
+			Q[i][j] = N[i][5 + j];
+	}
+}
+
+int main(int argc, char ** argv)
+{
+	static const int sizes[3] = {5, 8, 12};
+	int epochs = argc > 1 ? atoi(argv[1]) : 20000;
+	double x[4], Q[4][4], t, t_normal, t_qr, err_normal, err_qr, qerr_normal, qerr_qr;
+	long double x_ref[4], Q_ref[4][4];
+	int s, n, wide, e, i, j;
+
+	srand(1);
+	printf("sats  geometry   normal (us)  qr (us)  normal x err (m)  qr x err (m)  normal Q err  qr Q err\n");
+	for(wide = 1; wide >= 0; wide--)
+		for(s = 0; s < 3; s++)
+		{
+			n = sizes[s];
+			double (*H)[n][4] = malloc(epochs*sizeof(*H));
+			double (*w)[n] = malloc(epochs*sizeof(*w));
+			double (*y)[n] = malloc(epochs*sizeof(*y));
+
+			for(e = 0; e < epochs; e++)
+				geometry(n, wide, H[e], w[e], y[e]);
+
+			t = now();
+			for(e = 0; e < epochs; e++)
+				normal_solve(n, H[e], w[e], y[e], x, Q);
+			t_normal = now() - t;
+
+			t = now();
+			for(e = 0; e < epochs; e++)
+				wls_solve(n, 4, H[e], w[e], y[e], x, Q);
+			t_qr = now() - t;
+
+			err_normal = err_qr = qerr_normal = qerr_qr = 0;
+			for(e = 0; e < epochs; e++)
+			{
+				reference_solve(n, H[e], w[e], y[e], x_ref, Q_ref);
+				normal_solve(n, H[e], w[e], y[e], x, Q);
+				for(i = 0; i < 4; i++)
+				{
+					err_normal = fmax(err_normal, fabsl(x[i] - x_ref[i]));
+					for(j = 0; j < 4; j++)
+						qerr_normal = fmax(qerr_normal, fabsl(Q[i][j] - Q_ref[i][j])/sqrtl(Q_ref[i][i]*Q_ref[j][j]));
+				}
+				wls_solve(n, 4, H[e], w[e], y[e], x, Q);
+				for(i = 0; i < 4; i++)
+				{
+					err_qr = fmax(err_qr, fabsl(x[i] - x_ref[i]));
+					for(j = 0; j < 4; j++)
+						qerr_qr = fmax(qerr_qr, fabsl(Q[i][j] - Q_ref[i][j])/sqrtl(Q_ref[i][i]*Q_ref[j][j]));
+				}
+			}
+
+			printf("%4d  %-9s  %11.3f  %7.3f  %16.3g  %12.3g  %12.3g  %8.3g\n", n, wide ? "wide" : "clustered",
+					t_normal*1e6/epochs, t_qr*1e6/epochs, err_normal, err_qr, qerr_normal, qerr_qr);
+			free(H);
+			free(w);
+			free(y);
+		}
+
+	return 0;
+}
@@ -0,0 +1,328 @@
+/**
+ * @file stress_engine.c
+ *
+ * @brief Host stress test of the reentrant positioning engine.
+ * @details The program reads one epoch of ephemerides, EGNOS messages and
+ * measurements (see test/com/ec/egnossdk/epoch.txt) and runs a sequence of
+ * position computations on a new engine: GPS, EGNOS from a cold start and
+ * warm started from the previous solution, filtered by the Kalman filter,
+ * with each R&D option (best constellation selection, RAIM, ...) and after
+ * a change of the ionospheric grid. The sequence goes through the caches of
+ * the engine (ionospheric grid index and cells, corrections, orbits, seeds
+ * and filter) and the RAIM threads.
+ * The sequence is run once in the calling thread, then the given number of
+ * threads run it concurrently several times, each run with its own engine.
+ * Every solution table must be identical, bit for bit, to the one of the
+ * serial run. The program is built with ThreadSanitizer, which reports the
+ * data races between the engines.
+ *
+ * Usage: make stress && ./stress_engine [threads] [runs] [epoch file]
+ *
+ * Rev: 3.0.0
+ *
+ * Author: DKE Aerospace Germany GmbH
+ *
+ * Copyright 2012 European Commission
+ *
+ * Licensed under the EUPL, Version 1.1 only (the "Licence");
+ * You may not use this work except in compliance with the
+ * Licence.
+ * You may obtain a copy of the Licence at:
+ * http://ec.europa.eu/idabc/eupl.html
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the Licence is
+ * distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied.
+ * See the Licence for the specific language governing
+ * permissions and limitations under the Licence.
+ *
+ */
+
+#include <stdio.h>
+#include <stdlib.h>
+#include <string.h>
+#include <pthread.h>
+#include "Engine.h"
+
+#define EPOCH_FILE "../../test/com/ec/egnossdk/epoch.txt"
+#define MSG_MAX 64
+#define LINE_MAX_ 8192
+/* Message type 26 (block) of the ionospheric grid points around the receiver of the epoch */
+#define GRID_BLOCK 6
+
+/* Inputs of the epoch, in the formats of engine_set_ephemeris and engine_set_message */
+typedef struct {
+	char eph[32][4504];
+	int msg_type[MSG_MAX];
+	int msg_slot[MSG_MAX];
+	char msg[MSG_MAX][263];
+	int msg_nb;
+	double sat_data[19][4];
+	double sat_data_notUsed[19][4];
+} Epoch;
+
+/* One position computation: GPS (egnos 0) or EGNOS with the R&D options, the
+ * message type 26 of slot GRID_BLOCK removed when grid is 0 */
+typedef struct {
+	const char * name;
+	int egnos;
+	int rnd_options[8];
+	int grid;
+} Step;
+
+static const Step steps[] = {
+	{"GPS cold start",          0, {0, 0, 0, 0, 0, 0, 0, 0}, 1},
+	{"EGNOS cold start",        1, {0, 0, 0, 0, 0, 0, 0, 0}, 1},
+	{"EGNOS warm start",        1, {0, 0, 0, 0, 0, 0, 0, 0}, 1},
+	{"EGNOS Kalman 1",          1, {0, 0, 0, 0, 0, 0, 1, 0}, 1},
+	{"EGNOS Kalman 2",          1, {0, 0, 0, 0, 0, 0, 1, 0}, 1},
+	{"EGNOS Kalman 3",          1, {0, 0, 0, 0, 0, 0, 1, 0}, 1},
+	{"EGNOS UDRE 14",           1, {1, 0, 0, 0, 0, 0, 0, 0}, 1},
+	{"EGNOS best selection",    1, {0, 1, 0, 0, 0, 0, 0, 0}, 1},
+	{"EGNOS 2D",                1, {0, 0, 1, 0, 0, 0, 0, 0}, 1},
+	{"EGNOS RAIM",              1, {0, 0, 0, 1, 0, 0, 0, 0}, 1},
+	{"EGNOS RRC = 0",           1, {0, 0, 0, 0, 1, 0, 0, 0}, 1},
+	{"EGNOS best weights",      1, {0, 0, 0, 0, 0, 1, 0, 0}, 1},
+	{"EGNOS grid block removed", 1, {0, 0, 0, 0, 0, 0, 0, 0}, 0},
+	{"EGNOS grid restored",     1, {0, 0, 0, 0, 0, 0, 0, 0}, 1},
+	{"GPS warm start",          0, {0, 0, 0, 0, 0, 0, 0, 0}, 1},
+};
+
+#define STEPS ((int)(sizeof(steps)/sizeof(steps[0])))
+
+/* Solution tables of a run of the sequence */
+typedef struct {
+	double solution[STEPS][EGNOS_SOLUTION_SIZE];
+	int sat_count[STEPS];
+} Run;
+
+typedef struct {
+	const Epoch * epoch;
+	const Run * reference;
+	int runs;
+	int mismatches;
+	pthread_t thread;
+} Worker;
+
+/**
+ * read_epoch function
+ * Reads the epoch file: "eph <slot> <data>", "msg <type> <slot> <data>",
+ * "sat <PRN> <TOW> <pseudorange> <C/N0>" and "notused <PRN> <TOW> <pseudorange> <C/N0>"
+ * lines, the other lines are ignored.
+ * @param path  The epoch file
+ * @param epoch The destination epoch
+ * @return      The number of satellites channels, 0 if the file can not be read
+ */
+static int read_epoch(const char * path, Epoch * epoch)
+{
+	static char line[LINE_MAX_];
+	int sats = 0, notused = 0;
+	int slot, type, n;
+	double * row;
+	FILE * f = fopen(path, "r");
+
+	if(f == NULL)
+		return 0;
+	memset(epoch, 0, sizeof(*epoch));
+	while(fgets(line, sizeof(line), f) != NULL)
+	{
+		if(sscanf(line, "eph %d %n", &slot, &n) == 1 && slot >= 0 && slot < 32)
+			sscanf(line + n, "%4503s", epoch->eph[slot]);
+		else if(sscanf(line, "msg %d %d %n", &type, &slot, &n) == 2 && epoch->msg_nb < MSG_MAX)
+		{
+			epoch->msg_type[epoch->msg_nb] = type;
+			epoch->msg_slot[epoch->msg_nb] = slot;
+			sscanf(line + n, "%262s", epoch->msg[epoch->msg_nb]);
+			epoch->msg_nb++;
+		}
+		else if(strncmp(line, "sat ", 4) == 0 && sats < 19)
+		{
+			row = epoch->sat_data[sats++];
+			sscanf(line + 4, "%lf %lf %lf %lf", &row[0], &row[1], &row[2], &row[3]);
+		}
+		else if(strncmp(line, "notused ", 8) == 0 && notused < 19)
+		{
+			row = epoch->sat_data_notUsed[notused++];
+			sscanf(line + 8, "%lf %lf %lf %lf", &row[0], &row[1], &row[2], &row[3]);
+		}
+	}
+	fclose(f);
+	return sats;
+}
+
+/**
+ * set_messages function
+ * Feeds an engine with the EGNOS messages of the epoch.
+ * @param engine The engine context
+ * @param epoch  The epoch
+ * @param grid   0 to leave out the message type 26 of slot GRID_BLOCK
+ */
+static void set_messages(Engine * engine, const Epoch * epoch, int grid)
+{
+	int i;
+
+	for(i = 0; i < epoch->msg_nb; i++)
+	{
+		if(grid == 0 && epoch->msg_type[i] == 26 && epoch->msg_slot[i] == GRID_BLOCK)
+			engine_set_message(engine, 26, GRID_BLOCK, "");
+		else
+			engine_set_message(engine, epoch->msg_type[i], epoch->msg_slot[i], epoch->msg[i]);
+	}
+}
+
+/**
+ * run_steps function
+ * Runs the sequence of position computations on a new engine.
+ * @param epoch The epoch
+ * @param run   The destination solution tables
+ * @return      1 if successful, 0 if the engine can not be allocated
+ */
+static int run_steps(const Epoch * epoch, Run * run)
+{
+	double sat_data[19][4], sat_data_notUsed[19][4];
+	double init_pos[4], utc_data[9], klob_data[9];
+	int rnd_options[8];
+	int i, s;
+	Engine * engine = engine_create();
+
+	if(engine == NULL)
+		return 0;
+	memset(run, 0, sizeof(*run));
+	for(i = 0; i < 32; i++)
+		engine_set_ephemeris(engine, i, epoch->eph[i]);
+
+	for(s = 0; s < STEPS; s++)
+	{
+		set_messages(engine, epoch, steps[s].grid);
+		// The tables are updated by the engine
+		memcpy(sat_data, epoch->sat_data, sizeof(sat_data));
+		memcpy(sat_data_notUsed, epoch->sat_data_notUsed, sizeof(sat_data_notUsed));
+		memcpy(rnd_options, steps[s].rnd_options, sizeof(rnd_options));
+		memset(init_pos, 0, sizeof(init_pos));
+		memset(utc_data, 0, sizeof(utc_data));
+		memset(klob_data, 0, sizeof(klob_data));
+
+		if(steps[s].egnos == 1)
+			run->sat_count[s] = engine_position_egnos(engine, sat_data, sat_data_notUsed, init_pos,
+					utc_data, klob_data, rnd_options, run->solution[s]);
+		else
+			run->sat_count[s] = engine_position_gps(engine, sat_data, sat_data_notUsed, init_pos,
+					utc_data, run->solution[s]);
+	}
+
+	engine_destroy(engine);
+	return 1;
+}
+
+/**
+ * compare_runs function
+ * Compares the solution tables of a run with the reference run, bit for bit.
+ * @param run       The run
+ * @param reference The reference run
+ * @param verbose   1 to print the first differing element of each step
+ * @return          The number of steps with a different solution
+ */
+static int compare_runs(const Run * run, const Run * reference, int verbose)
+{
+	int s, i, size, mismatches = 0;
+
+	for(s = 0; s < STEPS; s++)
+	{
+		size = steps[s].egnos ? EGNOS_SOLUTION_SIZE : GPS_SOLUTION_SIZE;
+		if(run->sat_count[s] == reference->sat_count[s]
+				&& memcmp(run->solution[s], reference->solution[s], size*sizeof(double)) == 0)
+			continue;
+		mismatches++;
+		for(i = 0; i < size && verbose; i++)
+			if(memcmp(&run->solution[s][i], &reference->solution[s][i], sizeof(double)) != 0)
+			{
+				fprintf(stderr, "%s: solution[%d] %.17g instead of %.17g\n", steps[s].name, i,
+						run->solution[s][i], reference->solution[s][i]);
+				break;
+			}
+	}
+	return mismatches;
+}
+
+static void * worker_main(void * arg)
+{
+	Worker * worker = (Worker *)arg;
+	Run * run = malloc(sizeof(Run));
+	int r;
+
+	for(r = 0; r < worker->runs && run != NULL; r++)
+		if(run_steps(worker->epoch, run) == 0 || compare_runs(run, worker->reference, 0) != 0)
+			worker->mismatches++;
+	if(run == NULL)
+		worker->mismatches = worker->runs;
+	free(run);
+	return NULL;
+}
+
+int main(int argc, char ** argv)
+{
+	int threads = argc > 1 ? atoi(argv[1]) : 8;
+	int runs = argc > 2 ? atoi(argv[2]) : 4;
+	const char * path = argc > 3 ? argv[3] : EPOCH_FILE;
+	Epoch * epoch = malloc(sizeof(Epoch));
+	Run * reference = malloc(sizeof(Run));
+	Run * check = malloc(sizeof(Run));
+	Worker * workers = calloc(threads > 0 ? threads : 1, sizeof(Worker));
+	double * sol;
+	int s, t, mismatches = 0, started = 0;
+
+	if(epoch == NULL || reference == NULL || check == NULL || workers == NULL)
+		return 2;
+	if(read_epoch(path, epoch) == 0)
+	{
+		fprintf(stderr, "stress_engine: can not read the epoch of %s\n", path);
+		return 2;
+	}
+
+	// Serial reference, run twice to check that the sequence itself is reproducible
+	if(run_steps(epoch, reference) == 0 || run_steps(epoch, check) == 0)
+		return 2;
+	printf("step                      sats  latitude     longitude    height     HPL      R&D latitude  longitude    height\n");
+	for(s = 0; s < STEPS; s++)
+	{
+		sol = reference->solution[s];
+		printf("%-24s  %4d  %11.7f  %11.7f  %9.3f  %7.3f  %11.7f  %11.7f  %9.3f\n", steps[s].name,
+				reference->sat_count[s], sol[0], sol[1], sol[2], steps[s].egnos ? sol[3] : 0.0,
+				sol[514], sol[515], sol[516]);
+	}
+	if(compare_runs(check, reference, 1) != 0)
+	{
+		printf("FAILED: two serial runs differ\n");
+		return 1;
+	}
+
+	for(t = 0; t < threads; t++)
+	{
+		workers[t].epoch = epoch;
+		workers[t].reference = reference;
+		workers[t].runs = runs;
+		if(pthread_create(&workers[t].thread, NULL, worker_main, &workers[t]) != 0)
+			break;
+		started++;
+	}
+	for(t = 0; t < started; t++)
+	{
+		pthread_join(workers[t].thread, NULL);
+		mismatches += workers[t].mismatches;
+	}
+
+	printf("%d threads x %d runs of %d steps: %d runs differ from the serial run\n",
+			started, runs, STEPS, mismatches);
+	free(epoch);
+	free(reference);
+	free(check);
+	free(workers);
+	if(started < threads || mismatches != 0)
+	{
+		printf("FAILED\n");
+		return 1;
+	}
+	printf("OK\n");
+	return 0;
+}
@@ -0,0 +1,188 @@
+/**
+ * @file AndroidPlatform.java
+ *
+ * Platform services of Android.
+ *
+ * Rev: 3.0.0
+ *
+ * Author: DKE Aerospace Germany GmbH
+ *
+ * Copyright 2012 European Commission
+ *
+ * Licensed under the EUPL, Version 1.1 only (the "Licence");
+ * You may not use this work except in compliance with the
+ * Licence.
+ * You may obtain a copy of the Licence at:
+ * http://ec.europa.eu/idabc/eupl
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the Licence is
+ * distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied.
+ * See the Licence for the specific language governing
+ * permissions and limitations under the Licence.
+ *
+ **/
+
+package com.ec.egnossdk;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import android.bluetooth.BluetoothSocket;
+import android.content.Context;
+import android.os.Environment;
+import android.util.Log;
+
+/**
+ * Class that implements the platform services on Android.
+ *
+ * - Log: android.util.Log.
+ * - Storage: the files are read and written on the external storage.
+ * - Resources: the assets of the application.
+ * - Transport: BluetoothTransport over the Rfcomm socket of the external
+ *   Bluetooth receiver.
+ */
+public class AndroidPlatform implements Platform.Log, Platform.Storage,
+		Platform.Resources {
+
+	private static Context context;
+	private static BluetoothMessageTransferService bTMessageTransferServiceInstance;
+
+	/**
+	 * AndroidPlatform Constructor
+	 * 
+	 * @param context
+	 *            the application context.
+	 **/
+	public AndroidPlatform(Context context) {
+		AndroidPlatform.context = context;
+	}
+
+	/**
+	 * getContext function
+	 * 
+	 * Gets the application context.
+	 * 
+	 * @return context the application context.
+	 **/
+	public static Context getContext() {
+		return context;
+	}
+
+	/**
+	 * getSocket function
+	 * 
+	 * Gets an Rfcomm bluetooth socket for external Bluetooth receiver
+	 * connection, the socket of the transport service.
+	 * 
+	 * @return BTsocket The Rfcomm bluetooth socket for external Bluetooth
+	 *         receiver connection, null if the transport service is not a
+	 *         BluetoothTransport.
+	 **/
+	public final static BluetoothSocket getSocket() {
+		Platform.Transport transport = Platform.transport();
+
+		if (transport instanceof BluetoothTransport)
+			return ((BluetoothTransport) transport).socket;
+		return null;
+	}
+
+	/**
+	 * setSocket function
+	 * 
+	 * Sets an Rfcomm bluetooth socket for external Bluetooth receiver
+	 * connection, and the corresponding transport service.
+	 * 
+	 * @param newBtSocket
+	 *            The Rfcomm bluetooth socket for external Bluetooth receiver
+	 *            connection.
+	 **/
+	public final static void setSocket(final BluetoothSocket newBtSocket) {
+		Platform.setTransport(newBtSocket == null ? null
+				: new BluetoothTransport(newBtSocket));
+	}
+
+	public static void setbTMessageTransferServiceInstance(
+			BluetoothMessageTransferService bTMessageTransferServiceInstance) {
+		AndroidPlatform.bTMessageTransferServiceInstance = bTMessageTransferServiceInstance;
+	}
+
+	public static BluetoothMessageTransferService getbTMessageTransferServiceInstance() {
+		return bTMessageTransferServiceInstance;
+	}
+
+	public void d(String tag, String message) {
+		Log.d(tag, message);
+	}
+
+	public void i(String tag, String message) {
+		Log.i(tag, message);
+	}
+
+	public void w(String tag, String message) {
+		Log.w(tag, message);
+	}
+
+	public void e(String tag, String message) {
+		Log.e(tag, message);
+	}
+
+	public void e(String tag, String message, Throwable error) {
+		Log.e(tag, message, error);
+	}
+
+	public InputStream openInput(String name) throws IOException {
+		return new FileInputStream(new File(
+				Environment.getExternalStorageDirectory(), name));
+	}
+
+	public OutputStream openOutput(String name, boolean append)
+			throws IOException {
+		return new FileOutputStream(new File(
+				Environment.getExternalStorageDirectory(), name), append);
+	}
+
+	public InputStream open(String name) throws IOException {
+		return context.getAssets().open(name);
+	}
+
+	/**
+	 * Class that implements the transport service over an Rfcomm bluetooth
+	 * socket.
+	 */
+	public static class BluetoothTransport implements Platform.Transport {
+
+		private final BluetoothSocket socket;
+
+		/**
+		 * BluetoothTransport Constructor
+		 * 
+		 * @param socket
+		 *            the connected Rfcomm bluetooth socket.
+		 **/
+		public BluetoothTransport(BluetoothSocket socket) {
+			this.socket = socket;
+		}
+
+		public boolean isConnected() {
+			return socket.isConnected();
+		}
+
+		public InputStream getInputStream() throws IOException {
+			return socket.getInputStream();
+		}
+
+		public OutputStream getOutputStream() throws IOException {
+			return socket.getOutputStream();
+		}
+
+		public void close() throws IOException {
+			socket.close();
+		}
+	}
+}
@@ -105,7 +105,7 @@ public class BluetoothConnect {
     Log.i(TAG, "Host name: " + bluetoothAdapter_.getName());
     Log.i(TAG, "Rx name: " + device_.getName());
 
-    if (GlobalState.getSocket() != null) {
+    if (AndroidPlatform.getSocket() != null) {
       closeConnection();
     }
 
@@ -117,7 +117,7 @@ public class BluetoothConnect {
           .createInsecureRfcommSocketToServiceRecord(generalUuid);
       clientSocket_.connect();
       RECEIVER_CONNECTED = true;
-      GlobalState.setSocket(clientSocket_);
+      AndroidPlatform.setSocket(clientSocket_);
       Log.d(TAG, "BC | Client socket connected.");
       new ConnectedThread(clientSocket_);
     } catch (IOException e) {
@@ -144,7 +144,7 @@ public class BluetoothConnect {
         try {
           clientSocket_.connect();
           RECEIVER_CONNECTED = true;
-          GlobalState.setSocket(clientSocket_);
+          AndroidPlatform.setSocket(clientSocket_);
           Log.d(TAG, "BC | Client socket connected.");
           new ConnectedThread(clientSocket_);
         } catch (IOException e1) {
@@ -179,7 +179,7 @@ public class BluetoothConnect {
    * Identifies if the receiver is an uBlox receiver.
    **/
   public void identifyReceiver() {
-    if (GlobalState.getSocket() != null) {
+    if (AndroidPlatform.getSocket() != null) {
       for (int i = 0; i < IDENTIFICATION_TRIALS; i++) {
         //identifies external Bluetooth Receiver.
         IDENTIFY_RECEIVER = uBlox.identifyuBloxReceiver();
@@ -277,10 +277,10 @@ public class BluetoothConnect {
         log.logError("Exit Application - Could not close Bluetooth OutputStream: "+e);
       }
     }
-    if (GlobalState.getSocket() != null) {
+    if (AndroidPlatform.getSocket() != null) {
       try {
-    	  GlobalState.getSocket().close();
-    	  GlobalState.setSocket(null);
+    	  AndroidPlatform.getSocket().close();
+    	  AndroidPlatform.setSocket(null);
       } catch (Exception e) {
         Log.e(TAG, "EDAM | Could not close socket.");
         log.logError("Exit Application - Could not close Bluetooth Socket: "+e);
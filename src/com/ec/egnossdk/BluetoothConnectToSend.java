@@ -233,10 +233,10 @@ public class BluetoothConnectToSend {
 						+ e);
 			}
 		}
-		if (GlobalState.getSocket() != null) {
+		if (AndroidPlatform.getSocket() != null) {
 			try {
-				GlobalState.getSocket().close();
-				GlobalState.setSocket(null);
+				AndroidPlatform.getSocket().close();
+				AndroidPlatform.setSocket(null);
 			} catch (Exception e) {
 				Log.e(TAG, "EDAM | Could not close socket.");
 				log.logError("Exit Application - Could not close Bluetooth Socket: "
@@ -4,6 +4,7 @@ package com.ec.egnossdk;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.Arrays;
 import java.util.UUID;
 
 import android.bluetooth.BluetoothAdapter;
@@ -24,8 +25,10 @@ import android.widget.Toast;
  * connections with other devices. It has a thread that listens for
  * incoming connections, a thread for connecting with a device, and a
  * thread for performing data transmissions when connected.
+ * The service is a sink of the output bus (see OutputBus): the messages
+ * published while a device is connected are written to it.
  */
-public class BluetoothMessageTransferService {
+public class BluetoothMessageTransferService implements OutputBus.Sink {
 	
 	// Message types sent from the BluetoothMessageTransferService Handler
     public static final int MESSAGE_STATE_CHANGE = 1;
@@ -215,6 +218,24 @@ public class BluetoothMessageTransferService {
         // Perform the write unsynchronized
         r.write(out);
     }
+
+    /**
+     * Write a message of the output bus to the ConnectedThread, dropped if
+     * no device is connected
+     * @see OutputBus.Sink#write(int, byte[], int, int)
+     */
+    public void write(int type, byte[] data, int offset, int length) {
+        // The written bytes are shared with the UI Activity, so the message is copied
+        write(Arrays.copyOfRange(data, offset, offset + length));
+    }
+
+    public void flush() {
+        // Each message is written to the socket by write
+    }
+
+    public void close() {
+        // The connection is managed by start() and stop()
+    }
     
 
     /**
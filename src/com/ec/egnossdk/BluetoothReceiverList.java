@@ -254,10 +254,10 @@ public class BluetoothReceiverList extends Activity {
       bluetoothAdapter.cancelDiscovery();
       String info = ((TextView) view).getText().toString();
       bluetoothAddress = info.substring(info.length() - 17);
-      if (GlobalState.getSocket() == null)
+      if (AndroidPlatform.getSocket() == null)
         showDialog(0);
       else {
-        if (GlobalState.getSocket().getRemoteDevice().getAddress()
+        if (AndroidPlatform.getSocket().getRemoteDevice().getAddress()
             .equals(bluetoothAddress))
           Toast.makeText(getBaseContext(), R.string.receiverConnectionExists,
               Toast.LENGTH_SHORT).show();
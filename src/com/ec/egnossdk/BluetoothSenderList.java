@@ -280,7 +280,7 @@ public class BluetoothSenderList extends Activity {
 			 * Ankur here we get a selected device for connection and we will
 			 * return to main app for handling
 			 */
-			// if (GlobalState.getSocket() == null)
+			// if (AndroidPlatform.getSocket() == null)
 			// showDialog(0);
 //			progressBarThread = new ProgressBarThread();
 //			progressBarThread.start();
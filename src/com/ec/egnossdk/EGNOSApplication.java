@@ -0,0 +1,44 @@
+/**
+ * @file EGNOSApplication.java
+ *
+ * Android application of the SDK, installing the Android platform
+ * services when the application is created.
+ *
+ * Rev: 3.0.0
+ *
+ * Author: DKE Aerospace Germany GmbH
+ *
+ * Copyright 2012 European Commission
+ *
+ * Licensed under the EUPL, Version 1.1 only (the "Licence");
+ * You may not use this work except in compliance with the
+ * Licence.
+ * You may obtain a copy of the Licence at:
+ * http://ec.europa.eu/idabc/eupl
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the Licence is
+ * distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied.
+ * See the Licence for the specific language governing
+ * permissions and limitations under the Licence.
+ *
+ **/
+
+package com.ec.egnossdk;
+
+import android.app.Application;
+
+/**
+ * Class of the Android application, which installs the Android platform
+ * services used by the core of the SDK.
+ **/
+public class EGNOSApplication extends Application {
+
+	@Override
+	public void onCreate() {
+		super.onCreate();
+		AndroidPlatform platform = new AndroidPlatform(getApplicationContext());
+		Platform.install(platform, platform, platform);
+	}
+}
@@ -0,0 +1,185 @@
+/**
+ * @file Geodesy.java
+ *
+ * Conversions between the WGS-84 geodetic and ECEF coordinates.
+ *
+ * Rev: 3.0.0
+ *
+ * Author: DKE Aerospace Germany GmbH
+ *
+ * Copyright 2012 European Commission
+ *
+ * Licensed under the EUPL, Version 1.1 only (the "Licence");
+ * You may not use this work except in compliance with the
+ * Licence.
+ * You may obtain a copy of the Licence at:
+ * http://ec.europa.eu/idabc/eupl
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the Licence is
+ * distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied.
+ * See the Licence for the specific language governing
+ * permissions and limitations under the Licence.
+ *
+ **/
+
+package com.ec.egnossdk;
+
+/**
+ * Class that converts between the WGS-84 geodetic coordinates (latitude,
+ * longitude, ellipsoidal height) and the ECEF cartesian coordinates, for all
+ * the modules of the SDK.
+ *
+ * The ECEF to geodetic conversion is closed-form (Vermeille, 2002, Direct
+ * transformation from geocentric coordinates to geodetic coordinates, Journal
+ * of Geodesy 76), exact to the rounding errors for all the points farther
+ * than 50 km from the centre of the Earth, instead of the fixed point
+ * iterations on the latitude. The functions work in radians and meters and
+ * write into caller arrays; the batch versions convert packed triplets.
+ *
+ * The local frames used for the relative positions are given by LocalFrame.
+ */
+public final class Geodesy {
+
+	/** Semi-major axis of the WGS-84 ellipsoid (m). */
+	public static final double A = 6378137.0;
+	/** Flattening of the WGS-84 ellipsoid. */
+	public static final double F = 1.0 / 298.257223563;
+	/** Square of the first eccentricity of the WGS-84 ellipsoid. */
+	public static final double E2 = F * (2 - F);
+
+	private static final double E4 = E2 * E2;
+	private static final double A2 = A * A;
+
+	private Geodesy() {
+	}
+
+	/**
+	 * toEcef function
+	 * 
+	 * Conversion from geodetic to ECEF coordinates.
+	 * 
+	 * @param lat
+	 *            latitude (rad).
+	 * @param lon
+	 *            longitude (rad).
+	 * @param h
+	 *            ellipsoidal height (m).
+	 * @param xyz
+	 *            array receiving the X, Y, Z coordinates (m).
+	 * @return the array xyz.
+	 **/
+	public static double[] toEcef(double lat, double lon, double h, double[] xyz) {
+		double sinLat = Math.sin(lat), cosLat = Math.cos(lat);
+		double n = A / Math.sqrt(1 - E2 * sinLat * sinLat);
+
+		xyz[0] = (n + h) * cosLat * Math.cos(lon);
+		xyz[1] = (n + h) * cosLat * Math.sin(lon);
+		xyz[2] = (n * (1 - E2) + h) * sinLat;
+		return xyz;
+	}
+
+	/**
+	 * toGeodetic function
+	 * 
+	 * Closed-form conversion from ECEF to geodetic coordinates.
+	 * 
+	 * @param x
+	 *            X coordinate (m).
+	 * @param y
+	 *            Y coordinate (m).
+	 * @param z
+	 *            Z coordinate (m).
+	 * @param blh
+	 *            array receiving the latitude (rad), longitude (rad) and
+	 *            ellipsoidal height (m).
+	 * @return the array blh.
+	 **/
+	public static double[] toGeodetic(double x, double y, double z, double[] blh) {
+		double rho2 = x * x + y * y, rho = Math.sqrt(rho2);
+		double p = rho2 / A2;
+		double q = (1 - E2) * z * z / A2;
+		double r = (p + q - E4) / 6;
+		double s = E4 * p * q / (4 * r * r * r);
+		double t = Math.cbrt(1 + s + Math.sqrt(s * (2 + s)));
+		double u = r * (1 + t + 1 / t);
+		double v = Math.sqrt(u * u + E4 * q);
+		double w = E2 * (u + v - q) / (2 * v);
+		double k = Math.sqrt(u + v + w * w) - w;
+		double d = k * rho / (k + E2);
+		double dz = Math.sqrt(d * d + z * z);
+
+		blh[0] = 2 * Math.atan2(z, d + dz);
+		blh[1] = Math.atan2(y, x);
+		blh[2] = (k + E2 - 1) / k * dz;
+		return blh;
+	}
+
+	/**
+	 * toEcef function
+	 * 
+	 * Conversion of packed geodetic triplets to ECEF coordinates.
+	 * 
+	 * @param blh
+	 *            latitude (rad), longitude (rad), height (m) of each point.
+	 * @param xyz
+	 *            array receiving the X, Y, Z coordinates (m) of each point,
+	 *            may be blh.
+	 * @param count
+	 *            number of points.
+	 **/
+	public static void toEcef(double[] blh, double[] xyz, int count) {
+		double sinLat, cosLat, n, h;
+
+		for (int i = 0; i < 3 * count; i += 3) {
+			sinLat = Math.sin(blh[i]);
+			cosLat = Math.cos(blh[i]);
+			n = A / Math.sqrt(1 - E2 * sinLat * sinLat);
+			h = blh[i + 2];
+			xyz[i + 2] = (n * (1 - E2) + h) * sinLat;
+			n = (n + h) * cosLat;
+			h = blh[i + 1];
+			xyz[i] = n * Math.cos(h);
+			xyz[i + 1] = n * Math.sin(h);
+		}
+	}
+
+	/**
+	 * toGeodetic function
+	 * 
+	 * Conversion of packed ECEF triplets to geodetic coordinates.
+	 * 
+	 * @param xyz
+	 *            X, Y, Z coordinates (m) of each point.
+	 * @param blh
+	 *            array receiving the latitude (rad), longitude (rad) and
+	 *            height (m) of each point, may be xyz.
+	 * @param count
+	 *            number of points.
+	 **/
+	public static void toGeodetic(double[] xyz, double[] blh, int count) {
+		double x, y, z, rho, p, q, r, s, t, u, v, w, k, d, dz;
+
+		for (int i = 0; i < 3 * count; i += 3) {
+			x = xyz[i];
+			y = xyz[i + 1];
+			z = xyz[i + 2];
+			rho = Math.sqrt(x * x + y * y);
+			p = rho * rho / A2;
+			q = (1 - E2) * z * z / A2;
+			r = (p + q - E4) / 6;
+			s = E4 * p * q / (4 * r * r * r);
+			t = Math.cbrt(1 + s + Math.sqrt(s * (2 + s)));
+			u = r * (1 + t + 1 / t);
+			v = Math.sqrt(u * u + E4 * q);
+			w = E2 * (u + v - q) / (2 * v);
+			k = Math.sqrt(u + v + w * w) - w;
+			d = k * rho / (k + E2);
+			dz = Math.sqrt(d * d + z * z);
+			blh[i] = 2 * Math.atan2(z, d + dz);
+			blh[i + 1] = Math.atan2(y, x);
+			blh[i + 2] = (k + E2 - 1) / k * dz;
+		}
+	}
+}
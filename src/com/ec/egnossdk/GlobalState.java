@@ -29,18 +29,14 @@ package com.ec.egnossdk;
 import java.io.BufferedWriter;
 import java.io.InputStream;
 import java.io.OutputStream;
-
-import android.app.Application;
-import android.bluetooth.BluetoothSocket;
-import android.content.Context;
+import java.util.Arrays;
 
 /**
  * Class to maintain a global state of a variable throughout the lifetime of the
  * application.
  **/
-public class GlobalState extends Application {
+public class GlobalState {
 	
-	private static BluetoothSocket BTsocket = null;
 	private static InputStream inputStream = null;
 	private static OutputStream outputStream = null;
 	private static double[] position = new double[10];
@@ -83,6 +79,10 @@ public class GlobalState extends Application {
 	private static double[] Elevation = new double[20];
 	private static double[] Azimuth = new double[20];
 	private static double[] SNR = new double[20];
+	private static volatile PositionSolution positionSolution = null;
+	// true when the arrays of the satellites are not read from positionSolution yet
+	private static boolean satellitesStale = false;
+	private static final OutputBus outputBus = new OutputBus();
 	
 	private static String GPGGASentence;
 	private static String GPGLLSentence;
@@ -127,7 +127,6 @@ public class GlobalState extends Application {
 	  private static double P_corr[][] = new double[5][5];
 	  
 	  /* modified by aanagnostopoulos */
-	  private static Context context;
 	  private static String SISNET_LOGIN = null;
 	  private static String SISNET_PASSWD = null;
 
@@ -225,7 +224,8 @@ public class GlobalState extends Application {
    * getPr function.
    * @return Pr  return Pr[] values.
    **/
-  public final static double[] getPr() {
+  public final static synchronized double[] getPr() {
+    readSatellites();
     return Pr;
   }
   
@@ -237,7 +237,8 @@ public class GlobalState extends Application {
 	  SatPosX = newSatPosX;
   }
 
-  public final static double[] getSatPosX() {
+  public final static synchronized double[] getSatPosX() {
+    readSatellites();
     return SatPosX;
   }
   
@@ -250,7 +251,8 @@ public class GlobalState extends Application {
 	  SatPosY = newSatPosY;
   }
 
-  public final static double[] getSatPosY() {
+  public final static synchronized double[] getSatPosY() {
+    readSatellites();
     return SatPosY;
   }
   
@@ -263,7 +265,8 @@ public class GlobalState extends Application {
 	  SatPosZ = newSatPosZ;
   }
 
-  public final static double[] getSatPosZ() {
+  public final static synchronized double[] getSatPosZ() {
+    readSatellites();
     return SatPosZ;
   }
   
@@ -273,6 +276,14 @@ public class GlobalState extends Application {
     nmeaRTCMMessages = newNmeaRtcmMessages;
   }
 
+  /**
+   * getOutputBus function.
+   * @return the bus delivering the NMEA and RTCM messages to the subscribed sinks.
+   **/
+  public final static OutputBus getOutputBus() {
+    return outputBus;
+  }
+
   /**
    * getNMEARTCMMessages function.
    * @return PrnUse  return PrnUse[] values.
@@ -392,7 +403,8 @@ public class GlobalState extends Application {
    * getPrnUse function.
    * @return PrnUse  return PrnUse[] values.
    **/
-  public final static double[] getPrnUse() {
+  public final static synchronized double[] getPrnUse() {
+    readSatellites();
     return PrnUse;
   }
     
@@ -413,7 +425,8 @@ public class GlobalState extends Application {
    * getPrc function.
    * @return Prc  return Prc[] values.
    **/
-  public final static double[] getPrc() {
+  public final static synchronized double[] getPrc() {
+    readSatellites();
     return Prc;
   }
     
@@ -434,7 +447,8 @@ public class GlobalState extends Application {
    * getIodc function.
    * @return Iodc  return Iodc[] values.
    **/
-  public final static double[] getIodc() {
+  public final static synchronized double[] getIodc() {
+    readSatellites();
     return Iodc;
   }  
 
@@ -454,7 +468,8 @@ public class GlobalState extends Application {
    * getRrc function.
    * @return Rrc  return Rrc[] values.
    **/
-  public final static double[] getRrc() {
+  public final static synchronized double[] getRrc() {
+    readSatellites();
     return Rrc;
   }  
   
@@ -532,6 +547,167 @@ public class GlobalState extends Application {
 	  return GPGGASentence;
 	}
 	
+	/**
+	 * setPositionSolution function.
+	 * 
+	 * Sets the last GPS or EGNOS position solution. The solution is not
+	 * modified until the next but one solution of its type is computed (see
+	 * swapPositionSolutions). The arrays of the satellites in view (getSatId,
+	 * getElevation, getAzimuth, getSNR) and of the used satellites
+	 * (getPrnUse, getPrc, getRrc, getIodc, getPr, getSatPosX/Y/Z) are
+	 * copied from it at the first call of one of their getters.
+	 * 
+	 * @param newPositionSolution
+	 **/
+	public final static synchronized void setPositionSolution(
+			PositionSolution newPositionSolution) {
+		positionSolution = newPositionSolution;
+		satellitesStale = true;
+	}
+
+	/**
+	 * swapPositionSolutions function.
+	 * 
+	 * Swaps the two solutions of a receiver, so that the solution to fill
+	 * is never the published one: the solution filled on the previous epoch
+	 * moves to pair[1], unless pair[1] is the published solution.
+	 * 
+	 * @param pair
+	 *            the two position solutions of the receiver, of the same type.
+	 * @return pair[0] the solution to fill.
+	 **/
+	public final static synchronized PositionSolution swapPositionSolutions(
+			PositionSolution[] pair) {
+		if (pair[1] != positionSolution) {
+			PositionSolution next = pair[1];
+
+			pair[1] = pair[0];
+			pair[0] = next;
+		}
+		return pair[0];
+	}
+
+	// Values of the satellites read from the position solution
+	private static final int PRN = 0;
+	private static final int ELEVATION = 1;
+	private static final int AZIMUTH = 2;
+	private static final int SNR_ = 3;
+	private static final int PRC = 1;
+	private static final int RRC = 2;
+	private static final int IODC = 3;
+	private static final int PR = 4;
+	private static final int SAT_POS_X = 5;
+	private static final int SAT_POS_Y = 6;
+	private static final int SAT_POS_Z = 7;
+
+	/**
+	 * readSatellites function
+	 * 
+	 * Copies the values of the satellites of the last position solution to
+	 * the arrays of the getters, if not copied yet. The arrays are kept from
+	 * one epoch to the next; the entries after the last satellite
+	 * (getTotalSatInView, getNumSatUse) are 0.
+	 **/
+	private static void readSatellites() {
+		if (!satellitesStale)
+			return;
+		satellitesStale = false;
+		inView(SatId, PRN);
+		inView(Elevation, ELEVATION);
+		inView(Azimuth, AZIMUTH);
+		inView(SNR, SNR_);
+		used(PrnUse, PRN);
+		used(Prc, PRC);
+		used(Rrc, RRC);
+		used(Iodc, IODC);
+		used(Pr, PR);
+		used(SatPosX, SAT_POS_X);
+		used(SatPosY, SAT_POS_Y);
+		used(SatPosZ, SAT_POS_Z);
+	}
+
+	/**
+	 * inView function
+	 * 
+	 * Copies a value of the satellites in view from the position solution.
+	 * 
+	 * @param values
+	 *            the array to fill.
+	 * @param field
+	 *            PRN, ELEVATION, AZIMUTH or SNR_.
+	 **/
+	private static void inView(double[] values, int field) {
+		int count = positionSolution == null ? 0 : Math.min(
+				positionSolution.getInViewCount(), values.length);
+
+		Arrays.fill(values, count, values.length, 0);
+		for (int i = 0; i < count; i++) {
+			switch (field) {
+			case PRN:
+				values[i] = positionSolution.getPrn(i);
+				break;
+			case ELEVATION:
+				values[i] = positionSolution.getElevation(i);
+				break;
+			case AZIMUTH:
+				values[i] = positionSolution.getAzimuth(i);
+				break;
+			default:
+				values[i] = positionSolution.getSNR(i);
+			}
+		}
+	}
+
+	/**
+	 * used function
+	 * 
+	 * Copies a value of the used satellites from the position solution.
+	 * 
+	 * @param values
+	 *            the array to fill.
+	 * @param field
+	 *            PRN, PRC, RRC, IODC, PR or SAT_POS_X/Y/Z.
+	 **/
+	private static void used(double[] values, int field) {
+		int count = positionSolution == null ? 0 : Math.min(
+				positionSolution.getUsedCount(), values.length);
+
+		Arrays.fill(values, count, values.length, 0);
+		for (int u = 0; u < count; u++) {
+			switch (field) {
+			case PRN:
+				values[u] = positionSolution.getUsedPrn(u);
+				break;
+			case PRC:
+				values[u] = positionSolution.getPrc(u);
+				break;
+			case RRC:
+				values[u] = positionSolution.getRrc(u);
+				break;
+			case IODC:
+				values[u] = positionSolution.getIodc(u);
+				break;
+			case PR:
+				values[u] = positionSolution.getPseudorange(u);
+				break;
+			default:
+				values[u] = positionSolution.getSatPos(u, field - SAT_POS_X);
+			}
+		}
+	}
+
+	/**
+	 * getPositionSolution function.
+	 * 
+	 * Gets the last GPS or EGNOS position solution.
+	 * 
+	 * @return positionSolution the position solution, null if no position
+	 *         has been computed yet.
+	 **/
+	public final static PositionSolution getPositionSolution() {
+		return positionSolution;
+	}
+
 	/**
 	 * setDOP function.
 	 * 
@@ -638,7 +814,8 @@ public class GlobalState extends Application {
 	 * 
 	 * @return SatId
 	 **/
-	public final static double[] getSatId() {
+	public final static synchronized double[] getSatId() {
+		readSatellites();
 		return SatId;
 	}
 
@@ -660,7 +837,8 @@ public class GlobalState extends Application {
 	 * 
 	 * @return Elevation
 	 **/
-	public final static double[] getElevation() {
+	public final static synchronized double[] getElevation() {
+		readSatellites();
 		return Elevation;
 	}
 
@@ -682,7 +860,8 @@ public class GlobalState extends Application {
 	 * 
 	 * @return Azimuth
 	 **/
-	public final static double[] getAzimuth() {
+	public final static synchronized double[] getAzimuth() {
+		readSatellites();
 		return Azimuth;
 	}
 
@@ -704,7 +883,8 @@ public class GlobalState extends Application {
 	 * 
 	 * @return SNR
 	 **/
-	public final static double[] getSNR() {
+	public final static synchronized double[] getSNR() {
+		readSatellites();
 		return SNR;
 	}
 
@@ -1349,33 +1529,6 @@ public class GlobalState extends Application {
 		return rndPositionType;
 	}
 
-	/**
-	 * getSocket function
-	 * 
-	 * Gets an Rfcomm bluetooth socket for external Bluetooth receiver
-	 * connection.
-	 * 
-	 * @return BTsocket The Rfcomm bluetooth socket for external Bluetooth
-	 *         receiver connection.
-	 **/
-	public final static BluetoothSocket getSocket() {
-		return BTsocket;
-	}
-
-	/**
-	 * setSocket function
-	 * 
-	 * Sets an Rfcomm bluetooth socket for external Bluetooth receiver
-	 * connection.
-	 * 
-	 * @param newBtSocket
-	 *            The Rfcomm bluetooth socket for external Bluetooth receiver
-	 *            connection.
-	 **/
-	public final static void setSocket(final BluetoothSocket newBtSocket) {
-		BTsocket = newBtSocket;
-	}
-
 	/**
 	 * getSocket function
 	 * 
@@ -1453,7 +1606,6 @@ public class GlobalState extends Application {
 
 	private static boolean isNmeaLoggingToFile = false;
 	private static boolean isNmeaSendingViaBluetooth = false;
-	private static BluetoothMessageTransferService bTMessageTransferServiceInstance;
 
 	public static boolean isNmeaLoggingToFile() {
 		return isNmeaLoggingToFile;
@@ -1472,15 +1624,33 @@ public class GlobalState extends Application {
 		GlobalState.isNmeaSendingViaBluetooth = isNmeaSendingViaBluetooth;
 	}
 
-	public static void setbTMessageTransferServiceInstance(
-			BluetoothMessageTransferService bTMessageTransferServiceInstance) {
-		GlobalState.bTMessageTransferServiceInstance = bTMessageTransferServiceInstance;
+	private static int insSdkPositionAvailable = 0;
+
+	/**
+	 * setInsSdkPositionAvailable function
+	 * 
+	 * Sets if a position computed by the SDK is available for the INS.
+	 * 
+	 * @param newInsSdkPositionAvailable
+	 *            1 if a position is available, 0 otherwise.
+	 **/
+	public final static void setInsSdkPositionAvailable(
+			final int newInsSdkPositionAvailable) {
+		insSdkPositionAvailable = newInsSdkPositionAvailable;
 	}
 
-	public static BluetoothMessageTransferService getbTMessageTransferServiceInstance() {
-		return bTMessageTransferServiceInstance;
+	/**
+	 * getInsSdkPositionAvailable function
+	 * 
+	 * Gets if a position computed by the SDK is available for the INS.
+	 * 
+	 * @return insSdkPositionAvailable 1 if a position is available, 0
+	 *         otherwise.
+	 **/
+	public final static int getInsSdkPositionAvailable() {
+		return insSdkPositionAvailable;
 	}
-	
+
 	public static double[] insReadings = new double[9];
 	
 	public static void setInsReadings(double[] insReadings) {
@@ -1491,19 +1661,6 @@ public class GlobalState extends Application {
 		return insReadings;
 	}
 
-	/* modified by aanagnostopoulos*/
-	@Override
-	public void onCreate() {
-		// TODO Auto-generated method stub
-		super.onCreate();
-		GlobalState.context = getApplicationContext();
-	}
-	
-	public static Context getContext(){
-		return GlobalState.context;
-	}
-	/* END aanagnostopoulos */
-
 	public static String getSISNET_LOGIN() {
 		return SISNET_LOGIN;
 	}
@@ -62,9 +62,6 @@ public class InsComputation {
 	double Lati0=0.0;
 	double Longi0=0.0;
 	double Alti0=0.0;
-	double aWGS84=6378137;
-	double f=1/298.257222101;
-	double e2WGS84=2*f-f*f;
 
 	private boolean checkInitialPos = true;
 	private boolean computeInsPos = false;
@@ -101,7 +98,7 @@ public class InsComputation {
 
 	  if(computeInsPos) {
 		
-		if(uBlox.insSdkPositionAvailable != 0) // SImply use position from Satellite
+		if(GlobalState.getInsSdkPositionAvailable() != 0) // SImply use position from Satellite
 		{
 			PositionBLH = ComputeSatelliteBasedPosition();
 			if(insReadings[0] == 1) { //static
@@ -126,10 +123,10 @@ public class InsComputation {
 			if( INSbegin == 0) // Initial the first epoch since GPS missing
 			{
 				double[] NEUOlder    = BLH2NEU ( Lati0*deg2rad, Longi0*deg2rad, Alti0, 
-						LatiOlder*deg2rad, LongiOlder*deg2rad, AltiOlder, aWGS84,e2WGS84);
+						LatiOlder*deg2rad, LongiOlder*deg2rad, AltiOlder);
 				
 				double[] NEUOld = BLH2NEU ( Lati0*deg2rad, Longi0*deg2rad, Alti0, 
-						LatiOld*deg2rad, LongiOld*deg2rad, AltiOld, aWGS84,e2WGS84);
+						LatiOld*deg2rad, LongiOld*deg2rad, AltiOld);
 				
 				double VN =( NEUOld[0] - NEUOlder[0] ) / (TimeOld - TimeOlder);
 				double VE =( NEUOld[1] - NEUOlder[1] ) / (TimeOld - TimeOlder);
@@ -145,8 +142,8 @@ public class InsComputation {
 				double U = NEUOld[2] + VU*(TimeOld - TimeOlder);
 				
 				// Compute L, B, H
-				PositionBLH = NEU2BLH(Lati0*deg2rad,  Longi0*deg2rad,  Alti0*deg2rad, 
-						               N,  E,  U, aWGS84, e2WGS84);
+				PositionBLH = NEU2BLH(Lati0*deg2rad,  Longi0*deg2rad,  Alti0, 
+						               N,  E,  U);
 				PositionBLH[0] = PositionBLH[0]*rad2deg;
 				PositionBLH[1] = PositionBLH[1]*rad2deg;
 
@@ -201,7 +198,9 @@ public class InsComputation {
 	 
 	}
 	
-	Matrix MatrixDo = new Matrix();
+	// Local frame of the reference position and work array of the local coordinates
+	private final LocalFrame frame = new LocalFrame();
+	private final double[] enu = new double[3];
 	/**
 	 * kalmanPhone function
 	 * 
@@ -293,8 +292,8 @@ public class InsComputation {
 			double VU = VUOld;
 			
 			// Compute L, B, H
-			PositionBLH = NEU2BLH(Lati0*deg2rad,  Longi0*deg2rad,  Alti0*deg2rad, 
-					               N,  E,  U, aWGS84, e2WGS84);
+			PositionBLH = NEU2BLH(Lati0*deg2rad,  Longi0*deg2rad,  Alti0, 
+					               N,  E,  U);
 			PositionBLH[0] = PositionBLH[0]*rad2deg;
 			PositionBLH[1] = PositionBLH[1]*rad2deg;
 		
@@ -313,29 +312,6 @@ public class InsComputation {
 	}
 	
 	
-	/**
-	 * BLH2XYZ function
-	 * 
-	 * Coordinates transformation from [latitude, longitude, altitude] into WGS-84 coordinates
-	 * 
-	 * input parameter in Radian Unit, not degree
-	 * Return the WGS-84 coordinates in XYZ[3]
-	 * 
-	 **/
-	private double[] BLH2XYZ (double Lati, double Longi, double Alti, double aWGS84,double e2WGS84)
-	{
-		double[] XYZ = new double[3];
-		
-		double N=aWGS84/Math.sqrt(1-e2WGS84*Math.sin(Lati)*Math.sin(Lati));
-
-		XYZ[0]=(N+Alti)*Math.cos(Lati)*Math.cos(Longi);
-		XYZ[1]=(N+Alti)*Math.cos(Lati)*Math.sin(Longi);
-		XYZ[2]=(N*(1-e2WGS84)+Alti)*Math.sin(Lati);
-		
-		return XYZ;
-	}	
-	
-	
 	/**
 	 * BLH2NEU function
 	 * 
@@ -346,17 +322,11 @@ public class InsComputation {
 	 * 
 	 **/
 	private double[] BLH2NEU ( double Lati0, double Longi0, double Alti0, 
-							   double Lati, double Longi, double Alti, 
-							   double aWGS84,double e2WGS84)
+							   double Lati, double Longi, double Alti)
 	{		
-		double[] XYZ0 = BLH2XYZ( Lati0,  Longi0,  Alti0, aWGS84, e2WGS84);
-		double[] XYZ  = BLH2XYZ( Lati ,  Longi ,  Alti , aWGS84, e2WGS84);
+		frame.setOrigin(Lati0, Longi0, Alti0).geodeticToEnu(Lati, Longi, Alti, enu);
 		
-		double[] XYZ_dif = MatrixDo.subtract_vec(XYZ, XYZ0);
-		double[] R3XYZ_dif = MatrixDo.multiply_matxvec( MatrixDo.R3(Longi0), XYZ_dif);
-		double[] R2R3XYZ_dif = MatrixDo.multiply_matxvec( MatrixDo.R2(Math.PI*0.5-Lati0), R3XYZ_dif);
-		
-		double[] NEU = {-R2R3XYZ_dif[0], R2R3XYZ_dif[1], R2R3XYZ_dif[2]  };
+		double[] NEU = {enu[1], enu[0], enu[2]};
 		
 		return NEU;
 	}
@@ -372,68 +342,10 @@ public class InsComputation {
 	 * 
 	 **/
 	private double[] NEU2BLH ( double Lati0, double Longi0, double Alti0, 
-							   double N, double E, double U, 
-							   double aWGS84,double e2WGS84)
+							   double N, double E, double U)
 	{		
-		double[] NEU ={-N, E, U};
-		
-		double[][] R2R3 = MatrixDo.multiply(MatrixDo.R2(Math.PI/2-Lati0), MatrixDo.R3(Longi0));
-		double[][] invR2R3 = MatrixDo.inv_33(R2R3);
-		double[] Delta_XYZ = MatrixDo.multiply_matxvec(invR2R3, NEU);
-		
-		double[] XYZo = BLH2XYZ( Lati0,Longi0,Alti0,aWGS84,e2WGS84);
-
-		double X = XYZo[0] + Delta_XYZ[0];
-		double Y = XYZo[1] + Delta_XYZ[1];
-		double Z = XYZo[2] + Delta_XYZ[2];
-
-		double[] BLH = XYZ2BLH( X,Y,Z,aWGS84,e2WGS84);
-		
-		return BLH;
+		return frame.setOrigin(Lati0, Longi0, Alti0).enuToGeodetic(E, N, U, new double[3]);
 	}
-	
-	
-	
-	/**
-	 * XYZ2BLH function
-	 * 
-	 * Coordinates transformation from WGS-84 coordinates into [latitude, longitude, altitude]
-	 * 
-	 * Return the WGS-84 coordinates in [Lati, Longi, Alti],  in Radian Unit, not degree
-	 * 
-	 **/
-	private double[] XYZ2BLH (double X, double Y, double Z, double aWGS84,double e2WGS84)
-	{
-		double[] BLH = new double[3];
-		
-		//  Longitude is fixed
-		double L = Math.atan2(Y,X);
-
-		// Latitude and Altitude should be fixed by iteration
-		// initial values
-		double B=Math.atan(Z/Math.sqrt(X*X+Y*Y));
-		double N=aWGS84/Math.sqrt(1-e2WGS84*(Math.sin(B))*(Math.sin(B)));
-		double H=Z/Math.sin(B)-N*(1-e2WGS84);
-		
-		double dB=1;
-		while(dB>Math.PI/180/60)   // accuruay is 1 minute, das ist iteration process
-		{
-			double B0 = B;
-
-		    B=Math.atan(Z*(N+H)/Math.sqrt(X*X+Y*Y)/(H+N*(1-e2WGS84)));
-		    N=aWGS84/Math.sqrt(1-e2WGS84*(Math.sin(B))*(Math.sin(B)));
-		    H=Z/Math.sin(B)-N*(1-e2WGS84);
-		    
-		    dB=Math.abs(B-B0);
-		}
-		
-		BLH[0] = B;
-		BLH[1] = L;
-		BLH[2] = H;
-		
-		return BLH;
-	}		
-	
 
 
 }
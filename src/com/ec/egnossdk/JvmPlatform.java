@@ -0,0 +1,170 @@
+/**
+ * @file JvmPlatform.java
+ *
+ * Platform services of a plain JVM, used to run the core of the SDK
+ * headless, e.g. on a server.
+ *
+ * Rev: 3.0.0
+ *
+ * Author: DKE Aerospace Germany GmbH
+ *
+ * Copyright 2012 European Commission
+ *
+ * Licensed under the EUPL, Version 1.1 only (the "Licence");
+ * You may not use this work except in compliance with the
+ * Licence.
+ * You may obtain a copy of the Licence at:
+ * http://ec.europa.eu/idabc/eupl
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the Licence is
+ * distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied.
+ * See the Licence for the specific language governing
+ * permissions and limitations under the Licence.
+ *
+ **/
+
+package com.ec.egnossdk;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.Socket;
+
+/**
+ * Class that implements the platform services on a plain JVM.
+ *
+ * - Log: the messages are written on the standard error output, the debug
+ *   messages only if the system property egnossdk.debug is true.
+ * - Storage: the files are read and written in the directory given by the
+ *   system property egnossdk.storage (default: working directory).
+ * - Resources: the resources are read from the directory given by the system
+ *   property egnossdk.resources (default: assets), then from the class path.
+ * - Transport: SocketTransport connects to the receiver through TCP.
+ */
+public class JvmPlatform implements Platform.Log, Platform.Storage,
+		Platform.Resources {
+
+	private final boolean debug;
+	private final File storageDir;
+	private final File resourcesDir;
+	private final PrintStream out = System.err;
+
+	/**
+	 * JvmPlatform Constructor
+	 * 
+	 * Reads the configuration from the system properties.
+	 **/
+	public JvmPlatform() {
+		this(new File(System.getProperty("egnossdk.storage", ".")), new File(
+				System.getProperty("egnossdk.resources", "assets")), Boolean
+				.getBoolean("egnossdk.debug"));
+	}
+
+	/**
+	 * JvmPlatform Constructor
+	 * 
+	 * @param storageDir
+	 *            directory of the files written and read by the SDK.
+	 * @param resourcesDir
+	 *            directory of the resources.
+	 * @param debug
+	 *            true to write the debug messages.
+	 **/
+	public JvmPlatform(File storageDir, File resourcesDir, boolean debug) {
+		this.storageDir = storageDir;
+		this.resourcesDir = resourcesDir;
+		this.debug = debug;
+	}
+
+	private void write(String level, String tag, String message,
+			Throwable error) {
+		synchronized (out) {
+			out.println(level + "/" + tag + ": " + message);
+			if (error != null)
+				error.printStackTrace(out);
+		}
+	}
+
+	public void d(String tag, String message) {
+		if (debug)
+			write("D", tag, message, null);
+	}
+
+	public void i(String tag, String message) {
+		write("I", tag, message, null);
+	}
+
+	public void w(String tag, String message) {
+		write("W", tag, message, null);
+	}
+
+	public void e(String tag, String message) {
+		write("E", tag, message, null);
+	}
+
+	public void e(String tag, String message, Throwable error) {
+		write("E", tag, message, error);
+	}
+
+	public InputStream openInput(String name) throws IOException {
+		return new FileInputStream(new File(storageDir, name));
+	}
+
+	public OutputStream openOutput(String name, boolean append)
+			throws IOException {
+		return new FileOutputStream(new File(storageDir, name), append);
+	}
+
+	public InputStream open(String name) throws IOException {
+		File file = new File(resourcesDir, name);
+		if (file.isFile())
+			return new FileInputStream(file);
+		InputStream is = JvmPlatform.class.getResourceAsStream("/" + name);
+		if (is == null)
+			throw new IOException("Resource not found: " + name);
+		return is;
+	}
+
+	/**
+	 * Class that implements the transport service with a TCP connection,
+	 * e.g. to a receiver served by ser2net or to an NTRIP caster.
+	 */
+	public static class SocketTransport implements Platform.Transport {
+
+		private final Socket socket;
+
+		/**
+		 * SocketTransport Constructor
+		 * 
+		 * @param host
+		 *            host name of the receiver.
+		 * @param port
+		 *            port of the receiver.
+		 **/
+		public SocketTransport(String host, int port) throws IOException {
+			this.socket = new Socket(host, port);
+		}
+
+		public boolean isConnected() {
+			return socket.isConnected() && !socket.isClosed();
+		}
+
+		public InputStream getInputStream() throws IOException {
+			return socket.getInputStream();
+		}
+
+		public OutputStream getOutputStream() throws IOException {
+			return socket.getOutputStream();
+		}
+
+		public void close() throws IOException {
+			socket.close();
+		}
+	}
+}
@@ -0,0 +1,175 @@
+/**
+ * @file LeastSquares.java
+ *
+ * Weighted least squares solver of the position computation.
+ *
+ * Rev: 3.0.0
+ *
+ * Author: DKE Aerospace Germany GmbH
+ *
+ * Copyright 2012 European Commission
+ *
+ * Licensed under the EUPL, Version 1.1 only (the "Licence");
+ * You may not use this work except in compliance with the
+ * Licence.
+ * You may obtain a copy of the Licence at:
+ * http://ec.europa.eu/idabc/eupl
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the Licence is
+ * distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied.
+ * See the Licence for the specific language governing
+ * permissions and limitations under the Licence.
+ *
+ **/
+
+package com.ec.egnossdk;
+
+/**
+ * Class that solves the weighted least squares problem H.x = y with diagonal
+ * weights W, as wls_solve of the native Matrix module.
+ *
+ * The weighted design matrix sqrt(W).H is factorized by Householder QR
+ * reflections, sqrt(W).H = Q.R, without forming the normal matrix
+ * trans(H).W.H. The solution is given by R.x = trans(Q).sqrt(W).y and its
+ * covariance by inv(trans(H).W.H) = inv(R).trans(inv(R)).
+ *
+ * The work arrays are allocated once by the constructor, so that a solver can
+ * be reused at each epoch without allocation. A solver must not be used by two
+ * threads at the same time.
+ */
+public class LeastSquares {
+
+	private final int cols;
+	private final double[][] a;
+	private final double[] b;
+	private final double[] norm0;
+	private final double[][] rInv;
+
+	/**
+	 * LeastSquares Constructor
+	 * 
+	 * @param maxRows
+	 *            largest number of measurements of the problems.
+	 * @param cols
+	 *            number of unknowns (4 for the position and clock bias).
+	 **/
+	public LeastSquares(int maxRows, int cols) {
+		this.cols = cols;
+		this.a = new double[maxRows][cols];
+		this.b = new double[maxRows];
+		this.norm0 = new double[cols];
+		this.rInv = new double[cols][cols];
+	}
+
+	/**
+	 * solve function
+	 * 
+	 * Solves the weighted least squares problem H.x = y. Rows of null weight
+	 * do not contribute.
+	 * 
+	 * @param rows
+	 *            number of measurements, not greater than the maxRows of the
+	 *            solver and not lower than its number of unknowns.
+	 * @param h
+	 *            design matrix, rows x cols.
+	 * @param w
+	 *            weights of the rows (diagonal of W).
+	 * @param y
+	 *            measurements, null to compute the covariance only.
+	 * @param x
+	 *            solution, not used if y is null.
+	 * @param q
+	 *            covariance of the solution inv(trans(H).W.H), null if not
+	 *            needed.
+	 * @return true if the solution has been computed, false if trans(H).W.H is
+	 *         singular.
+	 **/
+	public boolean solve(int rows, double[][] h, double[] w, double[] y,
+			double[] x, double[][] q) {
+		double s, norm, alpha, v0, tau, dot;
+		int i, j, k;
+
+		if (rows < cols)
+			return false;
+
+		// Weighted design matrix and measurements
+		for (i = 0; i < rows; i++) {
+			s = Math.sqrt(w[i]);
+			for (j = 0; j < cols; j++)
+				a[i][j] = s * h[i][j];
+			b[i] = (y != null) ? s * y[i] : 0;
+		}
+		for (j = 0; j < cols; j++) {
+			norm0[j] = 0;
+			for (i = 0; i < rows; i++)
+				norm0[j] += a[i][j] * a[i][j];
+			norm0[j] = Math.sqrt(norm0[j]);
+		}
+
+		// Householder reflections I - tau.v.trans(v), v = [v0, a[k+1..rows-1][k]]
+		for (k = 0; k < cols; k++) {
+			norm = 0;
+			for (i = k; i < rows; i++)
+				norm += a[i][k] * a[i][k];
+			norm = Math.sqrt(norm);
+			if (norm <= 1e-12 * norm0[k])
+				return false;
+
+			alpha = (a[k][k] > 0) ? -norm : norm;
+			v0 = a[k][k] - alpha;
+			tau = -1 / (alpha * v0);
+			a[k][k] = alpha;
+
+			for (j = k + 1; j < cols; j++) {
+				dot = v0 * a[k][j];
+				for (i = k + 1; i < rows; i++)
+					dot += a[i][k] * a[i][j];
+				dot *= tau;
+				a[k][j] -= dot * v0;
+				for (i = k + 1; i < rows; i++)
+					a[i][j] -= dot * a[i][k];
+			}
+			if (y != null) {
+				dot = v0 * b[k];
+				for (i = k + 1; i < rows; i++)
+					dot += a[i][k] * b[i];
+				dot *= tau;
+				b[k] -= dot * v0;
+				for (i = k + 1; i < rows; i++)
+					b[i] -= dot * a[i][k];
+			}
+		}
+
+		// Back substitution R.x = trans(Q).b
+		if (y != null)
+			for (i = cols - 1; i >= 0; i--) {
+				s = b[i];
+				for (j = i + 1; j < cols; j++)
+					s -= a[i][j] * x[j];
+				x[i] = s / a[i][i];
+			}
+
+		// Covariance inv(R).trans(inv(R)), inv(R) being upper triangular
+		if (q != null) {
+			for (j = 0; j < cols; j++)
+				for (i = j; i >= 0; i--) {
+					s = (i == j) ? 1 : 0;
+					for (k = i + 1; k <= j; k++)
+						s -= a[i][k] * rInv[k][j];
+					rInv[i][j] = s / a[i][i];
+				}
+			for (i = 0; i < cols; i++)
+				for (j = i; j < cols; j++) {
+					s = 0;
+					for (k = j; k < cols; k++)
+						s += rInv[i][k] * rInv[j][k];
+					q[i][j] = s;
+					q[j][i] = s;
+				}
+		}
+
+		return true;
+	}
+}
@@ -0,0 +1,204 @@
+/**
+ * @file LocalFrame.java
+ *
+ * Local East, North, Up frame of a reference point.
+ *
+ * Rev: 3.0.0
+ *
+ * Author: DKE Aerospace Germany GmbH
+ *
+ * Copyright 2012 European Commission
+ *
+ * Licensed under the EUPL, Version 1.1 only (the "Licence");
+ * You may not use this work except in compliance with the
+ * Licence.
+ * You may obtain a copy of the Licence at:
+ * http://ec.europa.eu/idabc/eupl
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the Licence is
+ * distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied.
+ * See the Licence for the specific language governing
+ * permissions and limitations under the Licence.
+ *
+ **/
+
+package com.ec.egnossdk;
+
+/**
+ * Class that holds the local East, North, Up frame of a reference point: its
+ * ECEF position and the rotation from ECEF, whose sines and cosines are
+ * computed once when the reference point is set and reused for all the
+ * points converted in the frame.
+ *
+ * A frame must not be used by two threads at the same time.
+ */
+public final class LocalFrame {
+
+	private double lat = Double.NaN, lon = Double.NaN, h = Double.NaN;
+	private final double[] origin = new double[3];
+	private final double[] work = new double[3];
+	private double sinLat, cosLat, sinLon, cosLon;
+
+	/**
+	 * setOrigin function
+	 * 
+	 * Sets the reference point of the frame. The rotation is only computed
+	 * again if the point has changed.
+	 * 
+	 * @param lat
+	 *            latitude (rad).
+	 * @param lon
+	 *            longitude (rad).
+	 * @param h
+	 *            ellipsoidal height (m).
+	 * @return this frame.
+	 **/
+	public LocalFrame setOrigin(double lat, double lon, double h) {
+		if (lat == this.lat && lon == this.lon && h == this.h)
+			return this;
+
+		this.lat = lat;
+		this.lon = lon;
+		this.h = h;
+		sinLat = Math.sin(lat);
+		cosLat = Math.cos(lat);
+		sinLon = Math.sin(lon);
+		cosLon = Math.cos(lon);
+		Geodesy.toEcef(lat, lon, h, origin);
+		return this;
+	}
+
+	/**
+	 * getOrigin function
+	 * 
+	 * @return the ECEF coordinates of the reference point (m), not to be
+	 *         modified.
+	 **/
+	public double[] getOrigin() {
+		return origin;
+	}
+
+	/**
+	 * toEnu function
+	 * 
+	 * Conversion from ECEF to local coordinates.
+	 * 
+	 * @param x
+	 *            X coordinate (m).
+	 * @param y
+	 *            Y coordinate (m).
+	 * @param z
+	 *            Z coordinate (m).
+	 * @param enu
+	 *            array receiving the East, North, Up coordinates (m).
+	 * @return the array enu.
+	 **/
+	public double[] toEnu(double x, double y, double z, double[] enu) {
+		double dx = x - origin[0], dy = y - origin[1], dz = z - origin[2];
+		double t = cosLon * dx + sinLon * dy;
+
+		enu[0] = -sinLon * dx + cosLon * dy;
+		enu[1] = -sinLat * t + cosLat * dz;
+		enu[2] = cosLat * t + sinLat * dz;
+		return enu;
+	}
+
+	/**
+	 * geodeticToEnu function
+	 * 
+	 * Conversion from geodetic to local coordinates.
+	 * 
+	 * @param lat
+	 *            latitude (rad).
+	 * @param lon
+	 *            longitude (rad).
+	 * @param h
+	 *            ellipsoidal height (m).
+	 * @param enu
+	 *            array receiving the East, North, Up coordinates (m).
+	 * @return the array enu.
+	 **/
+	public double[] geodeticToEnu(double lat, double lon, double h, double[] enu) {
+		Geodesy.toEcef(lat, lon, h, work);
+		return toEnu(work[0], work[1], work[2], enu);
+	}
+
+	/**
+	 * toEcef function
+	 * 
+	 * Conversion from local to ECEF coordinates.
+	 * 
+	 * @param e
+	 *            East coordinate (m).
+	 * @param n
+	 *            North coordinate (m).
+	 * @param u
+	 *            Up coordinate (m).
+	 * @param xyz
+	 *            array receiving the X, Y, Z coordinates (m).
+	 * @return the array xyz.
+	 **/
+	public double[] toEcef(double e, double n, double u, double[] xyz) {
+		double t = -sinLat * n + cosLat * u;
+
+		xyz[0] = origin[0] - sinLon * e + cosLon * t;
+		xyz[1] = origin[1] + cosLon * e + sinLon * t;
+		xyz[2] = origin[2] + cosLat * n + sinLat * u;
+		return xyz;
+	}
+
+	/**
+	 * enuToGeodetic function
+	 * 
+	 * Conversion from local to geodetic coordinates.
+	 * 
+	 * @param e
+	 *            East coordinate (m).
+	 * @param n
+	 *            North coordinate (m).
+	 * @param u
+	 *            Up coordinate (m).
+	 * @param blh
+	 *            array receiving the latitude (rad), longitude (rad) and
+	 *            ellipsoidal height (m).
+	 * @return the array blh.
+	 **/
+	public double[] enuToGeodetic(double e, double n, double u, double[] blh) {
+		toEcef(e, n, u, work);
+		return Geodesy.toGeodetic(work[0], work[1], work[2], blh);
+	}
+
+	/**
+	 * toAzimuthElevation function
+	 * 
+	 * Direction of an ECEF point seen from the reference point.
+	 * 
+	 * @param x
+	 *            X coordinate (m).
+	 * @param y
+	 *            Y coordinate (m).
+	 * @param z
+	 *            Z coordinate (m).
+	 * @param direction
+	 *            array receiving the azimuth (rad, from North to East, in
+	 *            [0, 2.PI[), the elevation (rad) and the distance (m).
+	 * @return the array direction.
+	 **/
+	public double[] toAzimuthElevation(double x, double y, double z, double[] direction) {
+		double e, n, u, d;
+
+		toEnu(x, y, z, work);
+		e = work[0];
+		n = work[1];
+		u = work[2];
+		d = Math.sqrt(e * e + n * n + u * u);
+		direction[0] = Math.atan2(e, n);
+		if (direction[0] < 0)
+			direction[0] += 2 * Math.PI;
+		direction[1] = (d == 0) ? 0 : Math.asin(u / d);
+		direction[2] = d;
+		return direction;
+	}
+}
@@ -32,8 +32,6 @@ import java.io.BufferedWriter;
 import java.io.IOException;
 import java.util.Date;
 
-import android.util.Log;
-
 /**
  * Class to write logs to SD Card.
  **/
@@ -117,7 +115,7 @@ public class LogFiles {
       internalLogFileWriter.write(message + "\n");
       internalLogFileWriter.flush();
     } catch (IOException e) {
-      Log.e(TAG_LOG, "Error: occured in writing to SD Card: " ,e);
+      Platform.log().e(TAG_LOG, "Error: occured in writing to SD Card: " ,e);
     }
   }
   
@@ -177,7 +175,7 @@ public class LogFiles {
       internalLogFileWriter.write(message + ",");
       internalLogFileWriter.flush();
     } catch (IOException e) {
-      Log.e(TAG_LOG, "Error: occured in writing to SD Card: " ,e);
+      Platform.log().e(TAG_LOG, "Error: occured in writing to SD Card: " ,e);
     }
   }
 
@@ -361,7 +359,7 @@ public class LogFiles {
           }
           internalLogFileWriter.flush();
         } catch (IOException e) {
-          Log.e(TAG_LOG, "Error: occured in writing to SD Card: ", e);
+          Platform.log().e(TAG_LOG, "Error: occured in writing to SD Card: ", e);
         }
       }
     }
@@ -406,7 +404,7 @@ public class LogFiles {
           }
           positionLogFileWriter.flush();
         } catch (IOException e) {
-          Log.e(TAG_LOG, "Error: occured in writing to SD Card: ", e);
+          Platform.log().e(TAG_LOG, "Error: occured in writing to SD Card: ", e);
         }
       }
     }
@@ -461,7 +459,7 @@ public class LogFiles {
     	internalLogFileWriter.write(rxmRaw[j] + "\n");}
     	internalLogFileWriter.flush();
     } catch (IOException e) {
-    	Log.e(TAG_LOG, "Error: occured in writing to SD Card: " ,e);
+    	Platform.log().e(TAG_LOG, "Error: occured in writing to SD Card: " ,e);
     }
   }
   
@@ -514,7 +512,7 @@ public class LogFiles {
 		      errorLogFileWriter.write(curTime + ": "+errorMessage + "\n");
 		  	  errorLogFileWriter.flush();
 		} catch (IOException e) {
-			Log.e(TAG_LOG, "Error: occured in writing to SD Card: " ,e);
+			Platform.log().e(TAG_LOG, "Error: occured in writing to SD Card: " ,e);
 		}
 	}
 	
@@ -578,7 +576,7 @@ public class LogFiles {
 	    	
 	    	internalLogFileWriter.flush();
 	    } catch (IOException e) {
-	    	Log.e(TAG_LOG, "Error: occured in writing to SD Card: " ,e);
+	    	Platform.log().e(TAG_LOG, "Error: occured in writing to SD Card: " ,e);
 	    }
 	  }
 	  
@@ -661,7 +659,7 @@ public class LogFiles {
         positionLogFileWriter.write("\n ******************************************");
         positionLogFileWriter.flush();
       } catch (IOException e) {
-        Log.e(TAG_LOG, "Error: occured in writing to SD Card: " ,e);
+        Platform.log().e(TAG_LOG, "Error: occured in writing to SD Card: " ,e);
       }
     }
     
@@ -729,7 +727,7 @@ public class LogFiles {
         positionLogFileWriter.write("\n ******************************************");
         positionLogFileWriter.flush();
       } catch (IOException e) {
-        Log.e(TAG_LOG, "Error: occured in writing to SD Card: " ,e);
+        Platform.log().e(TAG_LOG, "Error: occured in writing to SD Card: " ,e);
       }
     }
 
@@ -0,0 +1,210 @@
+/**
+ * @file LuDecomposition.java
+ *
+ * LU decomposition of square matrices.
+ *
+ * Rev: 3.0.0
+ *
+ * Author: DKE Aerospace Germany GmbH
+ *
+ * Copyright 2012 European Commission
+ *
+ * Licensed under the EUPL, Version 1.1 only (the "Licence");
+ * You may not use this work except in compliance with the
+ * Licence.
+ * You may obtain a copy of the Licence at:
+ * http://ec.europa.eu/idabc/eupl
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the Licence is
+ * distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied.
+ * See the Licence for the specific language governing
+ * permissions and limitations under the Licence.
+ *
+ **/
+
+package com.ec.egnossdk;
+
+/**
+ * Class that factorizes a square matrix A as P.A = L.U by Gaussian
+ * elimination with partial pivoting, L being unit lower triangular and U upper
+ * triangular. The matrix is decomposed once, then the factors give the
+ * determinant, the solutions of A.x = b for any number of right hand sides and
+ * the inverse, in O(n^3) operations instead of the cofactor expansions.
+ *
+ * The factors are held by arrays allocated once by the constructor and the
+ * results are written into caller buffers, so that a decomposition can be
+ * reused without allocation. A decomposition must not be used by two threads
+ * at the same time.
+ */
+public class LuDecomposition {
+
+	private final int n;
+	private final double[][] lu;
+	private final int[] pivot;
+	private final double[] work;
+	private int sign;
+	private boolean singular = true;
+
+	/**
+	 * LuDecomposition Constructor
+	 * 
+	 * @param n
+	 *            dimension of the matrices.
+	 **/
+	public LuDecomposition(int n) {
+		this.n = n;
+		this.lu = new double[n][n];
+		this.pivot = new int[n];
+		this.work = new double[n];
+	}
+
+	/**
+	 * decompose function
+	 * 
+	 * Factorizes a matrix, which is not modified.
+	 * 
+	 * @param a
+	 *            the n x n matrix.
+	 * @return true if the matrix is regular, false if a pivot is null.
+	 **/
+	public boolean decompose(double[][] a) {
+		int i, j, k, p;
+		double max, f;
+		double[] row;
+
+		for (i = 0; i < n; i++) {
+			System.arraycopy(a[i], 0, lu[i], 0, n);
+			pivot[i] = i;
+		}
+		sign = 1;
+		singular = false;
+
+		for (k = 0; k < n; k++) {
+			// Largest pivot of the column
+			p = k;
+			max = Math.abs(lu[k][k]);
+			for (i = k + 1; i < n; i++)
+				if (Math.abs(lu[i][k]) > max) {
+					max = Math.abs(lu[i][k]);
+					p = i;
+				}
+			if (max == 0) {
+				singular = true;
+				continue;
+			}
+			if (p != k) {
+				row = lu[p];
+				lu[p] = lu[k];
+				lu[k] = row;
+				i = pivot[p];
+				pivot[p] = pivot[k];
+				pivot[k] = i;
+				sign = -sign;
+			}
+
+			for (i = k + 1; i < n; i++) {
+				f = lu[i][k] / lu[k][k];
+				lu[i][k] = f;
+				for (j = k + 1; j < n; j++)
+					lu[i][j] -= f * lu[k][j];
+			}
+		}
+
+		return !singular;
+	}
+
+	/**
+	 * isSingular function
+	 * 
+	 * @return true if the last decomposed matrix is singular.
+	 **/
+	public boolean isSingular() {
+		return singular;
+	}
+
+	/**
+	 * determinant function
+	 * 
+	 * @return the determinant of the last decomposed matrix, product of the
+	 *         pivots.
+	 **/
+	public double determinant() {
+		double det = sign;
+
+		for (int i = 0; i < n; i++)
+			det *= lu[i][i];
+		return det;
+	}
+
+	/**
+	 * solve function
+	 * 
+	 * Solves A.x = b by forward and back substitutions.
+	 * 
+	 * @param b
+	 *            the right hand side, not modified.
+	 * @param x
+	 *            the solution, may be the same array as b.
+	 * @return false if the matrix is singular.
+	 **/
+	public boolean solve(double[] b, double[] x) {
+		int i, j;
+		double s;
+
+		if (singular)
+			return false;
+
+		for (i = 0; i < n; i++)
+			work[i] = b[pivot[i]];
+		for (i = 1; i < n; i++) {
+			s = work[i];
+			for (j = 0; j < i; j++)
+				s -= lu[i][j] * work[j];
+			work[i] = s;
+		}
+		for (i = n - 1; i >= 0; i--) {
+			s = work[i];
+			for (j = i + 1; j < n; j++)
+				s -= lu[i][j] * work[j];
+			work[i] = s / lu[i][i];
+		}
+		System.arraycopy(work, 0, x, 0, n);
+
+		return true;
+	}
+
+	/**
+	 * inverse function
+	 * 
+	 * Computes the inverse of the last decomposed matrix, one column at a
+	 * time.
+	 * 
+	 * @param result
+	 *            the n x n inverse, which must not be the decomposed matrix.
+	 * @return false if the matrix is singular.
+	 **/
+	public boolean inverse(double[][] result) {
+		int i, j, k;
+
+		if (singular)
+			return false;
+
+		for (j = 0; j < n; j++) {
+			// Column j of inv(A) = solution of A.x = e_j
+			for (i = 0; i < n; i++)
+				result[i][j] = (pivot[i] == j) ? 1 : 0;
+			for (i = 1; i < n; i++)
+				for (k = 0; k < i; k++)
+					result[i][j] -= lu[i][k] * result[k][j];
+			for (i = n - 1; i >= 0; i--) {
+				for (k = i + 1; k < n; k++)
+					result[i][j] -= lu[i][k] * result[k][j];
+				result[i][j] /= lu[i][i];
+			}
+		}
+
+		return true;
+	}
+}
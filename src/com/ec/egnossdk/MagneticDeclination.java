@@ -0,0 +1,133 @@
+/**
+ * @file MagneticDeclination.java
+ *
+ * Shared geomagnetic model with a cache of the declination.
+ *
+ * Rev: 3.0.0
+ *
+ * Author: DKE Aerospace Germany GmbH
+ *
+ * Copyright 2012 European Commission
+ *
+ * Licensed under the EUPL, Version 1.1 only (the "Licence");
+ * You may not use this work except in compliance with the
+ * Licence.
+ * You may obtain a copy of the Licence at:
+ * http://ec.europa.eu/idabc/eupl
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the Licence is
+ * distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied.
+ * See the Licence for the specific language governing
+ * permissions and limitations under the Licence.
+ *
+ **/
+
+package com.ec.egnossdk;
+
+import java.util.Arrays;
+
+/**
+ * Class that computes the magnetic declination (variation of the NMEA
+ * sentences) with one TSAGeoMag model for the process.
+ *
+ * The model, its coefficients read from WMM.COF, is initialised at the first
+ * call. The declinations are computed on a grid of 0.001 degree (about 100 m)
+ * in latitude and longitude, 0.01 year and 0.1 km of altitude, and the last
+ * computed cells are kept in a direct mapped table. A query near a previous
+ * one costs a table lookup, without allocation. The grid changes the
+ * declination by less than 0.01 degree, except near the magnetic poles where
+ * it is not defined. The NMEA sentences give it to 0.1 degree.
+ */
+public final class MagneticDeclination {
+
+	/** Number of cells of the cache, a power of 2 */
+	private static final int SIZE = 256;
+
+	/** Steps of the grid: 1/1000 degree, 1/100 year, 1/10 km */
+	private static final double STEPS_PER_DEGREE = 1000;
+	private static final double STEPS_PER_YEAR = 100;
+	private static final double STEPS_PER_KM = 10;
+
+	private static final long[] keys = new long[SIZE];
+	private static final double[] values = new double[SIZE];
+	private static TSAGeoMag model;
+	private static long hits;
+	private static long misses;
+
+	static {
+		Arrays.fill(keys, -1);
+	}
+
+	private MagneticDeclination() {
+	}
+
+	/**
+	 * getModel function
+	 *
+	 * Returns the geomagnetic model of the process, initialised at the first
+	 * call. The model is not thread safe, use it under the lock of this class.
+	 *
+	 * @return the model.
+	 **/
+	static synchronized TSAGeoMag getModel() {
+		if (model == null)
+			model = new TSAGeoMag();
+		return model;
+	}
+
+	/**
+	 * get function
+	 *
+	 * Returns the declination of the cell of the grid containing a position.
+	 * The true bearing = magnetic bearing + declination.
+	 *
+	 * @param latitude
+	 *            geodetic latitude (deg).
+	 * @param longitude
+	 *            geodetic longitude (deg).
+	 * @param year
+	 *            date as a decimal year.
+	 * @param altitude
+	 *            altitude (km), -100 to 900.
+	 * @return the declination (deg), positive to the East.
+	 **/
+	public static synchronized double get(double latitude, double longitude,
+			double year, double altitude) {
+		long lat = Math.round(Math.max(-90, Math.min(90, latitude))
+				* STEPS_PER_DEGREE);
+		long lon = Math.round(longitude * STEPS_PER_DEGREE);
+		long time = Math.round(year * STEPS_PER_YEAR);
+		long alt = Math.round(Math.max(-100, Math.min(900, altitude))
+				* STEPS_PER_KM);
+		long key;
+		int index;
+
+		if (lon >= 180 * STEPS_PER_DEGREE || lon < -180 * STEPS_PER_DEGREE)
+			lon = ((lon + 180000) % 360000 + 360000) % 360000 - 180000;
+		// 18 + 19 + 14 bits of position, the time in the upper bits
+		key = (lat + 90000) | (lon + 180000) << 18 | (alt + 1000) << 37
+				| (time & 0x1FFF) << 51;
+		index = (int) (key * 0x9E3779B97F4A7C15L >>> 56) & (SIZE - 1);
+		if (keys[index] == key) {
+			hits++;
+			return values[index];
+		}
+		misses++;
+		values[index] = getModel().getDeclination(lat / STEPS_PER_DEGREE,
+				lon / STEPS_PER_DEGREE, time / STEPS_PER_YEAR, alt / STEPS_PER_KM);
+		keys[index] = key;
+		return values[index];
+	}
+
+	/** Returns the number of declinations found in the cache. */
+	public static synchronized long getHits() {
+		return hits;
+	}
+
+	/** Returns the number of declinations computed by the model. */
+	public static synchronized long getMisses() {
+		return misses;
+	}
+}
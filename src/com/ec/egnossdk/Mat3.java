@@ -0,0 +1,270 @@
+/**
+ * @file Mat3.java
+ *
+ * 3x3 matrix value type.
+ *
+ * Rev: 3.0.0
+ *
+ * Author: DKE Aerospace Germany GmbH
+ *
+ * Copyright 2012 European Commission
+ *
+ * Licensed under the EUPL, Version 1.1 only (the "Licence");
+ * You may not use this work except in compliance with the
+ * Licence.
+ * You may obtain a copy of the Licence at:
+ * http://ec.europa.eu/idabc/eupl
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the Licence is
+ * distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied.
+ * See the Licence for the specific language governing
+ * permissions and limitations under the Licence.
+ *
+ **/
+
+package com.ec.egnossdk;
+
+/**
+ * Class that holds a 3x3 matrix in nine fields, row major, as the rotations
+ * between the ECEF, local and celestial frames. The products, transposition
+ * and inversion are unrolled, so that they do not allocate and are small
+ * enough to be inlined by the JIT compiler.
+ *
+ * The operations write their result into this matrix, or into an output
+ * vector, and the operands may be this matrix or the output vector.
+ */
+public final class Mat3 {
+
+	public double m00, m01, m02;
+	public double m10, m11, m12;
+	public double m20, m21, m22;
+
+	/**
+	 * Mat3 Constructor
+	 * 
+	 * Identity matrix.
+	 **/
+	public Mat3() {
+		m00 = m11 = m22 = 1;
+	}
+
+	/**
+	 * set function
+	 * 
+	 * @return this matrix, set to the given elements, row by row.
+	 **/
+	public Mat3 set(double m00, double m01, double m02, double m10,
+			double m11, double m12, double m20, double m21, double m22) {
+		this.m00 = m00;
+		this.m01 = m01;
+		this.m02 = m02;
+		this.m10 = m10;
+		this.m11 = m11;
+		this.m12 = m12;
+		this.m20 = m20;
+		this.m21 = m21;
+		this.m22 = m22;
+		return this;
+	}
+
+	/**
+	 * set function
+	 * 
+	 * @param a
+	 *            the 3x3 matrix.
+	 * @return this matrix, set to a.
+	 **/
+	public Mat3 set(double[][] a) {
+		return set(a[0][0], a[0][1], a[0][2], a[1][0], a[1][1], a[1][2],
+				a[2][0], a[2][1], a[2][2]);
+	}
+
+	/**
+	 * get function
+	 * 
+	 * @param a
+	 *            3x3 array receiving the elements.
+	 * @return the array a.
+	 **/
+	public double[][] get(double[][] a) {
+		a[0][0] = m00; a[0][1] = m01; a[0][2] = m02;
+		a[1][0] = m10; a[1][1] = m11; a[1][2] = m12;
+		a[2][0] = m20; a[2][1] = m21; a[2][2] = m22;
+		return a;
+	}
+
+	/**
+	 * setR1 function
+	 * 
+	 * @param angle
+	 *            rotation angle (rad).
+	 * @return this matrix, set to the rotation about the first axis, as
+	 *         Matrix.R1.
+	 **/
+	public Mat3 setR1(double angle) {
+		double c = Math.cos(angle), s = Math.sin(angle);
+		return set(1, 0, 0, 0, c, s, 0, -s, c);
+	}
+
+	/**
+	 * setR2 function
+	 * 
+	 * @param angle
+	 *            rotation angle (rad).
+	 * @return this matrix, set to the rotation about the second axis, as
+	 *         Matrix.R2.
+	 **/
+	public Mat3 setR2(double angle) {
+		double c = Math.cos(angle), s = Math.sin(angle);
+		return set(c, 0, -s, 0, 1, 0, s, 0, c);
+	}
+
+	/**
+	 * setR3 function
+	 * 
+	 * @param angle
+	 *            rotation angle (rad).
+	 * @return this matrix, set to the rotation about the third axis, as
+	 *         Matrix.R3.
+	 **/
+	public Mat3 setR3(double angle) {
+		double c = Math.cos(angle), s = Math.sin(angle);
+		return set(c, s, 0, -s, c, 0, 0, 0, 1);
+	}
+
+	/**
+	 * multiply function
+	 * 
+	 * @return this matrix, set to a.b.
+	 **/
+	public Mat3 multiply(Mat3 a, Mat3 b) {
+		return set(
+				a.m00 * b.m00 + a.m01 * b.m10 + a.m02 * b.m20,
+				a.m00 * b.m01 + a.m01 * b.m11 + a.m02 * b.m21,
+				a.m00 * b.m02 + a.m01 * b.m12 + a.m02 * b.m22,
+				a.m10 * b.m00 + a.m11 * b.m10 + a.m12 * b.m20,
+				a.m10 * b.m01 + a.m11 * b.m11 + a.m12 * b.m21,
+				a.m10 * b.m02 + a.m11 * b.m12 + a.m12 * b.m22,
+				a.m20 * b.m00 + a.m21 * b.m10 + a.m22 * b.m20,
+				a.m20 * b.m01 + a.m21 * b.m11 + a.m22 * b.m21,
+				a.m20 * b.m02 + a.m21 * b.m12 + a.m22 * b.m22);
+	}
+
+	/**
+	 * transpose function
+	 * 
+	 * @return this matrix, set to trans(a).
+	 **/
+	public Mat3 transpose(Mat3 a) {
+		return set(a.m00, a.m10, a.m20, a.m01, a.m11, a.m21, a.m02, a.m12,
+				a.m22);
+	}
+
+	/**
+	 * determinant function
+	 * 
+	 * @return the determinant of this matrix.
+	 **/
+	public double determinant() {
+		return m00 * (m11 * m22 - m21 * m12) - m01 * (m10 * m22 - m12 * m20)
+				+ m02 * (m10 * m21 - m11 * m20);
+	}
+
+	/**
+	 * invert function
+	 * 
+	 * Sets this matrix to inv(a) = trans(com(a)) / det(a), as Matrix.inv_33.
+	 * 
+	 * @return the determinant of a; this matrix is not modified if it is 0.
+	 **/
+	public double invert(Mat3 a) {
+		double c00 = a.m11 * a.m22 - a.m12 * a.m21;
+		double c01 = a.m12 * a.m20 - a.m10 * a.m22;
+		double c02 = a.m10 * a.m21 - a.m11 * a.m20;
+		double det = a.m00 * c00 + a.m01 * c01 + a.m02 * c02;
+		double t;
+
+		if (det == 0)
+			return 0;
+		t = 1 / det;
+		set(t * c00,
+				t * (a.m02 * a.m21 - a.m01 * a.m22),
+				t * (a.m01 * a.m12 - a.m02 * a.m11),
+				t * c01,
+				t * (a.m00 * a.m22 - a.m02 * a.m20),
+				t * (a.m02 * a.m10 - a.m00 * a.m12),
+				t * c02,
+				t * (a.m01 * a.m20 - a.m00 * a.m21),
+				t * (a.m00 * a.m11 - a.m01 * a.m10));
+		return det;
+	}
+
+	/**
+	 * transform function
+	 * 
+	 * @param v
+	 *            the input vector.
+	 * @param out
+	 *            the output vector, set to this.v.
+	 * @return out.
+	 **/
+	public Vec3 transform(Vec3 v, Vec3 out) {
+		return out.set(m00 * v.x + m01 * v.y + m02 * v.z,
+				m10 * v.x + m11 * v.y + m12 * v.z,
+				m20 * v.x + m21 * v.y + m22 * v.z);
+	}
+
+	/**
+	 * transformTranspose function
+	 * 
+	 * @param v
+	 *            the input vector.
+	 * @param out
+	 *            the output vector, set to trans(this).v, as
+	 *            Matrix.multiply_vecxmat.
+	 * @return out.
+	 **/
+	public Vec3 transformTranspose(Vec3 v, Vec3 out) {
+		return out.set(m00 * v.x + m10 * v.y + m20 * v.z,
+				m01 * v.x + m11 * v.y + m21 * v.z,
+				m02 * v.x + m12 * v.y + m22 * v.z);
+	}
+
+	/**
+	 * transform function
+	 * 
+	 * @param v
+	 *            the input array of 3 elements.
+	 * @param out
+	 *            the output array of 3 elements, set to this.v.
+	 * @return out.
+	 **/
+	public double[] transform(double[] v, double[] out) {
+		double x = v[0], y = v[1], z = v[2];
+
+		out[0] = m00 * x + m01 * y + m02 * z;
+		out[1] = m10 * x + m11 * y + m12 * z;
+		out[2] = m20 * x + m21 * y + m22 * z;
+		return out;
+	}
+
+	/**
+	 * transformTranspose function
+	 * 
+	 * @param v
+	 *            the input array of 3 elements.
+	 * @param out
+	 *            the output array of 3 elements, set to trans(this).v.
+	 * @return out.
+	 **/
+	public double[] transformTranspose(double[] v, double[] out) {
+		double x = v[0], y = v[1], z = v[2];
+
+		out[0] = m00 * x + m10 * y + m20 * z;
+		out[1] = m01 * x + m11 * y + m21 * z;
+		out[2] = m02 * x + m12 * y + m22 * z;
+		return out;
+	}
+}
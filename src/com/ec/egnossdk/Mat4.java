@@ -0,0 +1,251 @@
+/**
+ * @file Mat4.java
+ *
+ * 4x4 matrix value type.
+ *
+ * Rev: 3.0.0
+ *
+ * Author: DKE Aerospace Germany GmbH
+ *
+ * Copyright 2012 European Commission
+ *
+ * Licensed under the EUPL, Version 1.1 only (the "Licence");
+ * You may not use this work except in compliance with the
+ * Licence.
+ * You may obtain a copy of the Licence at:
+ * http://ec.europa.eu/idabc/eupl
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the Licence is
+ * distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied.
+ * See the Licence for the specific language governing
+ * permissions and limitations under the Licence.
+ *
+ **/
+
+package com.ec.egnossdk;
+
+/**
+ * Class that holds a 4x4 matrix in sixteen fields, row major, as the normal
+ * matrices and covariances of the position and clock solution. As Mat3, the
+ * products, transposition and inversion are unrolled and write into this
+ * matrix or into an output array, and the operands may be the output.
+ */
+public final class Mat4 {
+
+	public double m00, m01, m02, m03;
+	public double m10, m11, m12, m13;
+	public double m20, m21, m22, m23;
+	public double m30, m31, m32, m33;
+
+	/**
+	 * Mat4 Constructor
+	 * 
+	 * Identity matrix.
+	 **/
+	public Mat4() {
+		m00 = m11 = m22 = m33 = 1;
+	}
+
+	/**
+	 * set function
+	 * 
+	 * @return this matrix, set to the given elements, row by row.
+	 **/
+	public Mat4 set(double m00, double m01, double m02, double m03,
+			double m10, double m11, double m12, double m13,
+			double m20, double m21, double m22, double m23,
+			double m30, double m31, double m32, double m33) {
+		this.m00 = m00;
+		this.m01 = m01;
+		this.m02 = m02;
+		this.m03 = m03;
+		this.m10 = m10;
+		this.m11 = m11;
+		this.m12 = m12;
+		this.m13 = m13;
+		this.m20 = m20;
+		this.m21 = m21;
+		this.m22 = m22;
+		this.m23 = m23;
+		this.m30 = m30;
+		this.m31 = m31;
+		this.m32 = m32;
+		this.m33 = m33;
+		return this;
+	}
+
+	/**
+	 * set function
+	 * 
+	 * @param a
+	 *            the 4x4 matrix.
+	 * @return this matrix, set to a.
+	 **/
+	public Mat4 set(double[][] a) {
+		return set(a[0][0], a[0][1], a[0][2], a[0][3],
+				a[1][0], a[1][1], a[1][2], a[1][3],
+				a[2][0], a[2][1], a[2][2], a[2][3],
+				a[3][0], a[3][1], a[3][2], a[3][3]);
+	}
+
+	/**
+	 * get function
+	 * 
+	 * @param a
+	 *            4x4 array receiving the elements.
+	 * @return the array a.
+	 **/
+	public double[][] get(double[][] a) {
+		a[0][0] = m00; a[0][1] = m01; a[0][2] = m02; a[0][3] = m03;
+		a[1][0] = m10; a[1][1] = m11; a[1][2] = m12; a[1][3] = m13;
+		a[2][0] = m20; a[2][1] = m21; a[2][2] = m22; a[2][3] = m23;
+		a[3][0] = m30; a[3][1] = m31; a[3][2] = m32; a[3][3] = m33;
+		return a;
+	}
+
+	/**
+	 * multiply function
+	 * 
+	 * @return this matrix, set to a.b.
+	 **/
+	public Mat4 multiply(Mat4 a, Mat4 b) {
+		return set(
+				a.m00 * b.m00 + a.m01 * b.m10 + a.m02 * b.m20 + a.m03 * b.m30,
+				a.m00 * b.m01 + a.m01 * b.m11 + a.m02 * b.m21 + a.m03 * b.m31,
+				a.m00 * b.m02 + a.m01 * b.m12 + a.m02 * b.m22 + a.m03 * b.m32,
+				a.m00 * b.m03 + a.m01 * b.m13 + a.m02 * b.m23 + a.m03 * b.m33,
+				a.m10 * b.m00 + a.m11 * b.m10 + a.m12 * b.m20 + a.m13 * b.m30,
+				a.m10 * b.m01 + a.m11 * b.m11 + a.m12 * b.m21 + a.m13 * b.m31,
+				a.m10 * b.m02 + a.m11 * b.m12 + a.m12 * b.m22 + a.m13 * b.m32,
+				a.m10 * b.m03 + a.m11 * b.m13 + a.m12 * b.m23 + a.m13 * b.m33,
+				a.m20 * b.m00 + a.m21 * b.m10 + a.m22 * b.m20 + a.m23 * b.m30,
+				a.m20 * b.m01 + a.m21 * b.m11 + a.m22 * b.m21 + a.m23 * b.m31,
+				a.m20 * b.m02 + a.m21 * b.m12 + a.m22 * b.m22 + a.m23 * b.m32,
+				a.m20 * b.m03 + a.m21 * b.m13 + a.m22 * b.m23 + a.m23 * b.m33,
+				a.m30 * b.m00 + a.m31 * b.m10 + a.m32 * b.m20 + a.m33 * b.m30,
+				a.m30 * b.m01 + a.m31 * b.m11 + a.m32 * b.m21 + a.m33 * b.m31,
+				a.m30 * b.m02 + a.m31 * b.m12 + a.m32 * b.m22 + a.m33 * b.m32,
+				a.m30 * b.m03 + a.m31 * b.m13 + a.m32 * b.m23 + a.m33 * b.m33);
+	}
+
+	/**
+	 * transpose function
+	 * 
+	 * @return this matrix, set to trans(a).
+	 **/
+	public Mat4 transpose(Mat4 a) {
+		return set(a.m00, a.m10, a.m20, a.m30,
+				a.m01, a.m11, a.m21, a.m31,
+				a.m02, a.m12, a.m22, a.m32,
+				a.m03, a.m13, a.m23, a.m33);
+	}
+
+	/**
+	 * determinant function
+	 * 
+	 * @return the determinant of this matrix, by the 2x2 minors of its two
+	 *         first and two last rows.
+	 **/
+	public double determinant() {
+		double s0 = m00 * m11 - m10 * m01;
+		double s1 = m00 * m12 - m10 * m02;
+		double s2 = m00 * m13 - m10 * m03;
+		double s3 = m01 * m12 - m11 * m02;
+		double s4 = m01 * m13 - m11 * m03;
+		double s5 = m02 * m13 - m12 * m03;
+		double c5 = m22 * m33 - m32 * m23;
+		double c4 = m21 * m33 - m31 * m23;
+		double c3 = m21 * m32 - m31 * m22;
+		double c2 = m20 * m33 - m30 * m23;
+		double c1 = m20 * m32 - m30 * m22;
+		double c0 = m20 * m31 - m30 * m21;
+
+		return s0 * c5 - s1 * c4 + s2 * c3 + s3 * c2 - s4 * c1 + s5 * c0;
+	}
+
+	/**
+	 * invert function
+	 * 
+	 * Sets this matrix to inv(a), from the 2x2 minors of the two first and
+	 * two last rows of a (Laplace expansion).
+	 * 
+	 * @return the determinant of a; this matrix is not modified if it is 0.
+	 **/
+	public double invert(Mat4 a) {
+		double s0 = a.m00 * a.m11 - a.m10 * a.m01;
+		double s1 = a.m00 * a.m12 - a.m10 * a.m02;
+		double s2 = a.m00 * a.m13 - a.m10 * a.m03;
+		double s3 = a.m01 * a.m12 - a.m11 * a.m02;
+		double s4 = a.m01 * a.m13 - a.m11 * a.m03;
+		double s5 = a.m02 * a.m13 - a.m12 * a.m03;
+		double c5 = a.m22 * a.m33 - a.m32 * a.m23;
+		double c4 = a.m21 * a.m33 - a.m31 * a.m23;
+		double c3 = a.m21 * a.m32 - a.m31 * a.m22;
+		double c2 = a.m20 * a.m33 - a.m30 * a.m23;
+		double c1 = a.m20 * a.m32 - a.m30 * a.m22;
+		double c0 = a.m20 * a.m31 - a.m30 * a.m21;
+		double det = s0 * c5 - s1 * c4 + s2 * c3 + s3 * c2 - s4 * c1 + s5 * c0;
+		double t;
+
+		if (det == 0)
+			return 0;
+		t = 1 / det;
+		set(t * (a.m11 * c5 - a.m12 * c4 + a.m13 * c3),
+				t * (-a.m01 * c5 + a.m02 * c4 - a.m03 * c3),
+				t * (a.m31 * s5 - a.m32 * s4 + a.m33 * s3),
+				t * (-a.m21 * s5 + a.m22 * s4 - a.m23 * s3),
+				t * (-a.m10 * c5 + a.m12 * c2 - a.m13 * c1),
+				t * (a.m00 * c5 - a.m02 * c2 + a.m03 * c1),
+				t * (-a.m30 * s5 + a.m32 * s2 - a.m33 * s1),
+				t * (a.m20 * s5 - a.m22 * s2 + a.m23 * s1),
+				t * (a.m10 * c4 - a.m11 * c2 + a.m13 * c0),
+				t * (-a.m00 * c4 + a.m01 * c2 - a.m03 * c0),
+				t * (a.m30 * s4 - a.m31 * s2 + a.m33 * s0),
+				t * (-a.m20 * s4 + a.m21 * s2 - a.m23 * s0),
+				t * (-a.m10 * c3 + a.m11 * c1 - a.m12 * c0),
+				t * (a.m00 * c3 - a.m01 * c1 + a.m02 * c0),
+				t * (-a.m30 * s3 + a.m31 * s1 - a.m32 * s0),
+				t * (a.m20 * s3 - a.m21 * s1 + a.m22 * s0));
+		return det;
+	}
+
+	/**
+	 * transform function
+	 * 
+	 * @param v
+	 *            the input array of 4 elements.
+	 * @param out
+	 *            the output array of 4 elements, set to this.v.
+	 * @return out.
+	 **/
+	public double[] transform(double[] v, double[] out) {
+		double x = v[0], y = v[1], z = v[2], w = v[3];
+
+		out[0] = m00 * x + m01 * y + m02 * z + m03 * w;
+		out[1] = m10 * x + m11 * y + m12 * z + m13 * w;
+		out[2] = m20 * x + m21 * y + m22 * z + m23 * w;
+		out[3] = m30 * x + m31 * y + m32 * z + m33 * w;
+		return out;
+	}
+
+	/**
+	 * transformTranspose function
+	 * 
+	 * @param v
+	 *            the input array of 4 elements.
+	 * @param out
+	 *            the output array of 4 elements, set to trans(this).v.
+	 * @return out.
+	 **/
+	public double[] transformTranspose(double[] v, double[] out) {
+		double x = v[0], y = v[1], z = v[2], w = v[3];
+
+		out[0] = m00 * x + m10 * y + m20 * z + m30 * w;
+		out[1] = m01 * x + m11 * y + m21 * z + m31 * w;
+		out[2] = m02 * x + m12 * y + m22 * z + m32 * w;
+		out[3] = m03 * x + m13 * y + m23 * z + m33 * w;
+		return out;
+	}
+}
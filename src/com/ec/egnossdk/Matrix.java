@@ -278,185 +278,142 @@ public class Matrix {
 
 		}
 		
-		private static double determinante2Per2(double[][] matrice){
-		    return matrice[0][0]*matrice[1][1]-matrice[1][0]*matrice[0][1];
+		/**
+		 * determinante function
+		 * Determinant of the square matrix, product of the pivots of its LU
+		 * decomposition.
+		 * @return The determinant
+		 */
+		public double determinante(){
+		    LuDecomposition lu = new LuDecomposition(nrows);
+		    lu.decompose(data);
+		    return lu.determinant();
 		}
 
-		public double determinante(){
+		/**
+		 * matriceAggiunta function
+		 * Adjugate of the square matrix, det(M) * inv(M), or the transposed
+		 * cofactors if the matrix is singular (see aggiuntaCofattori).
+		 * @return The adjugate matrix
+		 */
+		public Matrix matriceAggiunta(){
 		    int i;
 		    int j;
-		    int k;
-		    double det=0;
-		    double[][] mx=new double[nrows-1][nrows-1];
-		    if (nrows==2){
-		        det=Matrix.determinante2Per2(data);
-		    }
-		    
-		    else if(nrows==1){
-		        det=data[0][0];
+		    LuDecomposition lu = new LuDecomposition(nrows);
+		    double[][] aggiunta=new double[nrows][nrows];
+		    if (!lu.decompose(data)){
+		        return aggiuntaCofattori();
 		    }
-		    
-		    else{
-		        double[][]matrixSupport=new double[nrows][nrows];
-		        for (i=0;i<nrows;i++){
-		            for(j=0;j<nrows;j++){
-		                matrixSupport[i][j]=data[i][j];
-		            }
-		        }
-		        
-		     // cerco di ricondurre la matrice ad avere la prima riga con tutti zeri 
-		        //tranne eventualmente un solo elemento
-		        boolean c=false;
-		        i=0;
-		            while (c==false){
-		                if(i==nrows){
-		                    c=true;
-		                }
-		                else{
-		                    if(data[i][0]==0){
-		                        i++;
-		                    }
-		                    
-		                    else{
-		                        for(j=0;j<i;j++){
-		                            double x=-matrixSupport[j][0]/data[i][0];
-		                            for(k=0;k<nrows;k++){
-		                                matrixSupport[j][k]=matrixSupport[j][k]+data[i][k]*x;
-		                            }
-		                            
-		                        }
-		                        for(j=i+1;j<nrows;j++){
-		                            double x=-data[j][0]/data[i][0];
-		                            for(k=0;k<nrows;k++){
-		                                matrixSupport[j][k]=matrixSupport[j][k]+data[i][k]*x;
-		                            }
-		                        }
-		                        c=true;
-		                }
-		            }
-		            }
-		            for(i=0;i<=nrows-1;i++){
-		                if(matrixSupport[i][0]==0){
-		                }
-		                else{
-		                    // crea la matrice ottenuta eliminando la i-ma colonna della matrice di partenza
-		                        mx=Matrix.eliminaRigaColonna(matrixSupport,nrows,i,0).data;
-		                        det+=(matrixSupport[i][0]*Math.pow(-1,i+2)*(new 
-		    					       Matrix(mx).determinante()));
-		                    }
-		                }
-		            }
-		            return det;
+		    double d=lu.determinant();
+		    lu.inverse(aggiunta);
+		    for (i=0;i<nrows;i++){
+		        for(j=0;j<nrows;j++){
+		            aggiunta[i][j]*=d;
 		        }
+		    }
+		    return new Matrix(aggiunta);
+		}
 
-		public Matrix matriceAggiunta(){
-		    int i;
-		    int j;
+		/**
+		 * aggiuntaCofattori function
+		 * Adjugate of a singular square matrix from its cofactors, the
+		 * determinants of the minors being computed by LU decomposition. It
+		 * is not null if the rank of the matrix is n-1.
+		 * @return The adjugate matrix
+		 */
+		private Matrix aggiuntaCofattori(){
+		    int i, j, r, c;
 		    double[][] aggiunta=new double[nrows][nrows];
-		    Matrix mTrasposta=trasposta();
+		    if (nrows==1){
+		        aggiunta[0][0]=1;
+		        return new Matrix(aggiunta);
+		    }
+		    LuDecomposition lu = new LuDecomposition(nrows-1);
+		    double[][] minore=new double[nrows-1][nrows-1];
 		    for (i=0;i<nrows;i++){
 		        for(j=0;j<nrows;j++){
-		            aggiunta[j][i]=Math.pow(-1,i+j+2)*Matrix.
-				eliminaRigaColonna(mTrasposta.data,nrows,j,i).determinante();
+		            // minor without the row i and the column j
+		            for (r=0;r<nrows-1;r++){
+		                for (c=0;c<nrows-1;c++){
+		                    minore[r][c]=data[r<i ? r : r+1][c<j ? c : c+1];
+		                }
+		            }
+		            lu.decompose(minore);
+		            aggiunta[j][i]=((i+j)%2==0 ? 1 : -1)*lu.determinant();
 		        }
 		    }
 		    return new Matrix(aggiunta);
 		}
 
-
+		/**
+		 * matriceInversa function
+		 * Inverse of the square matrix by LU decomposition.
+		 * @return The inverse matrix, the input matrix if it is singular
+		 */
 		public Matrix matriceInversa(){
-		    int i;
-		    int j;
-		    double d=determinante();
-		    if (d==0){
+		    LuDecomposition lu = new LuDecomposition(nrows);
+		    if (!lu.decompose(data)){
 		        return new Matrix(data);
 		    }
-		    else{
-		        double[][] mInversa=new double[nrows][nrows];
-		        for (i=0;i<nrows;i++){
-		            for(j=0;j<nrows;j++){
-		                mInversa[i][j]=matriceAggiunta().data[i][j]/d;
-		            }
-		        }
-		        return new Matrix(mInversa);
-		                
-		    }
+		    double[][] mInversa=new double[nrows][nrows];
+		    lu.inverse(mInversa);
+		    return new Matrix(mInversa);
 		}
 
 
 		public Matrix trasposta(){
 		    double [][]mx=new double[nrows][nrows];
-		    int i;
-		    int j;
-		    for (i=0;i<nrows;i++){
-		        for (j=0;j<nrows;j++){
-		            mx[i][j]=data[j][i];
-		        }
-		    }
+		    transpose(data, mx);
 		    return new Matrix(mx);
 		}
 
-
-
-
-		public static Matrix eliminaRigaColonna(double[][] matr,int nrows, int colonna,
-										int riga){
-		    double[][] matrice=new double[nrows-1][nrows-1];
-		    int i;
-		    int j;
-		    for(i=0;i<nrows;i++){
-		        for(j=0;j<nrows;j++){
-		            if (i==riga){
-		            }
-		            else if (j==colonna){
-		            }
-		            else{
-		                if (i<riga){
-		                    if(j<colonna){
-		                        matrice[j][i]=matr[j][i];
-		                    }
-		                    else{
-		                        matrice[j-1][i]=matr[j][i];
-		                    }
-		                }
-		                else{
-		                    if(j<colonna){
-		                        matrice[j][i-1]=matr[j][i];
-		                    }
-		                    else{
-		                        matrice[j-1][i-1]=matr[j][i];
-		                    }
-		                }
-		            }
-		        }
-		    }
-		    return new Matrix(matrice);
-		}
-		
 		public double[][] R1(double angle)
 	  {
-	    double[][] R = { {1, 0, 0}, 
-	                 {0, Math.cos(angle), Math.sin(angle)}, 
-	                 {0, -Math.sin(angle), Math.cos(angle)} };
-	    return R;
+	    return new Mat3().setR1(angle).get(new double[3][3]);
 	  }
 	  
 	  
 	  public double[][] R2(double angle)
 	  {
-	    double[][] R = { {Math.cos(angle), 0, -Math.sin(angle)}, 
-	                 {0, 1, 0}, 
-	                 {Math.sin(angle), 0,  Math.cos(angle)} };
-	    return R;
+	    return new Mat3().setR2(angle).get(new double[3][3]);
 	  }
 	  
 	  
 	  public double[][] R3(double angle)
 	  {
-	    double[][] R = { { Math.cos(angle), Math.sin(angle), 0}, 
-	                 {-Math.sin(angle), Math.cos(angle), 0}, 
-	                 {0, 0, 1} };
-	    return R;
+	    return new Mat3().setR3(angle).get(new double[3][3]);
+	  }
+
+	  /**
+	   * R2 function
+	   * Rotation matrix about the second axis, written into a caller buffer.
+	   * @param   angle     The rotation angle (rad)
+	   * @param   R         The 3x3 output matrix
+	   */
+	  public static void R2(double angle, double R[][])
+	  {
+	    double c = Math.cos(angle);
+	    double s = Math.sin(angle);
+
+	    R[0][0] = c; R[0][1] = 0; R[0][2] = -s;
+	    R[1][0] = 0; R[1][1] = 1; R[1][2] = 0;
+	    R[2][0] = s; R[2][1] = 0; R[2][2] = c;
+	  }
+
+	  /**
+	   * R3 function
+	   * Rotation matrix about the third axis, written into a caller buffer.
+	   * @param   angle     The rotation angle (rad)
+	   * @param   R         The 3x3 output matrix
+	   */
+	  public static void R3(double angle, double R[][])
+	  {
+	    double c = Math.cos(angle);
+	    double s = Math.sin(angle);
+
+	    R[0][0] = c;  R[0][1] = s; R[0][2] = 0;
+	    R[1][0] = -s; R[1][1] = c; R[1][2] = 0;
+	    R[2][0] = 0;  R[2][1] = 0; R[2][2] = 1;
 	  }
 	  
 	  
@@ -468,8 +425,7 @@ public class Matrix {
 	   */
 	  public double det_33(double matrix[][])
 	  {
-	    double det =  matrix[0][0]*(matrix[1][1]*matrix[2][2] - matrix[2][1]*matrix[1][2]) - matrix[0][1]*(matrix[1][0]*matrix[2][2] - matrix[1][2]*matrix[2][0]) + matrix[0][2]*(matrix[1][0]*matrix[2][1] - matrix[1][1]*matrix[2][0]);
-	    return det;
+	    return new Mat3().set(matrix).determinant();
 	  }
 
 	  /**
@@ -480,115 +436,51 @@ public class Matrix {
 	   */
 	  public double[][] inv_33(double matrix[][])
 	  {
-	    double matrix_inv [][] = new double[3][3];
-	    
-	    double A = matrix[1][1] * matrix[2][2] - matrix[1][2] * matrix[2][1]; // matrix of cofactors elements
-	    double B = matrix[1][2] * matrix[2][0] - matrix[1][0] * matrix[2][2];
-	    double C = matrix[1][0] * matrix[2][1] - matrix[1][1] * matrix[2][0];
-	    double D = matrix[0][2] * matrix[2][1] - matrix[0][1] * matrix[2][2];
-	    double E = matrix[0][0] * matrix[2][2] - matrix[0][2] * matrix[2][0];
-	    double F = matrix[0][1] * matrix[2][0] - matrix[0][0] * matrix[2][1];
-	    double G = matrix[0][1] * matrix[1][2] - matrix[0][2] * matrix[1][1];
-	    double H = matrix[0][2] * matrix[1][0] - matrix[0][0] * matrix[1][2];
-	    double I = matrix[0][0] * matrix[1][1] - matrix[0][1] * matrix[1][0];
-
-	    double t_det = 1 / det_33(matrix);                  // 1 over the determinant of matrix
-
-	    matrix_inv[0][0] = t_det*A;                     // Inverted matrix elements
-	    matrix_inv[0][1] = t_det*D;
-	    matrix_inv[0][2] = t_det*G;
-	    matrix_inv[1][0] = t_det*B;
-	    matrix_inv[1][1] = t_det*E;
-	    matrix_inv[1][2] = t_det*H;
-	    matrix_inv[2][0] = t_det*C;
-	    matrix_inv[2][1] = t_det*F;
-	    matrix_inv[2][2] = t_det*I;
-	    
-	    return matrix_inv;
-	  }
-
-	  /**
-	   * submat_44 function
-	   * Extract a submatrix 3x3, at row r and column c, from a 4x4 matrix
-	   * @param   matrix    The input 4x4 matrix
-	   * @param submatrix   The 3x3 submatrix
-	   * @param r     Row
-	   * @param c     Column
-	   */
-	  void submat_44(double matrix[][],double submatrix[][], int r, int c)
-	  {
-	      int i,j,is,js;
+	    Mat3 m = new Mat3().set(matrix);
 
-	      is = 0;
-	      for(i=0;i<4;i++)                        // row browse
-	    {
-	          if (i!=r)                       // test if the row should be skipped
-	          {
-	            is++;
-	            js=0;
-	            for(j=0;j<4;j++)                  // column browse
-	            {
-	              if(j!=c)                    // test if the column should be skipped
-	              {
-	                js++;
-	                submatrix[is-1][js-1] = matrix[i][j];
-	              }
-	            }
-	          }
-	        }
+	    if (m.invert(m) == 0)
+	      return nan(3);
+	    return m.get(new double[3][3]);
 	  }
 
 	  /**
 	   * det_44 function
-	   * Calculation of a given 4x4 matrix determinant, Cramer's rule, column development
+	   * Calculation of a given 4x4 matrix determinant, by the 2x2 minors of its rows
 	   * @param   matrix    The input 4x4 matrix
 	   * @return The determinant
 	   */
 	  double det_44(double matrix[][])
 	  {
-	      double  det, result = 0;
-	      double[][] sub = new double[3][3];
-	      int n;
-	      int sign = 1;                   // variable for the sign of matrix elements
-
-	      for(n=0;n<4;n++)
-	      {
-	        submat_44(matrix, sub,0,n);           // 3x3 submatrix, 0,n => development by column
-	          det = det_33(sub);                // determinant of the submatrix
-	          result += sign * matrix[0][n] * det;      // determinant of the 4x4 matrix with the sum of the submatrix determinants
-	          sign *= -1;                   // sign update
-	      }
-
-	      return result;
+	    return new Mat4().set(matrix).determinant();
 	  }
 
 	  /**
 	   * inv_44 function
-	   * Inversion of a given 4x4 matrix, Method : 1/M(i,j) = 1/det(M) * det(submat(M(j,i))) * (-1)^(i+j)
+	   * Inversion of a given 4x4 matrix, Method : INV(M) = 1/det(M) * Trans(Com(M)), unrolled
 	   * @param   matrix    The input 4x4 matrix
 	   * @param matrix_inv  The inverted matrix result
 	   */
 	  public double[][] inv_44(double matrix[][])
 	  {
+	    Mat4 m = new Mat4().set(matrix);
 
-	    double[][] matrix_inv = new double[4][4];
-	        
-	      double det44 = det_44(matrix);                // determinant of the 4x4 matrix
+	    if (m.invert(m) == 0)
+	      return nan(4);
+	    return m.get(new double[4][4]);
+	  }
 
-	      double[][] tmp_33 = new double[3][3];
-	      int i,j,sign;
+	  /**
+	   * nan function
+	   * @param   n         The dimension
+	   * @return The n x n matrix of NaN elements, inverse of a singular matrix
+	   */
+	  private static double[][] nan(int n)
+	  {
+	    double[][] matrix = new double[n][n];
 
-	    for(j=0;j<4;j++)
-	    {
-	      for(i=0;i<4;i++)
-	      {
-	        sign = 1 - ((i+j)%2) * 2;             // sign update
-	        submat_44(matrix,tmp_33,i,j);           // 3x3 submatrix
-	        matrix_inv[j][i] = sign * det_33(tmp_33)/ det44;
-	      }
-	    }
-	    
-	    return matrix_inv;
+	    for (int i = 0; i < n; i++)
+	      java.util.Arrays.fill(matrix[i], Double.NaN);
+	    return matrix;
 	  }
 
 	  /**
@@ -604,13 +496,27 @@ public class Matrix {
 	    
 	    double[][] matrix_t = new double[col][row];
 	    
+	    transpose(matrix, matrix_t);
+	    
+	    return matrix_t;
+	  }
+
+	  /**
+	   * transpose function
+	   * Transpose of a given matrix into a caller buffer.
+	   * @param   matrix    The input matrix
+	   * @param matrix_t  The transpose matrix result, not the input matrix
+	   */
+	  public static void transpose(double matrix[][], double matrix_t[][])
+	  {
+	    int row = matrix.length;
+	    int col = matrix[0].length;
+	    
 	    for(int i=0;i<row;i++)
 	    {
 	      for(int j=0; j<col;j++)
 	        matrix_t[j][i] = matrix[i][j];
 	    }
-	    
-	    return matrix_t;
 	  }
 
 	  /**
@@ -627,7 +533,7 @@ public class Matrix {
 	    
 	    for(int i=0;i<row;i++)
 	    {
-	        matrix_t[1][i] = matrix[i];
+	        matrix_t[0][i] = matrix[i];
 	    }
 	    return matrix_t;
 	  }
@@ -650,22 +556,36 @@ public class Matrix {
 	    double[][] result = new double[row1][col2];
 	    
 	    if(col1 == row2)
-	    {
-	      for(int i=0;i<row1;i++)
-	        for(int j=0;j<col2;j++)
-	        {
-	          result[i][j]=0;
-	          for(int k=0;k<col1;k++)
-	            result[i][j] += matrix1[i][k]*matrix2[k][j];
-	        }
-	    }
-	    else
-	      ;
+	      multiply(matrix1, matrix2, result);
 	    
 	    return result;
 
 	  }
 
+	  /**
+	   * multiply function
+	   * Multiplication of two matrices into a caller buffer.
+	   * @param   matrix1     The first matrix
+	   * @param matrix2         The second matrix
+	   * @param   result          The output matrix, not one of the input matrices
+	   */
+	  public static void multiply(double matrix1[][], double matrix2[][], double result[][])
+	  {
+	    int row1 = matrix1.length;
+	    int col1 = matrix1[0].length;
+	    int col2 = matrix2[0].length;
+	    double sum;
+
+	    for(int i=0;i<row1;i++)
+	      for(int j=0;j<col2;j++)
+	      {
+	        sum = 0;
+	        for(int k=0;k<col1;k++)
+	          sum += matrix1[i][k]*matrix2[k][j];
+	        result[i][j] = sum;
+	      }
+	  }
+
 	  /**
 	   * multiply_vecxmat function
 	   * Multiplication of column vector with a matrix
@@ -712,17 +632,32 @@ public class Matrix {
 	    double[] result = new double[row1];
 	    
 	    if(col1 == row2)
-	      for(int i=0;i<row1;i++)
-	      {
-	          result[i]=0;
-	          for(int k=0;k<col1;k++)
-	            result[i]+= matrix1[i][k]*matrix2[k];
-	      }
-	    else
-	      ;
+	      multiply_matxvec(matrix1, matrix2, result);
 	    return result;
 	  }
 
+	  /**
+	   * multiply_matxvec function
+	   * Multiplication of matrix with a row vector into a caller buffer.
+	   * @param   matrix1     The matrix
+	   * @param matrix2         The row vector
+	   * @param   result          The output vector, not the input vector
+	   */
+	  public static void multiply_matxvec(double matrix1[][], double matrix2[], double result[])
+	  {
+	    int row1 = matrix1.length;
+	    int col1 = matrix1[0].length;
+	    double sum;
+
+	    for(int i=0;i<row1;i++)
+	    {
+	        sum = 0;
+	        for(int k=0;k<col1;k++)
+	          sum += matrix1[i][k]*matrix2[k];
+	        result[i] = sum;
+	    }
+	  }
+
 
 	  /**
 	   * lorentz_4_4 function
@@ -784,13 +719,23 @@ public class Matrix {
 	    double[] result = new double[row1];
 
 	    if(row1 == row2)
-	      for(int i = 0; i < row1; i++)
-	          result[i] = matrix1[i] - matrix2[i];
-	    else
-	      ;
+	      subtract_vec(matrix1, matrix2, result);
 	    return result;
 
 	  }
 
+	  /**
+	   * subtract_vec function
+	   * Subtraction of two single dimension matrices into a caller buffer
+	   * @param   matrix1     The matrix from where the subtraction is made
+	   * @param matrix2         The matrix that is subtracted
+	   * @param   result          The output matrix, may be one of the input matrices
+	   */
+	  public static void subtract_vec(double matrix1[], double matrix2[], double result[])
+	  {
+	    for(int i = 0; i < matrix1.length; i++)
+	      result[i] = matrix1[i] - matrix2[i];
+	  }
+
 		
 }
@@ -27,15 +27,10 @@ package com.ec.egnossdk;
 
 import java.util.Arrays;
 
-import com.ec.egnossdk.TSAGeoMag;
-
-import android.content.Context;
-
 public class NMEACreator{
   
-  double a_WGS84=6378137.0;
-  double f=1.0/298.257223563;
-  double e_WGS84_SQUARED=2*f-f*f;
+  // Local frame of the previous position
+  private final LocalFrame frame = new LocalFrame();
   
   public Integer GetFixMode(Double HDOP, Double VDOP, Double PDOP)
   {
@@ -120,13 +115,12 @@ public class NMEACreator{
    * @param    L,B,H of previous position and the current position
    * @return   CourseM
    */
-  public double GetCourseOverGroundM(double[] BLHold, double[] BLHnew, double Year, Context context)
+  public double GetCourseOverGroundM(double[] BLHold, double[] BLHnew, double Year)
   {
     double[] ENU = XYZtoENU(BLHold, BLHnew);
     double GroundT = Math.atan(ENU[0]/ENU[1])*180/Math.PI;
     
-    TSAGeoMag testCase=new TSAGeoMag(context);
-    double declination=testCase.getDeclination(BLHnew[0], BLHnew[1], Year, BLHnew[2]/1000.0);
+    double declination=MagneticDeclination.get(BLHnew[0], BLHnew[1], Year, BLHnew[2]/1000.0);
     double GroundM=GroundT - declination;
     
     return GroundM;
@@ -138,15 +132,15 @@ public class NMEACreator{
    * Compute Magnetic Variation
    * 
    * The true bearing = magnetic bearing + declination.
+   * The declination comes from the shared model of MagneticDeclination.
    * 
    * @param    L,B,H & Year.
    * @return   MagVar
    */
-  public double GetMagneticVariation(double[] BLHnew, double Year, Context context )
+  public double GetMagneticVariation(double[] BLHnew, double Year)
   {
     double MagVar = 0;
-    TSAGeoMag testCase=new TSAGeoMag(context);
-    MagVar=testCase.getDeclination(BLHnew[0], BLHnew[1], Year, BLHnew[2]/1000.0);
+    MagVar=MagneticDeclination.get(BLHnew[0], BLHnew[1], Year, BLHnew[2]/1000.0);
     
     return MagVar;
     
@@ -211,91 +205,33 @@ public class NMEACreator{
    */
   public double[] XYZtoENU( double[] BLHold, double[] BLHnew )
   {
-    double[] ENU={0,0,0};
-    
-    double[] XYZnew = BLHtoXYZ(BLHnew);
-    double[] XYZold = BLHtoXYZ(BLHold);
-
-    // Calculation of East, North and Up values
-    double E = -Math.sin(BLHold[1]*Math.PI/180)*(XYZnew[0]-XYZold[0]) + Math.cos(BLHold[1]*Math.PI/180)*(XYZnew[1]-XYZold[1]);
-    double N = -Math.sin(BLHold[0]*Math.PI/180)* Math.cos(BLHold[1]*Math.PI/180)*(XYZnew[0]-XYZold[0]) - Math.sin(BLHold[0]*Math.PI/180)*Math.sin(BLHold[1]*Math.PI/180)*(XYZnew[1]-XYZold[1]) +  Math.cos(BLHold[0]*Math.PI/180)*(XYZnew[2]-XYZold[2]);
-    double U = Math.cos(BLHold[0]*Math.PI/180)*Math.cos(BLHold[1]*Math.PI/180)*(XYZnew[0]-XYZold[0]) + Math.cos(BLHold[0]*Math.PI/180)*Math.sin(BLHold[1]*Math.PI/180)*(XYZnew[1]-XYZold[1]) + Math.sin(BLHold[0]*Math.PI/180)*(XYZnew[2]-XYZold[2]);
-
-    ENU[0] = E;
-    ENU[1] = N;
-    ENU[2] = U;
+    frame.setOrigin(BLHold[0]*Math.PI/180, BLHold[1]*Math.PI/180, BLHold[2]);
     
-    return ENU;
+    return frame.geodeticToEnu(BLHnew[0]*Math.PI/180, BLHnew[1]*Math.PI/180, BLHnew[2], new double[3]);
   }
   
   
   
   /**
    * BLHtoXYZ function
-   * @param    BLH[]    Latitude, Longitude, Height
+   * @param    BLH[]    Latitude, Longitude (deg), Height, not modified
    * @return   XYZ[]
    */
   public double[] BLHtoXYZ(double[] BLH)
   {
-    double[] XYZ = {0,0,0};
-    
-    BLH[0] *= Math.PI / 180; // Conversions to rad
-    BLH[1] *= Math.PI / 180;
-
-    double N = a_WGS84/Math.sqrt(1-e_WGS84_SQUARED*Math.sin(BLH[0])*Math.sin(BLH[0]));
-    XYZ[0] = (N + BLH[2])*Math.cos(BLH[0])*Math.cos(BLH[1]);
-    XYZ[1] = (N + BLH[2])*Math.cos(BLH[0])*Math.sin(BLH[1]);
-    XYZ[2] = ((1-e_WGS84_SQUARED)*N + BLH[2])*Math.sin(BLH[0]);
-    
-    return XYZ;
+    return Geodesy.toEcef(BLH[0]*Math.PI/180, BLH[1]*Math.PI/180, BLH[2], new double[3]);
   }
   
   
   
   /**
    * XYZtoBLH function
-   * @param L 
    * @param    XYZ[]
-   * @return   BLH[]    Latitude, Longitude, Height
+   * @return   BLH[]    Latitude, Longitude (deg), Height
    */
   public double[] XYZtoBLH(double[] XYZ)
   {
-    double[] BLH = {0,0,0};
-    
-    double x=XYZ[0];
-    double y=XYZ[1];
-    double z=XYZ[2];
-    double e2=e_WGS84_SQUARED;
-    double a=a_WGS84;
-    
-    if(x>0 & y>0)
-      BLH[1]=Math.atan(y/x);   
-
-    if(x<0 & y>0)
-      BLH[1]=Math.atan(y/x)+Math.PI;   
-
-    if(x<0 & y<0)
-      BLH[1]=Math.atan(y/x)-Math.PI;   
-
-    if(x>0 & y<0)
-      BLH[1]=Math.atan(y/x);   
-
-    BLH[0]=Math.atan(z/Math.sqrt(x*x+y*y));
-    double N=a/Math.sqrt(1-e2*(Math.sin(BLH[0]))*(Math.sin(BLH[0])));
-    BLH[2]=z/Math.sin(BLH[0])-N*(1-e2);
-    
-    double dB=1;
-    while(dB>Math.PI/180/60)   
-    {
-        double B0=BLH[0];
-        
-        BLH[0]=Math.atan(z*(N+BLH[2])/Math.sqrt(x*x+y*y)/(BLH[2]+N*(1-e2)));
-        N=a/Math.sqrt(1-e2*(Math.sin(BLH[0]))*(Math.sin(BLH[0])));
-        BLH[2]=z/Math.sin(BLH[0])-N*(1-e2);
-        
-        dB=Math.abs(BLH[0]-B0);
-    }
-
+    double[] BLH = Geodesy.toGeodetic(XYZ[0], XYZ[1], XYZ[2], new double[3]);
     
     BLH[0]=BLH[0]*180/Math.PI;
     BLH[1]=BLH[1]*180/Math.PI;
@@ -0,0 +1,476 @@
+/**
+ * @file NMEAEncoder.java
+ *
+ * Allocation-free encoder of the NMEA sentences.
+ *
+ * Rev: 3.0.0
+ *
+ * Author: DKE Aerospace Germany GmbH
+ *
+ * Copyright 2012 European Commission
+ *
+ * Licensed under the EUPL, Version 1.1 only (the "Licence");
+ * You may not use this work except in compliance with the
+ * Licence.
+ * You may obtain a copy of the Licence at:
+ * http://ec.europa.eu/idabc/eupl
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the Licence is
+ * distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied.
+ * See the Licence for the specific language governing
+ * permissions and limitations under the Licence.
+ *
+ **/
+
+package com.ec.egnossdk;
+
+/**
+ * Class that encodes the GGA, GLL, GSA, GSV, RMC and VTG sentences of an
+ * epoch into a byte buffer allocated once, as NMEACreator does into Strings.
+ *
+ * The epoch data are set in the public fields, NaN or -1 marking a missing
+ * value, and encode() writes the sentences one after the other, each one
+ * terminated by CR LF. The numbers are formatted in fixed point directly into
+ * the buffer and the checksum is accumulated while the bytes are written, so
+ * that the encoding of an epoch does not allocate. An encoder must not be used
+ * by two threads at the same time.
+ */
+public class NMEAEncoder {
+
+  /** Maximum number of satellites in view reported by the GSV sentences */
+  public static final int MAX_IN_VIEW = 32;
+  /** Maximum number of sentences of an epoch */
+  public static final int MAX_SENTENCES = 5 + (MAX_IN_VIEW + 3) / 4;
+
+  private static final byte[] GPGGA = { 'G', 'P', 'G', 'G', 'A' };
+  private static final byte[] GPGLL = { 'G', 'P', 'G', 'L', 'L' };
+  private static final byte[] GPGSA = { 'G', 'P', 'G', 'S', 'A' };
+  private static final byte[] GPGSV = { 'G', 'P', 'G', 'S', 'V' };
+  private static final byte[] GPRMC = { 'G', 'P', 'R', 'M', 'C' };
+  private static final byte[] GPVTG = { 'G', 'P', 'V', 'T', 'G' };
+  private static final byte[] HEX = { '0', '1', '2', '3', '4', '5', '6', '7',
+      '8', '9', 'A', 'B', 'C', 'D', 'E', 'F' };
+  private static final long[] POW10 = new long[19];
+
+  static {
+    POW10[0] = 1;
+    for (int i = 1; i < POW10.length; i++)
+      POW10[i] = 10 * POW10[i - 1];
+  }
+
+  // UTC of position
+  public int hour = -1;
+  public int minute = -1;
+  public double second = Double.NaN;
+  // Date, year with 4 digits
+  public int day = -1;
+  public int month = -1;
+  public int year = -1;
+
+  public double latitude = Double.NaN;    // Latitude (deg)
+  public double longitude = Double.NaN;   // Longitude (deg)
+  public double altitude = Double.NaN;    // Altitude (m)
+  public double geoSep = Double.NaN;      // Geoid separation (m)
+  public double ageDiffGps = Double.NaN;  // Age of differential GPS data (s)
+  public int diffRefStId = -1;            // Differential reference station ID
+  public int gpsQualIndic = -1;           // GPS quality indicator
+  public char status = 'V';               // Status, A: valid, V: invalid
+  public char modeIndicator = 'N';        // Mode indicator, A: autonomous, D: differential, N: not valid
+
+  public char dimMode = 'A';              // Dim mode, A: automatic, M: manual
+  public int fixMode = -1;                // Fix mode: 1 = fix not available, 2 = 2D, 3 = 3D
+  public int numSatUse = -1;              // Number of satellites in use
+  public final int[] satIds = new int[12];// ID numbers of the satellites used in solution, 0 if none
+  public double pdop = Double.NaN;
+  public double hdop = Double.NaN;
+  public double vdop = Double.NaN;
+
+  // Satellites in view: ID number, elevation (deg), azimuth (deg), SNR (dBHz, -1 if none)
+  public int totalSatInView = 0;
+  public final int[] satId = new int[MAX_IN_VIEW];
+  public final int[] elevation = new int[MAX_IN_VIEW];
+  public final int[] azimuth = new int[MAX_IN_VIEW];
+  public final int[] snr = new int[MAX_IN_VIEW];
+
+  public double speedN = Double.NaN;      // Speed over ground (knots)
+  public double speedK = Double.NaN;      // Speed over ground (km/h)
+  public double courseT = Double.NaN;     // Course over ground, degrees true
+  public double courseM = Double.NaN;     // Course over ground, degrees magnetic
+  public double magVar = Double.NaN;      // Magnetic variation, positive to the East (deg)
+
+  private final byte[] buffer = new byte[MAX_SENTENCES * 84];
+  private final int[] start = new int[MAX_SENTENCES];
+  private final int[] end = new int[MAX_SENTENCES];
+  private int length;
+  private int count;
+  private int checksum;
+
+  /**
+   * encode function
+   * 
+   * Encodes the six sentences of the epoch, GGA, GLL, GSA, GSV (one or more
+   * sentences), RMC and VTG, replacing the previous content of the buffer.
+   * 
+   * @return the number of sentences.
+   */
+  public int encode() {
+    length = 0;
+    count = 0;
+    encodeGGA();
+    encodeGLL();
+    encodeGSA();
+    encodeGSV();
+    encodeRMC();
+    encodeVTG();
+    return count;
+  }
+
+  /**
+   * getBuffer function
+   * 
+   * @return the buffer holding the sentences, from 0 to getLength().
+   */
+  public byte[] getBuffer() {
+    return buffer;
+  }
+
+  /**
+   * getLength function
+   * 
+   * @return the number of bytes of the encoded sentences, CR LF included.
+   */
+  public int getLength() {
+    return length;
+  }
+
+  /**
+   * getSentenceCount function
+   * 
+   * @return the number of encoded sentences.
+   */
+  public int getSentenceCount() {
+    return count;
+  }
+
+  /**
+   * getSentenceOffset function
+   * 
+   * @param i
+   *          index of the sentence.
+   * @return the offset in the buffer of the '$' starting the sentence.
+   */
+  public int getSentenceOffset(int i) {
+    return start[i];
+  }
+
+  /**
+   * getSentenceLength function
+   * 
+   * @param i
+   *          index of the sentence.
+   * @return the length of the sentence, up to the checksum, CR LF excluded.
+   */
+  public int getSentenceLength(int i) {
+    return end[i] - start[i];
+  }
+
+  /**
+   * getSentence function
+   * 
+   * @param i
+   *          index of the sentence.
+   * @return a new String of the sentence, without CR LF, as returned by
+   *         NMEACreator.
+   */
+  public String getSentence(int i) {
+    char[] chars = new char[end[i] - start[i]];
+
+    for (int k = 0; k < chars.length; k++)
+      chars[k] = (char) buffer[start[i] + k];
+    return new String(chars);
+  }
+
+  /**
+   * encodeGGA function
+   * 
+   * "$GPGGA,121252.00,3937.3032,N,11611.6046,E,1,05,2.0,45.9,M,-5.7,M,,0000*hh"
+   */
+  public void encodeGGA() {
+    begin(GPGGA);
+    putTime();
+    putLatitude();
+    putLongitude();
+    putInt(gpsQualIndic, 1);
+    comma();
+    putInt(numSatUse, 2);
+    comma();
+    putFixed(hdop, 1);
+    comma();
+    putFixed(altitude, 1);
+    comma();
+    if (!Double.isNaN(altitude))
+      put('M');
+    comma();
+    putFixed(geoSep, 1);
+    comma();
+    if (!Double.isNaN(geoSep))
+      put('M');
+    comma();
+    putFixed(ageDiffGps, 1);
+    comma();
+    putInt(diffRefStId, 4);
+    end();
+  }
+
+  /**
+   * encodeGLL function
+   * 
+   * "$GPGLL,3723.2475,N,12158.3416,W,161229.49,A,A*hh"
+   */
+  public void encodeGLL() {
+    begin(GPGLL);
+    putLatitude();
+    putLongitude();
+    putTime();
+    put(status);
+    comma();
+    put(modeIndicator);
+    end();
+  }
+
+  /**
+   * encodeGSA function
+   * 
+   * "$GPGSA,A,3,04,05,,09,12,,,24,,,,,2.5,1.3,2.1*hh"
+   */
+  public void encodeGSA() {
+    begin(GPGSA);
+    put(dimMode);
+    comma();
+    putInt(fixMode, 1);
+    comma();
+    for (int i = 0; i < 12; i++) {
+      putInt(satIds[i] > 0 ? satIds[i] : -1, 2);
+      comma();
+    }
+    putFixed(pdop, 1);
+    comma();
+    putFixed(hdop, 1);
+    comma();
+    putFixed(vdop, 1);
+    end();
+  }
+
+  /**
+   * encodeGSV function
+   * 
+   * Encodes one sentence per group of 4 satellites in view, at least one.
+   * "$GPGSV,3,1,08,07,57,045,43,09,48,303,48,04,44,144,,02,39,092,*hh"
+   */
+  public void encodeGSV() {
+    int inView = Math.min(totalSatInView, MAX_IN_VIEW);
+    int sentences = Math.max(1, (inView + 3) / 4);
+    int k;
+
+    for (int i = 0; i < sentences; i++) {
+      begin(GPGSV);
+      putInt(sentences, 1);
+      comma();
+      putInt(i + 1, 1);
+      comma();
+      putInt(inView, 2);
+      for (int j = 0; j < 4 && (k = 4 * i + j) < inView; j++) {
+        comma();
+        putInt(satId[k], 2);
+        comma();
+        putInt(elevation[k], 2);
+        comma();
+        putInt(azimuth[k], 3);
+        comma();
+        putInt(snr[k], 2);
+      }
+      end();
+    }
+  }
+
+  /**
+   * encodeRMC function
+   * 
+   * "$GPRMC,002456.00,A,3553.5295,N,13938.6570,E,0.0,43.1,180700,7.1,W,A*hh"
+   */
+  public void encodeRMC() {
+    begin(GPRMC);
+    putTime();
+    put(status);
+    comma();
+    putLatitude();
+    putLongitude();
+    putFixed(speedN, 1);
+    comma();
+    putFixed(courseT, 1);
+    comma();
+    if (day >= 0) {
+      putInt(day, 2);
+      putInt(month, 2);
+      putInt(year % 100, 2);
+    }
+    comma();
+    if (!Double.isNaN(magVar)) {
+      putFixed(Math.abs(magVar), 1);
+      comma();
+      put(magVar >= 0 ? 'E' : 'W');
+    } else
+      comma();
+    comma();
+    put(modeIndicator);
+    end();
+  }
+
+  /**
+   * encodeVTG function
+   * 
+   * "$GPVTG,096.5,T,083.5,M,0.0,N,0.0,K,D*hh"
+   */
+  public void encodeVTG() {
+    begin(GPVTG);
+    putFixed(courseT, 1);
+    comma();
+    if (!Double.isNaN(courseT))
+      put('T');
+    comma();
+    putFixed(courseM, 1);
+    comma();
+    if (!Double.isNaN(courseM))
+      put('M');
+    comma();
+    putFixed(speedN, 1);
+    comma();
+    if (!Double.isNaN(speedN))
+      put('N');
+    comma();
+    putFixed(speedK, 1);
+    comma();
+    if (!Double.isNaN(speedK))
+      put('K');
+    comma();
+    put(modeIndicator);
+    end();
+  }
+
+  /**
+   * Starts a sentence: '$', address field and comma.
+   */
+  private void begin(byte[] type) {
+    start[count] = length;
+    buffer[length++] = '$';
+    checksum = 0;
+    for (int i = 0; i < type.length; i++)
+      put(type[i]);
+    comma();
+  }
+
+  /**
+   * Ends a sentence: '*', checksum, CR LF.
+   */
+  private void end() {
+    int sum = checksum;
+
+    buffer[length++] = '*';
+    buffer[length++] = HEX[(sum >> 4) & 0xF];
+    buffer[length++] = HEX[sum & 0xF];
+    end[count++] = length;
+    buffer[length++] = '\r';
+    buffer[length++] = '\n';
+  }
+
+  private void put(int c) {
+    buffer[length++] = (byte) c;
+    checksum ^= c;
+  }
+
+  private void comma() {
+    put(',');
+  }
+
+  /**
+   * Writes a non negative integer with at least the given number of digits,
+   * nothing if it is negative (missing).
+   */
+  private void putInt(long value, int digits) {
+    int n = 1;
+
+    if (value < 0)
+      return;
+    while (n < POW10.length && value >= POW10[n])
+      n++;
+    for (n = Math.max(n, digits) - 1; n >= 0; n--)
+      put('0' + (int) (value / POW10[n] % 10));
+  }
+
+  /**
+   * Writes a number rounded to the given number of decimals, nothing if it is
+   * NaN (missing).
+   */
+  private void putFixed(double value, int decimals) {
+    long scale = POW10[decimals];
+    long r;
+
+    if (Double.isNaN(value))
+      return;
+    r = Math.round(Math.abs(value) * scale);
+    if (value < 0 && r != 0)
+      put('-');
+    putInt(r / scale, 1);
+    put('.');
+    putInt(r % scale, decimals);
+  }
+
+  /**
+   * Writes hhmmss.ss and comma, or only the comma if the time is missing.
+   */
+  private void putTime() {
+    long t;
+
+    if (hour >= 0 && !Double.isNaN(second)) {
+      // Centiseconds of the day, rounded once so that 59.996 s gives the next minute
+      t = Math.round(((hour * 60 + minute) * 60 + second) * 100) % 8640000;
+      putInt(t / 360000, 2);
+      putInt(t / 6000 % 60, 2);
+      putInt(t / 100 % 60, 2);
+      put('.');
+      putInt(t % 100, 2);
+    }
+    comma();
+  }
+
+  private void putLatitude() {
+    putAngle(latitude, 2, 'N', 'S');
+  }
+
+  private void putLongitude() {
+    putAngle(longitude, 3, 'E', 'W');
+  }
+
+  /**
+   * Writes an angle as degrees and minutes with 4 decimals, comma, hemisphere
+   * and comma, or only the two commas if it is missing.
+   */
+  private void putAngle(double angle, int digits, char positive, char negative) {
+    long t;
+
+    if (!Double.isNaN(angle)) {
+      // 1e-4 minutes, rounded once so that the minutes never reach 60
+      t = Math.round(Math.abs(angle) * 600000);
+      putInt(t / 600000, digits);
+      putInt(t / 10000 % 60, 2);
+      put('.');
+      putInt(t % 10000, 4);
+      comma();
+      put(angle >= 0 ? positive : negative);
+    } else
+      comma();
+    comma();
+  }
+}
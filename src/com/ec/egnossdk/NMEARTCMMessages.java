@@ -3,7 +3,8 @@
  *
  * @brief Creates the RTCm messages.
  * @details For RTCM MT1, MT2 and MT3 are created. MT2 requires a 
- * EGNOS position to be available.
+ * EGNOS position to be available. The corrections and the station
+ * coordinates are also sent as RTCM 3 messages.
  *
  * Rev: 3.0.0
  *
@@ -27,8 +28,6 @@
  */
 package com.ec.egnossdk;
 
-import android.util.Log;
-
 import com.ec.egnossdk.NMEACreator;
 import com.ec.egnossdk.RtcmHandler;
 
@@ -67,36 +66,96 @@ public class NMEARTCMMessages {
 	double[] ecefgps = new double[3];
 	Integer numSatUse;
 	
-	public void createRTCMData() {
-    RtcmHandler MTCreator = new RtcmHandler();
+	// Encoder of the messages, one continuous stream from epoch to epoch
+	private final RtcmHandler MTCreator = new RtcmHandler();
+	// Encoder of the RTCM 3 messages
+	private final Rtcm3Encoder rtcm3 = new Rtcm3Encoder();
+	
+	// Rendering of the messages as text, for debugging
+	private boolean textEnabled = true;
+
+	/**
+	 * setTextEnabled function
+	 *
+	 * Enables the rendering of the messages as text, logged and set in
+	 * GlobalState.setRtcmMessage1/2/3. The encoded messages are published
+	 * on the output bus in any case.
+	 * @param enabled  true to render the messages as text.
+	 **/
+	public void setTextEnabled(boolean enabled) {
+		textEnabled = enabled;
+	}
+
+	/**
+	 * renderText function
+	 *
+	 * Renders a message type 1 or 2 as text: the header, then one line per satellite.
+	 **/
+	private String renderText(int type, double[] cor, double[] corRate) {
+		StringBuilder text = new StringBuilder(64 * (1 + numSatUse));
+
+		text.append(type).append(',').append(stationId).append(',')
+				.append(modifiedZCount * 0.6).append(',').append(sequenceNo)
+				.append(',').append(numSatUse).append(',').append(stationHealth);
+		for (int i = 0; i < numSatUse; i++)
+			text.append('\n').append(scaleFactor[i]).append(',').append(udre[i])
+					.append(',').append(satlliteId[i]).append(',').append(cor[i])
+					.append(',').append(corRate[i]).append(',').append(iod[i]);
+		return text.append('\n').toString();
+	}
 
+	/**
+	 * publishRtcm function
+	 *
+	 * Publishes the last created messages on the output bus and advances the
+	 * sequence number.
+	 **/
+	private void publishRtcm() {
+		GlobalState.getOutputBus().publish(OutputBus.RTCM, MTCreator.getBuffer(),
+				0, MTCreator.getLength());
+		sequenceNo = (sequenceNo + MTCreator.getMessageCount()) % 8;
+	}
+
+	/**
+	 * publishRtcm3 function
+	 *
+	 * Publishes the last encoded RTCM 3 message on the output bus.
+	 **/
+	private void publishRtcm3() {
+		GlobalState.getOutputBus().publish(OutputBus.RTCM3, rtcm3.getBuffer(),
+				0, rtcm3.getLength());
+	}
+
+	public void createRTCMData() {
     //Fetch RTCM Data From SDK
-    numSatUse = (int) GlobalState.getNumSatUse();
-    //Log.d("RTCM", "NumSatUse:  " + numSatUse);
+    PositionSolution solution = GlobalState.getPositionSolution();
+    if (solution == null)
+      return;
 
-    modifiedZCount = GlobalState.getModZcount();
+    numSatUse = solution.getUsedCount();
+
+    modifiedZCount = solution.getModifiedZCount();
     
     double[] position = GlobalState.getPosition();
-    //Log.d("RTCM", "position[0]:  " + position[0]);
     
     //MT 1
     NMEACreator Create1 = new NMEACreator();
     
     // MT 3
     if (GlobalState.getisEgnosPosition() == 1) {// EGNOS position (All)
-        Log.d("RTCM", "EGNOS Green position is used");
+        Platform.log().d("RTCM", "EGNOS Green position is used");
         ecefBLH[0] = position[3];
         ecefBLH[1] = position[4];
         ecefBLH[2] = position[5];
     }
     else if (GlobalState.getisEgnosPosition() == 0 && position[3] != 0) {// EGNOS position (Few)
-        Log.d("RTCM", "EGNOS Orange position is used");
+        Platform.log().d("RTCM", "EGNOS Orange position is used");
         ecefBLH[0] = position[3];
         ecefBLH[1] = position[4];
         ecefBLH[2] = position[5];
     }
     else if (GlobalState.getisEgnosPosition() == 2 && position[3] == 0) {// No EGNOS position, only/ GPS position
-        Log.d("RTCM", "GPS position is used");
+        Platform.log().d("RTCM", "GPS position is used");
         ecefBLH[0] = position[0];
         ecefBLH[1] = position[1];
         ecefBLH[2] = position[2];
@@ -105,46 +164,30 @@ public class NMEARTCMMessages {
     for (int i = 0; i < numSatUse; i++) {
       scaleFactor[i] = 0;
       udre[i] = 1;
-      satlliteId[i] = (int) GlobalState.getPrnUse()[i];
-      prCor[i] = GlobalState.getPrc()[i];
-      prCorRate[i] = GlobalState.getRrc()[i];   
-      iod[i] = (int) GlobalState.getIodc()[i];
+      satlliteId[i] = (int) solution.getUsedPrn(i);
+      prCor[i] = solution.getPrc(i);
+      prCorRate[i] = solution.getRrc(i);   
+      iod[i] = (int) solution.getIodc(i);
     }
 
     ecefXYZ = Create1.BLHtoXYZ(ecefBLH);
     
     //Create RTCM Messages
     // MT 1
-    int N = MTCreator.GetRtcmNumOfWord(1, numSatUse);
-    char[][] RtcmMsgByte1 = new char[2 + N][5];
-    String rtcmMsg1Header = null;
-    String[] rtcmMsg1Body = new String[numSatUse];
-    String rtcmMsg1 = null;
-
-    MTCreator.CreateRtcm1(1, stationId, modifiedZCount, sequenceNo,
+    MTCreator.CreateRtcm1(stationId, modifiedZCount, sequenceNo,
         numSatUse, stationHealth, scaleFactor, udre, satlliteId, prCor,
-        prCorRate, iod, RtcmMsgByte1);
+        prCorRate, iod);
     
-    rtcmMsg1Header = "1" + "," + stationId + "," + modifiedZCount * 0.6 + "," 
-    		+ sequenceNo + "," + numSatUse + "," + stationHealth;
-    
-    rtcmMsg1 = rtcmMsg1Header;
-    for(int i = 0; i < numSatUse; i++) {
-    	rtcmMsg1Body[i] = scaleFactor[i] + "," + udre[i] + "," + satlliteId[i] 
-    			+ "," + prCor[i] + "," + prCorRate[i] + "," + iod[i];
-    	rtcmMsg1 = rtcmMsg1 + "\n" + rtcmMsg1Body[i];
+    if (textEnabled) {
+      String rtcmMsg1 = renderText(1, prCor, prCorRate);
+      Platform.log().d("RTCM", "RTCM Message 1:" + rtcmMsg1);
+      GlobalState.setRtcmMessage1(rtcmMsg1);
     }
-    
-    rtcmMsg1 += "\n";
-    Log.d("RTCM", "RTCM Message 1:" +rtcmMsg1);
-    
-    GlobalState.setRtcmMessage1(rtcmMsg1);
-    GlobalState.setRtcmMessagesByte1(RtcmMsgByte1);
-    sequenceNo = (sequenceNo + 1) % 8;
-     //   For debugging only
-//        for (int i=0; i<N+2; i++) {
-//          Log.d("RTCM", "RTCM Message 1:" + String.valueOf(RtcmMsgByte1[i]));
-//     }
+    GlobalState.setRtcmMessagesByte1(MTCreator.getWords());
+    publishRtcm();
+    rtcm3.encodeCorrections(stationId, solution.getTow(), numSatUse,
+        scaleFactor, udre, satlliteId, prCor, prCorRate, iod);
+    publishRtcm3();
         
      // MT 2
      if(prCorOld[0]!=0.0)
@@ -155,59 +198,38 @@ public class NMEARTCMMessages {
 		     deltaPrCorRate[i] = prCorRateOld[i] - prCorRate[i];
 	     }
     	 
-	     N = MTCreator.GetRtcmNumOfWord(2, numSatUse);
-	     char[][] RtcmMsgByte2=new char[2+N][5];
-	    
-	     MTCreator.CreateRtcm2(2,stationId, modifiedZCount,sequenceNo,numSatUse,
-	     stationHealth,
-	     scaleFactor,udre,satlliteId,deltaPrCor,deltaPrCorRate,iod, RtcmMsgByte2);
-	    
-	     String rtcmMsg2Header = null;
-	     String[] rtcmMsg2Body = new String[numSatUse];
-	     String rtcmMsg2 = null;
-	     
-	     rtcmMsg2Header = "2" + "," + stationId + "," + modifiedZCount * 0.6 + "," 
-	     		+ sequenceNo + "," + numSatUse + "," + stationHealth;
-	     rtcmMsg2 = rtcmMsg2Header;
-	     for(int i = 0; i < numSatUse; i++) {
-	     	rtcmMsg2Body[i] = scaleFactor[i] + "," + udre[i] + "," + satlliteId[i] 
-	     			+ "," + deltaPrCor[i] + "," + deltaPrCorRate[i] + "," + iod[i];
-	        rtcmMsg2 = rtcmMsg2 + "\n" + rtcmMsg2Body[i];
-	     }
-
+	     // Only the published messages are created, they continue the parity of the stream
 	     if (deltaPrCor[0] != 0) {
-	    	 rtcmMsg2 += "\n";
-	       GlobalState.setRtcmMessage2(rtcmMsg2);
-	       GlobalState.setRtcmMessagesByte2(RtcmMsgByte2);
+	       MTCreator.CreateRtcm2(stationId, modifiedZCount, sequenceNo, numSatUse,
+	           stationHealth, scaleFactor, udre, satlliteId, deltaPrCor,
+	           deltaPrCorRate, iod);
+	       if (textEnabled) {
+	         String rtcmMsg2 = renderText(2, deltaPrCor, deltaPrCorRate);
+	         Platform.log().d("RTCM", "RTCM Message 2:" + rtcmMsg2);
+	         GlobalState.setRtcmMessage2(rtcmMsg2);
+	       }
+	       GlobalState.setRtcmMessagesByte2(MTCreator.getWords());
+	       publishRtcm();
 	     }
 	     else
-	    	 rtcmMsg2 = "No EGNOS position -> no RTCM MT2";
-	     
-	     Log.d("RTCM", "RTCM Message 2:" +rtcmMsg2);
-
-	     sequenceNo=(sequenceNo+1)%8;
+	       Platform.log().d("RTCM", "No EGNOS position -> no RTCM MT2");
      }
      
      // MT 3
-     N = MTCreator.GetRtcmNumOfWord(3, numSatUse);
-     char[][] RtcmMsgByte3 = new char[2 + N][5];
+     MTCreator.CreateRtcm3(stationId, modifiedZCount, sequenceNo,
+    		 stationHealth, ecefXYZ[0], ecefXYZ[1], ecefXYZ[2]);
      
-     MTCreator.CreateRtcm3(3, stationId, modifiedZCount, sequenceNo,
-    		 numSatUse, stationHealth, ecefXYZ[0], ecefXYZ[1], ecefXYZ[2],
-    		 RtcmMsgByte3);
-     
-     String rtcmMsg3Header = null;
-     String rtcmMsg3Body = null;
-     
-     rtcmMsg3Header = "3" + "," + stationId + "," + modifiedZCount * 0.6 + ","
-                    + sequenceNo + "," + numSatUse + "," + stationHealth + "\n";
-     
-     rtcmMsg3Body = ecefXYZ[0] + "," + ecefXYZ[1] + "," + ecefXYZ[2] + "\n";
-     
-     GlobalState.setRtcmMessage3(rtcmMsg3Header + rtcmMsg3Body);
-     Log.d("RTCM", "RTCM Message 3:" +rtcmMsg3Header + rtcmMsg3Body);
-     GlobalState.setRtcmMessagesByte3(RtcmMsgByte3);
-     sequenceNo = (sequenceNo + 1) % 8;
+     if (textEnabled) {
+       String rtcmMsg3 = "3" + "," + stationId + "," + modifiedZCount * 0.6 + ","
+                      + sequenceNo + "," + numSatUse + "," + stationHealth + "\n"
+                      + ecefXYZ[0] + "," + ecefXYZ[1] + "," + ecefXYZ[2] + "\n";
+       GlobalState.setRtcmMessage3(rtcmMsg3);
+       Platform.log().d("RTCM", "RTCM Message 3:" + rtcmMsg3);
+     }
+     GlobalState.setRtcmMessagesByte3(MTCreator.getWords());
+     publishRtcm();
+     rtcm3.encodeStation(stationId, ecefXYZ[0], ecefXYZ[1], ecefXYZ[2]);
+     publishRtcm3();
      
      // Update data
      for(int p = 0; p< numSatUse;p++)
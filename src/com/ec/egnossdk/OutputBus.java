@@ -0,0 +1,371 @@
+/**
+ * @file OutputBus.java
+ *
+ * Publish/subscribe bus of the NMEA and RTCM messages sent by the SDK.
+ *
+ * Rev: 3.0.0
+ *
+ * Author: DKE Aerospace Germany GmbH
+ *
+ * Copyright 2012 European Commission
+ *
+ * Licensed under the EUPL, Version 1.1 only (the "Licence");
+ * You may not use this work except in compliance with the
+ * Licence.
+ * You may obtain a copy of the Licence at:
+ * http://ec.europa.eu/idabc/eupl
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the Licence is
+ * distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied.
+ * See the Licence for the specific language governing
+ * permissions and limitations under the Licence.
+ *
+ **/
+
+package com.ec.egnossdk;
+
+import java.io.IOException;
+
+/**
+ * Class that delivers the NMEA sentences and RTCM messages of each epoch to
+ * any number of sinks (Bluetooth link, TCP server, file, listener of the
+ * application).
+ *
+ * A message is published once by the epoch loop and copied into the bounded
+ * queue of each subscription, a ring buffer of bytes allocated when the sink
+ * subscribes. A thread per subscription takes the messages from its queue
+ * and writes them to the sink. The epoch loop never waits for a sink: when
+ * the queue of a slow sink is full, the message is dropped for this sink
+ * only and counted (see Subscription.getDropped).
+ *
+ * The bus of the SDK is returned by GlobalState.getOutputBus.
+ */
+public final class OutputBus {
+
+	/** Type of the NMEA sentences */
+	public static final int NMEA = 1;
+	/** Type of the RTCM messages */
+	public static final int RTCM = 2;
+	/** Type of the RTCM 3 messages */
+	public static final int RTCM3 = 4;
+	/** All the types of messages */
+	public static final int ALL = NMEA | RTCM | RTCM3;
+
+	/** Default capacity of the queue of a subscription (bytes) */
+	public static final int DEFAULT_CAPACITY = 16384;
+
+	/** Largest length of a message (bytes) */
+	public static final int MAX_LENGTH = 0xFFFF;
+
+	/** Length of the header of a message in a queue: type and length */
+	private static final int HEADER = 3;
+
+	private static final String TAG = "OutputBus";
+
+	/**
+	 * Sink of the messages of the bus.
+	 *
+	 * The methods are called by the thread of the subscription, never by the
+	 * thread publishing the messages.
+	 */
+	public interface Sink {
+		/**
+		 * Writes a message.
+		 *
+		 * @param type
+		 *            type of the message, NMEA, RTCM or RTCM3.
+		 * @param data
+		 *            array holding the message, only valid during the call.
+		 * @param offset
+		 *            offset of the message in data.
+		 * @param length
+		 *            length of the message.
+		 **/
+		void write(int type, byte[] data, int offset, int length)
+				throws IOException;
+
+		/** Flushes the written messages, called when the queue is empty. */
+		void flush() throws IOException;
+
+		/** Releases the resources of the sink, called when unsubscribed. */
+		void close();
+	}
+
+	/**
+	 * Subscription of a sink to the bus, holding the queue of its messages.
+	 */
+	public final class Subscription implements Runnable {
+		private final Sink sink;
+		private final int types;
+		private final byte[] ring;
+		private final byte[] message;
+		private final Thread thread;
+		private int head;
+		private int size;
+		private boolean closed;
+		private long delivered;
+		private long dropped;
+		private long errors;
+
+		private Subscription(Sink sink, int types, int capacity) {
+			this.sink = sink;
+			this.types = types;
+			this.ring = new byte[capacity];
+			this.message = new byte[Math.min(capacity, MAX_LENGTH)];
+			thread = new Thread(this, "OutputBus-" + sink.getClass().getSimpleName());
+			thread.setDaemon(true);
+		}
+
+		/**
+		 * offer function
+		 *
+		 * Copies a message at the end of the queue.
+		 *
+		 * @return false if the message was dropped because the queue is full.
+		 **/
+		private synchronized boolean offer(int type, byte[] data, int offset,
+				int length) {
+			int tail, part;
+
+			if (closed || ring.length - size < HEADER + length) {
+				dropped++;
+				return false;
+			}
+			tail = head + size;
+			put(tail++, (byte) type);
+			put(tail++, (byte) (length >> 8));
+			put(tail++, (byte) length);
+			tail %= ring.length;
+			part = Math.min(length, ring.length - tail);
+			System.arraycopy(data, offset, ring, tail, part);
+			System.arraycopy(data, offset + part, ring, 0, length - part);
+			if (size == 0)
+				notify();
+			size += HEADER + length;
+			return true;
+		}
+
+		private void put(int index, byte value) {
+			ring[index % ring.length] = value;
+		}
+
+		private int get(int index) {
+			return ring[index % ring.length] & 0xFF;
+		}
+
+		/**
+		 * take function
+		 *
+		 * Waits for the first message of the queue and moves it into
+		 * the message array.
+		 *
+		 * @return the type of the message, with its length in the bits 8-23,
+		 *         or -1 if the subscription is closed and the queue empty.
+		 **/
+		private synchronized int take() throws InterruptedException {
+			int type, length, start, part;
+
+			while (size == 0) {
+				if (closed)
+					return -1;
+				wait();
+			}
+			type = get(head);
+			length = get(head + 1) << 8 | get(head + 2);
+			start = (head + HEADER) % ring.length;
+			part = Math.min(length, ring.length - start);
+			System.arraycopy(ring, start, message, 0, part);
+			System.arraycopy(ring, 0, message, part, length - part);
+			head = (start + length) % ring.length;
+			size -= HEADER + length;
+			return type | length << 8;
+		}
+
+		private synchronized boolean isEmpty() {
+			return size == 0;
+		}
+
+		public void run() {
+			int taken;
+
+			try {
+				while ((taken = take()) >= 0) {
+					try {
+						sink.write(taken & 0xFF, message, 0, taken >>> 8);
+						if (isEmpty())
+							sink.flush();
+						synchronized (this) {
+							delivered++;
+						}
+					} catch (IOException e) {
+						synchronized (this) {
+							errors++;
+						}
+						Platform.log().e(TAG, "Error while writing to the sink", e);
+					}
+				}
+			} catch (InterruptedException e) {
+				Platform.log().w(TAG, "Subscription interrupted");
+			}
+			sink.close();
+		}
+
+		/** Returns the sink of the subscription. */
+		public Sink getSink() {
+			return sink;
+		}
+
+		/** Returns the number of messages written to the sink. */
+		public synchronized long getDelivered() {
+			return delivered;
+		}
+
+		/** Returns the number of messages dropped because the queue was full. */
+		public synchronized long getDropped() {
+			return dropped;
+		}
+
+		/** Returns the number of messages the sink failed to write. */
+		public synchronized long getErrors() {
+			return errors;
+		}
+
+		/**
+		 * close function
+		 *
+		 * Stops the queueing of the messages. The thread of the subscription
+		 * writes the messages already queued, then closes the sink.
+		 **/
+		private synchronized void close() {
+			closed = true;
+			notify();
+		}
+	}
+
+	private final Object lock = new Object();
+	// Replaced at each (un)subscription, read without lock by publish
+	private volatile Subscription[] subscriptions = new Subscription[0];
+
+	/**
+	 * subscribe function
+	 *
+	 * Subscribes a sink with a queue of the default capacity.
+	 *
+	 * @param sink
+	 *            the sink of the messages.
+	 * @param types
+	 *            the types of the messages written to the sink (NMEA, RTCM,
+	 *            RTCM3 or a combination, ALL).
+	 * @return the subscription of the sink.
+	 **/
+	public Subscription subscribe(Sink sink, int types) {
+		return subscribe(sink, types, DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * subscribe function
+	 *
+	 * Subscribes a sink and starts the thread writing its messages.
+	 *
+	 * @param sink
+	 *            the sink of the messages.
+	 * @param types
+	 *            the types of the messages written to the sink (NMEA, RTCM,
+	 *            RTCM3 or a combination, ALL).
+	 * @param capacity
+	 *            capacity of the queue of the sink (bytes).
+	 * @return the subscription of the sink.
+	 **/
+	public Subscription subscribe(Sink sink, int types, int capacity) {
+		Subscription subscription;
+		Subscription[] current, next;
+
+		if (capacity <= HEADER)
+			throw new IllegalArgumentException("Capacity too small: " + capacity);
+		subscription = new Subscription(sink, types, capacity);
+		synchronized (lock) {
+			current = subscriptions;
+			next = new Subscription[current.length + 1];
+			System.arraycopy(current, 0, next, 0, current.length);
+			next[current.length] = subscription;
+			subscriptions = next;
+		}
+		subscription.thread.start();
+		return subscription;
+	}
+
+	/**
+	 * unsubscribe function
+	 *
+	 * Removes a subscription from the bus and closes it.
+	 *
+	 * @param subscription
+	 *            the subscription returned by subscribe.
+	 **/
+	public void unsubscribe(Subscription subscription) {
+		Subscription[] current, next;
+		int i, k = 0;
+
+		synchronized (lock) {
+			current = subscriptions;
+			for (i = 0; i < current.length; i++)
+				if (current[i] == subscription)
+					break;
+			if (i == current.length)
+				return;
+			next = new Subscription[current.length - 1];
+			for (i = 0; i < current.length; i++)
+				if (current[i] != subscription)
+					next[k++] = current[i];
+			subscriptions = next;
+		}
+		subscription.close();
+	}
+
+	/**
+	 * close function
+	 *
+	 * Removes and closes all the subscriptions.
+	 **/
+	public void close() {
+		Subscription[] current;
+
+		synchronized (lock) {
+			current = subscriptions;
+			subscriptions = new Subscription[0];
+		}
+		for (Subscription subscription : current)
+			subscription.close();
+	}
+
+	/**
+	 * publish function
+	 *
+	 * Copies a message into the queue of each sink subscribed to its type.
+	 * The function does not allocate and does not wait for the sinks.
+	 *
+	 * @param type
+	 *            type of the message, NMEA, RTCM or RTCM3.
+	 * @param data
+	 *            array holding the message, can be reused after the call.
+	 * @param offset
+	 *            offset of the message in data.
+	 * @param length
+	 *            length of the message, at most MAX_LENGTH.
+	 * @return the number of queues the message was copied into.
+	 **/
+	public int publish(int type, byte[] data, int offset, int length) {
+		Subscription[] current = subscriptions;
+		int queued = 0;
+
+		if (length > MAX_LENGTH)
+			throw new IllegalArgumentException("Message too long: " + length);
+		for (int i = 0; i < current.length; i++)
+			if ((current[i].types & type) != 0
+					&& current[i].offer(type, data, offset, length))
+				queued++;
+		return queued;
+	}
+}
@@ -0,0 +1,187 @@
+/**
+ * @file Platform.java
+ *
+ * Services of the platform the SDK runs on: logging, storage of files,
+ * transport to the external receiver and read-only resources.
+ *
+ * Rev: 3.0.0
+ *
+ * Author: DKE Aerospace Germany GmbH
+ *
+ * Copyright 2012 European Commission
+ *
+ * Licensed under the EUPL, Version 1.1 only (the "Licence");
+ * You may not use this work except in compliance with the
+ * Licence.
+ * You may obtain a copy of the Licence at:
+ * http://ec.europa.eu/idabc/eupl
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the Licence is
+ * distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied.
+ * See the Licence for the specific language governing
+ * permissions and limitations under the Licence.
+ *
+ **/
+
+package com.ec.egnossdk;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Class that gives access to the platform services used by the core of the
+ * SDK (parsing, corrections, position computation, NMEA/RTCM output).
+ *
+ * The core only depends on the interfaces below, so that it runs unchanged
+ * on Android and on a plain JVM. The services of a plain JVM (JvmPlatform)
+ * are used by default, the Android application installs AndroidPlatform
+ * when it is created (see EGNOSApplication).
+ */
+public final class Platform {
+
+	/**
+	 * Logging service.
+	 */
+	public interface Log {
+		/** Writes a debug message. */
+		void d(String tag, String message);
+
+		/** Writes an information message. */
+		void i(String tag, String message);
+
+		/** Writes a warning message. */
+		void w(String tag, String message);
+
+		/** Writes an error message. */
+		void e(String tag, String message);
+
+		/** Writes an error message with its exception. */
+		void e(String tag, String message, Throwable error);
+	}
+
+	/**
+	 * Storage service, for the log and data files written by the SDK.
+	 */
+	public interface Storage {
+		/**
+		 * Opens a file for reading.
+		 * 
+		 * @param name
+		 *            name of the file.
+		 * @return the input stream of the file.
+		 **/
+		InputStream openInput(String name) throws IOException;
+
+		/**
+		 * Opens a file for writing.
+		 * 
+		 * @param name
+		 *            name of the file.
+		 * @param append
+		 *            true to write at the end of an existing file.
+		 * @return the output stream of the file.
+		 **/
+		OutputStream openOutput(String name, boolean append)
+				throws IOException;
+	}
+
+	/**
+	 * Transport service, the connection to the external receiver or to the
+	 * consumer of the NMEA/RTCM messages.
+	 */
+	public interface Transport {
+		/** Returns true if the connection is established. */
+		boolean isConnected();
+
+		/** Returns the stream of the received bytes. */
+		InputStream getInputStream() throws IOException;
+
+		/** Returns the stream of the sent bytes. */
+		OutputStream getOutputStream() throws IOException;
+
+		/** Closes the connection. */
+		void close() throws IOException;
+	}
+
+	/**
+	 * Resources service, for the read-only data files shipped with the SDK
+	 * (e.g. WMM.COF).
+	 */
+	public interface Resources {
+		/**
+		 * Opens a resource.
+		 * 
+		 * @param name
+		 *            name of the resource.
+		 * @return the input stream of the resource.
+		 **/
+		InputStream open(String name) throws IOException;
+	}
+
+	private static volatile Log log;
+	private static volatile Storage storage;
+	private static volatile Resources resources;
+	private static volatile Transport transport;
+
+	static {
+		JvmPlatform jvm = new JvmPlatform();
+		install(jvm, jvm, jvm);
+	}
+
+	private Platform() {
+	}
+
+	/**
+	 * install function
+	 * 
+	 * Installs the logging, storage and resources services.
+	 * 
+	 * @param newLog
+	 *            the logging service.
+	 * @param newStorage
+	 *            the storage service.
+	 * @param newResources
+	 *            the resources service.
+	 **/
+	public static void install(Log newLog, Storage newStorage,
+			Resources newResources) {
+		log = newLog;
+		storage = newStorage;
+		resources = newResources;
+	}
+
+	/**
+	 * setTransport function
+	 * 
+	 * Sets the connection to the external receiver, null if not connected.
+	 * 
+	 * @param newTransport
+	 *            the transport service.
+	 **/
+	public static void setTransport(Transport newTransport) {
+		transport = newTransport;
+	}
+
+	/** Returns the logging service. */
+	public static Log log() {
+		return log;
+	}
+
+	/** Returns the storage service. */
+	public static Storage storage() {
+		return storage;
+	}
+
+	/** Returns the resources service. */
+	public static Resources resources() {
+		return resources;
+	}
+
+	/** Returns the transport service, null if not connected. */
+	public static Transport transport() {
+		return transport;
+	}
+}
@@ -0,0 +1,551 @@
+/**
+ * @file PositionSolution.java
+ *
+ * Typed view over the table filled by the EGNOS SW Receiver for each epoch.
+ * The table is owned by the caller and reused from one epoch to the next,
+ * so no array is allocated per position computation.
+ *
+ * Rev: 3.0.0
+ *
+ * Author: DKE Aerospace Germany GmbH
+ *
+ * Copyright 2012 European Commission
+ *
+ * Licensed under the EUPL, Version 1.1 only (the "Licence");
+ * You may not use this work except in compliance with the
+ * Licence.
+ * You may obtain a copy of the Licence at:
+ * http://ec.europa.eu/idabc/eupl
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the Licence is
+ * distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied.
+ * See the Licence for the specific language governing
+ * permissions and limitations under the Licence.
+ *
+ **/
+
+package com.ec.egnossdk;
+
+import java.util.Arrays;
+
+/**
+ * Class that gives named access to a GPS or EGNOS position solution as
+ * written by the native functions getLongitudeLatitudeGPS and
+ * getLongitudeLatitudeEGNOS. The layout of the underlying table must match
+ * the one written in CoordinatesMain.c.
+ *
+ * Satellites are addressed in three ways:
+ * - tracked satellites (0 to getTrackedCount()-1), the satellites processed
+ *   by the positioning module,
+ * - satellites in view (0 to getInViewCount()-1), the tracked satellites
+ *   followed by the satellites not used,
+ * - used satellites (0 to getUsedCount()-1), the satellites used in the
+ *   position solution, with their corrections.
+ *
+ * The content is overwritten on each epoch.
+ */
+public class PositionSolution {
+
+	/** GPS position solution */
+	public static final int GPS = 0;
+	/** EGNOS position solution */
+	public static final int EGNOS = 1;
+
+	/** Size of the GPS table, GPS_SOLUTION_SIZE in Engine.h */
+	public static final int GPS_SIZE = 470;
+	/** Size of the EGNOS table, EGNOS_SOLUTION_SIZE in Engine.h */
+	public static final int EGNOS_SIZE = 836;
+
+	private final int type;
+	private final double[] buffer;
+
+	// Indexes of the scalar values, -1 if not available for the type
+	private final int iLatitude = 0;
+	private final int iLongitude = 1;
+	private final int iAltitude = 2;
+	private final int iHpl;
+	private final int iVpl;
+	private final int iEcef;
+	private final int iHdop;
+	private final int iVdop;
+	private final int iTracked;
+	private final int iUsed;
+	private final int iIterations;
+	private final int iJump;
+	private final int iZcountTow;
+	private final int iNotUsed;
+	private final int iWeek;
+	private final int iIonoFlag;
+	private final int iEgnosPosition;
+	private final int iRnD;
+	private final int iFiltered;
+	private final int iVelocity;
+
+	// Per satellite blocks: start index and size of one record
+	private final int tracked, trackedStep;
+	private final int nav, navStep;
+	private final int used, usedStep;
+	private final int usedMeas, usedMeasStep;
+
+	/**
+	 * PositionSolution constructor
+	 *
+	 * Allocates the table once for the given type of solution.
+	 *
+	 * @param type
+	 *            GPS or EGNOS.
+	 **/
+	public PositionSolution(int type) {
+		this.type = type;
+		if (type == EGNOS) {
+			buffer = new double[EGNOS_SIZE];
+			iHpl = 3;
+			iVpl = 19;
+			iEcef = 4;
+			iHdop = 8;
+			iVdop = 522;
+			iTracked = 11;
+			iUsed = 14;
+			iIterations = 15;
+			iJump = 16;
+			iZcountTow = 679;
+			iNotUsed = 601;
+			iWeek = 525;
+			iIonoFlag = 9;
+			iEgnosPosition = 10;
+			iRnD = 514;
+			iFiltered = 832;
+			iVelocity = 833;
+			tracked = 20;
+			trackedStep = 26;
+			nav = 525;
+			navStep = 4;
+			used = 680;
+			usedStep = 8;
+			usedMeas = 684;
+			usedMeasStep = 8;
+		} else {
+			buffer = new double[GPS_SIZE];
+			iHpl = -1;
+			iVpl = -1;
+			iEcef = 3;
+			iHdop = 7;
+			iVdop = 55;
+			iTracked = 8;
+			iUsed = 10;
+			iIterations = 11;
+			iJump = 12;
+			iZcountTow = 186;
+			iNotUsed = 393;
+			iWeek = 16;
+			iIonoFlag = -1;
+			iEgnosPosition = -1;
+			iRnD = -1;
+			iFiltered = -1;
+			iVelocity = -1;
+			tracked = 17;
+			trackedStep = 2;
+			nav = 58;
+			navStep = 6;
+			used = 187;
+			usedStep = 4;
+			usedMeas = 317;
+			usedMeasStep = 4;
+		}
+	}
+
+	/**
+	 * getType function
+	 *
+	 * @return type GPS or EGNOS.
+	 **/
+	public int getType() {
+		return type;
+	}
+
+	/**
+	 * getBuffer function
+	 *
+	 * Gets the underlying table, to be passed to the native functions and
+	 * for the position logs.
+	 *
+	 * @return buffer the reused table.
+	 **/
+	public double[] getBuffer() {
+		return buffer;
+	}
+
+	/**
+	 * clear function
+	 *
+	 * Resets all the values of the solution to 0.
+	 **/
+	public void clear() {
+		Arrays.fill(buffer, 0.0);
+	}
+
+	public double getLatitude() {
+		return buffer[iLatitude];
+	}
+
+	public double getLongitude() {
+		return buffer[iLongitude];
+	}
+
+	public double getAltitude() {
+		return buffer[iAltitude];
+	}
+
+	/**
+	 * getEcef function
+	 *
+	 * @param i
+	 *            0:X, 1:Y, 2:Z ECEF (m), 3:c.dt (m).
+	 * @return value the ECEF coordinate or the receiver clock bias.
+	 **/
+	public double getEcef(int i) {
+		return buffer[iEcef + i];
+	}
+
+	/**
+	 * getHPL function
+	 *
+	 * @return HPL the horizontal protection level (m), 0 for GPS.
+	 **/
+	public double getHPL() {
+		return iHpl < 0 ? 0 : buffer[iHpl];
+	}
+
+	/**
+	 * setHPL function
+	 *
+	 * Overrides the horizontal protection level, e.g. to not display the
+	 * integrity circle for a preliminary EGNOS position.
+	 *
+	 * @param hpl
+	 *            the horizontal protection level (m).
+	 **/
+	void setHPL(double hpl) {
+		if (iHpl >= 0)
+			buffer[iHpl] = hpl;
+	}
+
+	/**
+	 * getVPL function
+	 *
+	 * @return VPL the vertical protection level (m), 0 for GPS.
+	 **/
+	public double getVPL() {
+		return iVpl < 0 ? 0 : buffer[iVpl];
+	}
+
+	public double getHDOP() {
+		return buffer[iHdop];
+	}
+
+	public double getVDOP() {
+		return buffer[iVdop];
+	}
+
+	public double getPDOP() {
+		return buffer[iVdop + 1];
+	}
+
+	public double getTDOP() {
+		return buffer[iVdop + 2];
+	}
+
+	/**
+	 * getIonoFlag function
+	 *
+	 * @return iono_flag 1 if the ionospheric correction is computed for all
+	 *         PRN, 0 otherwise (always 0 for GPS).
+	 **/
+	public int getIonoFlag() {
+		return iIonoFlag < 0 ? 0 : (int) buffer[iIonoFlag];
+	}
+
+	/**
+	 * getEgnosPosition function
+	 *
+	 * @return egnos_position 1 if all EGNOS corrections are decoded (green
+	 *         position), 0 otherwise (always 0 for GPS).
+	 **/
+	public int getEgnosPosition() {
+		return iEgnosPosition < 0 ? 0 : (int) buffer[iEgnosPosition];
+	}
+
+	public int getIterations() {
+		return (int) buffer[iIterations];
+	}
+
+	/**
+	 * getJump function
+	 *
+	 * @param i
+	 *            0:1 if a jump in position occurred, 1:jump on x, 2:jump on y.
+	 * @return value the jump information.
+	 **/
+	public double getJump(int i) {
+		return buffer[iJump + i];
+	}
+
+	/**
+	 * getRnD function
+	 *
+	 * @param i
+	 *            0-2:R&D latitude, longitude, altitude, 3-5:DOP position
+	 *            latitude, longitude, altitude, 6-7:R&D protection levels.
+	 * @return value the R&D value, 0 for GPS.
+	 **/
+	public double getRnD(int i) {
+		return iRnD < 0 ? 0 : buffer[iRnD + i];
+	}
+
+	/**
+	 * getFiltered function
+	 *
+	 * @return filtered 1 if the position is the measurement update of the
+	 *         Kalman filter (R&D option 6), 0 if it is the least squares
+	 *         solution (always 0 for GPS).
+	 **/
+	public int getFiltered() {
+		return iFiltered < 0 ? 0 : (int) buffer[iFiltered];
+	}
+
+	/**
+	 * getVelocity function
+	 *
+	 * @param i
+	 *            0:X, 1:Y, 2:Z.
+	 * @return velocity the velocity estimated by the Kalman filter in ECEF
+	 *         coordinates (m/s), 0 without filtering or for GPS.
+	 **/
+	public double getVelocity(int i) {
+		return iVelocity < 0 ? 0 : buffer[iVelocity + i];
+	}
+
+	/**
+	 * getGPSWeek function
+	 *
+	 * @return week the GPS week number of the first tracked satellite.
+	 **/
+	public double getGPSWeek() {
+		return buffer[iWeek];
+	}
+
+	/**
+	 * getTOE function
+	 *
+	 * @return toe the time of ephemeris of the first tracked satellite.
+	 **/
+	public double getTOE() {
+		return buffer[nav + 1];
+	}
+
+	/**
+	 * getModifiedZCount function
+	 *
+	 * @return Zcount the RTCM modified Z count (0.6 s units in the hour).
+	 **/
+	public int getModifiedZCount() {
+		return (int) Math.round(buffer[iZcountTow] % 3600 / 0.6);
+	}
+
+	/**
+	 * getTow function
+	 *
+	 * @return tow the GPS time of week of the solution (s), used for the Z count.
+	 **/
+	public double getTow() {
+		return buffer[iZcountTow];
+	}
+
+	public int getLowElevationCount() {
+		return (int) buffer[iTracked + 1];
+	}
+
+	public int getTrackedCount() {
+		return (int) buffer[iTracked];
+	}
+
+	public int getUsedCount() {
+		return (int) buffer[iUsed];
+	}
+
+	public int getNotUsedCount() {
+		return (int) buffer[iNotUsed];
+	}
+
+	public int getInViewCount() {
+		return getTrackedCount() + getNotUsedCount();
+	}
+
+	/**
+	 * getTrackedUse function
+	 *
+	 * @param i
+	 *            the tracked satellite index.
+	 * @return use the use flag of the satellite set by the positioning module.
+	 **/
+	public double getTrackedUse(int i) {
+		return buffer[tracked + i * trackedStep + 1];
+	}
+
+	/**
+	 * getTrackedRnD function
+	 *
+	 * @param i
+	 *            the tracked satellite index.
+	 * @return rnd the use flag of the satellite in the R&D position, 0 for
+	 *         GPS.
+	 **/
+	public double getTrackedRnD(int i) {
+		return type == EGNOS ? buffer[tracked + i * trackedStep + 2] : 0;
+	}
+
+	/**
+	 * getCorrection function
+	 *
+	 * Gets the EGNOS corrections applied to a tracked satellite.
+	 *
+	 * @param i
+	 *            the tracked satellite index.
+	 * @param field
+	 *            3:prn_mask, 4:low_elv, 5:tow, 6:el, 7:iono_delay,
+	 *            8:iono_model, 9:tropo_delay, 10:fast_delay, 11:rrc, 12:udrei,
+	 *            13:long_set, 14:daf0, 15-17:dx dy dz, 18:sigma2,
+	 *            19:sigma_flt2, 20:sigma_tropo2, 21:sigma_uire2, 22:eps_fc,
+	 *            23:eps_rrc, 24:eps_ltc, 25:eps_er.
+	 * @return value the correction value, 0 for GPS.
+	 **/
+	public double getCorrection(int i, int field) {
+		return type == EGNOS ? buffer[tracked + i * trackedStep + field] : 0;
+	}
+
+	public double getIonoDelay(int i) {
+		return getCorrection(i, 7);
+	}
+
+	public double getTropoDelay(int i) {
+		return getCorrection(i, 9);
+	}
+
+	public double getFastDelay(int i) {
+		return getCorrection(i, 10);
+	}
+
+	public double getUDREI(int i) {
+		return getCorrection(i, 12);
+	}
+
+	public double getSigma2(int i) {
+		return getCorrection(i, 18);
+	}
+
+	/**
+	 * getPrn function
+	 *
+	 * @param i
+	 *            the satellite in view index.
+	 * @return prn the PRN of the satellite.
+	 **/
+	public double getPrn(int i) {
+		int n = getTrackedCount();
+		if (i < n)
+			return buffer[tracked + i * trackedStep];
+		return buffer[iNotUsed + 1 + (i - n) * 4];
+	}
+
+	/**
+	 * getElevation function
+	 *
+	 * @param i
+	 *            the satellite in view index.
+	 * @return el the elevation of the satellite (deg.).
+	 **/
+	public double getElevation(int i) {
+		int n = getTrackedCount();
+		if (i < n)
+			return type == EGNOS ? buffer[tracked + i * trackedStep + 6]
+					: buffer[nav + i * navStep + 4];
+		return buffer[iNotUsed + 3 + (i - n) * 4];
+	}
+
+	/**
+	 * getAzimuth function
+	 *
+	 * @param i
+	 *            the satellite in view index.
+	 * @return az the azimuth of the satellite (deg.).
+	 **/
+	public double getAzimuth(int i) {
+		int n = getTrackedCount();
+		if (i < n)
+			return buffer[nav + i * navStep + 2];
+		return buffer[iNotUsed + 2 + (i - n) * 4];
+	}
+
+	/**
+	 * getSNR function
+	 *
+	 * @param i
+	 *            the satellite in view index.
+	 * @return cn0 the carrier to noise ratio of the satellite (dBHz).
+	 **/
+	public double getSNR(int i) {
+		int n = getTrackedCount();
+		if (i < n)
+			return buffer[nav + i * navStep + 3];
+		return buffer[iNotUsed + 4 + (i - n) * 4];
+	}
+
+	/**
+	 * getUsedPrn function
+	 *
+	 * @param u
+	 *            the used satellite index.
+	 * @return prn the PRN of the used satellite.
+	 **/
+	public double getUsedPrn(int u) {
+		return buffer[used + u * usedStep];
+	}
+
+	/**
+	 * getPrc function
+	 *
+	 * @param u
+	 *            the used satellite index.
+	 * @return prc the pseudorange correction (corrected - measured) (m).
+	 **/
+	public double getPrc(int u) {
+		return buffer[used + u * usedStep + 1];
+	}
+
+	public double getRrc(int u) {
+		return buffer[used + u * usedStep + 2];
+	}
+
+	public double getIodc(int u) {
+		return buffer[used + u * usedStep + 3];
+	}
+
+	public double getPseudorange(int u) {
+		return buffer[usedMeas + u * usedMeasStep];
+	}
+
+	/**
+	 * getSatPos function
+	 *
+	 * @param u
+	 *            the used satellite index.
+	 * @param i
+	 *            0:X, 1:Y, 2:Z ECEF (m).
+	 * @return value the satellite position coordinate.
+	 **/
+	public double getSatPos(int u, int i) {
+		return buffer[usedMeas + u * usedMeasStep + 1 + i];
+	}
+}
@@ -96,20 +96,20 @@ public class Receiver {
    // GlobalState gsg;
 
  //   gsg = BluetoothConnect.getGs();
-    if (GlobalState.getSocket() != null) {
+    if (AndroidPlatform.getSocket() != null) {
       try {
         dataAvailable = GlobalState.getInputStream().available();
       } catch (IOException e1) {
         Log.e(TAG, "Receiver | getNumBytes() | No data available: " 
             + dataAvailable);
-        GlobalState.setSocket(null);
+        AndroidPlatform.setSocket(null);
         numBytesRead = -1;
         e1.printStackTrace();
         return 0;
       } catch (Exception e) {
         Log.e(TAG, "Receiver | getNumBytes() | Receive error: "
             + e.getMessage());
-        GlobalState.setSocket(null);
+        AndroidPlatform.setSocket(null);
         numBytesRead = -1;
         e.printStackTrace();
       }
@@ -119,12 +119,12 @@ public class Receiver {
       } catch (Exception e) {
         Log.e(TAG, "Receiver | getNumBytes() | Receive error: " 
             + e.getMessage());
-        GlobalState.setSocket(null);
+        AndroidPlatform.setSocket(null);
         numBytesRead = -1;
         e.printStackTrace();
       }
     } else {
-    	GlobalState.setSocket(null);
+    	AndroidPlatform.setSocket(null);
     }
     return numBytesRead;
   }
@@ -142,13 +142,13 @@ public class Receiver {
  //   GlobalState gsg;
 
  //   gsg = BluetoothConnect.getGs();
-    if (GlobalState.getSocket() != null) {
+    if (AndroidPlatform.getSocket() != null) {
       try {
         dataAvailable = GlobalState.getInputStream().available();
       } catch (IOException e1) {
         Log.e(TAG, "Receiver | getNumBytesLeftOver() | No data available: "
             + dataAvailable);
-        GlobalState.setSocket(null);
+        AndroidPlatform.setSocket(null);
         numBytesRead = -1;
         e1.printStackTrace();
       }
@@ -159,7 +159,7 @@ public class Receiver {
         } catch (Exception e) {
           Log.e(TAG, "Receiver | getNumBytesLeftOver() | Receive error: "
               + e.getMessage());
-          GlobalState.setSocket(null);
+          AndroidPlatform.setSocket(null);
           numBytesRead = -1;
           e.printStackTrace();
         }
@@ -170,7 +170,7 @@ public class Receiver {
       }
     } else {
       numBytesRead = -1;
-      GlobalState.setSocket(null);
+      AndroidPlatform.setSocket(null);
     }
     return numBytesRead;
   }
@@ -0,0 +1,277 @@
+/**
+ * @file Rtcm3Encoder.java
+ *
+ * Encoder of the RTCM 3 messages of the station coordinates and of the
+ * pseudorange corrections.
+ *
+ * Rev: 3.0.0
+ *
+ * Author: DKE Aerospace Germany GmbH
+ *
+ * Copyright 2012 European Commission
+ *
+ * Licensed under the EUPL, Version 1.1 only (the "Licence");
+ * You may not use this work except in compliance with the
+ * Licence.
+ * You may obtain a copy of the Licence at:
+ * http://ec.europa.eu/idabc/eupl
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the Licence is
+ * distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied.
+ * See the Licence for the specific language governing
+ * permissions and limitations under the Licence.
+ *
+ **/
+package com.ec.egnossdk;
+
+
+/**
+ * Class that encodes the RTCM 3 messages sent with or instead of the RTCM 2
+ * messages of RtcmHandler.
+ *
+ * A message is a frame of the RTCM 3 transport layer: preamble 0xD3, 6
+ * reserved bits, 10 bits of payload length, the payload packed most
+ * significant bit first, and the CRC-24Q of the header and payload.
+ *
+ * - Station coordinates: message type 1005 (stationary antenna reference
+ *   point, ECEF, 0.1 mm), flagged as a computed, non-physical station.
+ * - Pseudorange corrections: RTCM 3 has no message for the range domain
+ *   corrections of RTCM 2 type 1 (the PRC of the SDK includes the
+ *   ionospheric and tropospheric delays, so the SSR clock messages do not
+ *   apply). They are sent in a proprietary message (4001-4095) with the
+ *   fields of RTCM 2 type 1, 41 bits per satellite instead of 40 bits packed
+ *   in words of 30 bits written as 6-of-8 bytes. Its number has to be agreed
+ *   with the consumers of the stream.
+ *
+ * Layout of the corrections message:
+ * message number (12), station ID (12), GPS epoch time (30, ms), number of
+ * satellites (6), then per satellite: PRN (6), scale factor (1), UDRE (2),
+ * PRC (16, 0.02 or 0.32 m), RRC (8, 0.002 or 0.032 m/s), IOD (8).
+ **/
+public class Rtcm3Encoder {
+
+	// Preamble of a frame
+	static final int PREAMBLE=0xD3;
+	// Largest length of the payload of a frame
+	public static final int MAX_PAYLOAD=1023;
+	// Default number of the corrections message
+	public static final int DEFAULT_CORRECTIONS_TYPE=4001;
+	// Largest number of satellites of the corrections message
+	public static final int MAX_SATELLITES=63;
+
+	// CRC-24Q of each byte, polynomial 0x1864CFB
+	private static final int[] CRC24Q = new int[256];
+
+	static {
+		for (int i=0; i<256; i++)
+		{
+			int crc = i<<16;
+			for (int j=0; j<8; j++)
+			{
+				crc <<= 1;
+				if ((crc & 0x1000000) != 0)
+					crc ^= 0x1864CFB;
+			}
+			CRC24Q[i] = crc;
+		}
+	}
+
+	// Encoded frame: 3 bytes of header, payload, 3 bytes of CRC
+	private final byte[] buffer = new byte[3 + MAX_PAYLOAD + 3];
+	private int length;
+	// Position of the next bit of the payload in the buffer
+	private int bit;
+
+	private final int correctionsType;
+
+
+	/**
+	 * Rtcm3Encoder Constructor
+	 *
+	 * Encoder with the default number of the corrections message.
+	 **/
+	public Rtcm3Encoder()
+	{
+		this(DEFAULT_CORRECTIONS_TYPE);
+	}
+
+
+	/**
+	 * Rtcm3Encoder Constructor
+	 *
+	 * @param  correctionsType   Number of the proprietary corrections message (4001-4095)
+	 **/
+	public Rtcm3Encoder(int correctionsType)
+	{
+		if (correctionsType < 4001 || correctionsType > 4095)
+			throw new IllegalArgumentException("Not a proprietary message number: " + correctionsType);
+		this.correctionsType = correctionsType;
+	}
+
+
+	/**
+	 * crc24q function
+	 *
+	 * The function computes the CRC-24Q of bytes.
+	 * @param  data, offset, length    The bytes
+	 * @return the CRC, 24 bits
+	 **/
+	public static int crc24q(byte[] data, int offset, int length)
+	{
+		int crc = 0;
+
+		for (int i=offset; i<offset+length; i++)
+			crc = (crc<<8 ^ CRC24Q[(crc>>>16 ^ data[i]) & 0xFF]) & 0xFFFFFF;
+		return crc;
+	}
+
+
+	/**
+	 * getBuffer function
+	 *
+	 * @return the buffer holding the last encoded frame, from index 0.
+	 **/
+	public final byte[] getBuffer()
+	{
+		return buffer;
+	}
+
+
+	/**
+	 * getLength function
+	 *
+	 * @return the length of the last encoded frame in bytes.
+	 **/
+	public final int getLength()
+	{
+		return length;
+	}
+
+
+	/**
+	 * put function
+	 *
+	 * The function appends a field to the payload, most significant bit first.
+	 * @param  value     The value of the field, two's complement if negative.
+	 * @param  bits      The number of bits of the field (at most 56).
+	 **/
+	private void put(long value, int bits)
+	{
+		while (bits > 0)
+		{
+			int free = 8 - (bit & 7);
+			int n = Math.min(bits, free);
+			int index = bit>>>3;
+
+			if (free == 8)
+				buffer[index] = 0;
+			bits -= n;
+			buffer[index] |= (int)(value>>>bits & (1<<n) - 1) << (free - n);
+			bit += n;
+		}
+	}
+
+
+	/**
+	 * begin function
+	 *
+	 * The function starts the payload of a frame.
+	 * @param  type      The message number.
+	 * @param  station   The reference station ID.
+	 **/
+	private void begin(int type, int station)
+	{
+		bit = 24;
+		put(type, 12);
+		put(station, 12);
+	}
+
+
+	/**
+	 * end function
+	 *
+	 * The function pads the payload to a byte, writes the header and the CRC.
+	 * @return the length of the frame in bytes
+	 **/
+	private int end()
+	{
+		int payload = (bit - 24 + 7)>>>3;
+		int crc;
+
+		put(0, -bit & 7);
+		buffer[0] = (byte)PREAMBLE;
+		buffer[1] = (byte)(payload>>>8);
+		buffer[2] = (byte)payload;
+		crc = crc24q(buffer, 0, 3 + payload);
+		buffer[3 + payload] = (byte)(crc>>>16);
+		buffer[4 + payload] = (byte)(crc>>>8);
+		buffer[5 + payload] = (byte)crc;
+		length = 6 + payload;
+		return length;
+	}
+
+
+	/**
+	 * encodeStation function
+	 *
+	 * The function encodes the message type 1005, the ECEF coordinates of
+	 * the antenna reference point of the station.
+	 * @param  StationID                 Reference station ID (0-4095)
+	 * @param  ECEFX, ECEFY, ECEFZ       Coordinates (m)
+	 * @return the length of the frame in bytes, see getBuffer
+	 **/
+	public final int encodeStation(int StationID, double ECEFX, double ECEFY, double ECEFZ)
+	{
+		begin(1005, StationID);
+		put(0, 6);                                // ITRF realization year
+		put(1, 1);                                // GPS
+		put(0, 1);                                // GLONASS
+		put(0, 1);                                // Galileo
+		put(1, 1);                                // Non-physical (computed) station
+		put((long)Math.rint(ECEFX/0.0001), 38);
+		put(0, 1);                                // Single receiver oscillator
+		put(0, 1);                                // Reserved
+		put((long)Math.rint(ECEFY/0.0001), 38);
+		put(0, 2);                                // Quarter cycle indicator
+		put((long)Math.rint(ECEFZ/0.0001), 38);
+		return end();
+	}
+
+
+	/**
+	 * encodeCorrections function
+	 *
+	 * The function encodes the corrections message. The scale factor of each
+	 * satellite is selected as for RTCM 2 (RtcmHandler.ScaleFactorOf).
+	 * @param  StationID                        Reference station ID (0-4095)
+	 * @param  Tow                              GPS time of week of the corrections (s)
+	 * @param  NumberOfSatellite                At most MAX_SATELLITES
+	 * @param  ScaleFactor, UDRE, SatlliteID    Inputs, as RtcmHandler.CreateRtcm1
+	 * @param  PRCor, PRCorRate, IOD            Inputs, as RtcmHandler.CreateRtcm1
+	 * @return the length of the frame in bytes, see getBuffer
+	 **/
+	public final int encodeCorrections(int StationID, double Tow,
+			int NumberOfSatellite, int[] ScaleFactor, int[] UDRE, int[] SatlliteID,
+			double[] PRCor, double[] PRCorRate, int[] IOD)
+	{
+		if (NumberOfSatellite > MAX_SATELLITES)
+			throw new IllegalArgumentException("Too many satellites: " + NumberOfSatellite);
+		begin(correctionsType, StationID);
+		put((long)Math.rint(Tow*1000) % 604800000, 30);
+		put(NumberOfSatellite, 6);
+		for (int Sat=0; Sat<NumberOfSatellite; Sat++)
+		{
+			int Sf = RtcmHandler.ScaleFactorOf(ScaleFactor[Sat], PRCor[Sat], PRCorRate[Sat]);
+
+			put(SatlliteID[Sat], 6);
+			put(Sf == 0 ? 0 : 1, 1);
+			put(UDRE[Sat], 2);
+			put(Sf < 0 ? -32768 : (long)Math.rint(PRCor[Sat]/RtcmHandler.SfPRC[Sf]), 16);
+			put(Sf < 0 ? -128 : (long)Math.rint(PRCorRate[Sat]/RtcmHandler.SfRRC[Sf]), 8);
+			put(IOD[Sat], 8);
+		}
+		return end();
+	}
+}
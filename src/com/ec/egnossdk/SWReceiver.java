@@ -0,0 +1,203 @@
+/**
+ * @file SWReceiver.java
+ *
+ * Entry point of the native EGNOS SW Receiver library. The class does not
+ * depend on the Android framework, so that the same positioning engine can
+ * be driven by the Android application and by a desktop or server JVM.
+ *
+ * Rev: 3.0.0
+ *
+ * Author: DKE Aerospace Germany GmbH
+ *
+ * Copyright 2012 European Commission
+ *
+ * Licensed under the EUPL, Version 1.1 only (the "Licence");
+ * You may not use this work except in compliance with the
+ * Licence.
+ * You may obtain a copy of the Licence at:
+ * http://ec.europa.eu/idabc/eupl
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the Licence is
+ * distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied.
+ * See the Licence for the specific language governing
+ * permissions and limitations under the Licence.
+ *
+ **/
+
+package com.ec.egnossdk;
+
+/**
+ * Class that loads the EGNOS SW Receiver library and declares its native
+ * functions.
+ *
+ * On Android the library is packaged with the application and found by
+ * System.loadLibrary. On a desktop JVM the library built from jni/host is
+ * found either on java.library.path, or at the absolute path given by the
+ * system property LIBRARY_PATH_PROPERTY, e.g.
+ * -Degnossdk.library=/opt/egnos/libEGNOSSWReceiver.so
+ *
+ * Each engine handle is independent. Several engines can be used from
+ * parallel threads, but one engine must only be used by one thread at a
+ * time.
+ */
+public final class SWReceiver {
+
+	/** Name of the native library. */
+	public static final String LIBRARY_NAME = "EGNOSSWReceiver";
+	/** System property giving the absolute path of the native library. */
+	public static final String LIBRARY_PATH_PROPERTY = "egnossdk.library";
+
+	static {
+		String libraryPath = System.getProperty(LIBRARY_PATH_PROPERTY);
+		if (libraryPath != null && libraryPath.length() > 0)
+			System.load(libraryPath);
+		else
+			System.loadLibrary(LIBRARY_NAME);
+	}
+
+	private SWReceiver() {
+	}
+
+	/**
+	 * createEngine function
+	 * 
+	 * Creates the SW receiver engine, which keeps the decoded ephemerides and
+	 * EGNOS messages between two position computations.
+	 * 
+	 * @return the engine handle, 0 if the engine can not be created.
+	 **/
+	public static native long createEngine();
+
+	/**
+	 * destroyEngine function
+	 * 
+	 * Releases the SW receiver engine. The handle must not be used anymore.
+	 * 
+	 * @param engine
+	 *            the engine handle.
+	 **/
+	public static native void destroyEngine(long engine);
+
+	/**
+	 * setTolerance function
+	 * 
+	 * Sets the convergence threshold of the position iterations: the
+	 * iterations stop when the position update is below it. The engine starts
+	 * each position from the initial position given, or from its last valid
+	 * solution, so that one or two iterations are usually needed (see
+	 * PositionSolution.getIterations).
+	 * 
+	 * @param engine
+	 *            the engine handle.
+	 * @param tolerance
+	 *            threshold on the norm of the position update in meters, the
+	 *            default value (1 mm) if not positive.
+	 **/
+	public static native void setTolerance(long engine, double tolerance);
+
+	/**
+	 * updateEphemeris function
+	 * 
+	 * Feeds the SW receiver engine with the ephemerides, only the changed
+	 * ones are decoded.
+	 * 
+	 * @param engine
+	 *            the engine handle.
+	 * @param ephemData
+	 *            32 X 1 table of Ephemeris Data.
+	 **/
+	public static native void updateEphemeris(long engine, String[] ephemData);
+
+	/**
+	 * updateSbasMessages function
+	 * 
+	 * Feeds the SW receiver engine with the EGNOS messages, only the changed
+	 * ones are decoded. A null message is not available.
+	 * 
+	 * @param engine
+	 *            the engine handle.
+	 * @param msg1
+	 *            Message 1.
+	 * @param msg10
+	 *            Message 10.
+	 * @param msg12
+	 *            Message 12.
+	 * @param msg7
+	 *            Message 7.
+	 * @param msg6
+	 *            Message 6.
+	 * @param m18_t
+	 *            5 X 1 table of Message 18.
+	 * @param m26_t
+	 *            25 X 1 table of Message 26.
+	 * @param msg2_5
+	 *            8 X 1 table of Messages 2 to 5.
+	 * @param msg24_t
+	 *            25 X 1 table of Messages 24.
+	 * @param msg25_t
+	 *            15 X 1 table of Messages 25.
+	 * @param msg9
+	 *            Message 9.
+	 * @param msg17
+	 *            Message 17.
+	 **/
+	public static native void updateSbasMessages(long engine, String msg1,
+			String msg10, String msg12, String msg7, String msg6,
+			String[] m18_t, String[] m26_t, String[] msg2_5, String[] msg24_t,
+			String[] msg25_t, String msg9, String msg17);
+
+	/**
+	 * getLongitudeLatitudeEGNOS function
+	 * 
+	 * Get EGNOS coordinates from SW receiver, using the ephemerides and EGNOS
+	 * messages previously fed to the engine.
+	 * 
+	 * @param engine
+	 *            the engine handle.
+	 * @param sat_data
+	 *            19 X 4 table of Satellite Data.
+	 * @param initial_position
+	 *            4 X 1 table of Initial Position.
+	 * @param utc
+	 *            9 X 1 table of UTC parameters.
+	 * @param klob
+	 *            9 X 1 table of Klobuchar coefficients.
+	 * @param RnDoptions
+	 *            8 X 1 table of R&D options.
+	 * @param sat_data_notused
+	 *            19 X 4 table of the satellites not used.
+	 * @param coordinates
+	 *            PositionSolution.EGNOS_SIZE table of coordinates, filled
+	 *            by the SW receiver.
+	 **/
+	public static native void getLongitudeLatitudeEGNOS(long engine,
+			double[][] sat_data, double[] initial_position, double[] utc,
+			double[] klob, int[] RnDoptions, double[][] sat_data_notused,
+			double[] coordinates);
+
+	/**
+	 * getLongitudeLatitudeGPS function
+	 * 
+	 * Get GPS coordinates from SW receiver, using the ephemerides previously
+	 * fed to the engine.
+	 * 
+	 * @param engine
+	 *            the engine handle.
+	 * @param sat_data
+	 *            19 X 4 table of Satellite Data.
+	 * @param initial_position
+	 *            4 X 1 table of Initial Position.
+	 * @param utc
+	 *            9 X 1 table of UTC parameters.
+	 * @param sat_data_notused
+	 *            19 X 4 table of the satellites not used.
+	 * @param coordinates
+	 *            PositionSolution.GPS_SIZE table of coordinates, filled by
+	 *            the SW receiver.
+	 **/
+	public static native void getLongitudeLatitudeGPS(long engine,
+			double[][] sat_data, double[] initial_position, double[] utc,
+			double[][] sat_data_notused, double[] coordinates);
+}
@@ -201,13 +201,16 @@ public class SatelliteData {
 
 		JD_cur = JD_cur - 2450000; // Julian Day at current GPS Time
 
-		SDP4Model sdp4 = new SDP4Model();
 		double direction[] = new double[291];    //change 291
 		double direction_vec[] = new double[3];
 
 		direction[0] = data_NORAD[0];
 
-		sdp4.Init();
+		// The propagator of the satellite is initialised once, and again
+		// by RunSDP4 only when its TLE changes
+		if (satPos.propagator == null)
+			satPos.propagator = new SDP4Model(data_NORAD);
+		SDP4Model sdp4 = satPos.propagator;
 		int k = 0;
 
 		JD = JD_cur;
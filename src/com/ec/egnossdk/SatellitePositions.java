@@ -26,6 +26,8 @@
  **/
 package com.ec.egnossdk;
 
+import com.ec.sdp4model.SDP4Model;
+
 public class SatellitePositions {
   
    public double[][] sat_pos_array = new double[145][3]; //change 145
@@ -34,6 +36,9 @@ public class SatellitePositions {
    public double[][] direction_vec = new double[145][3];
    
    public double[][] satPosXYZ = new double[145][3];
+   
+   // SDP4 propagator of the TLE of the satellite, kept from call to call
+   SDP4Model propagator;
   
    SatellitePositions(){
      
@@ -0,0 +1,85 @@
+/**
+ * @file StreamSink.java
+ *
+ * Sink of the output bus writing the messages to a stream.
+ *
+ * Rev: 3.0.0
+ *
+ * Author: DKE Aerospace Germany GmbH
+ *
+ * Copyright 2012 European Commission
+ *
+ * Licensed under the EUPL, Version 1.1 only (the "Licence");
+ * You may not use this work except in compliance with the
+ * Licence.
+ * You may obtain a copy of the Licence at:
+ * http://ec.europa.eu/idabc/eupl
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the Licence is
+ * distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied.
+ * See the Licence for the specific language governing
+ * permissions and limitations under the Licence.
+ *
+ **/
+
+package com.ec.egnossdk;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Class that writes the messages of the output bus to a stream, e.g. a file
+ * of the storage service or the stream of the transport service.
+ */
+public class StreamSink implements OutputBus.Sink {
+
+	private static final String TAG = "StreamSink";
+
+	private final OutputStream out;
+
+	/**
+	 * StreamSink Constructor
+	 * 
+	 * @param out
+	 *            the stream the messages are written to, closed with the sink.
+	 **/
+	public StreamSink(OutputStream out) {
+		this.out = new BufferedOutputStream(out);
+	}
+
+	/**
+	 * open function
+	 * 
+	 * Opens a file of the storage service as sink.
+	 * 
+	 * @param name
+	 *            name of the file.
+	 * @param append
+	 *            true to write at the end of an existing file.
+	 * @return the sink writing to the file.
+	 **/
+	public static StreamSink open(String name, boolean append)
+			throws IOException {
+		return new StreamSink(Platform.storage().openOutput(name, append));
+	}
+
+	public void write(int type, byte[] data, int offset, int length)
+			throws IOException {
+		out.write(data, offset, length);
+	}
+
+	public void flush() throws IOException {
+		out.flush();
+	}
+
+	public void close() {
+		try {
+			out.close();
+		} catch (IOException e) {
+			Platform.log().e(TAG, "Error while closing the stream", e);
+		}
+	}
+}
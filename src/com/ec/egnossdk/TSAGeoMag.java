@@ -21,13 +21,12 @@ package com.ec.egnossdk;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.Reader;
 import java.io.StreamTokenizer;
+import java.util.Arrays;
 import java.util.StringTokenizer;
 
-import android.content.Context;
-import android.content.res.AssetManager;
-
 /**
  *	This is a class to generate the magnetic declination,
  *	magnetic field strength and inclination for any point
@@ -169,6 +168,17 @@ import android.content.res.AssetManager;
 public class TSAGeoMag
 {
     
+    /** Indexes of the components returned by getField */
+    public static final int DECLINATION = 0;
+    public static final int DIP = 1;
+    public static final int INTENSITY = 2;
+    public static final int HORIZONTAL_INTENSITY = 3;
+    public static final int NORTH_INTENSITY = 4;
+    public static final int EAST_INTENSITY = 5;
+    public static final int VERTICAL_INTENSITY = 6;
+    /** Number of the components returned by getField */
+    public static final int FIELD_COMPONENTS = 7;
+    
     //variables for magnetic calculations ////////////////////////////////////
     //
     // Variables were identified in geomag.for, the FORTRAN
@@ -381,14 +391,26 @@ public class TSAGeoMag
      */
     private double pp[] = new double[13];
     private double k[][] = new double[13][13];
+    /**
+     *	(re/r)^(n+2), for the position of the last evaluation.
+     */
+    private double arn[] = new double[13];
+    /**
+     *	Sums over n of the terms of order m of the expansions of bt, br
+     *	and bp, coefficients of cos(m*lon) (g) and sin(m*lon) (h). They
+     *	depend on the latitude, altitude and time, not on the longitude.
+     */
+    private double gt[] = new double[13];
+    private double ht[] = new double[13];
+    private double gr[] = new double[13];
+    private double hr[] = new double[13];
+    private double gp[] = new double[13];
+    private double hp[] = new double[13];
+    private double gpp,hpp;
     private double pi,dtr,epoch,gnm,hnm,dgnm,dhnm,flnmj,otime,oalt,
     olat,olon,dt,rlon,rlat,srlon,srlat,crlon,crlat,srlat2,
     crlat2,q,q1,q2,ct,st,r2,r,d,ca,sa,aor,ar,br,bt,bp,bpp,
     par,temp1,temp2,parp,bx,by,bz,bh, a,b,re ,a2,b2,c2,a4,b4, c4;
-    /**
-     *	The context of NMEARTCMActivity
-     */
-    Context context;
     //
     ////////////////////////////////////////////////////////////////////////////
     
@@ -396,9 +418,8 @@ public class TSAGeoMag
      *	Instantiates object by calling InitModel().
      
      */
-    public TSAGeoMag(Context context)
+    public TSAGeoMag()
     {
-        this.context = context;
         //read model data from file and initialize the GeoMag routine
         InitModel();
     }
@@ -462,15 +483,15 @@ public class TSAGeoMag
             //is = new FileInputStream(strFile);
            // is = new InputStreamReader(new FileInputStream("WMM.COF") );
             
-            AssetManager assetManager = context.getAssets();
             InputStream isFromWWM;
-            isFromWWM = assetManager.open("WMM.COF");
+            isFromWWM = Platform.resources().open("WMM.COF");
 
   
             //			}
-            // Warning: This was a deprecated constructor when 'is' was a
-            // FileInputStream.
-            StreamTokenizer str = new StreamTokenizer(isFromWWM);
+            // Bytes read as ISO-8859-1 characters, as the deprecated
+            // StreamTokenizer(InputStream) constructor did.
+            is = new InputStreamReader(isFromWWM, "ISO-8859-1");
+            StreamTokenizer str = new StreamTokenizer(is);
             
             
             // READ WORLD MAGNETIC MODEL SPHERICAL HARMONIC COEFFICIENTS 
@@ -697,43 +718,34 @@ public class TSAGeoMag
     //	void CalcGeoMag(double fLat, double fLon, double fAlt, double fTime, boolean bCurrent)
     private void calcGeoMag(double fLat, double fLon, double year, double altitude)
     {		
+        boolean newPosition, newTime;
+        
+        // Same inputs as the previous evaluation: the outputs are still valid
+        if (year == otime && altitude == oalt && fLat == olat && fLon == olon)
+            return;
         
         glat =  fLat;
         glon =  fLon;
-        //alt = fAlt;
         alt = altitude;
-        //time = fTime;
         /**
          *	The date in decimal years for calculating the magnetic field components.
          */
         time = year;
+        newPosition = alt != oalt || glat != olat;
+        newTime = time != otime;
         
-        
-//        dt=0;
         dt = time - epoch;
-        //if (otime < 0.0 && (dt < 0.0 || dt > 5.0))
-        //		if(bCurrent){
-        //			if (dt < 0.0 || dt > 5.0) 
-        //				bOutDated = true;
-        //			else
-        //				bOutDated = false;
-        //		}
         
         pi =  3.14159265359;		// could be replaced by Math.PI
         dtr = (pi/180.0);
-        rlon = glon * dtr;
-        rlat = glat * dtr;
-        srlon = Math.sin(rlon);
-        srlat = Math.sin(rlat);
-        crlon = Math.cos(rlon);
-        crlat = Math.cos(rlat);
-        srlat2 = srlat * srlat;
-        crlat2 = crlat * crlat;
-        sp[1] = srlon;
-        cp[1] = crlon;
         
         // CONVERT FROM GEODETIC COORDS. TO SPHERICAL COORDS.
-        if (alt != oalt || glat != olat){
+        if (newPosition){
+            rlat = glat * dtr;
+            srlat = Math.sin(rlat);
+            crlat = Math.cos(rlat);
+            srlat2 = srlat * srlat;
+            crlat2 = crlat * crlat;
             q = Math.sqrt(a2 - c2 * srlat2);
             q1 = alt * q;
             q2 = ((q1 + a2) / (q1 + b2)) * ((q1 + a2) / (q1 + b2));
@@ -744,24 +756,15 @@ public class TSAGeoMag
             d = Math.sqrt(a2 * crlat2 + b2 * srlat2);
             ca = (alt + d) / r;
             sa = c2 * crlat * srlat / (r * d);
-        }
-        if (glon != olon){
-            for (m = 2; m <= maxord; m++){
-                sp[m] = sp[1] * cp[m-1] + cp[1] * sp[m-1];
-                cp[m] = cp[1] * cp[m-1] - sp[1] * sp[m-1];
-            }
-        }
-        aor = re / r;
-        ar = aor * aor;
-        br = bt = bp = bpp = 0.0;
-        
-        for(n = 1; n <= maxord; n++){
-            ar = ar * aor;
-            for (m = 0,D3 = 1,D4 = (n + m + D3) / D3; D4 > 0; D4--,m += D3){
-                
-                //COMPUTE UNNORMALIZED ASSOCIATED LEGENDRE POLYNOMIALS
-                //AND DERIVATIVES VIA RECURSION RELATIONS
-                if(alt != oalt || glat != olat){
+            
+            //COMPUTE UNNORMALIZED ASSOCIATED LEGENDRE POLYNOMIALS
+            //AND DERIVATIVES VIA RECURSION RELATIONS
+            aor = re / r;
+            ar = aor * aor;
+            for(n = 1; n <= maxord; n++){
+                ar = ar * aor;
+                arn[n] = ar;
+                for (m = 0; m <= n; m++){
                     if(n == m){
                         snorm[n + m * 13] = st * snorm[n - 1 + (m - 1) * 13];				  
                         dp[m][n] = st * dp[m-1][n-1]+ ct* snorm[n - 1 + (m - 1) * 13];
@@ -779,47 +782,72 @@ public class TSAGeoMag
                         dp[m][n] = ct * dp[m][n - 1] - st * snorm[n - 1 + m * 13] - k[m][n] * dp[m][n - 2];
                     }
                 }
-                
-                //TIME ADJUST THE GAUSS COEFFICIENTS
-                
-                if(time != otime){
+                //SPECIAL CASE:  NORTH/SOUTH GEOGRAPHIC POLES
+                if(n == 1)
+                    pp[n] = pp[n - 1];
+                else 
+                    pp[n] = ct * pp[n - 1] - k[1][n] * pp[n - 2];
+            }
+        }
+        
+        //TIME ADJUST THE GAUSS COEFFICIENTS
+        if (newTime){
+            for(n = 1; n <= maxord; n++){
+                for (m = 0; m <= n; m++){
                     tc[m][n] = c[m][n] + dt * cd[m][n];
-                    
                     if(m != 0)
                         tc[n][m - 1] = c[n][m - 1]+ dt * cd[n][m - 1];
                 }
-                
-                //ACCUMULATE TERMS OF THE SPHERICAL HARMONIC EXPANSIONS
-                
-                par = ar * snorm[ n + m * 13];
-                if(m == 0){
-                    temp1 = tc[m][n] * cp[m];
-                    temp2 = tc[m][n] * sp[m];
-                }
-                else{
-                    temp1 = tc[m][n] * cp[m] + tc[n][m - 1] * sp[m];
-                    temp2 = tc[m][n] * sp[m] - tc[n][m - 1] * cp[m];
-                }
-                
-                bt = bt - ar * temp1 * dp[m][n];
-                bp += (fm[m] * temp2 * par);
-                br += (fn[n] * temp1 * par);
-                
-                //SPECIAL CASE:  NORTH/SOUTH GEOGRAPHIC POLES
-                
-                if(st == 0.0 && m == 1){
-                    if(n == 1)
-                        pp[n] = pp[n - 1];
-                    else 
-                        pp[n] = ct * pp[n - 1] - k[m][n] * pp[n - 2];
-                    parp = ar * pp[n];
-                    bpp += (fm[m] * temp2 * parp);
+            }
+        }
+        
+        // SUMS OVER N OF THE TERMS OF ORDER M, WHICH DO NOT DEPEND ON THE
+        // LONGITUDE: COEFFICIENTS OF COS(M*LON) (G) AND SIN(M*LON) (H)
+        if (newPosition || newTime){
+            gpp = hpp = 0.0;
+            for (m = 0; m <= maxord; m++)
+                gt[m] = ht[m] = gr[m] = hr[m] = gp[m] = hp[m] = 0.0;
+            for(n = 1; n <= maxord; n++){
+                for (m = 0; m <= n; m++){
+                    double g = tc[m][n];
+                    double h = m == 0 ? 0.0 : tc[n][m - 1];
+                    
+                    par = arn[n] * snorm[n + m * 13];
+                    gt[m] += arn[n] * dp[m][n] * g;
+                    ht[m] += arn[n] * dp[m][n] * h;
+                    gr[m] += fn[n] * par * g;
+                    hr[m] += fn[n] * par * h;
+                    gp[m] += par * g;
+                    hp[m] += par * h;
+                    if (m == 1){
+                        parp = arn[n] * pp[n];
+                        gpp += parp * g;
+                        hpp += parp * h;
+                    }
                 }
-                
-            }	//for(m...)
-            
-        }	//for(n...)
+            }
+        }
         
+        if (glon != olon){
+            rlon = glon * dtr;
+            srlon = Math.sin(rlon);
+            crlon = Math.cos(rlon);
+            sp[1] = srlon;
+            cp[1] = crlon;
+            for (m = 2; m <= maxord; m++){
+                sp[m] = sp[1] * cp[m-1] + cp[1] * sp[m-1];
+                cp[m] = cp[1] * cp[m-1] - sp[1] * sp[m-1];
+            }
+        }
+        
+        //ACCUMULATE TERMS OF THE SPHERICAL HARMONIC EXPANSIONS
+        br = bt = bp = 0.0;
+        for (m = 0; m <= maxord; m++){
+            bt -= cp[m] * gt[m] + sp[m] * ht[m];
+            br += cp[m] * gr[m] + sp[m] * hr[m];
+            bp += fm[m] * (sp[m] * gp[m] - cp[m] * hp[m]);
+        }
+        bpp = fm[1] * (sp[1] * gpp - cp[1] * hpp);
         
         if(st == 0.0)
             bp = bpp;
@@ -828,9 +856,9 @@ public class TSAGeoMag
         
         //ROTATE MAGNETIC VECTOR COMPONENTS FROM SPHERICAL TO
         //GEODETIC COORDINATES
-        // bx must be the east-west field component
-        // by must be the north-south field component
-        // bx must be the vertical field component.
+        // bx must be the north-south field component
+        // by must be the east-west field component
+        // bz must be the vertical field component.
         bx = -bt * ca - br * sa;
         by = bp;
         bz = bt * sa - br * ca;
@@ -842,35 +870,8 @@ public class TSAGeoMag
         ti = Math.sqrt((bh * bh)+(bz * bz));
         //	Calculate the declination.
         dec = (Math.atan2(by, bx) / dtr);
-        //System.out.println( "Dec is: " + dec );
         dip = (Math.atan2(bz, bh) / dtr);
         
-        //	This is the variation for grid navigation.
-        //	Not used at this time.  See St. Ledger for explanation.
-        //COMPUTE MAGNETIC GRID VARIATION IF THE CURRENT
-        //GEODETIC POSITION IS IN THE ARCTIC OR ANTARCTIC
-        //(I.E. GLAT > +55 DEGREES OR GLAT < -55 DEGREES)
-        // Grid North is referenced to the 0 Meridian of a polar
-        // stereographic projection.
-        
-        //OTHERWISE, SET MAGNETIC GRID VARIATION TO -999.0
-        /*
-         gv = -999.0;
-         if (Math.abs(glat) >= 55.){
-         if (glat > 0.0 && glon >= 0.0) 
-         gv = dec-glon;
-         if (glat > 0.0 && glon < 0.0) 
-         gv = dec + Math.abs(glon);
-         if (glat < 0.0 && glon >= 0.0) 
-         gv = dec+glon;
-         if (glat < 0.0 && glon < 0.0) 
-         gv = dec - Math.abs(glon);
-         if (gv > +180.0) 
-         gv -= 360.0;
-         if (gv < -180.0) 
-         gv += 360.0;
-         }
-         */
         otime = time;
         oalt = alt;
         olat = glat;
@@ -1074,7 +1075,7 @@ public class TSAGeoMag
         else
         {
             calcGeoMag( dlat, dlong, currentFixedDate, currentFixedAltitude );
-            return  by;
+            return  bx;
         }
     }
     
@@ -1097,7 +1098,7 @@ public class TSAGeoMag
         else
         {
             calcGeoMag( dlat, dlong, year, altitude );
-            return  by;
+            return  bx;
         }
     }
     /**
@@ -1117,7 +1118,7 @@ public class TSAGeoMag
         else
         {
             calcGeoMag( dlat, dlong, currentFixedDate, currentFixedAltitude );
-            return  bx;
+            return  by;
         }
     }
     
@@ -1140,7 +1141,7 @@ public class TSAGeoMag
         else
         {
             calcGeoMag( dlat, dlong, year, altitude );
-            return  bx;
+            return  by;
         }
     }
     /**
@@ -1187,6 +1188,58 @@ public class TSAGeoMag
         }
     }
     
+    /**
+     *	Returns all the components of the magnetic field from a single
+     *	evaluation of the model, indexed by DECLINATION, DIP, INTENSITY,
+     *	HORIZONTAL_INTENSITY, NORTH_INTENSITY, EAST_INTENSITY and
+     *	VERTICAL_INTENSITY.  Angles in degrees, intensities in nano Tesla.
+     *
+     *	@param	dlat			Latitude in decimal degrees.
+     *	@param 	dlong		Longitude in decimal degrees.
+     *	@param	year			Date of the calculation in decimal years.
+     *	@param	altitude		Altitude of the calculation in kilometers.
+     *	@param	field		Array of at least FIELD_COMPONENTS values, or null.
+     *	@return	field, or a new array if field is null.
+     */
+    public double[] getField( double dlat, double dlong, double year, double altitude, double[] field )
+    {
+        if (field == null)
+            field = new double[FIELD_COMPONENTS];
+        if( inputError)
+        {
+            Arrays.fill(field, 0, FIELD_COMPONENTS, 0.0);
+            return field;
+        }
+        calcGeoMag( dlat, dlong, year, altitude );
+        field[DECLINATION] = dec;
+        field[DIP] = dip;
+        field[INTENSITY] = ti;
+        field[HORIZONTAL_INTENSITY] = bh;
+        field[NORTH_INTENSITY] = bx;
+        field[EAST_INTENSITY] = by;
+        field[VERTICAL_INTENSITY] = bz;
+        return field;
+    }
+    
+    /**
+     *	Returns the declinations along a track, in degrees.  The time
+     *	adjusted coefficients are computed once for the date, and the
+     *	terms which only depend on the latitude and altitude are reused
+     *	while they do not change.
+     *
+     *	@param	dlat			Latitudes in decimal degrees.
+     *	@param 	dlong		Longitudes in decimal degrees.
+     *	@param	year			Date of the calculation in decimal years.
+     *	@param	altitude		Altitudes in kilometers.
+     *	@param	declination	Declinations of the count positions (output).
+     *	@param	count		Number of positions.
+     */
+    public void getDeclination( double[] dlat, double[] dlong, double year, double[] altitude, double[] declination, int count )
+    {
+        for (int i = 0; i < count; i++)
+            declination[i] = getDeclination( dlat[i], dlong[i], year, altitude[i] );
+    }
+    
     /**	This method sets the input data to the internal 2005 coefficents.
      *	If there is an exception reading the input file WMM.COF, these values 
      *	are used.
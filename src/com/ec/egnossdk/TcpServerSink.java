@@ -0,0 +1,130 @@
+/**
+ * @file TcpServerSink.java
+ *
+ * Sink of the output bus serving the messages to TCP clients.
+ *
+ * Rev: 3.0.0
+ *
+ * Author: DKE Aerospace Germany GmbH
+ *
+ * Copyright 2012 European Commission
+ *
+ * Licensed under the EUPL, Version 1.1 only (the "Licence");
+ * You may not use this work except in compliance with the
+ * Licence.
+ * You may obtain a copy of the Licence at:
+ * http://ec.europa.eu/idabc/eupl
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the Licence is
+ * distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied.
+ * See the Licence for the specific language governing
+ * permissions and limitations under the Licence.
+ *
+ **/
+
+package com.ec.egnossdk;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Class that listens on a TCP port and writes the messages of the output bus
+ * to all the connected clients, e.g. a navigation software reading the NMEA
+ * sentences or a rover reading the RTCM corrections.
+ *
+ * A client connected after a message was written does not receive it. A
+ * client whose connection fails is closed and removed.
+ */
+public class TcpServerSink implements OutputBus.Sink, Runnable {
+
+	private static final String TAG = "TcpServerSink";
+
+	private final ServerSocket server;
+	private final List<Socket> clients = new ArrayList<Socket>();
+	private final List<OutputStream> streams = new ArrayList<OutputStream>();
+
+	/**
+	 * TcpServerSink Constructor
+	 * 
+	 * Opens the server socket and starts the thread accepting the clients.
+	 * 
+	 * @param port
+	 *            the TCP port, 0 for any free port.
+	 **/
+	public TcpServerSink(int port) throws IOException {
+		server = new ServerSocket(port);
+		Thread thread = new Thread(this, "TcpServerSink-" + server.getLocalPort());
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/** Returns the TCP port the server listens on. */
+	public int getPort() {
+		return server.getLocalPort();
+	}
+
+	/** Returns the number of connected clients. */
+	public synchronized int getClientCount() {
+		return clients.size();
+	}
+
+	public void run() {
+		Socket client;
+
+		while (!server.isClosed()) {
+			try {
+				client = server.accept();
+				client.setTcpNoDelay(true);
+				synchronized (this) {
+					clients.add(client);
+					streams.add(client.getOutputStream());
+				}
+				Platform.log().i(TAG, "Client connected: " + client.getRemoteSocketAddress());
+			} catch (IOException e) {
+				if (!server.isClosed())
+					Platform.log().e(TAG, "accept() failed", e);
+			}
+		}
+	}
+
+	public synchronized void write(int type, byte[] data, int offset,
+			int length) {
+		for (int i = clients.size() - 1; i >= 0; i--) {
+			try {
+				streams.get(i).write(data, offset, length);
+			} catch (IOException e) {
+				Platform.log().i(TAG, "Client disconnected: " + clients.get(i).getRemoteSocketAddress());
+				closeClient(i);
+			}
+		}
+	}
+
+	public void flush() {
+		// The streams of the sockets are not buffered
+	}
+
+	private void closeClient(int i) {
+		try {
+			clients.remove(i).close();
+		} catch (IOException e) {
+			Platform.log().e(TAG, "close() of client failed", e);
+		}
+		streams.remove(i);
+	}
+
+	public synchronized void close() {
+		try {
+			server.close();
+		} catch (IOException e) {
+			Platform.log().e(TAG, "close() of server failed", e);
+		}
+		for (int i = clients.size() - 1; i >= 0; i--)
+			closeClient(i);
+	}
+}
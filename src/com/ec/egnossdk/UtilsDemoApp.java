@@ -37,7 +37,6 @@ import android.util.Log;
  * Utility class for the EGNOS Demo app
  **/
 public class UtilsDemoApp {
-  static GlobalState gs;
   Context context;
   static LogFiles log;
   static Handler errorhandler_;
@@ -53,7 +52,6 @@ public class UtilsDemoApp {
    **/
   public UtilsDemoApp(Context context) {
     this.context = context;
-    gs = (GlobalState) context.getApplicationContext();
     log = new LogFiles();
   }
 
@@ -583,26 +581,26 @@ public class UtilsDemoApp {
     boolean execute = false;
 
     try {
-    	GlobalState.getSocket();
+    	AndroidPlatform.getSocket();
       execute = true;
 
     } catch (Exception e) {
       Log.e(TAG, "Utils | write() Error: " + e.getMessage());
       log.logError("Receiver is disconnected");
-      GlobalState.setSocket(null);
+      AndroidPlatform.setSocket(null);
       return -1;
     }
 
     if (execute) {
       try {
-        if (GlobalState.getSocket() != null) {
+        if (AndroidPlatform.getSocket() != null) {
         	GlobalState.getOutputStream().write(buffer);
         	GlobalState.getOutputStream().flush();
         }
       } catch (IOException e) {
         Log.e(TAG, "Utils | write() Error: " + e.getMessage());
         log.logError("Receiver is disconnected");
-        GlobalState.setSocket(null);
+        AndroidPlatform.setSocket(null);
         return -1;
       }
       return 1;
@@ -641,22 +639,7 @@ public class UtilsDemoApp {
    * @param   *vect   Pointer of the vector with initial Geodetic values(phi,lambda,h)
    */
   public static void cconv_to_cart(double[] vect) {
-  	double N, X, Y, Z; //vect[0] -> phi, vect[1] -> lambda, vect[2] -> height
-
-  	double a_WGS84 = 6378137.0000;
-  	double b_WGS84 = 6356752.3142;
-  	double e_WGS84_SQUARED = 6.69437999014132E-3;
-  	
-  	vect[0] *= Math.PI / 180; // Conversions to rad
-  	vect[1] *= Math.PI / 180;
-
-  	N = a_WGS84/Math.sqrt(1-e_WGS84_SQUARED*Math.sin(vect[0])*Math.sin(vect[0]));
-  	X = (N + vect[2])*Math.cos(vect[0])*Math.cos(vect[1]);
-  	Y = (N + vect[2])*Math.cos(vect[0])*Math.sin(vect[1]);
-  	Z = (((b_WGS84*b_WGS84)/(a_WGS84*a_WGS84))*N + vect[2])*Math.sin(vect[0]);
-
-  	vect[0] = X;
-  	vect[1] = Y;
-  	vect[2] = Z;
+  	//vect[0] -> phi, vect[1] -> lambda, vect[2] -> height
+  	Geodesy.toEcef(vect[0] * Math.PI / 180, vect[1] * Math.PI / 180, vect[2], vect);
   }
 }
\ No newline at end of file
@@ -0,0 +1,161 @@
+/**
+ * @file Vec3.java
+ *
+ * Three dimensional vector value type.
+ *
+ * Rev: 3.0.0
+ *
+ * Author: DKE Aerospace Germany GmbH
+ *
+ * Copyright 2012 European Commission
+ *
+ * Licensed under the EUPL, Version 1.1 only (the "Licence");
+ * You may not use this work except in compliance with the
+ * Licence.
+ * You may obtain a copy of the Licence at:
+ * http://ec.europa.eu/idabc/eupl
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the Licence is
+ * distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied.
+ * See the Licence for the specific language governing
+ * permissions and limitations under the Licence.
+ *
+ **/
+
+package com.ec.egnossdk;
+
+/**
+ * Class that holds a three dimensional vector in three fields, as the ECEF
+ * positions and local coordinates of the geometry computations, without the
+ * indirections and bounds checks of a double[] array.
+ *
+ * The operations write their result into this vector and return it, so that
+ * the vectors can be allocated once and reused; the operands may be this
+ * vector.
+ */
+public final class Vec3 {
+
+	public double x;
+	public double y;
+	public double z;
+
+	/**
+	 * Vec3 Constructor
+	 * 
+	 * Null vector.
+	 **/
+	public Vec3() {
+	}
+
+	/**
+	 * Vec3 Constructor
+	 * 
+	 * @param x
+	 *            first coordinate.
+	 * @param y
+	 *            second coordinate.
+	 * @param z
+	 *            third coordinate.
+	 **/
+	public Vec3(double x, double y, double z) {
+		this.x = x;
+		this.y = y;
+		this.z = z;
+	}
+
+	/**
+	 * set function
+	 * 
+	 * @return this vector, set to (x, y, z).
+	 **/
+	public Vec3 set(double x, double y, double z) {
+		this.x = x;
+		this.y = y;
+		this.z = z;
+		return this;
+	}
+
+	/**
+	 * set function
+	 * 
+	 * @param a
+	 *            array of at least 3 coordinates.
+	 * @return this vector, set to the first 3 elements of a.
+	 **/
+	public Vec3 set(double[] a) {
+		x = a[0];
+		y = a[1];
+		z = a[2];
+		return this;
+	}
+
+	/**
+	 * get function
+	 * 
+	 * @param a
+	 *            array of at least 3 elements, receiving the coordinates.
+	 * @return the array a.
+	 **/
+	public double[] get(double[] a) {
+		a[0] = x;
+		a[1] = y;
+		a[2] = z;
+		return a;
+	}
+
+	/**
+	 * add function
+	 * 
+	 * @return this vector, set to a + b.
+	 **/
+	public Vec3 add(Vec3 a, Vec3 b) {
+		x = a.x + b.x;
+		y = a.y + b.y;
+		z = a.z + b.z;
+		return this;
+	}
+
+	/**
+	 * subtract function
+	 * 
+	 * @return this vector, set to a - b.
+	 **/
+	public Vec3 subtract(Vec3 a, Vec3 b) {
+		x = a.x - b.x;
+		y = a.y - b.y;
+		z = a.z - b.z;
+		return this;
+	}
+
+	/**
+	 * scale function
+	 * 
+	 * @return this vector, set to k.a.
+	 **/
+	public Vec3 scale(double k, Vec3 a) {
+		x = k * a.x;
+		y = k * a.y;
+		z = k * a.z;
+		return this;
+	}
+
+	/**
+	 * dot function
+	 * 
+	 * @return the scalar product of this vector and a.
+	 **/
+	public double dot(Vec3 a) {
+		return x * a.x + y * a.y + z * a.z;
+	}
+
+	/**
+	 * norm function
+	 * 
+	 * @return the euclidean norm of this vector.
+	 **/
+	public double norm() {
+		return Math.sqrt(x * x + y * y + z * z);
+	}
+}
@@ -178,7 +178,6 @@ public class uBlox {
 	public static int sisnet = 0;
 	private static int sisnetSettings;
 	public static int gps;
-	public static int insSdkPositionAvailable = 0;
 	private static int egnosSettings;
 	private static int edasSettings;
 	private static int sisnetUnavailable;
@@ -192,6 +191,19 @@ public class uBlox {
 	static double[] currentPosition = new double[10];
 
 	static double[] currentPosition_ = new double[850];
+	// Position solutions filled by the SW Receiver, two per type: one is
+	// filled while the other is published (GlobalState.swapPositionSolutions).
+	static final PositionSolution[] gpsSolutions = {
+			new PositionSolution(PositionSolution.GPS),
+			new PositionSolution(PositionSolution.GPS) };
+	static final PositionSolution[] egnosSolutions = {
+			new PositionSolution(PositionSolution.EGNOS),
+			new PositionSolution(PositionSolution.EGNOS) };
+	static PositionSolution gpsSolution = gpsSolutions[0];
+	static PositionSolution egnosSolution = egnosSolutions[0];
+	// Handle of the SW Receiver engine, keeping the decoded ephemerides and
+	// EGNOS messages from one epoch to the next.
+	static long engine;
 	public static int startThread = 0;
 	int countSVID = 0;
 	StringBuilder receivedmessages = new StringBuilder("");
@@ -296,68 +308,12 @@ public class uBlox {
 	 
 	 
 	/**
-	 * Load library for GPS-SW-Receiver Module.
+	 * Create the engine of the GPS-SW-Receiver Module.
 	 **/
 	static {
-		System.loadLibrary("EGNOSSWReceiver");
+		engine = SWReceiver.createEngine();
 	}
 
-	/**
-	 * getLongitudeLatitudeEGNOS function
-	 * 
-	 * Get EGNOS coordinates from SW receiver.
-	 * 
-	 * @param ephemData
-	 *            32 X 1 table of Ephemeris Data.
-	 * @param sat_data
-	 *            19 X 4 table of Satellite Data.
-	 * @param msg1
-	 *            Message 1.
-	 * @param msg10
-	 *            Message 10.
-	 * @param msg12
-	 *            Message 12.
-	 * @param msg7
-	 *            Message 7.
-	 * @param msg6
-	 *            Message 6.
-	 * @param m18_t
-	 *            5 X 1 table of Message 18.
-	 * @param m26_t
-	 *            25 X 1 table of Message 26.
-	 * @param msg2_5
-	 *            8 X 1 table of Messages 2 to 5.
-	 * @param msg24_t
-	 *            25 X 1 table of Messages 24.
-	 * @param msg25_t
-	 *            15 X 1 table of Messages 24
-	 * @param initial_position
-	 *            4 X 1 table of Initial Position.
-	 * @return coordinates 180 x 1 table of coordinates.
-	 **/
-	private native double[] getLongitudeLatitudeEGNOS(String[] ephemData,
-			double[][] sat_data, String msg1, String msg10, String msg12,
-			String msg7, String msg6, String[] m18_t, String[] m26_t,
-			String[] msg2_5, String[] msg24_t, String[] msg25_t, String msg9,
-			String msg17, double[] initial_position, double[] utc,
-			double[] klob, int[] RnDoptions, double[][] sat_data_notused);
-
-	/**
-	 * getLongitudeLatitudeGPS function
-	 * 
-	 * Get GPS coordinates from SW receiver.
-	 * 
-	 * @param ephemData
-	 *            32 X 1 table of Ephemeris Data.
-	 * @param sat_data
-	 *            19 X 4 table of Satellite Data.
-	 * @param initial_position
-	 *            4 X 1 table of Initial Position.
-	 * @return coordinates 1 x 17 table of coordinates.
-	 **/
-	private native double[] getLongitudeLatitudeGPS(String[] ephemData,
-			double[][] sat_data, double[] initial_position, double[] utc, double[][] sat_data_notused);
-
 	/**
 	 * checkSisnet function
 	 * 
@@ -408,7 +364,7 @@ public class uBlox {
 		switch (receiverType) {
 		case 1:
 			GlobalState.setErrorWhileReadingBT(1);
-			if (GlobalState.getSocket() != null) {
+			if (Platform.transport() != null) {
 				getMessagesThread = new GetMessagesThread();
 				getMessagesThread.start();
 			}
@@ -453,7 +409,7 @@ public class uBlox {
 							"uBlox | GetMessagesThread | Error in Request for RAW.");
 					logFiles.logError("uBlox - GetMessagesThread - Error in request for RAW.");
 				}
-				while (true && GlobalState.getSocket() != null
+				while (true && Platform.transport() != null
 						&& GlobalState.getErrorWhileReadingBT() == 1) {
 					egnosSettings = GlobalState.getEgnos();// EGNOS Signal in Space is ON/OFF in Settings.
 					sisnetSettings = GlobalState.getSISNeT();// SISNeT is ON/OFF in Settings.
@@ -498,7 +454,7 @@ public class uBlox {
 								"uBlox | GetMessagesThread | Error while reading from Bluetooth");
 						logFiles.logError("uBlox - GetMessagesThread -  Error while reading from Bluetooth.");
 						GlobalState.setErrorWhileReadingBT(-1);
-						GlobalState.setSocket(null);
+						Platform.setTransport(null);
 					}
 
 					// Compute GPS and EGNOS positions.
@@ -512,7 +468,7 @@ public class uBlox {
 
 					startThread = 1;
 				}
-				if (GlobalState.getSocket() == null) {
+				if (Platform.transport() == null) {
 					if (GlobalState.getisSkyplot() == false)
 						displayMessage(R.string.connectToReceiver);
 					gps = 0;
@@ -647,7 +603,7 @@ public class uBlox {
           "uBlox | GetMessagesThread | Error while reading from Bluetooth");
       logFiles.logError("uBlox - GetMessagesThread -  Error while reading from Bluetooth.");
       GlobalState.setErrorWhileReadingBT(-1);
-      GlobalState.setSocket(null);
+      Platform.setTransport(null);
     } else {
       if (sat_data[0][1] != 0.0) {
         double time_tr = (double) (sat_data[0][1] - 0.1);
@@ -794,9 +750,6 @@ public class uBlox {
 	 * Receiver.
 	 **/
 	class ComputePositionThread extends Thread {
-		double[] coordinatesGPS = new double[377];
-		double[] coordinatesEgnos = new double[789];
-
 		double gpsHDOP = 0;
 		double egnosHDOP = 0;
 		int iono_flag = 0;
@@ -829,11 +782,15 @@ public class uBlox {
 			// RnDoptions[7] = 0; // use SBAS ranging
 			//
 			if (gps != 0) {
-				coordinatesEgnos[9] = 0; // init iono _flag
+				gpsSolution = GlobalState.swapPositionSolutions(gpsSolutions);
+				egnosSolution = GlobalState.swapPositionSolutions(egnosSolutions);
+				egnosSolution.clear(); // init iono _flag
 				try {
 					// Get GPS position from EGNOS SW Receiver module.
-					coordinatesGPS = getLongitudeLatitudeGPS(ephemData,
-							sat_data, initialGPSPosition, utc,sat_data_notused);
+					SWReceiver.updateEphemeris(engine, ephemData);
+					SWReceiver.getLongitudeLatitudeGPS(engine, sat_data,
+							initialGPSPosition, utc, sat_data_notused,
+							gpsSolution.getBuffer());
 					tow = sat_data[0][1];
 
 					try {
@@ -844,7 +801,7 @@ public class uBlox {
 					}
 
 					try {
-						GlobalState.setGPSWN(coordinatesGPS[16]);
+						GlobalState.setGPSWN(gpsSolution.getGPSWeek());
 					} catch (Exception e) {
 						e.printStackTrace();
 					}
@@ -852,100 +809,35 @@ public class uBlox {
 		       // Li's edit for RTCM/NMEA use
 
           // HDOP  VDOP  PDOP  TDOP          
-          DOP[0]=coordinatesGPS[7];
-          DOP[1]=coordinatesGPS[55];
-          DOP[2]=coordinatesGPS[56];
-          DOP[3]=coordinatesGPS[57];
+          DOP[0]=gpsSolution.getHDOP();
+          DOP[1]=gpsSolution.getVDOP();
+          DOP[2]=gpsSolution.getPDOP();
+          DOP[3]=gpsSolution.getTDOP();
           GlobalState.setDOP(DOP);
           
           // TOE
-          GlobalState.setGPSTOE(coordinatesGPS[59]);
+          GlobalState.setGPSTOE(gpsSolution.getTOE());
           
           // TotalSatInView
-          GlobalState.setTotalSatInView(coordinatesGPS[8]+ coordinatesGPS[241]);
+          GlobalState.setTotalSatInView(gpsSolution.getInViewCount());
 
           // NumSatUse
-          GlobalState.setNumSatUse(coordinatesGPS[10]);
-          
-          int size = (int)(coordinatesGPS[8] + coordinatesGPS[241]);
-          
-          Log.d("Satellites", "GPS Total Sats in View: "+coordinatesGPS[8]);
-          // SatId, Elevation, Azimuth, SNR
-          double[] SatId=new double[size];
-          double[] Elevation=new double[size];
-          double[] Azimuth=new double[size];
-          double[] SNR=new double[size];
-          //for used satellites
-          for( int i=0; i<(int)coordinatesGPS[8]; i++)
-          {
-            if(SatId[i] == 126 && msg9 == null) {
-              // Don't save the details of satellite id 126 
-            }else {             
-               SatId[i]=coordinatesGPS[17+2*i];
-               Elevation[i]=coordinatesGPS[62+6*i];
-               Azimuth[i]=coordinatesGPS[60+6*i];
-               SNR[i]=coordinatesGPS[61+6*i];   
-            }
-          }
-          
-          for(int i = 0; i< (int)coordinatesGPS[241]; i++) {            
-            SatId[i+(int)(coordinatesGPS[8])]=coordinatesGPS[242+i*4];
-            Elevation[i+(int)(coordinatesGPS[8])]=coordinatesGPS[244+i*4];
-            Azimuth[i+(int)(coordinatesGPS[8])]=coordinatesGPS[243+i*4];
-            SNR[i+(int)(coordinatesGPS[8])]=coordinatesGPS[245+i*4];            
-          }
-          
-          GlobalState.setSatId(SatId);
-          GlobalState.setElevation(Elevation);
-          GlobalState.setAzimuth(Azimuth);
-          GlobalState.setSNR(SNR);
+          GlobalState.setNumSatUse(gpsSolution.getUsedCount());
           
+          Log.d("Satellites", "GPS Total Sats in View: "+gpsSolution.getTrackedCount());
+
           // RTCM Message 1
-          // double Modif_Zcount = coordinatesGPS[186];
+          GlobalState.setModZcount(gpsSolution.getModifiedZCount());
 
-          // information of used satellite 
-          double[] PrnUse = new double[(int) coordinatesGPS[10]];
-          double[] Prc = new double[(int) coordinatesGPS[10]];
-          double[] Rrc = new double[(int) coordinatesGPS[10]];
-          double[] Iodc = new double[(int) coordinatesGPS[10]];
-          
-          double[] Pr = new double[(int) coordinatesGPS[10]];
-          double[] SatPosX = new double[(int) coordinatesGPS[10]];
-          double[] SatPosY = new double[(int) coordinatesGPS[10]];
-          double[] SatPosZ = new double[(int) coordinatesGPS[10]];
-          
-          int ModZcount = (int)Math.round(coordinatesGPS[186]%3600/0.6);
-          
-          for (int i = 0; i < (int) coordinatesGPS[10]; i++) {
-            PrnUse[i] = coordinatesGPS[187 + 4 * i];
-            Prc[i] = coordinatesGPS[188 + 4 * i];
-            Log.d("Satellites", "GPS Prc: "+Prc);
-            Rrc[i] = coordinatesGPS[189 + 4 * i];
-            Iodc[i] = coordinatesGPS[190 + 4 * i];
-            
-            Pr[i] = coordinatesGPS[317 + 4 * i];
-            SatPosX[i] = coordinatesGPS[318 + 4 * i];
-            SatPosY[i] = coordinatesGPS[319 + 4 * i];
-            SatPosZ[i] = coordinatesGPS[320 + 4 * i];
-          }
-          
-          GlobalState.setModZcount(ModZcount);
-          
-          GlobalState.setPrnUse(PrnUse);
-          GlobalState.setPrc(Prc);
-          GlobalState.setRrc(Rrc);
-          GlobalState.setIodc(Iodc);
-          
-          GlobalState.setPr(Pr);
-          GlobalState.setSatPosX(SatPosX);
-          GlobalState.setSatPosY(SatPosY);
-          GlobalState.setSatPosZ(SatPosZ);
+          // SatId, Elevation, Azimuth, SNR and the corrections of the used
+          // satellites are read from the solution by NMEA/RTCM.
+          GlobalState.setPositionSolution(gpsSolution);
 
           // RTCM Message 3  (only GPS position,  better use getposition() instead)
           double[] ECEFGPS = new double[3];
-          ECEFGPS[0] = coordinatesGPS[3];
-          ECEFGPS[1] = coordinatesGPS[4];
-          ECEFGPS[2] = coordinatesGPS[5];
+          ECEFGPS[0] = gpsSolution.getEcef(0);
+          ECEFGPS[1] = gpsSolution.getEcef(1);
+          ECEFGPS[2] = gpsSolution.getEcef(2);
           GlobalState.setECEFGPS(ECEFGPS);
 
 				} catch (Exception e) {
@@ -957,35 +849,35 @@ public class uBlox {
 				}
 				Log.i(TAG, "ComputePositionThread | Coordinaates GPS:"
 						+ "\nComputePositionThread | GPS Latitude:  "
-						+ coordinatesGPS[0]
+						+ gpsSolution.getLatitude()
 						+ "\nComputePositionThread | GPS Longitude: "
-						+ coordinatesGPS[1]
+						+ gpsSolution.getLongitude()
 						+ "\nComputePositionThread | GPS Altitude: "
-						+ coordinatesGPS[2]);
+						+ gpsSolution.getAltitude());
 
-				if (coordinatesGPS != null) {
-					gpsHDOP = coordinatesGPS[7];
+				if (gpsSolution != null) {
+					gpsHDOP = gpsSolution.getHDOP();
 					Log.i(TAG, "ComputePositionThread | GPS HDOP: " + gpsHDOP);
-					if (coordinatesGPS[3] != 0.0 && coordinatesGPS[4] != 0.0
-							&& coordinatesGPS[5] != 0.0
-							&& coordinatesGPS[6] != 0.0
+					if (gpsSolution.getEcef(0) != 0.0 && gpsSolution.getEcef(1) != 0.0
+							&& gpsSolution.getEcef(2) != 0.0
+							&& gpsSolution.getEcef(3) != 0.0
 							&& (gpsHDOP < 3 || gpsHDOP != 0)) {
-						initialGPSPosition[0] = coordinatesGPS[3];
-						initialGPSPosition[1] = coordinatesGPS[4];
-						initialGPSPosition[2] = coordinatesGPS[5];
-						initialGPSPosition[3] = coordinatesGPS[6];
+						initialGPSPosition[0] = gpsSolution.getEcef(0);
+						initialGPSPosition[1] = gpsSolution.getEcef(1);
+						initialGPSPosition[2] = gpsSolution.getEcef(2);
+						initialGPSPosition[3] = gpsSolution.getEcef(3);
 						GlobalState.setinitialGPSPosition(initialGPSPosition);
 					} else {
 						initialGPSPosition = GlobalState
 								.getinitialGPSPosition();
 					}
 
-					if (coordinatesGPS[0] >= -80.0 || coordinatesGPS[0] <= 80.0
-							|| coordinatesGPS[1] <= 180.0
-							|| coordinatesGPS[1] >= -180.0) {
-						currentPosition[0] = coordinatesGPS[0]; // GPS Latitude
-						currentPosition[1] = coordinatesGPS[1]; // GPS Longitude
-						currentPosition[2] = coordinatesGPS[2]; // GPS Altitude
+					if (gpsSolution.getLatitude() >= -80.0 || gpsSolution.getLatitude() <= 80.0
+							|| gpsSolution.getLongitude() <= 180.0
+							|| gpsSolution.getLongitude() >= -180.0) {
+						currentPosition[0] = gpsSolution.getLatitude(); // GPS Latitude
+						currentPosition[1] = gpsSolution.getLongitude(); // GPS Longitude
+						currentPosition[2] = gpsSolution.getAltitude(); // GPS Altitude
 
 						currentPosition_[0] = currentPosition[0]; // GPS
 																	// Latitude
@@ -994,29 +886,29 @@ public class uBlox {
 						currentPosition_[2] = currentPosition[2]; // GPS
 																	// Altitude
 
-						currentPosition_[8] = coordinatesGPS[8]; // Total no. of
+						currentPosition_[8] = gpsSolution.getTrackedCount(); // Total no. of
 																	// sats.
-						currentPosition_[9] = coordinatesGPS[9]; // Low Elev
+						currentPosition_[9] = gpsSolution.getLowElevationCount(); // Low Elev
 																	// Sats.
-						currentPosition_[10] = coordinatesGPS[10]; // Sats Used
-						currentPosition_[11] = coordinatesGPS[11]; // Iterations
-						currentPosition_[12] = coordinatesGPS[12]; // 1 if Jump
-						currentPosition_[13] = coordinatesGPS[13]; // Jump on x
-						currentPosition_[14] = coordinatesGPS[14]; // Jump on y
+						currentPosition_[10] = gpsSolution.getUsedCount(); // Sats Used
+						currentPosition_[11] = gpsSolution.getIterations(); // Iterations
+						currentPosition_[12] = gpsSolution.getJump(0); // 1 if Jump
+						currentPosition_[13] = gpsSolution.getJump(1); // Jump on x
+						currentPosition_[14] = gpsSolution.getJump(2); // Jump on y
 
-						gpsLatitude = String.valueOf(coordinatesGPS[0]);
+						gpsLatitude = String.valueOf(gpsSolution.getLatitude());
 
 						for (int i = 0; i < sat_data.length; i++) {
 							gpsSatelliteTypes[i][0] = sat_data[i][0];// PRN
 							gpsSatelliteTypes[i][2] = sat_data[i][2] / 1000;// pesudorange
 							gpsSatelliteTypes[i][3] = sat_data[i][3];// SNR
 						}
-						for (int i = 0; i < (int) coordinatesGPS[8]; i++) {
+						for (int i = 0; i < gpsSolution.getTrackedCount(); i++) {
 							satType = 1;
-							Log.d("Satellite","GPS prn: "+coordinatesGPS[17 + i * 2] +"satTzpe: " +coordinatesGPS[17 + i * 2 + 1]);
+							Log.d("Satellite","GPS prn: "+gpsSolution.getPrn(i) +"satTzpe: " +gpsSolution.getTrackedUse(i));
 
-							setsat_data(coordinatesGPS[17 + i * 2],
-									coordinatesGPS[17 + i * 2 + 1],
+							setsat_data(gpsSolution.getPrn(i),
+									gpsSolution.getTrackedUse(i),
 									gpsSatelliteTypes, satType);
 						}
 						GlobalState.setGPSSatelliteType(gpsSatelliteTypes);
@@ -1025,7 +917,7 @@ public class uBlox {
 
 				GlobalState.setPosition(currentPosition);
 
-				Arrays.fill(coordinatesEgnos, 0.0);
+				egnosSolution.clear();
 
 				for (int c = 0; c < 32; c++) {
 					Arrays.fill(egnosSatelliteTypes[c], 0.0);
@@ -1115,145 +1007,51 @@ public class uBlox {
 							if (last_height != 0) {
 								initialGPSPosition[2] = last_height;
 							}
-							// ensure no null strings are passed to JNI, causing an error in GetStringUTFChars
-							String msg1_copy = msg1==null ? new String("") : msg1;
-							String msg10_copy = msg10==null ? new String("") : msg10;
-							String msg12_copy = msg12==null ? new String("") : msg12;
-							String msg7_copy = msg7==null ? new String("") : msg7;
-							String msg6_copy = msg6==null ? new String("") : msg6;
-							String msg9_copy = msg9==null ? new String("") : msg9;
-							String msg17_copy = msg17==null ? new String("") : msg17;
-							String[] msg2_5_copy = new String[msg2_5.length];
-							for (int i=0; i<msg2_5.length;i++) {
-								msg2_5_copy[i] = msg2_5[i]==null ? new String("") : msg2_5[i];
-							}
-							String[] m18_t_copy = new String[m18_t.length];
-							for (int i=0; i<m18_t.length;i++) {
-								m18_t_copy[i] = m18_t[i]==null ? new String("") : m18_t[i];
-							}
-							String[] m26_t_copy = new String[m26_t.length];
-							for (int i=0; i<m26_t.length;i++) {
-								m26_t_copy[i] = m26_t[i]==null ? new String("") : m26_t[i];
-							}
-							String[] msg24_t_copy = new String[msg24_t.length];
-							for (int i=0; i<msg24_t.length;i++) {
-								msg24_t_copy[i] = msg24_t[i]==null ? new String("") : msg24_t[i];
-							}
-							String[] msg25_t_copy = new String[msg25_t.length];
-							for (int i=0; i<msg25_t.length;i++) {
-								msg25_t_copy[i] = msg25_t[i]==null ? new String("") : msg25_t[i];
-							}
-							coordinatesEgnos = getLongitudeLatitudeEGNOS(
-									ephemData, sat_data, msg1_copy, msg10_copy, msg12_copy,
-									msg7_copy, msg6_copy, m18_t_copy, m26_t_copy, msg2_5_copy, msg24_t_copy,
-									msg25_t_copy, msg9_copy, msg17_copy, initialGPSPosition,
-									utc, klob, RnDoptions,sat_data_notused);
+							// only the messages changed since the previous epoch are decoded
+							SWReceiver.updateSbasMessages(engine, msg1, msg10, msg12, msg7,
+									msg6, m18_t, m26_t, msg2_5, msg24_t, msg25_t,
+									msg9, msg17);
+							SWReceiver.getLongitudeLatitudeEGNOS(engine, sat_data,
+									initialGPSPosition, utc, klob, RnDoptions,
+									sat_data_notused, egnosSolution.getBuffer());
 							
 						// Li's edit for RTCM/NMEA use
 
               // HDOP  VDOP  PDOP  TDOP
-              double[] DOP=new double[4];
-              DOP[0]=coordinatesEgnos[8];
-              DOP[1]=coordinatesEgnos[500];
-              DOP[2]=coordinatesEgnos[501];
-              DOP[3]=coordinatesEgnos[502];
+              DOP[0]=egnosSolution.getHDOP();
+              DOP[1]=egnosSolution.getVDOP();
+              DOP[2]=egnosSolution.getPDOP();
+              DOP[3]=egnosSolution.getTDOP();
               GlobalState.setDOP(DOP);
               
               // TOE
-              double gpsTOE=coordinatesEgnos[504];
-              GlobalState.setGPSTOE(gpsTOE);
+              GlobalState.setGPSTOE(egnosSolution.getTOE());
               
               // TotalSatInView
-              double TotalSatInView = coordinatesEgnos[11] + coordinatesEgnos[591];
-              GlobalState.setTotalSatInView(TotalSatInView);
-              Log.d("Satellites", "EGNOS Total Sats in View: "+coordinatesEgnos[11]);
+              GlobalState.setTotalSatInView(egnosSolution.getInViewCount());
+              Log.d("Satellites", "EGNOS Total Sats in View: "+egnosSolution.getTrackedCount());
 
               // NumSatUse
-              double NumSatUse = coordinatesEgnos[14];
-              GlobalState.setNumSatUse(NumSatUse);
-              
-              // SatId, Elevation, Azimuth, SNR
-              double[] SatId=new double[(int)TotalSatInView];
-              double[] Elevation=new double[(int)TotalSatInView];
-              double[] Azimuth=new double[(int)TotalSatInView];
-              double[] SNR=new double[(int)TotalSatInView];
-              for( int i=0; i<(int)coordinatesEgnos[11]; i++)
-              {
-                if(SatId[i] == 126 && msg9 == null) {
-                  // Don't save the details of satellite id 126 
-                }else { 
-                SatId[i]=coordinatesEgnos[20+26*i];
-                Elevation[i]=coordinatesEgnos[26+26*i];
-                Azimuth[i]=coordinatesEgnos[505+4*i];
-                SNR[i]=coordinatesEgnos[506+4*i];
-                }
-                Log.d("Satellites", "EGNOS Sateiites in View: "+SatId[i]);
-              }
-              
-              for(int i = 0; i< (int)coordinatesEgnos[591]; i++) {            
-                SatId[i+(int)(coordinatesEgnos[11])]=coordinatesEgnos[592+i*4];
-                Elevation[i+(int)(coordinatesEgnos[11])]=coordinatesEgnos[594+i*4];
-                Azimuth[i+(int)(coordinatesEgnos[11])]=coordinatesEgnos[593+i*4];
-                SNR[i+(int)(coordinatesEgnos[11])]=coordinatesEgnos[595+i*4];            
-              }
-              GlobalState.setSatId(SatId);
-              GlobalState.setElevation(Elevation);
-              GlobalState.setAzimuth(Azimuth);
-              GlobalState.setSNR(SNR);
+              GlobalState.setNumSatUse(egnosSolution.getUsedCount());
 
               // RTCM Message 1
-              // double Modif_Zcount = coordinatesEgnos[668];   // Z count
-              
-              // information of used satellite 
-              double[] PrnUse = new double[(int) NumSatUse];
-              double[] Prc = new double[(int) NumSatUse];
-              double[] Rrc = new double[(int) NumSatUse];
-              double[] Iodc = new double[(int) NumSatUse];
-              
-              double[] Pr = new double[(int) NumSatUse];
-              double[] SatPosX = new double[(int) NumSatUse];
-              double[] SatPosY = new double[(int) NumSatUse];
-              double[] SatPosZ = new double[(int) NumSatUse];
-              
-              int ModZcount = (int)Math.round(coordinatesEgnos[668]%3600/0.6);
+              GlobalState.setModZcount(egnosSolution.getModifiedZCount());
 
-              
-              for (int i = 0; i < (int) NumSatUse; i++) {
-                PrnUse[i] = coordinatesEgnos[669 + 8 * i];
-                Prc[i] = coordinatesEgnos[670 + 8 * i];
-                Rrc[i] = coordinatesEgnos[671 + 8 * i];
-                Iodc[i] = coordinatesEgnos[672 + 8 * i];
-                
-                Pr[i] = coordinatesEgnos[673 + 8 * i];
-                SatPosX[i] = coordinatesEgnos[674 + 8 * i];
-                SatPosY[i] = coordinatesEgnos[675 + 8 * i];
-                SatPosZ[i] = coordinatesEgnos[676 + 8 * i];
-                
-              }
-              
-              GlobalState.setModZcount(ModZcount);
-              
-              GlobalState.setPrnUse(PrnUse);
-              GlobalState.setPrc(Prc);
-              GlobalState.setRrc(Rrc);
-              GlobalState.setIodc(Iodc);
-              
-              GlobalState.setPr(Pr);
-              GlobalState.setSatPosX(SatPosX);
-              GlobalState.setSatPosY(SatPosY);
-              GlobalState.setSatPosZ(SatPosZ);
+              // SatId, Elevation, Azimuth, SNR and the corrections of the used
+              // satellites are read from the solution by NMEA/RTCM.
+              GlobalState.setPositionSolution(egnosSolution);
               //  Li's edit end here !
               
 
-							if (coordinatesEgnos[14] > 3) {
-								last_height = coordinatesEgnos[6];
-								pos3D[0] = coordinatesEgnos[4];
-								pos3D[1] = coordinatesEgnos[5];
-								pos3D[2] = coordinatesEgnos[6];
+							if (egnosSolution.getUsedCount() > 3) {
+								last_height = egnosSolution.getEcef(2);
+								pos3D[0] = egnosSolution.getEcef(0);
+								pos3D[1] = egnosSolution.getEcef(1);
+								pos3D[2] = egnosSolution.getEcef(2);
 							}
 							double distance = Math.sqrt(Math.pow(pos3D[0]
-									- coordinatesEgnos[4], 2)
-									+ Math.pow(pos3D[1] - coordinatesEgnos[5],
+									- egnosSolution.getEcef(0), 2)
+									+ Math.pow(pos3D[1] - egnosSolution.getEcef(1),
 											2));
 							if (distance > 1000)
 								last_height = 0;
@@ -1270,11 +1068,11 @@ public class uBlox {
 									+ e);
 						}
 
-						iono_flag = (int) coordinatesEgnos[9];
+						iono_flag = egnosSolution.getIonoFlag();
 						Log.d(TAG, "uBlox | iono_flag:" + iono_flag);
 						Log.d(TAG, "uBlox | iono_flag 2:" + iono_flag_2);
 
-						egnos_position = (int) coordinatesEgnos[10];
+						egnos_position = egnosSolution.getEgnosPosition();
 
 						// indicates preliminary EGNOS position or EGNOS
 						// position.
@@ -1297,8 +1095,8 @@ public class uBlox {
 						if (egnos_position == 0)
 							// HPL is set to 0, to not display integrity circle
 							// for preliminary EGNOS position.
-							coordinatesEgnos[3] = 0;
-						egnosHDOP = coordinatesEgnos[8];
+							egnosSolution.setHPL(0);
+						egnosHDOP = egnosSolution.getHDOP();
 						Log.d(TAG,
 								"uBlox | ComputePositionThread | EGNOS HDOP: "
 										+ egnosHDOP);
@@ -1308,32 +1106,32 @@ public class uBlox {
 				Log.d(TAG,
 						"uBlox | ComputePositionThread | Coordinaates EGNOS:"
 								+ "\nuBlox | ComputePositionThread | EGNOS Latitude:  "
-								+ coordinatesEgnos[0]
+								+ egnosSolution.getLatitude()
 								+ "\nuBlox | ComputePositionThread | EGNOS Longitude: "
-								+ coordinatesEgnos[1]
+								+ egnosSolution.getLongitude()
 								+ "\nuBlox | ComputePositionThread | EGNOS Altitude:  "
-								+ coordinatesEgnos[2]
+								+ egnosSolution.getAltitude()
 								+ "\nuBlox | ComputePositionThread | HPL:  "
-								+ coordinatesEgnos[3]);
-
-				if (coordinatesEgnos != null) {
-					if (coordinatesEgnos[0] >= -80.0
-							|| coordinatesEgnos[0] <= 80.0
-							|| coordinatesEgnos[1] <= 180.0
-							|| coordinatesEgnos[1] >= -180.0) {
-						currentPosition[3] = coordinatesEgnos[0]; // EGNOS
+								+ egnosSolution.getHPL());
+
+				if (egnosSolution != null) {
+					if (egnosSolution.getLatitude() >= -80.0
+							|| egnosSolution.getLatitude() <= 80.0
+							|| egnosSolution.getLongitude() <= 180.0
+							|| egnosSolution.getLongitude() >= -180.0) {
+						currentPosition[3] = egnosSolution.getLatitude(); // EGNOS
 																	// Latitude
-						currentPosition[4] = coordinatesEgnos[1]; // EGNOS
+						currentPosition[4] = egnosSolution.getLongitude(); // EGNOS
 																	// Longitude
-						currentPosition[5] = coordinatesEgnos[2]; // EGNOS
+						currentPosition[5] = egnosSolution.getAltitude(); // EGNOS
 																	// Altitude
-						currentPosition[6] = coordinatesEgnos[3]; // HPL
+						currentPosition[6] = egnosSolution.getHPL(); // HPL
 
-						currentPosition[7] = coordinatesEgnos[475];// R&D
+						currentPosition[7] = egnosSolution.getRnD(0);// R&D
 																	// Latitude
-						currentPosition[8] = coordinatesEgnos[476];// R&D
+						currentPosition[8] = egnosSolution.getRnD(1);// R&D
 																	// Longitude
-						currentPosition[9] = coordinatesEgnos[477];// R&D
+						currentPosition[9] = egnosSolution.getRnD(2);// R&D
 																	// Altitude
 
 						currentPosition_[3] = currentPosition[3]; // EGNOS
@@ -1349,6 +1147,7 @@ public class uBlox {
 						currentPosition_[17] = receiverAltitude; // Alt uBlox
 						egnosLatitude = String.valueOf(currentPosition_[3]);
 
+						double[] coordinatesEgnos = egnosSolution.getBuffer();
 						for (int j = 0; j < coordinatesEgnos.length; j++)
 							currentPosition_[18 + j] = coordinatesEgnos[j];
 
@@ -2533,7 +2332,7 @@ public class uBlox {
 				// "uBlox | ReadFromBT | Available: "+GlobalState.getInputStream().available());
 				numBytesRead = GlobalState.getInputStream().read(buffer,
 						offset, length);
-				GlobalState.setInputStream(GlobalState.getSocket()
+				GlobalState.setInputStream(Platform.transport()
 						.getInputStream());
 				isRead = true;
 			} catch (Exception e) {
@@ -2551,7 +2350,7 @@ public class uBlox {
 				// "uBlox | ReadFromBT | Available: "+GlobalState.getInputStream().available());
 				numBytesRead = GlobalState.getInputStream().read(buffer,
 						offset, length);
-				GlobalState.setInputStream(GlobalState.getSocket()
+				GlobalState.setInputStream(Platform.transport()
 						.getInputStream());
 				isRead = true;
 			} catch (Exception e) {
@@ -2578,7 +2377,7 @@ public class uBlox {
 		try {
 			ret = handleRaw();
 			if (ret == -2)
-				GlobalState.setSocket(null);
+				Platform.setTransport(null);
 		} catch (Exception e) {
 			Log.e(TAG, "uBlox | RequestRaw error. (" + e + ")");
 			logFiles.logError("uBlox - RequestRaw error: " + e);
@@ -2612,7 +2411,7 @@ public class uBlox {
 		isRead = false;
 		Thread r;
 
-		if (GlobalState.getSocket() != null) {
+		if (Platform.transport() != null) {
 			try {
 				Log.i(TAG,
 						"uBlox | handleRaw |  @@@ Receive read raw start @@@");
@@ -2967,7 +2766,7 @@ public class uBlox {
         sat_data[countSat_data][2] = prDoubleValue;
         sat_data[countSat_data][3] = (double) cnInt;
 
-        if (GlobalState.getSocket() != null){
+        if (Platform.transport() != null){
         if (svInt <= 32) {// GPS satellites only 
           if (ephemerisTable[svInt - 1][1] == 0) {
             /*
@@ -3012,7 +2811,7 @@ public class uBlox {
         countSat_data++;
       }else {   
           if (svInt <= 32) { 
-            if (GlobalState.getSocket() != null){
+            if (Platform.transport() != null){
              requestEph(String.valueOf(svInt));
             }
            if (ephemerisTable[svInt - 1][1] == 1) { 
@@ -3060,9 +2859,9 @@ public class uBlox {
 			//Log.d(TAG_RAW, "numSvInt > 4 " + numSvInt);
 			gps = 1;
 			if(insNumSvInt > 4)
-				insSdkPositionAvailable = 1;
+				GlobalState.setInsSdkPositionAvailable(1);
 			else
-				insSdkPositionAvailable = 0;
+				GlobalState.setInsSdkPositionAvailable(0);
 			gpsUnavailable = 0;
 			if (svidCheck) { // SVID = 120 or 126 and numSVInt > 5
 				Log.d(TAG_RAW, "numSvInt " + numSvInt + " svidCheck"
@@ -3095,9 +2894,9 @@ public class uBlox {
 		} else if (numSvInt == 4 && !svidCheck) {
 			gps = 1;
 			if(insNumSvInt == 4)
-				insSdkPositionAvailable = 1;
+				GlobalState.setInsSdkPositionAvailable(1);
 			else
-				insSdkPositionAvailable = 0;
+				GlobalState.setInsSdkPositionAvailable(0);
 			gpsUnavailable = 0;
 			egnos = 0;
 			Log.d(TAG_RAW, "numSvInt == 4 && !svidCheck, EGNOS not available: "
@@ -3113,7 +2912,7 @@ public class uBlox {
 		} else { // numSVInt <= 4 (incl. on
 			Log.d(TAG_RAW, "numSvInt " + numSvInt + " svidCheck" + svidCheck);
 			gps = 0;
-			insSdkPositionAvailable = 0;
+			GlobalState.setInsSdkPositionAvailable(0);
 			if (GlobalState.getisCurrent() || GlobalState.getisTracking()) {
 				if (gpsUnavailable == 0)
 					displayMessage(R.string.gpsUnAvailable);
@@ -3180,7 +2979,7 @@ public class uBlox {
 
 			try {
 				if (handleEph() == -2)
-					GlobalState.setSocket(null);
+					Platform.setTransport(null);
 			} catch (Exception e) {
 				Log.e(TAG, "uBlox - requestEph| exception: " + e.getMessage());
 				logFiles.logError("uBlox - requestEph error: " + e);
@@ -3208,7 +3007,7 @@ public class uBlox {
 		String tmp1 = "";
 		StringBuilder message = new StringBuilder();
 		String sPayloadLen = "";
-		if (GlobalState.getSocket() != null) {
+		if (Platform.transport() != null) {
 			try {
 				// Log.i(TAG,
 				// "uBlox | handleEph |  @@@ Receive read eph start @@@");
@@ -3348,7 +3147,7 @@ public class uBlox {
     logFiles.logReceiverData(String.valueOf(message));
 		
 
-	//	if (GlobalState.getSocket() != null) {
+	//	if (Platform.transport() != null) {
 			sPayloadLen = UtilsDemoApp.charToStringUbl(message, 8, 11);
 			try {
 				iPayloadLen = Integer.parseInt(sPayloadLen, HEX_BASE);
@@ -3518,7 +3317,7 @@ public class uBlox {
 		try {
 			ret = handleSfrb();
 			if (ret == -2)
-				GlobalState.setSocket(null);
+				Platform.setTransport(null);
 		} catch (Exception e) {
 			Log.e(TAG, "uBlox | RequestSfrb error. (" + e.getMessage() + ")");
 			logFiles.logError("uBlox - RequestSfrb error: " + e);
@@ -3552,7 +3351,7 @@ public class uBlox {
 		isRead = false;
 		Thread r;
 
-		if (GlobalState.getSocket() != null) {
+		if (Platform.transport() != null) {
 			try {
 
 				// numBytesRead =
@@ -4006,7 +3805,7 @@ public class uBlox {
 
 		try {
 			if (handleHUI() == -2)
-				GlobalState.setSocket(null);
+				Platform.setTransport(null);
 		} catch (Exception e) {
 			logFiles.logError("uBlox - requestEph error: " + e);
 			return -1;
@@ -4033,7 +3832,7 @@ public class uBlox {
 		StringBuilder message = new StringBuilder();
 		String sPayloadLen = "";
 
-		if (GlobalState.getSocket() != null) {
+		if (Platform.transport() != null) {
 			try {
 				// Log.i(TAG,
 				// "uBlox | handleHUI|  @@@ Receive read hui start @@@");
@@ -4170,7 +3969,7 @@ public class uBlox {
 		
 		logFiles.logReceiverData(message);
 
-		//if (GlobalState.getSocket() != null) {
+		//if (Platform.transport() != null) {
 			sPayloadLen = UtilsDemoApp.charToStringUbl2(message, 8, 11);
 			try {
 				iPayloadLen = Integer.parseInt(sPayloadLen, HEX_BASE);
@@ -4316,7 +4115,7 @@ public class uBlox {
 		try {
 			ret = handlePosllh();
 			if (ret == -2)
-				GlobalState.setSocket(null);
+				Platform.setTransport(null);
 
 		} catch (Exception e) {
 			Log.e(TAG, "uBlox | requestPosllh error. (" + e.getMessage() + ")");
@@ -4349,7 +4148,7 @@ public class uBlox {
 		long timeDiff = 0;
 		ReadFromBT readBT;
 
-		if (GlobalState.getSocket() != null) {
+		if (Platform.transport() != null) {
 			try {
 				Log.i(TAG,
 						"uBlox | handlePosllh|  @@@ Receive read pollsh start @@@");
@@ -31,7 +31,10 @@ Author: Horst Meyerdierks
  java.text.DecimalFormat;
   */
 
-import com.ec.egnossdk.SatelliteData;
+import java.util.Arrays;
+
+import com.ec.egnossdk.LocalFrame;
+import com.ec.egnossdk.Mat3;
 
 public class SDP4Model
 {
@@ -43,6 +46,9 @@ public class SDP4Model
   protected static double itsZ; // Distance from Earth's equatorial plane in Gm.
   protected static double[] itsR = new double[3];
   protected static double[] itsV = new double[3];
+  // Local frame of the station and precession matrix
+  private static final LocalFrame itsFrame = new LocalFrame();
+  private static final Mat3 itsPrecession = new Mat3();
   
   protected static final double A = 0.006378140; // Earth's equatorial radius in
   // Gm.
@@ -127,6 +133,29 @@ public class SDP4Model
 	
 	protected double QO, SO, XJ2, XJ4;
 
+	/** The NORAD elements of the initialisation terms, null if not set. */
+	private double[] itsElements;
+	private final double[] dpsec_args = new double[6];
+	private final double[] dpper_args = new double[5];
+	private final double[] TSINCE = new double[1];
+
+
+	/**
+	 * Creates the model, to be initialised by Init.
+	 */
+	public SDP4Model()
+	{
+	}
+
+	/**
+	 * Creates the propagator of a TLE: Init, then SetElements.
+	 * @param data_norad		Array holding the NORAD data
+	 */
+	public SDP4Model(double[] data_norad)
+	{
+		Init();
+		SetElements(data_norad);
+	}
 
 	/**
 	 * Initialise the SDP4.
@@ -138,6 +167,7 @@ public class SDP4Model
 		itsR[0] = 0.01; itsR[1] = 0.; itsR[2] = 0.;
 		itsV[0] = 0.;   itsV[1] = 0.; itsV[2] = 0.;
 		itsEpochJD    = 0.;
+		itsElements   = null;
 
 		// Initialize E1
 		E1_XMO = 0.;
@@ -1182,35 +1212,26 @@ public class SDP4Model
 
 	/**
 	 * Run the SDP4 model.
+	 *
+	 * The initialisation terms are only computed again when the NORAD data
+	 * differ from the previous call, see SetElements and Propagate.
 	 * @param data_norad		Array holding the NORAD data
 	 * @param julDay			The current time expressed in Julian days
 	 */
 	public final double[] RunSDP4(double[] data_norad, double julDay)
 	{
-		double A, AXN, AYN, AYNL, BETA, BETAL, CAPU, COS2U, COSEPW,
-		COSIK, COSNOK, COSU, COSUK, E, ECOSE, ELSQ, EM, EPW, ESINE, OMGADF,
-		PL, R, RDOT, RDOTK, RFDOT, RFDOTK, RK, SIN2U, SINEPW, SINIK,
-		SINNOK, SINU, SINUK, TEMP, TEMP4, TEMP5, TEMP6, TEMPA,
-		TEMPE, TEMPL, TSQ, U, UK, UX, UY, UZ, VX, VY, VZ, XINC, XINCK,
-		XL, XLL, XLT, XMAM, XMDF, XMX, XMY, XN, XNODDF, XNODE, XNODEK;
-		double[] dpsec_args = new double[6];
-		double[] dpper_args = new double[5];
-		int I;
-
-		TEMP4 = 0.;
-		TEMP5 = 0.;
-		TEMP6 = 0.;
-		COSEPW = 0.;
-		SINEPW = 0.;
-		EM = 0.;
-		XINC = 0.;
-
-		int[] IFLAG = new int[1];
-		double[] TSINCE = new double[1];
-
-		IFLAG[0] = 1;
-		TSINCE[0] = 0;
+		if (itsElements == null || !Arrays.equals(itsElements, data_norad))
+			SetElements(data_norad);
+		return Propagate(julDay);
+	}
 
+	/**
+	 * Set the NORAD elements and compute the initialisation terms of the
+	 * model, including the deep space ones, used by Propagate at any time.
+	 * @param data_norad		Array holding the NORAD data
+	 */
+	public final void SetElements(double[] data_norad)
+	{
 		E1_XNDT2O = data_norad[1];
 		E1_XNDD6O = data_norad[2];
 		E1_BSTAR = data_norad[3]/ C1_AE / 1E5;
@@ -1239,89 +1260,113 @@ public class SDP4Model
 		itsEpochJD += 365. * (year - 1985.) + Math.floor(year/4.)
 				- Math.floor(year/100.) + Math.floor(year/400.)	+ 306.;
 
-		TSINCE[0] = C1_XMNPDA * (julDay - itsEpochJD);
-
-		if (IFLAG[0] != 0) {
-
-			SDP4_A1 = Math.pow(C1_XKE / E1_XNO, C1_TOTHRD);
-			SDP4_COSIO = Math.cos(E1_XINCL);
-			SDP4_THETA2 = SDP4_COSIO * SDP4_COSIO;
-			SDP4_X3THM1 = 3. * SDP4_THETA2 - 1.;
-			SDP4_EOSQ = E1_EO * E1_EO;
-			SDP4_BETAO2 = 1. - SDP4_EOSQ;
-			SDP4_BETAO = Math.sqrt(SDP4_BETAO2);
-			SDP4_DEL1 = 1.5 * C1_CK2 * SDP4_X3THM1
-					/ (SDP4_A1 * SDP4_A1 * SDP4_BETAO * SDP4_BETAO2);
-			SDP4_AO = SDP4_A1 * (1. - SDP4_DEL1 * (.5 * C1_TOTHRD + SDP4_DEL1
-					* (1. + 134./81. * SDP4_DEL1)));
-			SDP4_DELO = 1.5 * C1_CK2 * SDP4_X3THM1
-					/ (SDP4_AO * SDP4_AO * SDP4_BETAO * SDP4_BETAO2);
-			SDP4_XNODP = E1_XNO / (1. + SDP4_DELO);
-			SDP4_AODP = SDP4_AO / (1. - SDP4_DELO);
-
-			SDP4_S4 = C1_S;
-			SDP4_QOMS24 = C1_QOMS2T;
-			SDP4_PERIGE = (SDP4_AODP * (1. - E1_EO) - C1_AE) * C1_XKMPER;
-			if (SDP4_PERIGE < 156.) {
-				SDP4_S4 = SDP4_PERIGE - 78.;
-				if (SDP4_PERIGE <= 98.) {
-					SDP4_S4 = 20.;
-				}
-				SDP4_QOMS24 = ((120. - SDP4_S4) * C1_AE / C1_XKMPER);
-				SDP4_QOMS24 *= SDP4_QOMS24;
-				SDP4_QOMS24 *= SDP4_QOMS24;
-				SDP4_S4 = SDP4_S4 / C1_XKMPER + C1_AE;
+		SDP4_A1 = Math.pow(C1_XKE / E1_XNO, C1_TOTHRD);
+		SDP4_COSIO = Math.cos(E1_XINCL);
+		SDP4_THETA2 = SDP4_COSIO * SDP4_COSIO;
+		SDP4_X3THM1 = 3. * SDP4_THETA2 - 1.;
+		SDP4_EOSQ = E1_EO * E1_EO;
+		SDP4_BETAO2 = 1. - SDP4_EOSQ;
+		SDP4_BETAO = Math.sqrt(SDP4_BETAO2);
+		SDP4_DEL1 = 1.5 * C1_CK2 * SDP4_X3THM1
+				/ (SDP4_A1 * SDP4_A1 * SDP4_BETAO * SDP4_BETAO2);
+		SDP4_AO = SDP4_A1 * (1. - SDP4_DEL1 * (.5 * C1_TOTHRD + SDP4_DEL1
+				* (1. + 134./81. * SDP4_DEL1)));
+		SDP4_DELO = 1.5 * C1_CK2 * SDP4_X3THM1
+				/ (SDP4_AO * SDP4_AO * SDP4_BETAO * SDP4_BETAO2);
+		SDP4_XNODP = E1_XNO / (1. + SDP4_DELO);
+		SDP4_AODP = SDP4_AO / (1. - SDP4_DELO);
+
+		SDP4_S4 = C1_S;
+		SDP4_QOMS24 = C1_QOMS2T;
+		SDP4_PERIGE = (SDP4_AODP * (1. - E1_EO) - C1_AE) * C1_XKMPER;
+		if (SDP4_PERIGE < 156.) {
+			SDP4_S4 = SDP4_PERIGE - 78.;
+			if (SDP4_PERIGE <= 98.) {
+				SDP4_S4 = 20.;
 			}
-			SDP4_PINVSQ = 1. / (SDP4_AODP * SDP4_AODP * SDP4_BETAO2 * SDP4_BETAO2);
-			SDP4_SING = Math.sin(E1_OMEGAO);
-			SDP4_COSG = Math.cos(E1_OMEGAO);
-			SDP4_TSI = 1. / (SDP4_AODP - SDP4_S4);
-			SDP4_ETA = SDP4_AODP * E1_EO * SDP4_TSI;
-			SDP4_ETASQ = SDP4_ETA * SDP4_ETA;
-			SDP4_EETA = E1_EO * SDP4_ETA;
-			SDP4_PSISQ = Math.abs(1. - SDP4_ETASQ);
-			SDP4_COEF = SDP4_QOMS24 * SDP4_TSI * SDP4_TSI * SDP4_TSI * SDP4_TSI;
-			SDP4_COEF1 = SDP4_COEF / Math.pow(SDP4_PSISQ, 3.5);
-			SDP4_C2 = SDP4_COEF1 * SDP4_XNODP * (SDP4_AODP * (1. + 1.5 * SDP4_ETASQ
-					+ SDP4_EETA * (4. + SDP4_ETASQ))
-					+ .75 * C1_CK2 * SDP4_TSI / SDP4_PSISQ * SDP4_X3THM1
-					* (8. + 3. * SDP4_ETASQ * (8. + SDP4_ETASQ)));
-			SDP4_C1 = E1_BSTAR * SDP4_C2;
-			SDP4_SINIO = Math.sin(E1_XINCL);
-			SDP4_A3OVK2 = -C1_XJ3 / C1_CK2 * C1_AE * C1_AE * C1_AE;
-			SDP4_X1MTH2 = 1. - SDP4_THETA2;
-			SDP4_C4 = 2. * SDP4_XNODP * SDP4_COEF1 * SDP4_AODP * SDP4_BETAO2
-					* (SDP4_ETA * (2. + .5 * SDP4_ETASQ) + E1_EO * (.5 + 2. * SDP4_ETASQ)
-							- 2. * C1_CK2 * SDP4_TSI / (SDP4_AODP * SDP4_PSISQ)
-							* (-3. * SDP4_X3THM1 * (1. - 2. * SDP4_EETA + SDP4_ETASQ
-									* (1.5 - .5 * SDP4_EETA)) + .75 * SDP4_X1MTH2
-									* (2. * SDP4_ETASQ - SDP4_EETA * (1. + SDP4_ETASQ))
-									* Math.cos(2. * E1_OMEGAO)));
-			SDP4_THETA4 = SDP4_THETA2 * SDP4_THETA2;
-			SDP4_TEMP1 = 3. * C1_CK2 * SDP4_PINVSQ * SDP4_XNODP;
-			SDP4_TEMP2 = SDP4_TEMP1 * C1_CK2 * SDP4_PINVSQ;
-			SDP4_TEMP3 = 1.25 * C1_CK4 * SDP4_PINVSQ * SDP4_PINVSQ * SDP4_XNODP;
-			SDP4_XMDOT = SDP4_XNODP + .5 * SDP4_TEMP1 * SDP4_BETAO * SDP4_X3THM1
-					+ .0625 * SDP4_TEMP2 * SDP4_BETAO
-					* (13. - 78. * SDP4_THETA2 + 137. * SDP4_THETA4);
-			SDP4_X1M5TH = 1. - 5. * SDP4_THETA2;
-			SDP4_OMGDOT = -.5 * SDP4_TEMP1 * SDP4_X1M5TH
-					+ .0625 * SDP4_TEMP2 * (7. - 114. * SDP4_THETA2 + 395. * SDP4_THETA4)
-					+ SDP4_TEMP3 * (3. - 36. * SDP4_THETA2 + 49. * SDP4_THETA4);
-			SDP4_XHDOT1 = -SDP4_TEMP1 * SDP4_COSIO;
-			SDP4_XNODOT = SDP4_XHDOT1 + (.5 * SDP4_TEMP2 * (4. - 19. * SDP4_THETA2)
-					+ 2. * SDP4_TEMP3 * (3. - 7. * SDP4_THETA2)) * SDP4_COSIO;
-			SDP4_XNODCF = 3.5 * SDP4_BETAO2 * SDP4_XHDOT1 * SDP4_C1;
-			SDP4_T2COF = 1.5 * SDP4_C1;
-			SDP4_XLCOF = .125 * SDP4_A3OVK2 * SDP4_SINIO
-					* (3. + 5. * SDP4_COSIO) / (1. + SDP4_COSIO);
-			SDP4_AYCOF = .25 * SDP4_A3OVK2 * SDP4_SINIO;
-			SDP4_X7THM1 = 7. * SDP4_THETA2 - 1.;
-			IFLAG[0] = 0;
-			DPINIT(SDP4_EOSQ, SDP4_SINIO, SDP4_COSIO, SDP4_BETAO, SDP4_AODP,
-					SDP4_THETA2, SDP4_SING, SDP4_COSG, SDP4_BETAO2, SDP4_XMDOT,
-					SDP4_OMGDOT, SDP4_XNODOT, SDP4_XNODP);
+			SDP4_QOMS24 = ((120. - SDP4_S4) * C1_AE / C1_XKMPER);
+			SDP4_QOMS24 *= SDP4_QOMS24;
+			SDP4_QOMS24 *= SDP4_QOMS24;
+			SDP4_S4 = SDP4_S4 / C1_XKMPER + C1_AE;
 		}
+		SDP4_PINVSQ = 1. / (SDP4_AODP * SDP4_AODP * SDP4_BETAO2 * SDP4_BETAO2);
+		SDP4_SING = Math.sin(E1_OMEGAO);
+		SDP4_COSG = Math.cos(E1_OMEGAO);
+		SDP4_TSI = 1. / (SDP4_AODP - SDP4_S4);
+		SDP4_ETA = SDP4_AODP * E1_EO * SDP4_TSI;
+		SDP4_ETASQ = SDP4_ETA * SDP4_ETA;
+		SDP4_EETA = E1_EO * SDP4_ETA;
+		SDP4_PSISQ = Math.abs(1. - SDP4_ETASQ);
+		SDP4_COEF = SDP4_QOMS24 * SDP4_TSI * SDP4_TSI * SDP4_TSI * SDP4_TSI;
+		SDP4_COEF1 = SDP4_COEF / Math.pow(SDP4_PSISQ, 3.5);
+		SDP4_C2 = SDP4_COEF1 * SDP4_XNODP * (SDP4_AODP * (1. + 1.5 * SDP4_ETASQ
+				+ SDP4_EETA * (4. + SDP4_ETASQ))
+				+ .75 * C1_CK2 * SDP4_TSI / SDP4_PSISQ * SDP4_X3THM1
+				* (8. + 3. * SDP4_ETASQ * (8. + SDP4_ETASQ)));
+		SDP4_C1 = E1_BSTAR * SDP4_C2;
+		SDP4_SINIO = Math.sin(E1_XINCL);
+		SDP4_A3OVK2 = -C1_XJ3 / C1_CK2 * C1_AE * C1_AE * C1_AE;
+		SDP4_X1MTH2 = 1. - SDP4_THETA2;
+		SDP4_C4 = 2. * SDP4_XNODP * SDP4_COEF1 * SDP4_AODP * SDP4_BETAO2
+				* (SDP4_ETA * (2. + .5 * SDP4_ETASQ) + E1_EO * (.5 + 2. * SDP4_ETASQ)
+						- 2. * C1_CK2 * SDP4_TSI / (SDP4_AODP * SDP4_PSISQ)
+						* (-3. * SDP4_X3THM1 * (1. - 2. * SDP4_EETA + SDP4_ETASQ
+								* (1.5 - .5 * SDP4_EETA)) + .75 * SDP4_X1MTH2
+								* (2. * SDP4_ETASQ - SDP4_EETA * (1. + SDP4_ETASQ))
+								* Math.cos(2. * E1_OMEGAO)));
+		SDP4_THETA4 = SDP4_THETA2 * SDP4_THETA2;
+		SDP4_TEMP1 = 3. * C1_CK2 * SDP4_PINVSQ * SDP4_XNODP;
+		SDP4_TEMP2 = SDP4_TEMP1 * C1_CK2 * SDP4_PINVSQ;
+		SDP4_TEMP3 = 1.25 * C1_CK4 * SDP4_PINVSQ * SDP4_PINVSQ * SDP4_XNODP;
+		SDP4_XMDOT = SDP4_XNODP + .5 * SDP4_TEMP1 * SDP4_BETAO * SDP4_X3THM1
+				+ .0625 * SDP4_TEMP2 * SDP4_BETAO
+				* (13. - 78. * SDP4_THETA2 + 137. * SDP4_THETA4);
+		SDP4_X1M5TH = 1. - 5. * SDP4_THETA2;
+		SDP4_OMGDOT = -.5 * SDP4_TEMP1 * SDP4_X1M5TH
+				+ .0625 * SDP4_TEMP2 * (7. - 114. * SDP4_THETA2 + 395. * SDP4_THETA4)
+				+ SDP4_TEMP3 * (3. - 36. * SDP4_THETA2 + 49. * SDP4_THETA4);
+		SDP4_XHDOT1 = -SDP4_TEMP1 * SDP4_COSIO;
+		SDP4_XNODOT = SDP4_XHDOT1 + (.5 * SDP4_TEMP2 * (4. - 19. * SDP4_THETA2)
+				+ 2. * SDP4_TEMP3 * (3. - 7. * SDP4_THETA2)) * SDP4_COSIO;
+		SDP4_XNODCF = 3.5 * SDP4_BETAO2 * SDP4_XHDOT1 * SDP4_C1;
+		SDP4_T2COF = 1.5 * SDP4_C1;
+		SDP4_XLCOF = .125 * SDP4_A3OVK2 * SDP4_SINIO
+				* (3. + 5. * SDP4_COSIO) / (1. + SDP4_COSIO);
+		SDP4_AYCOF = .25 * SDP4_A3OVK2 * SDP4_SINIO;
+		SDP4_X7THM1 = 7. * SDP4_THETA2 - 1.;
+		DPINIT(SDP4_EOSQ, SDP4_SINIO, SDP4_COSIO, SDP4_BETAO, SDP4_AODP,
+				SDP4_THETA2, SDP4_SING, SDP4_COSG, SDP4_BETAO2, SDP4_XMDOT,
+				SDP4_OMGDOT, SDP4_XNODOT, SDP4_XNODP);
+		itsElements = data_norad.clone();
+	}
+
+	/**
+	 * Propagate the elements of SetElements.
+	 * @param julDay			The time expressed in Julian days
+	 * @return the position in Gm, the velocity is in itsV.
+	 */
+	public final double[] Propagate(double julDay)
+	{
+		double A, AXN, AYN, AYNL, BETA, BETAL, CAPU, COS2U, COSEPW,
+		COSIK, COSNOK, COSU, COSUK, E, ECOSE, ELSQ, EM, EPW, ESINE, OMGADF,
+		PL, R, RDOT, RDOTK, RFDOT, RFDOTK, RK, SIN2U, SINEPW, SINIK,
+		SINNOK, SINU, SINUK, TEMP, TEMP4, TEMP5, TEMP6, TEMPA,
+		TEMPE, TEMPL, TSQ, U, UK, UX, UY, UZ, VX, VY, VZ, XINC, XINCK,
+		XL, XLL, XLT, XMAM, XMDF, XMX, XMY, XN, XNODDF, XNODE, XNODEK;
+		int I;
+
+		TEMP4 = 0.;
+		TEMP5 = 0.;
+		TEMP6 = 0.;
+		COSEPW = 0.;
+		SINEPW = 0.;
+		EM = 0.;
+		XINC = 0.;
+
+		JD = julDay;
+		TSINCE[0] = C1_XMNPDA * (julDay - itsEpochJD);
+		// Lunar-solar periodics computed at each time, not every 30 minutes
+		DEEP_SAVTSN = 1.E20;
 
 		XMDF   = E1_XMO    + SDP4_XMDOT  * TSINCE[0];
 		OMGADF = E1_OMEGAO + SDP4_OMGDOT * TSINCE[0];
@@ -1482,13 +1527,17 @@ public class SDP4Model
    *   and the topocentric distance in Gm. 
    */
   public static void GetHori(double[] direction) {
-    double t1[] = new double[3];
-    double t2[] = new double[3];
+    double theGST, c, s;
+
+    /* Rotate by the Greenwich sidereal time to Earth fixed coordinates in m */
+
+    theGST = GetGST() * Math.PI / 12.;
+    c = Math.cos(theGST) * 1E9;
+    s = Math.sin(theGST) * 1E9;
 
-    Mean2Topo(itsR, t1);
-    Topo2Hori(t1, t2);
-    Spher(t2, direction);
-    direction[0] = NormAngle180(direction[0]);
+    itsFrame.toAzimuthElevation(itsR[0] * c + itsR[1] * s,
+        -itsR[0] * s + itsR[1] * c, itsR[2] * 1E9, direction);
+    direction[2] /= 1E9;
   }
 
   /**
@@ -1496,10 +1545,7 @@ public class SDP4Model
    * @param usr_pos_geo User latitude, longitude and height
    */
   public static void SetGeodetic(double[] usr_pos_geo) {
-
-    double theFactor;
-    
-    JD = SatelliteData.JD;
+    double[] theOrigin;
 
     /* Normalize longitude, set height in Gm */
 
@@ -1507,32 +1553,11 @@ public class SDP4Model
     itsLat = usr_pos_geo[0] / 180. * Math.PI;
     itsHeight = usr_pos_geo[2] / 1E9;
 
-    if (itsLat <= -Math.PI / 2.) {
-      itsX = 0.;
-      itsZ = +B;
-    } else if (itsLat >= +Math.PI / 2.) {
-      itsX = 0.;
-      itsZ = -B;
-    } else if (1E-6 > Math.abs(itsLat)) {
-      itsX = A * Math.cos(itsLat);
-      itsZ = A * Math.sin(itsLat);
-    } else if (0. < itsLat) {
-      theFactor = F / (F - 1.);
-      theFactor /= Math.tan(itsLat);
-      theFactor *= theFactor;
-      itsX = itsHeight * Math.cos(itsLat) + A
-          * Math.sqrt(1. - 1. / (1. + theFactor));
-      itsZ = itsHeight * Math.sin(itsLat) + B
-          * Math.sqrt(1. / (1. + theFactor));
-    } else {
-      theFactor = F / (F - 1.);
-      theFactor /= Math.tan(itsLat);
-      theFactor *= theFactor;
-      itsX = itsHeight * Math.cos(itsLat) + A
-          * Math.sqrt(1. - 1. / (1. + theFactor));
-      itsZ = itsHeight * Math.sin(itsLat) - B
-          * Math.sqrt(1. / (1. + theFactor));
-    }
+    /* WGS-84 station position, only computed again if the station has moved */
+
+    theOrigin = itsFrame.setOrigin(itsLat, itsLong, usr_pos_geo[2]).getOrigin();
+    itsX = Math.sqrt(theOrigin[0] * theOrigin[0] + theOrigin[1] * theOrigin[1]) / 1E9;
+    itsZ = theOrigin[2] / 1E9;
   }
 
   /**
@@ -1556,8 +1581,20 @@ public class SDP4Model
    * @param outPosVect  x y z position in Gm.
    */
   protected final void J20002Mean(double jD, double inPosVect[], double outPosVect[]) 
+  {
+    Precession(jD, itsPrecession).transform(inPosVect, outPosVect);
+  }
+
+  /**
+   * Set the precession matrix from J2000 to the equinox of date.
+   * @param jD      The equinox of date.
+   * @param mat     The matrix, J2000 to mean coordinates.
+   * @return        The matrix mat.
+   */
+  protected final static Mat3 Precession(double jD, Mat3 mat)
   {
     double t, zeta, z, theta;
+    double cZeta, sZeta, cZ, sZ, cTheta, sTheta;
 
     t = (GetJulEpoch(jD) - 2000.) / 100;
     zeta = .6406161 * t + 8.39e-5 * t * t + 5e-6 * t * t * t;
@@ -1567,26 +1604,21 @@ public class SDP4Model
     z /= 180. / Math.PI;
     theta /= 180. / Math.PI;
 
-    double mat[] = {
-        +Math.cos(zeta) * Math.cos(theta) * Math.cos(z) - Math.sin(zeta)
-        * Math.sin(z),
-        -Math.sin(zeta) * Math.cos(theta) * Math.cos(z) - Math.cos(zeta)
-        * Math.sin(z),
-        -Math.sin(theta) * Math.cos(z),
-        +Math.cos(zeta) * Math.cos(theta) * Math.sin(z) + Math.sin(zeta)
-        * Math.cos(z),
-        -Math.sin(zeta) * Math.cos(theta) * Math.sin(z) + Math.cos(zeta)
-        * Math.cos(z), -Math.sin(theta) * Math.sin(z),
-        +Math.cos(zeta) * Math.sin(theta), -Math.sin(zeta) * Math.sin(theta),
-        +Math.cos(theta) };
-
-    outPosVect[0] = mat[0] * inPosVect[0] + mat[1] * inPosVect[1] + mat[2]
-        * inPosVect[2];
-    outPosVect[1] = mat[3] * inPosVect[0] + mat[4] * inPosVect[1] + mat[5]
-        * inPosVect[2];
-    outPosVect[2] = mat[6] * inPosVect[0] + mat[7] * inPosVect[1] + mat[8]
-        * inPosVect[2];
-
+    cZeta = Math.cos(zeta);
+    sZeta = Math.sin(zeta);
+    cZ = Math.cos(z);
+    sZ = Math.sin(z);
+    cTheta = Math.cos(theta);
+    sTheta = Math.sin(theta);
+
+    return mat.set(
+        +cZeta * cTheta * cZ - sZeta * sZ,
+        -sZeta * cTheta * cZ - cZeta * sZ,
+        -sTheta * cZ,
+        +cZeta * cTheta * sZ + sZeta * cZ,
+        -sZeta * cTheta * sZ + cZeta * cZ,
+        -sTheta * sZ,
+        +cZeta * sTheta, -sZeta * sTheta, +cTheta);
   }
 
   /**
@@ -1597,21 +1629,17 @@ public class SDP4Model
    */
   protected final static void Mean2Topo(double inPosVector[],
       double outPosVector[]) {
-    double theLST;
-    double mat[] = new double[4];
-    double vec[] = new double[3];
+    double theLST, c, s, x, y;
 
     theLST = GetLST() * Math.PI / 12.;
-    mat[0] = Math.cos(theLST);
-    mat[1] = Math.sin(theLST);
-    mat[2] = Math.sin(theLST);
-    mat[3] = -Math.cos(theLST);
+    c = Math.cos(theLST);
+    s = Math.sin(theLST);
 
-    GetX0Z(vec);
-    outPosVector[0] = inPosVector[0] * mat[0] + inPosVector[1] * mat[1]
-        - vec[0];
-    outPosVector[1] = inPosVector[0] * mat[2] + inPosVector[1] * mat[3];
-    outPosVector[2] = inPosVector[2] - vec[2];
+    x = inPosVector[0];
+    y = inPosVector[1];
+    outPosVector[0] = x * c + y * s - itsX;
+    outPosVector[1] = x * s - y * c;
+    outPosVector[2] = inPosVector[2] - itsZ;
 
   }
 
@@ -1621,19 +1649,16 @@ public class SDP4Model
    * @param outPosVector  xyz position in Gm.
    */
   protected final static void Topo2Hori(double inPosVector[], double outPosVector[]) {
-    double mat[] = new double[4];
-    double theLat;
-
-    theLat = itsLat;
+    double c, s, x, z;
 
-    mat[0] = -Math.sin(theLat);
-    mat[1] = Math.cos(theLat);
-    mat[2] = Math.cos(theLat);
-    mat[3] = Math.sin(theLat);
+    c = Math.cos(itsLat);
+    s = Math.sin(itsLat);
 
-    outPosVector[0] = inPosVector[0] * mat[0] + inPosVector[2] * mat[1];
+    x = inPosVector[0];
+    z = inPosVector[2];
+    outPosVector[0] = -x * s + z * c;
     outPosVector[1] = -inPosVector[1];
-    outPosVector[2] = inPosVector[0] * mat[2] + inPosVector[2] * mat[3];
+    outPosVector[2] = x * c + z * s;
   }
 
   /**
@@ -1797,12 +1822,7 @@ public class SDP4Model
    * @param aTriplet  The x, y and z coordinates.(normally in Gm)
    */
   protected static void SetMean(double itsJD, double aTriplet[]) {
-    double t1[] = new double[3];
-    int i;
-
-    Mean2J2000(itsJD, aTriplet, t1);
-    for (i = 0; i < 3; i++)
-      itsR[i] = t1[i];
+    Mean2J2000(itsJD, aTriplet, itsR);
   }
 
   /**
@@ -1810,35 +1830,7 @@ public class SDP4Model
    */
   protected final static void Mean2J2000(double itsJD, double inTriplets[],
       double outTriplets[]) {
-    double t, zeta, z, theta;
-
-    t = (GetJulEpoch(itsJD) - 2000.) / 100.;
-    zeta = .6406161 * t + 8.39e-5 * t * t + 5e-6 * t * t * t;
-    z = .6406161 * t + 3.041e-4 * t * t + 5.1e-6 * t * t * t;
-    theta = .556753 * t - 1.185e-4 * t * t - 1.16e-5 * t * t * t;
-    zeta /= 180 / Math.PI;
-    z /= 180 / Math.PI;
-    theta /= 180 / Math.PI;
-
-    double mat[] = {
-        +Math.cos(zeta) * Math.cos(theta) * Math.cos(z) - Math.sin(zeta)
-        * Math.sin(z),
-        -Math.sin(zeta) * Math.cos(theta) * Math.cos(z) - Math.cos(zeta)
-        * Math.sin(z),
-        -Math.sin(theta) * Math.cos(z),
-        +Math.cos(zeta) * Math.cos(theta) * Math.sin(z) + Math.sin(zeta)
-        * Math.cos(z),
-        -Math.sin(zeta) * Math.cos(theta) * Math.sin(z) + Math.cos(zeta)
-        * Math.cos(z), -Math.sin(theta) * Math.sin(z),
-        +Math.cos(zeta) * Math.sin(theta), -Math.sin(zeta) * Math.sin(theta),
-        +Math.cos(theta) };
-
-    outTriplets[0] = mat[0] * inTriplets[0] + mat[3] * inTriplets[1] + mat[6]
-        * inTriplets[2];
-    outTriplets[1] = mat[1] * inTriplets[0] + mat[4] * inTriplets[1] + mat[7]
-        * inTriplets[2];
-    outTriplets[2] = mat[2] * inTriplets[0] + mat[5] * inTriplets[1] + mat[8]
-        * inTriplets[2];
-
+    // Inverse of the precession rotation, its transpose
+    Precession(itsJD, itsPrecession).transformTranspose(inTriplets, outTriplets);
   }
 }
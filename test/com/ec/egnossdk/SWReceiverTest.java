@@ -0,0 +1,203 @@
+/**
+ * @file SWReceiverTest.java
+ *
+ * Tests of the GPS and EGNOS positions of the native SW receiver.
+ *
+ * Usage: make -C jni/host test JAVA_HOME=/path/to/jdk JUNIT=/path/to/junit.jar:/path/to/hamcrest-core.jar
+ *
+ * Rev: 3.0.0
+ *
+ * Author: DKE Aerospace Germany GmbH
+ *
+ * Copyright 2012 European Commission
+ *
+ * Licensed under the EUPL, Version 1.1 only (the "Licence");
+ * You may not use this work except in compliance with the
+ * Licence.
+ * You may obtain a copy of the Licence at:
+ * http://ec.europa.eu/idabc/eupl
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the Licence is
+ * distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied.
+ * See the Licence for the specific language governing
+ * permissions and limitations under the Licence.
+ *
+ **/
+
+package com.ec.egnossdk;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Class that tests getLongitudeLatitudeGPS and getLongitudeLatitudeEGNOS on
+ * the simulated epoch of epoch.txt: the ephemerides, EGNOS messages and
+ * pseudoranges of one epoch, and the simulated position of the receiver.
+ *
+ * The library is loaded by SWReceiver, from the path given by the
+ * egnossdk.library system property (see jni/host/Makefile). The positions are
+ * compared with the reference solutions of the library, to 1 mm, and with
+ * the simulated position: the EGNOS position has the same ionospheric and
+ * tropospheric models as the simulation, the GPS position is not corrected.
+ */
+public class SWReceiverTest {
+
+	/** Reference GPS solution: latitude, longitude (deg), height (m) */
+	private static final double[] GPS_POSITION = { 43.26300162, -2.93499700, 64.9634 };
+	/** Reference EGNOS solution: latitude, longitude (deg), height (m), and HPL (m) */
+	private static final double[] EGNOS_POSITION = { 43.26300000, -2.93500000, 52.0004 };
+	private static final double EGNOS_HPL = 12.2422;
+	/** Satellites of the epoch used in the solutions */
+	private static final int USED = 11;
+
+	/** 1 mm in degrees of latitude */
+	private static final double DEGREES = 1E-8;
+	private static final double METERS = 1E-3;
+
+	private final String[] ephemerides = new String[32];
+	private String msg1, msg7, msg10, msg12;
+	private final String[] msg2_5 = new String[8];
+	private final String[] m18_t = new String[5];
+	private final String[] m26_t = new String[25];
+	private final String[] msg24_t = new String[25];
+	private final String[] msg25_t = new String[15];
+	private final double[][] satData = new double[19][4];
+	private final double[][] satDataNotUsed = new double[19][4];
+	private final double[] truth = new double[3];
+	private long engine;
+
+	@Before
+	public void setUp() throws IOException {
+		readEpoch("epoch.txt");
+		engine = SWReceiver.createEngine();
+		assertTrue("engine not created", engine != 0);
+		SWReceiver.updateEphemeris(engine, ephemerides);
+		SWReceiver.updateSbasMessages(engine, msg1, msg10, msg12, msg7, null,
+				m18_t, m26_t, msg2_5, msg24_t, msg25_t, null, null);
+	}
+
+	@After
+	public void tearDown() {
+		if (engine != 0)
+			SWReceiver.destroyEngine(engine);
+		engine = 0;
+	}
+
+	@Test
+	public void testGPSPosition() {
+		PositionSolution solution = new PositionSolution(PositionSolution.GPS);
+
+		SWReceiver.getLongitudeLatitudeGPS(engine, copy(satData), new double[4],
+				new double[9], copy(satDataNotUsed), solution.getBuffer());
+
+		assertEquals(USED, solution.getUsedCount());
+		assertEquals(GPS_POSITION[0], solution.getLatitude(), DEGREES);
+		assertEquals(GPS_POSITION[1], solution.getLongitude(), DEGREES);
+		assertEquals(GPS_POSITION[2], solution.getAltitude(), METERS);
+		// Ionospheric and tropospheric delays of the simulation not corrected
+		assertEquals(truth[0], solution.getLatitude(), 1E-4);
+		assertEquals(truth[1], solution.getLongitude(), 1E-4);
+		assertEquals(truth[2], solution.getAltitude(), 20);
+	}
+
+	@Test
+	public void testEGNOSPosition() {
+		PositionSolution solution = new PositionSolution(PositionSolution.EGNOS);
+
+		SWReceiver.getLongitudeLatitudeEGNOS(engine, copy(satData), new double[4],
+				new double[9], new double[9], new int[8], copy(satDataNotUsed),
+				solution.getBuffer());
+
+		assertEquals(USED, solution.getUsedCount());
+		assertEquals(1, solution.getIonoFlag());
+		assertEquals(EGNOS_POSITION[0], solution.getLatitude(), DEGREES);
+		assertEquals(EGNOS_POSITION[1], solution.getLongitude(), DEGREES);
+		assertEquals(EGNOS_POSITION[2], solution.getAltitude(), METERS);
+		assertEquals(EGNOS_HPL, solution.getHPL(), METERS);
+		assertEquals(truth[0], solution.getLatitude(), DEGREES);
+		assertEquals(truth[1], solution.getLongitude(), DEGREES);
+		assertEquals(truth[2], solution.getAltitude(), 0.01);
+	}
+
+	/**
+	 * readEpoch function
+	 *
+	 * Reads the epoch, a resource of this class. Lines: "eph <slot> <data>",
+	 * "msg <type> <slot> <TOW and payload>", "sat <PRN> <TOW> <pseudorange>
+	 * <C/N0>", "notused ..." and "truth <latitude> <longitude> <height>";
+	 * the lines starting with # are comments.
+	 *
+	 * @param name
+	 *            name of the resource.
+	 **/
+	private void readEpoch(String name) throws IOException {
+		InputStream in = SWReceiverTest.class.getResourceAsStream(name);
+		int sats = 0, notUsed = 0;
+
+		assertNotNull(name + " not found", in);
+		BufferedReader reader = new BufferedReader(new InputStreamReader(in, "US-ASCII"));
+		try {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				String[] f = line.trim().split("\\s+");
+
+				if (f[0].equals("eph"))
+					ephemerides[Integer.parseInt(f[1])] = f[2];
+				else if (f[0].equals("msg"))
+					setMessage(Integer.parseInt(f[1]), Integer.parseInt(f[2]), f[3]);
+				else if (f[0].equals("sat"))
+					setChannel(satData[sats++], f);
+				else if (f[0].equals("notused"))
+					setChannel(satDataNotUsed[notUsed++], f);
+				else if (f[0].equals("truth"))
+					for (int i = 0; i < 3; i++)
+						truth[i] = Double.parseDouble(f[i + 1]);
+			}
+		} finally {
+			reader.close();
+		}
+	}
+
+	/** Stores a message in the table of updateSbasMessages of its type */
+	private void setMessage(int type, int slot, String msg) {
+		switch (type) {
+		case 1: msg1 = msg; break;
+		case 7: msg7 = msg; break;
+		case 10: msg10 = msg; break;
+		case 12: msg12 = msg; break;
+		case 2: msg2_5[slot] = msg; break;
+		case 18: m18_t[slot] = msg; break;
+		case 24: msg24_t[slot] = msg; break;
+		case 25: msg25_t[slot] = msg; break;
+		case 26: m26_t[slot] = msg; break;
+		default: throw new IllegalArgumentException("Message type " + type);
+		}
+	}
+
+	/** Fills a channel: PRN, TOW, pseudorange, C/N0 */
+	private static void setChannel(double[] channel, String[] f) {
+		for (int i = 0; i < 4; i++)
+			channel[i] = Double.parseDouble(f[i + 1]);
+	}
+
+	/** Copies a table of channels, which the library updates */
+	private static double[][] copy(double[][] table) {
+		double[][] c = new double[table.length][];
+
+		for (int i = 0; i < table.length; i++)
+			c[i] = table[i].clone();
+		return c;
+	}
+}